@@ -17,6 +17,8 @@
 package org.axonframework.commandhandling.annotation;
 
 import org.axonframework.common.annotation.AbstractMessageHandler;
+import org.axonframework.common.annotation.MemberInvoker;
+import org.axonframework.common.annotation.MemberInvokerFactory;
 import org.axonframework.common.annotation.ParameterResolver;
 import org.axonframework.common.annotation.UnsupportedHandlerException;
 import org.axonframework.domain.AggregateRoot;
@@ -37,7 +39,7 @@ import static org.axonframework.common.ReflectionUtils.ensureAccessible;
  */
 public final class ConstructorCommandMessageHandler<T extends AggregateRoot> extends AbstractMessageHandler {
 
-    private final Constructor<T> constructor;
+    private final MemberInvoker invoker;
 
     /**
      * Creates a ConstructorCommandMessageHandler for the given <code>constructor</code>.
@@ -92,19 +94,12 @@ public final class ConstructorCommandMessageHandler<T extends AggregateRoot> ext
     private ConstructorCommandMessageHandler(Constructor<T> constructor, ParameterResolver[] parameterValueResolvers,
                                              Class payloadType) {
         super(payloadType, constructor.getDeclaringClass(), parameterValueResolvers);
-        this.constructor = constructor;
+        this.invoker = MemberInvokerFactory.getInstance().createInvoker(constructor, parameterValueResolvers);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public T invoke(Object target, Message message) throws InvocationTargetException, IllegalAccessException {
-        Object[] parameterValues = new Object[getParameterValueResolvers().length];
-        for (int i = 0; i < parameterValues.length; i++) {
-            parameterValues[i] = getParameterValueResolvers()[i].resolveParameterValue(message);
-        }
-        try {
-            return constructor.newInstance(parameterValues);
-        } catch (InstantiationException e) {
-            throw new InvocationTargetException(e.getCause()); // NOSONAR
-        }
+        return (T) invoker.invoke(target, message);
     }
 }
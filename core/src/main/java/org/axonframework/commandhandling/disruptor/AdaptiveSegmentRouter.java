@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.common.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * SegmentRouter implementation that moves aggregates away from overloaded invokers. It keeps track of the queue depth
+ * of each invoker, being the number of commands routed to it that have not been completed yet.
+ * <p/>
+ * By default, commands are routed based on the hash code of the aggregate identifier. When a command targets an
+ * aggregate that has no commands in progress, and the queue depth of the invoker it would be routed to exceeds that
+ * of the least loaded invoker by more than the configured imbalance threshold, the aggregate is remapped to the least
+ * loaded invoker. Aggregates with commands in progress are never remapped, so all commands for one aggregate are
+ * handled by one invoker at a time.
+ * <p/>
+ * Publishers are always selected based on the hash code of the aggregate identifier.
+ * <p/>
+ * Note that this router keeps track of the aggregates that have commands in progress, which adds some overhead to
+ * each dispatched command. It is therefore only recommended when a small number of aggregates receive a large share
+ * of the commands.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class AdaptiveSegmentRouter implements SegmentRouter {
+
+    /**
+     * The default difference in queue depth between invokers at which aggregates are remapped.
+     */
+    public static final int DEFAULT_IMBALANCE_THRESHOLD = 64;
+
+    /**
+     * The default maximum number of aggregates routed to another invoker than their hash code indicates.
+     */
+    public static final int DEFAULT_MAX_REMAPPED_AGGREGATES = 100000;
+
+    private final ConcurrentMap<Object, Route> routes = new ConcurrentHashMap<Object, Route>();
+    private final AtomicInteger remappedAggregates = new AtomicInteger();
+    private final int imbalanceThreshold;
+    private final int maxRemappedAggregates;
+    private volatile AtomicIntegerArray queueDepths;
+
+    /**
+     * Initializes the router using the default imbalance threshold and maximum number of remapped aggregates.
+     */
+    public AdaptiveSegmentRouter() {
+        this(DEFAULT_IMBALANCE_THRESHOLD, DEFAULT_MAX_REMAPPED_AGGREGATES);
+    }
+
+    /**
+     * Initializes the router to remap aggregates when the queue depth of their invoker exceeds that of the least
+     * loaded invoker by more than <code>imbalanceThreshold</code> commands. At most
+     * <code>maxRemappedAggregates</code> aggregates are routed to another invoker than their hash code indicates.
+     *
+     * @param imbalanceThreshold    The difference in queue depth at which aggregates are remapped
+     * @param maxRemappedAggregates The maximum number of remapped aggregates
+     */
+    public AdaptiveSegmentRouter(int imbalanceThreshold, int maxRemappedAggregates) {
+        Assert.isTrue(imbalanceThreshold > 0, "The imbalance threshold must be positive");
+        this.imbalanceThreshold = imbalanceThreshold;
+        this.maxRemappedAggregates = maxRemappedAggregates;
+    }
+
+    @Override
+    public int selectInvokerSegment(Object aggregateIdentifier, int invokerCount) {
+        AtomicIntegerArray depths = queueDepths(invokerCount);
+        while (true) {
+            Route route = routes.get(aggregateIdentifier);
+            if (route == null) {
+                int hashSegment = hashSegment(aggregateIdentifier, invokerCount);
+                Route newRoute = new Route(hashSegment, selectSegment(hashSegment, hashSegment, depths));
+                if (routes.putIfAbsent(aggregateIdentifier, newRoute) == null) {
+                    depths.incrementAndGet(newRoute.segment);
+                    return newRoute.segment;
+                }
+                // another thread registered a route concurrently
+                newRoute.moveTo(hashSegment);
+            } else {
+                synchronized (route) {
+                    if (!route.retired) {
+                        if (route.inFlight == 0) {
+                            route.moveTo(selectSegment(route.hashSegment, route.segment, depths));
+                        }
+                        route.inFlight++;
+                        depths.incrementAndGet(route.segment);
+                        return route.segment;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int selectPublisherSegment(Object aggregateIdentifier, int publisherCount) {
+        return hashSegment(aggregateIdentifier, publisherCount);
+    }
+
+    @Override
+    public void commandCompleted(Object aggregateIdentifier, int invokerSegment) {
+        Route route = routes.get(aggregateIdentifier);
+        if (route == null) {
+            return;
+        }
+        synchronized (route) {
+            route.inFlight--;
+            if (route.inFlight == 0) {
+                // idle aggregates are routed by their hash code again, unless remapped on their next command
+                route.retired = true;
+                route.moveTo(route.hashSegment);
+                routes.remove(aggregateIdentifier, route);
+            }
+        }
+        queueDepths.decrementAndGet(invokerSegment);
+    }
+
+    @Override
+    public boolean isStable() {
+        return false;
+    }
+
+    /**
+     * Returns the number of commands routed to the invoker with given <code>segment</code> that have not been
+     * completed yet.
+     *
+     * @param segment The segment of the invoker
+     * @return the queue depth of the invoker, or 0 if no commands have been routed yet
+     */
+    public int getQueueDepth(int segment) {
+        AtomicIntegerArray depths = queueDepths;
+        return depths == null ? 0 : depths.get(segment);
+    }
+
+    private int selectSegment(int hashSegment, int currentSegment, AtomicIntegerArray depths) {
+        int leastLoaded = currentSegment;
+        for (int t = 0; t < depths.length(); t++) {
+            if (depths.get(t) < depths.get(leastLoaded)) {
+                leastLoaded = t;
+            }
+        }
+        if (depths.get(currentSegment) - depths.get(leastLoaded) <= imbalanceThreshold
+                || (leastLoaded != hashSegment && remappedAggregates.get() >= maxRemappedAggregates)) {
+            return currentSegment;
+        }
+        return leastLoaded;
+    }
+
+    private AtomicIntegerArray queueDepths(int invokerCount) {
+        AtomicIntegerArray depths = queueDepths;
+        if (depths == null) {
+            synchronized (this) {
+                if (queueDepths == null) {
+                    queueDepths = new AtomicIntegerArray(invokerCount);
+                }
+                depths = queueDepths;
+            }
+        }
+        return depths;
+    }
+
+    private static int hashSegment(Object aggregateIdentifier, int segmentCount) {
+        return Math.abs(aggregateIdentifier.hashCode() % segmentCount);
+    }
+
+    private final class Route {
+
+        private final int hashSegment;
+        private int segment;
+        private int inFlight = 1;
+        private boolean retired;
+
+        private Route(int hashSegment, int segment) {
+            this.hashSegment = hashSegment;
+            this.segment = hashSegment;
+            moveTo(segment);
+        }
+
+        private void moveTo(int newSegment) {
+            if (segment == hashSegment && newSegment != hashSegment) {
+                remappedAggregates.incrementAndGet();
+            } else if (segment != hashSegment && newSegment == hashSegment) {
+                remappedAggregates.decrementAndGet();
+            }
+            segment = newSegment;
+        }
+    }
+}
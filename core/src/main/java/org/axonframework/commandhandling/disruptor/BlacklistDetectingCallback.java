@@ -85,7 +85,7 @@ public class BlacklistDetectingCallback<R>
                 delegate.onFailure(cause.getCause());
             }
         } else if (rescheduleOnCorruptState && cause instanceof AggregateStateCorruptedException) {
-            commandBus.doDispatch(command, delegate);
+            commandBus.reschedule(command, delegate);
         } else if (delegate != null) {
             delegate.onFailure(cause);
         } else {
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.common.AxonTransientException;
+
+/**
+ * Exception indicating that a command was not processed, because the DisruptorCommandBus was stopped before the
+ * command was processed. The state changes caused by the command, if any, have not been stored or published. The
+ * command may be retried on another command bus instance.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class CommandBusShutdownException extends AxonTransientException {
+
+    private static final long serialVersionUID = -4524851813580727491L;
+
+    /**
+     * Initializes the exception with given explanatory <code>message</code>.
+     *
+     * @param message The message describing the exception
+     */
+    public CommandBusShutdownException(String message) {
+        super(message);
+    }
+}
@@ -19,11 +19,13 @@ package org.axonframework.commandhandling.disruptor;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.LifecycleAware;
 import net.sf.jsr107cache.Cache;
+import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.eventsourcing.AggregateFactory;
 import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.monitoring.MonitorRegistry;
 import org.axonframework.repository.AggregateNotFoundException;
 import org.axonframework.repository.ConflictingAggregateVersionException;
 import org.axonframework.repository.Repository;
@@ -31,8 +33,6 @@ import org.axonframework.unitofwork.CurrentUnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -47,12 +47,21 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
 
     private static final Logger logger = LoggerFactory.getLogger(CommandHandlerInvoker.class);
     private static final ThreadLocal<CommandHandlerInvoker> CURRENT_INVOKER = new ThreadLocal<CommandHandlerInvoker>();
-    private static final Object PLACEHOLDER_VALUE = new Object();
+
+    /**
+     * The default number of recently used aggregates kept in the first level cache of each repository.
+     */
+    public static final int DEFAULT_FIRST_LEVEL_CACHE_SIZE = 1000;
 
     private final ConcurrentMap<String, DisruptorRepository> repositories = new ConcurrentHashMap<String, DisruptorRepository>();
     private final Cache cache;
     private final int segmentId;
     private final EventStore eventStore;
+    private final int firstLevelCacheSize;
+    private final boolean evictForeignAggregates;
+    private final FirstLevelCacheStatistics firstLevelCacheStatistics = new FirstLevelCacheStatistics();
+    private final DisruptorCommandBusStatistics statistics;
+    private final DisruptorSnapshotter snapshotter;
 
     /**
      * Returns the Repository instance for Aggregate with given <code>typeIdentifier</code> used by the
@@ -78,9 +87,65 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
      * @param segmentId  The id of the segment this invoker should handle
      */
     public CommandHandlerInvoker(EventStore eventStore, Cache cache, int segmentId) {
+        this(eventStore, cache, segmentId, DEFAULT_FIRST_LEVEL_CACHE_SIZE);
+    }
+
+    /**
+     * Create an aggregate invoker instance that uses the given <code>eventStore</code> and <code>cache</code> to
+     * retrieve aggregate instances. Each repository keeps at most <code>firstLevelCacheSize</code> recently used
+     * aggregates in its first level cache, in addition to the aggregates still in use.
+     *
+     * @param eventStore          The event store providing access to events to reconstruct aggregates
+     * @param cache               The cache temporarily storing aggregate instances
+     * @param segmentId           The id of the segment this invoker should handle
+     * @param firstLevelCacheSize The number of recently used aggregates to keep in the first level cache
+     */
+    public CommandHandlerInvoker(EventStore eventStore, Cache cache, int segmentId, int firstLevelCacheSize) {
+        this(eventStore, cache, segmentId, firstLevelCacheSize, false);
+    }
+
+    /**
+     * Create an aggregate invoker instance that uses the given <code>eventStore</code> and <code>cache</code> to
+     * retrieve aggregate instances. When <code>evictForeignAggregates</code> is <code>true</code>, aggregates are
+     * removed from the first level cache as soon as a command targeting them is routed to another invoker. This is
+     * required when commands for an aggregate are not always routed to the same invoker.
+     *
+     * @param eventStore             The event store providing access to events to reconstruct aggregates
+     * @param cache                  The cache temporarily storing aggregate instances
+     * @param segmentId              The id of the segment this invoker should handle
+     * @param firstLevelCacheSize    The number of recently used aggregates to keep in the first level cache
+     * @param evictForeignAggregates Whether to evict aggregates targeted by commands routed to other invokers
+     * @see SegmentRouter#isStable()
+     */
+    public CommandHandlerInvoker(EventStore eventStore, Cache cache, int segmentId, int firstLevelCacheSize,
+                                 boolean evictForeignAggregates) {
+        this(eventStore, cache, segmentId, firstLevelCacheSize, evictForeignAggregates, null, null);
+    }
+
+    /**
+     * Create an aggregate invoker instance that records its progress and the latency of command handler invocations
+     * in the given <code>statistics</code>, and takes snapshots of aggregates using the given
+     * <code>snapshotter</code>, if any.
+     *
+     * @param eventStore             The event store providing access to events to reconstruct aggregates
+     * @param cache                  The cache temporarily storing aggregate instances
+     * @param segmentId              The id of the segment this invoker should handle
+     * @param firstLevelCacheSize    The number of recently used aggregates to keep in the first level cache
+     * @param evictForeignAggregates Whether to evict aggregates targeted by commands routed to other invokers
+     * @param statistics             The statistics of the command bus. May be <code>null</code>
+     * @param snapshotter            The snapshotter taking snapshots of aggregates. May be <code>null</code>
+     */
+    CommandHandlerInvoker(EventStore eventStore, Cache cache, int segmentId, int firstLevelCacheSize,
+                          boolean evictForeignAggregates, DisruptorCommandBusStatistics statistics,
+                          DisruptorSnapshotter snapshotter) {
+        this.statistics = statistics;
+        this.snapshotter = snapshotter;
         this.eventStore = eventStore;
         this.cache = cache;
         this.segmentId = segmentId;
+        this.firstLevelCacheSize = firstLevelCacheSize;
+        this.evictForeignAggregates = evictForeignAggregates;
+        MonitorRegistry.registerMonitoringBean(firstLevelCacheStatistics, CommandHandlerInvoker.class);
     }
 
     @Override
@@ -88,16 +153,38 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
         if (entry.isRecoverEntry()) {
             removeEntry(entry.getAggregateIdentifier());
         } else if (entry.getInvokerId() == segmentId) {
+            long startTime = System.nanoTime();
+            if (statistics != null) {
+                statistics.recordInvocationStarted(entry, startTime);
+            }
             DisruptorUnitOfWork unitOfWork = entry.getUnitOfWork();
             unitOfWork.start();
             try {
                 Object result = entry.getInvocationInterceptorChain().proceed(entry.getCommand());
                 entry.setResult(result);
-                unitOfWork.commit();
+                if (snapshotter == null) {
+                    unitOfWork.commit();
+                } else {
+                    int newEventCount = unitOfWork.getAggregate() == null
+                            ? 0 : unitOfWork.getAggregate().getUncommittedEventCount();
+                    unitOfWork.commit();
+                    snapshotter.aggregateCommitted(unitOfWork, newEventCount);
+                }
             } catch (Throwable throwable) {
                 entry.setExceptionResult(throwable);
                 unitOfWork.rollback(throwable);
             }
+            if (statistics != null) {
+                statistics.recordInvocationCompleted(entry, startTime);
+            }
+        } else if (evictForeignAggregates && entry.getTargetAggregateIdentifier() != null) {
+            // the aggregate may have moved to another invoker, making any cached state stale
+            for (DisruptorRepository repository : repositories.values()) {
+                repository.removeFromCache(entry.getTargetAggregateIdentifier());
+            }
+        }
+        if (endOfBatch && statistics != null) {
+            statistics.recordInvokerProgress(segmentId, sequence);
         }
     }
 
@@ -113,7 +200,9 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
     public <T extends EventSourcedAggregateRoot> Repository<T> createRepository(AggregateFactory<T> aggregateFactory) {
         String typeIdentifier = aggregateFactory.getTypeIdentifier();
         if (!repositories.containsKey(typeIdentifier)) {
-            DisruptorRepository<T> repository = new DisruptorRepository<T>(aggregateFactory, eventStore);
+            DisruptorRepository<T> repository = new DisruptorRepository<T>(
+                    aggregateFactory, eventStore, new FirstLevelCache<T>(firstLevelCacheSize,
+                                                                         firstLevelCacheStatistics), snapshotter);
             repositories.putIfAbsent(typeIdentifier, repository);
         }
         return repositories.get(typeIdentifier);
@@ -145,12 +234,16 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
 
         private final EventStore eventStore;
         private final AggregateFactory<T> aggregateFactory;
-        private final Map<T, Object> firstLevelCache = new WeakHashMap<T, Object>();
+        private final FirstLevelCache<T> firstLevelCache;
         private final String typeIdentifier;
+        private final DisruptorSnapshotter snapshotter;
 
-        private DisruptorRepository(AggregateFactory<T> aggregateFactory, EventStore eventStore) {
+        private DisruptorRepository(AggregateFactory<T> aggregateFactory, EventStore eventStore,
+                                    FirstLevelCache<T> firstLevelCache, DisruptorSnapshotter snapshotter) {
+            this.snapshotter = snapshotter;
             this.aggregateFactory = aggregateFactory;
             this.eventStore = eventStore;
+            this.firstLevelCache = firstLevelCache;
             typeIdentifier = this.aggregateFactory.getTypeIdentifier();
         }
 
@@ -167,21 +260,20 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
 
         @Override
         public T load(Object aggregateIdentifier) {
-            T aggregateRoot = null;
-            for (T cachedAggregate : firstLevelCache.keySet()) {
-                if (aggregateIdentifier.equals(cachedAggregate.getIdentifier())) {
-                    logger.debug("Aggregate {} found in first level cache", aggregateIdentifier);
-                    aggregateRoot = cachedAggregate;
-                }
-            }
-            if (aggregateRoot == null) {
+            T aggregateRoot = firstLevelCache.get(aggregateIdentifier);
+            if (aggregateRoot != null) {
+                logger.debug("Aggregate {} found in first level cache", aggregateIdentifier);
+            } else {
                 logger.debug("Aggregate {} not in first level cache, loading fresh one from Event Store",
                              aggregateIdentifier);
+                boolean snapshotRequired = false;
                 try {
-                    DomainEventStream events = eventStore.readEvents(typeIdentifier, aggregateIdentifier);
+                    CountingEventStream events = new CountingEventStream(
+                            eventStore.readEvents(typeIdentifier, aggregateIdentifier));
                     if (events.hasNext()) {
                         aggregateRoot = aggregateFactory.createAggregate(aggregateIdentifier, events.peek());
                         aggregateRoot.initializeState(events);
+                        snapshotRequired = snapshotter != null && snapshotter.isSnapshotRequired(events.count);
                     }
                 } catch (EventStreamNotFoundException e) {
                     throw new AggregateNotFoundException(
@@ -192,7 +284,12 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
                                     + "attempts to load an aggregate",
                             e);
                 }
-                firstLevelCache.put(aggregateRoot, PLACEHOLDER_VALUE);
+                if (aggregateRoot != null) {
+                    firstLevelCache.put(aggregateRoot);
+                }
+                if (snapshotRequired) {
+                    ((DisruptorUnitOfWork) CurrentUnitOfWork.get()).requestSnapshot();
+                }
             }
             if (aggregateRoot != null) {
                 DisruptorUnitOfWork unitOfWork = (DisruptorUnitOfWork) CurrentUnitOfWork.get();
@@ -207,18 +304,39 @@ public class CommandHandlerInvoker implements EventHandler<CommandHandlingEntry>
             DisruptorUnitOfWork unitOfWork = (DisruptorUnitOfWork) CurrentUnitOfWork.get();
             unitOfWork.setAggregateType(typeIdentifier);
             unitOfWork.registerAggregate(aggregate, null, null);
-            firstLevelCache.put(aggregate, PLACEHOLDER_VALUE);
+            firstLevelCache.put(aggregate);
         }
 
         private void removeFromCache(Object aggregateIdentifier) {
-            for (T cachedAggregate : firstLevelCache.keySet()) {
-                if (aggregateIdentifier.equals(cachedAggregate.getIdentifier())) {
-                    firstLevelCache.remove(cachedAggregate);
-                    logger.debug("Aggregate {} removed from first level cache for recovery purposes.",
-                                 aggregateIdentifier);
-                    return;
-                }
+            if (firstLevelCache.remove(aggregateIdentifier)) {
+                logger.debug("Aggregate {} removed from first level cache.", aggregateIdentifier);
             }
         }
     }
+
+    private static final class CountingEventStream implements DomainEventStream {
+
+        private final DomainEventStream delegate;
+        private int count;
+
+        private CountingEventStream(DomainEventStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public DomainEventMessage next() {
+            count++;
+            return delegate.next();
+        }
+
+        @Override
+        public DomainEventMessage peek() {
+            return delegate.peek();
+        }
+    }
 }
@@ -25,6 +25,7 @@ import org.axonframework.commandhandling.InterceptorChain;
 import org.axonframework.unitofwork.UnitOfWork;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * DataHolder for the DisruptorCommandBus. The CommandHandlingEntry maintains all information required for or produced
@@ -44,10 +45,13 @@ public class CommandHandlingEntry {
     private Object result;
     private int publisherSegmentId;
     private BlacklistDetectingCallback callback;
+    private final AtomicBoolean resultClaimed = new AtomicBoolean();
     // for recovery of corrupt aggregates
     private boolean isRecoverEntry;
     private Object aggregateIdentifier;
     private int invokerSegmentId;
+    private Object targetAggregateIdentifier;
+    private long dispatchTime;
 
     /**
      * Initializes the CommandHandlingEntry
@@ -163,6 +167,25 @@ public class CommandHandlingEntry {
         return aggregateIdentifier;
     }
 
+    /**
+     * Returns the identifier of the aggregate that has been used to select the invoker of this entry. Returns
+     * <code>null</code> if the invoker was not selected based on the targeted aggregate.
+     *
+     * @return the identifier of the aggregate used to select the invoker of this entry, if any
+     */
+    public Object getTargetAggregateIdentifier() {
+        return targetAggregateIdentifier;
+    }
+
+    /**
+     * Returns the value of {@link System#nanoTime()} at the moment this entry was reset for its current command.
+     *
+     * @return the time at which the command in this entry was dispatched, in nanoseconds
+     */
+    public long getDispatchTime() {
+        return dispatchTime;
+    }
+
     /**
      * Returns the Identifier of the invoker that is chosen to handle this entry.
      *
@@ -181,6 +204,18 @@ public class CommandHandlingEntry {
         return publisherSegmentId;
     }
 
+    /**
+     * Claims the responsibility to report the result of the command in this entry to its callback. Only the first
+     * invocation of this method returns <code>true</code>. This prevents the callback from being notified twice when
+     * the command bus is halted while this entry is being processed.
+     *
+     * @return <code>true</code> if the caller must report the result, <code>false</code> if it has been claimed
+     *         before
+     */
+    public boolean claimResult() {
+        return resultClaimed.compareAndSet(false, true);
+    }
+
     /**
      * Resets this entry, preparing it for use for another command.
      *
@@ -196,10 +231,35 @@ public class CommandHandlingEntry {
                       int newPublisherSegmentId,
                       BlacklistDetectingCallback newCallback, List<CommandHandlerInterceptor> invokerInterceptors,
                       List<CommandHandlerInterceptor> publisherInterceptors) {
+        reset(newCommand, newCommandHandler, newInvokerSegmentId, newPublisherSegmentId, null, newCallback,
+              invokerInterceptors, publisherInterceptors);
+    }
+
+    /**
+     * Resets this entry, preparing it for use for another command, of which the invoker has been selected based on
+     * the aggregate with given <code>newTargetAggregateIdentifier</code>.
+     *
+     * @param newCommand                   The new command the entry is used for
+     * @param newCommandHandler            The Command Handler responsible for handling <code>newCommand</code>
+     * @param newInvokerSegmentId          The SegmentID of the invoker that should process this entry
+     * @param newPublisherSegmentId        The SegmentID of the invoker that should process this entry
+     * @param newTargetAggregateIdentifier The identifier of the aggregate used to select the invoker. May be
+     *                                     <code>null</code>
+     * @param newCallback                  The callback to report the result of command execution to
+     * @param invokerInterceptors          The interceptors to invoke during the command handler invocation phase
+     * @param publisherInterceptors        The interceptors to invoke during the publication phase
+     */
+    public void reset(CommandMessage<?> newCommand, CommandHandler newCommandHandler, int newInvokerSegmentId,
+                      int newPublisherSegmentId, Object newTargetAggregateIdentifier,
+                      BlacklistDetectingCallback newCallback, List<CommandHandlerInterceptor> invokerInterceptors,
+                      List<CommandHandlerInterceptor> publisherInterceptors) {
         this.command = newCommand;
+        this.dispatchTime = System.nanoTime();
+        this.targetAggregateIdentifier = newTargetAggregateIdentifier;
         this.invokerSegmentId = newInvokerSegmentId;
         this.publisherSegmentId = newPublisherSegmentId;
         this.callback = newCallback;
+        this.resultClaimed.set(false);
         this.isRecoverEntry = false;
         this.aggregateIdentifier = null;
         this.result = null;
@@ -223,6 +283,7 @@ public class CommandHandlingEntry {
     public void resetAsRecoverEntry(Object newAggregateIdentifier) {
         this.isRecoverEntry = true;
         this.aggregateIdentifier = newAggregateIdentifier;
+        this.targetAggregateIdentifier = null;
         this.command = null;
         this.callback = null;
         result = null;
@@ -31,7 +31,11 @@ import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventsourcing.AggregateFactory;
 import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
 import org.axonframework.eventstore.EventStore;
+import org.axonframework.eventstore.SnapshotEventStore;
+import org.axonframework.monitoring.MonitorRegistry;
 import org.axonframework.repository.Repository;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.serializer.xml.XStreamSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +45,8 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Asynchronous CommandBus implementation with very high performance characteristics. It divides the command handling
@@ -116,6 +122,10 @@ public class DisruptorCommandBus implements CommandBus {
     private final long coolingDownPeriod;
     private final CommandTargetResolver commandTargetResolver;
     private final int publisherCount;
+    private final DrainMonitor drainMonitor;
+    private final SegmentRouter segmentRouter;
+    private final AtomicLong rejectedCommandCount = new AtomicLong();
+    private final DisruptorCommandBusStatistics statistics;
 
     /**
      * Initialize the DisruptorCommandBus with given resources, using default configuration settings. Uses a Blocking
@@ -149,6 +159,7 @@ public class DisruptorCommandBus implements CommandBus {
         } else {
             executorService = null;
         }
+        DisruptorSnapshotter snapshotter = createSnapshotter(eventStore, executor, configuration);
         rescheduleOnCorruptState = configuration.getRescheduleCommandsOnCorruptState();
         invokerInterceptors = configuration.getInvokerInterceptors();
         publisherInterceptors = configuration.getPublisherInterceptors();
@@ -158,16 +169,27 @@ public class DisruptorCommandBus implements CommandBus {
                                                         configuration.getClaimStrategy(),
                                                         configuration.getWaitStrategy());
         commandTargetResolver = configuration.getCommandTargetResolver();
+        segmentRouter = configuration.getSegmentRouter();
+        publisherCount = configuration.getPublisherThreadCount();
+        drainMonitor = new DrainMonitor(publisherCount);
+        statistics = new DisruptorCommandBusStatistics(disruptor.getRingBuffer(),
+                                                       configuration.getInvokerThreadCount(),
+                                                       drainMonitor);
         commandHandlerInvokers = new CommandHandlerInvoker[configuration.getInvokerThreadCount()];
         for (int t = 0; t < commandHandlerInvokers.length; t++) {
-            commandHandlerInvokers[t] = new CommandHandlerInvoker(eventStore, configuration.getCache(), t);
+            commandHandlerInvokers[t] = new CommandHandlerInvoker(eventStore, configuration.getCache(), t,
+                                                                   configuration.getFirstLevelCacheSize(),
+                                                                   !segmentRouter.isStable(), statistics,
+                                                                   snapshotter);
         }
-        publisherCount = configuration.getPublisherThreadCount();
         EventPublisher[] publishers = new EventPublisher[publisherCount];
         for (int t = 0; t < publisherCount; t++) {
             publishers[t] = new EventPublisher(eventStore, eventBus, executor,
-                                               configuration.getRollbackConfiguration(), t);
+                                               configuration.getRollbackConfiguration(), t,
+                                               configuration.getTransactionManager(), drainMonitor,
+                                               segmentRouter, statistics);
         }
+        MonitorRegistry.registerMonitoringBean(statistics, DisruptorCommandBus.class);
         disruptor.handleExceptionsWith(new ExceptionHandler());
         disruptor.handleEventsWith(commandHandlerInvokers)
                  .then(publishers);
@@ -175,6 +197,21 @@ public class DisruptorCommandBus implements CommandBus {
         disruptor.start();
     }
 
+    private static DisruptorSnapshotter createSnapshotter(EventStore eventStore, Executor executor,
+                                                          DisruptorConfiguration configuration) {
+        if (configuration.getSnapshotTriggerThreshold() == 0) {
+            return null;
+        }
+        Assert.isTrue(eventStore instanceof SnapshotEventStore,
+                      "Snapshots can only be taken when the Event Store is a SnapshotEventStore");
+        Serializer serializer = configuration.getSnapshotSerializer();
+        if (serializer == null) {
+            serializer = new XStreamSerializer();
+        }
+        return new DisruptorSnapshotter(configuration.getSnapshotTriggerThreshold(), (SnapshotEventStore) eventStore,
+                                        serializer, executor);
+    }
+
     @Override
     public void dispatch(final CommandMessage<?> command) {
         dispatch(command, null);
@@ -182,6 +219,9 @@ public class DisruptorCommandBus implements CommandBus {
 
     @Override
     public <R> void dispatch(CommandMessage<?> command, CommandCallback<R> callback) {
+        if (!started) {
+            rejectedCommandCount.incrementAndGet();
+        }
         Assert.state(started, "CommandBus has been shut down. It is not accepting any Commands");
         CommandMessage<?> commandToDispatch = command;
         for (CommandDispatchInterceptor interceptor : dispatchInterceptors) {
@@ -199,31 +239,59 @@ public class DisruptorCommandBus implements CommandBus {
      * @param <R>      The expected return type of the command
      */
     public <R> void doDispatch(CommandMessage command, CommandCallback<R> callback) {
+        if (disruptorShutDown) {
+            rejectedCommandCount.incrementAndGet();
+        }
         Assert.state(!disruptorShutDown, "Disruptor has been shut down. Cannot dispatch or re-dispatch commands");
         RingBuffer<CommandHandlingEntry> ringBuffer = disruptor.getRingBuffer();
         int invokerSegment = 0;
         int publisherSegment = 0;
+        Object targetAggregateIdentifier = null;
         if ((commandHandlerInvokers.length > 1 || publisherCount > 1)) {
             Object aggregateIdentifier = commandTargetResolver.resolveTarget(command).getIdentifier();
             if (aggregateIdentifier != null) {
-                int idHash = aggregateIdentifier.hashCode();
                 if (commandHandlerInvokers.length > 1) {
-                    invokerSegment = Math.abs(idHash % commandHandlerInvokers.length);
+                    invokerSegment = segmentRouter.selectInvokerSegment(aggregateIdentifier,
+                                                                        commandHandlerInvokers.length);
+                    targetAggregateIdentifier = aggregateIdentifier;
                 }
                 if (publisherCount > 1) {
-                    publisherSegment = Math.abs(idHash % publisherCount);
+                    publisherSegment = segmentRouter.selectPublisherSegment(aggregateIdentifier, publisherCount);
                 }
             }
         }
         long sequence = ringBuffer.next();
         CommandHandlingEntry event = ringBuffer.get(sequence);
         event.reset(command, commandHandlers.get(command.getPayloadType()), invokerSegment, publisherSegment,
+                    targetAggregateIdentifier,
                     new BlacklistDetectingCallback<R>(callback, command, disruptor.getRingBuffer(), this,
                                                       rescheduleOnCorruptState),
                     invokerInterceptors, publisherInterceptors);
         ringBuffer.publish(sequence);
     }
 
+    /**
+     * Reschedules the given <code>command</code> for execution, after it has been executed against an aggregate with
+     * potentially corrupt state.
+     *
+     * @param command  The command to reschedule
+     * @param callback The callback to notify when command handling is completed
+     * @param <R>      The expected return type of the command
+     */
+    <R> void reschedule(CommandMessage command, CommandCallback<R> callback) {
+        statistics.recordRescheduledCommand();
+        doDispatch(command, callback);
+    }
+
+    /**
+     * Returns the statistics of this command bus, which are also registered with the {@link MonitorRegistry}.
+     *
+     * @return the statistics of this command bus
+     */
+    public DisruptorCommandBusStatisticsMXBean getStatistics() {
+        return statistics;
+    }
+
     /**
      * Creates a repository instance for an Event Sourced aggregate that is created by the given
      * <code>aggregateFactory</code>.
@@ -256,20 +324,20 @@ public class DisruptorCommandBus implements CommandBus {
      * Shuts down the command bus. It no longer accepts new commands, and finishes processing commands that have
      * already been published. This method will not shut down any executor that has been provided as part of the
      * Configuration.
+     * <p/>
+     * This method waits until no commands have been (re)scheduled for the configured cooling down period, or until
+     * all commands in the buffer have been processed, whichever comes first. It then waits for the disruptor to
+     * process all remaining commands.
+     *
+     * @see #stop(long, java.util.concurrent.TimeUnit)
+     * @see DisruptorConfiguration#setCoolingDownPeriod(long)
      */
-    public void stop() {
+    public synchronized void stop() {
         if (!started) {
             return;
         }
         started = false;
-        long lastChangeDetected = System.currentTimeMillis();
-        long lastKnownCursor = disruptor.getRingBuffer().getCursor();
-        while (System.currentTimeMillis() - lastChangeDetected < coolingDownPeriod && !Thread.interrupted()) {
-            if (disruptor.getRingBuffer().getCursor() != lastKnownCursor) {
-                lastChangeDetected = System.currentTimeMillis();
-                lastKnownCursor = disruptor.getRingBuffer().getCursor();
-            }
-        }
+        awaitIdleCursor();
         disruptorShutDown = true;
         disruptor.shutdown();
         if (executorService != null) {
@@ -277,6 +345,97 @@ public class DisruptorCommandBus implements CommandBus {
         }
     }
 
+    /**
+     * Shuts down the command bus, waiting at most the given <code>timeout</code> for the commands already in the
+     * buffer to be processed. The command bus no longer accepts new commands, but commands that have been executed
+     * against a corrupt aggregate may still be rescheduled until the buffer has been drained. The calling thread is
+     * suspended while waiting, instead of spinning.
+     * <p/>
+     * When the timeout expires before all commands have been processed, the disruptor is halted. The callbacks of
+     * commands that have not been processed by then are notified with a {@link CommandBusShutdownException}.
+     * <p/>
+     * This method will not shut down any executor that has been provided as part of the Configuration.
+     *
+     * @param timeout The maximum time to wait for the buffer to be drained
+     * @param unit    The unit of the timeout
+     * @return a summary of the commands drained, rejected and aborted while shutting down
+     */
+    public synchronized DrainResult stop(long timeout, TimeUnit unit) {
+        if (!started) {
+            return new DrainResult(0, rejectedCommandCount.get(), 0, true);
+        }
+        started = false;
+        long processedAtStop = drainMonitor.getProcessedSequence();
+        boolean drained;
+        try {
+            drained = drainMonitor.awaitDrained(disruptor.getRingBuffer(), timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        }
+        disruptorShutDown = true;
+        long abortedCommandCount = 0;
+        if (drained) {
+            disruptor.shutdown();
+        } else {
+            disruptor.halt();
+            abortedCommandCount = abortUnprocessedCommands();
+            logger.warn("The DisruptorCommandBus was not drained within {} ms. {} commands have been aborted.",
+                        unit.toMillis(timeout), abortedCommandCount);
+        }
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+        DrainResult result = new DrainResult(drainMonitor.getProcessedSequence() - processedAtStop,
+                                             rejectedCommandCount.get(), abortedCommandCount, drained);
+        logger.info("DisruptorCommandBus stopped: {}", result);
+        return result;
+    }
+
+    private void awaitIdleCursor() {
+        RingBuffer<CommandHandlingEntry> ringBuffer = disruptor.getRingBuffer();
+        long lastChangeDetected = System.currentTimeMillis();
+        long lastKnownCursor = ringBuffer.getCursor();
+        long timeLeft = coolingDownPeriod;
+        while (timeLeft > 0) {
+            boolean drained;
+            try {
+                drained = drainMonitor.awaitDrained(ringBuffer, timeLeft, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (ringBuffer.getCursor() != lastKnownCursor) {
+                lastChangeDetected = System.currentTimeMillis();
+                lastKnownCursor = ringBuffer.getCursor();
+            } else if (drained) {
+                return;
+            }
+            timeLeft = coolingDownPeriod - (System.currentTimeMillis() - lastChangeDetected);
+        }
+    }
+
+    /**
+     * Notifies the callbacks of all commands that have not been processed by a halted disruptor. Entries that are
+     * still being processed by a publisher while halting are left to that publisher.
+     *
+     * @return the number of commands that have been aborted
+     */
+    private long abortUnprocessedCommands() {
+        RingBuffer<CommandHandlingEntry> ringBuffer = disruptor.getRingBuffer();
+        long abortedCommandCount = 0;
+        long cursor = ringBuffer.getCursor();
+        for (long sequence = drainMonitor.getProcessedSequence() + 1; sequence <= cursor; sequence++) {
+            CommandHandlingEntry entry = ringBuffer.get(sequence);
+            if (!entry.isRecoverEntry() && entry.claimResult()) {
+                abortedCommandCount++;
+                entry.getCallback().onFailure(new CommandBusShutdownException(
+                        "The command bus was stopped before the command was processed"));
+            }
+        }
+        return abortedCommandCount;
+    }
+
     private class ExceptionHandler implements com.lmax.disruptor.ExceptionHandler {
 
         @Override
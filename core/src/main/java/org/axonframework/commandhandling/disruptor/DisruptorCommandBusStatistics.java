@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import com.lmax.disruptor.Sequencer;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics object that keeps track of the internals of a DisruptorCommandBus. An instance is registered with the
+ * {@link org.axonframework.monitoring.MonitorRegistry} for each command bus.
+ * <p/>
+ * The lag of invokers and publishers is based on the sequence they last reported at the end of a batch, and may
+ * therefore slightly overestimate the actual lag.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class DisruptorCommandBusStatistics implements DisruptorCommandBusStatisticsMXBean {
+
+    private final Sequencer sequencer;
+    private final DrainMonitor drainMonitor;
+    private final AtomicLongArray invokerSequences;
+    private final ConcurrentMap<String, LatencyHistogram> dispatchToInvokeLatencies =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> invokeLatencies =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, LatencyHistogram> storeAndPublishLatencies =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final AtomicLong blacklistCounter = new AtomicLong(0);
+    private final AtomicLong rescheduleCounter = new AtomicLong(0);
+
+    /**
+     * Initializes the statistics for a command bus using the given <code>sequencer</code> with the given number of
+     * invokers. The progress of publishers is read from the given <code>drainMonitor</code>.
+     *
+     * @param sequencer    The sequencer of the ring buffer used by the command bus
+     * @param invokerCount The number of invokers
+     * @param drainMonitor The monitor the publishers report their progress to
+     */
+    DisruptorCommandBusStatistics(Sequencer sequencer, int invokerCount, DrainMonitor drainMonitor) {
+        this.sequencer = sequencer;
+        this.drainMonitor = drainMonitor;
+        this.invokerSequences = new AtomicLongArray(invokerCount);
+        for (int t = 0; t < invokerCount; t++) {
+            invokerSequences.set(t, Sequencer.INITIAL_CURSOR_VALUE);
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return sequencer.getBufferSize();
+    }
+
+    @Override
+    public long getRemainingCapacity() {
+        return sequencer.remainingCapacity();
+    }
+
+    @Override
+    public long[] getInvokerLag() {
+        long cursor = sequencer.getCursor();
+        long[] lag = new long[invokerSequences.length()];
+        for (int t = 0; t < lag.length; t++) {
+            lag[t] = Math.max(0, cursor - invokerSequences.get(t));
+        }
+        return lag;
+    }
+
+    @Override
+    public long[] getPublisherLag() {
+        long cursor = sequencer.getCursor();
+        long[] lag = new long[drainMonitor.getPublisherCount()];
+        for (int t = 0; t < lag.length; t++) {
+            lag[t] = Math.max(0, cursor - drainMonitor.getProcessedSequence(t));
+        }
+        return lag;
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getDispatchToInvokeLatencies() {
+        return snapshot(dispatchToInvokeLatencies);
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getInvokeLatencies() {
+        return snapshot(invokeLatencies);
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getStoreAndPublishLatencies() {
+        return snapshot(storeAndPublishLatencies);
+    }
+
+    @Override
+    public long getBlacklistedAggregateCount() {
+        return blacklistCounter.get();
+    }
+
+    @Override
+    public long getRescheduledCommandCount() {
+        return rescheduleCounter.get();
+    }
+
+    @Override
+    public void resetCounters() {
+        dispatchToInvokeLatencies.clear();
+        invokeLatencies.clear();
+        storeAndPublishLatencies.clear();
+        blacklistCounter.set(0);
+        rescheduleCounter.set(0);
+    }
+
+    /**
+     * Indicates that the invoker with given <code>invokerId</code> has processed all entries up to and including the
+     * given <code>sequence</code>.
+     *
+     * @param invokerId The identifier of the invoker
+     * @param sequence  The last sequence processed by the invoker
+     */
+    void recordInvokerProgress(int invokerId, long sequence) {
+        invokerSequences.set(invokerId, sequence);
+    }
+
+    /**
+     * Records the time between dispatching the given <code>entry</code> and the start of its handler invocation.
+     *
+     * @param entry     The entry being invoked
+     * @param startTime The value of {@link System#nanoTime()} at the start of the invocation
+     */
+    void recordInvocationStarted(CommandHandlingEntry entry, long startTime) {
+        histogramFor(dispatchToInvokeLatencies, entry).record(startTime - entry.getDispatchTime());
+    }
+
+    /**
+     * Records the time spent invoking the handler of the given <code>entry</code>.
+     *
+     * @param entry     The entry that has been invoked
+     * @param startTime The value of {@link System#nanoTime()} at the start of the invocation
+     */
+    void recordInvocationCompleted(CommandHandlingEntry entry, long startTime) {
+        histogramFor(invokeLatencies, entry).record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Records the time spent storing and publishing the events of the given <code>entry</code>.
+     *
+     * @param entry     The entry of which the events have been stored and published
+     * @param startTime The value of {@link System#nanoTime()} at the start of the publication phase
+     */
+    void recordPublicationCompleted(CommandHandlingEntry entry, long startTime) {
+        histogramFor(storeAndPublishLatencies, entry).record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Indicates that an aggregate has been blacklisted.
+     */
+    void recordBlacklistedAggregate() {
+        blacklistCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicates that a command has been rescheduled for execution.
+     */
+    void recordRescheduledCommand() {
+        rescheduleCounter.incrementAndGet();
+    }
+
+    private static LatencyHistogram histogramFor(ConcurrentMap<String, LatencyHistogram> histograms,
+                                                 CommandHandlingEntry entry) {
+        String commandType = entry.getCommand().getPayloadType().getName();
+        LatencyHistogram histogram = histograms.get(commandType);
+        if (histogram == null) {
+            histograms.putIfAbsent(commandType, new LatencyHistogram());
+            histogram = histograms.get(commandType);
+        }
+        return histogram;
+    }
+
+    private static Map<String, LatencyStatistics> snapshot(Map<String, LatencyHistogram> histograms) {
+        Map<String, LatencyStatistics> snapshot = new TreeMap<String, LatencyStatistics>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import java.util.Map;
+
+/**
+ * Management interface for the statistics of a DisruptorCommandBus. It provides information about the occupancy of
+ * the ring buffer, the progress of the invokers and publishers, and the latency of each stage of command processing.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface DisruptorCommandBusStatisticsMXBean {
+
+    /**
+     * Returns the total number of entries in the ring buffer.
+     *
+     * @return the size of the ring buffer
+     */
+    int getBufferSize();
+
+    /**
+     * Returns the number of entries in the ring buffer that are available for new commands.
+     *
+     * @return the remaining capacity of the ring buffer
+     */
+    long getRemainingCapacity();
+
+    /**
+     * Returns, for each invoker, the number of entries published on the ring buffer that the invoker has not
+     * processed yet.
+     *
+     * @return the lag of each invoker behind the cursor of the ring buffer
+     */
+    long[] getInvokerLag();
+
+    /**
+     * Returns, for each publisher, the number of entries published on the ring buffer that the publisher has not
+     * processed yet.
+     *
+     * @return the lag of each publisher behind the cursor of the ring buffer
+     */
+    long[] getPublisherLag();
+
+    /**
+     * Returns the latency between the dispatch of a command and the start of its handler invocation, per command
+     * type.
+     *
+     * @return the dispatch-to-invoke latencies, keyed by the name of the command's payload type
+     */
+    Map<String, LatencyStatistics> getDispatchToInvokeLatencies();
+
+    /**
+     * Returns the time spent invoking the command handlers, per command type.
+     *
+     * @return the invocation latencies, keyed by the name of the command's payload type
+     */
+    Map<String, LatencyStatistics> getInvokeLatencies();
+
+    /**
+     * Returns the time between the start of the publication phase of a command and the moment its events have been
+     * stored and published, per command type. When events are stored in batches, this includes the time waiting for
+     * the batch to complete.
+     *
+     * @return the store-and-publish latencies, keyed by the name of the command's payload type
+     */
+    Map<String, LatencyStatistics> getStoreAndPublishLatencies();
+
+    /**
+     * Returns the number of times an aggregate has been blacklisted because its state may have been corrupted.
+     *
+     * @return the number of blacklisted aggregates
+     */
+    long getBlacklistedAggregateCount();
+
+    /**
+     * Returns the number of commands that have been rescheduled for execution.
+     *
+     * @return the number of rescheduled commands
+     */
+    long getRescheduledCommandCount();
+
+    /**
+     * Resets the latency histograms and the blacklist and reschedule counters.
+     */
+    void resetCounters();
+}
@@ -29,6 +29,8 @@ import org.axonframework.commandhandling.RollbackOnUncheckedExceptionConfigurati
 import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
 import org.axonframework.common.Assert;
 import org.axonframework.common.NoCache;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.unitofwork.TransactionManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -56,6 +58,11 @@ public class DisruptorConfiguration {
     private boolean rescheduleCommandsOnCorruptState;
     private long coolingDownPeriod;
     private Cache cache;
+    private TransactionManager transactionManager;
+    private SegmentRouter segmentRouter = new HashSegmentRouter();
+    private int firstLevelCacheSize = CommandHandlerInvoker.DEFAULT_FIRST_LEVEL_CACHE_SIZE;
+    private int snapshotTriggerThreshold;
+    private Serializer snapshotSerializer;
     private final List<CommandHandlerInterceptor> invokerInterceptors = new ArrayList<CommandHandlerInterceptor>();
     private final List<CommandHandlerInterceptor> publisherInterceptors = new ArrayList<CommandHandlerInterceptor>();
     private final List<CommandDispatchInterceptor> dispatchInterceptors = new ArrayList<CommandDispatchInterceptor>();
@@ -343,6 +350,136 @@ public class DisruptorConfiguration {
         return this;
     }
 
+    /**
+     * Returns the router that selects the invoker and publisher for each command.
+     *
+     * @return the router that selects the invoker and publisher for each command
+     */
+    public SegmentRouter getSegmentRouter() {
+        return segmentRouter;
+    }
+
+    /**
+     * Sets the router that selects the invoker and publisher for each command, based on the identifier of the
+     * targeted aggregate. The router is only used when more than one invoker or publisher is configured. Each
+     * DisruptorCommandBus requires its own router instance.
+     * <p/>
+     * Defaults to a {@link HashSegmentRouter}. Consider an {@link AdaptiveSegmentRouter} when a small number of
+     * aggregates receives a large share of the commands.
+     *
+     * @param segmentRouter The router that selects the invoker and publisher for each command
+     * @return <code>this</code> for method chaining
+     */
+    public DisruptorConfiguration setSegmentRouter(SegmentRouter segmentRouter) { //NOSONAR
+        Assert.notNull(segmentRouter, "SegmentRouter may not be null");
+        this.segmentRouter = segmentRouter;
+        return this;
+    }
+
+    /**
+     * Returns the number of recently used aggregates each invoker keeps in its first level cache, per aggregate type.
+     *
+     * @return the number of recently used aggregates kept in the first level cache
+     */
+    public int getFirstLevelCacheSize() {
+        return firstLevelCacheSize;
+    }
+
+    /**
+     * Sets the number of recently used aggregates each invoker keeps in its first level cache, per aggregate type.
+     * These aggregates are softly referenced, meaning they may be reclaimed when memory is short. Aggregates that are
+     * still in use by commands in the buffer are always kept, regardless of this setting. Defaults to 1000.
+     *
+     * @param firstLevelCacheSize The number of recently used aggregates to keep in the first level cache
+     * @return <code>this</code> for method chaining
+     */
+    public DisruptorConfiguration setFirstLevelCacheSize(int firstLevelCacheSize) { //NOSONAR
+        Assert.isTrue(firstLevelCacheSize >= 0, "FirstLevelCacheSize may not be negative");
+        this.firstLevelCacheSize = firstLevelCacheSize;
+        return this;
+    }
+
+    /**
+     * Returns the number of events after which a snapshot is taken of an aggregate, or 0 if snapshots are disabled.
+     *
+     * @return the number of events after which a snapshot is taken of an aggregate
+     */
+    public int getSnapshotTriggerThreshold() {
+        return snapshotTriggerThreshold;
+    }
+
+    /**
+     * Sets the number of events after which a snapshot is taken of an aggregate. A snapshot is taken each time the
+     * number of events of an aggregate passes a multiple of this threshold, and when more than this number of events
+     * had to be read to load an aggregate. Snapshots require the Event Store of the DisruptorCommandBus to implement
+     * {@link org.axonframework.eventstore.SnapshotEventStore}.
+     * <p/>
+     * The aggregate in the first level cache is used to create the snapshot, instead of reading its events. The
+     * invoker serializes it right after the command is handled, and the snapshot is stored using the Executor once
+     * the events of that command have been stored.
+     * <p/>
+     * Defaults to 0, meaning no snapshots are taken.
+     *
+     * @param snapshotTriggerThreshold The number of events after which a snapshot is taken
+     * @return <code>this</code> for method chaining
+     */
+    public DisruptorConfiguration setSnapshotTriggerThreshold(int snapshotTriggerThreshold) { //NOSONAR
+        Assert.isTrue(snapshotTriggerThreshold >= 0, "SnapshotTriggerThreshold may not be negative");
+        this.snapshotTriggerThreshold = snapshotTriggerThreshold;
+        return this;
+    }
+
+    /**
+     * Returns the serializer used to copy aggregates when taking snapshots, or <code>null</code> if the default
+     * serializer is used.
+     *
+     * @return the serializer used to copy aggregates when taking snapshots
+     */
+    public Serializer getSnapshotSerializer() {
+        return snapshotSerializer;
+    }
+
+    /**
+     * Sets the serializer used to copy aggregates when taking snapshots. The copy is what is stored in the snapshot
+     * event, so that the aggregate can be used for subsequent commands while the snapshot is being stored.
+     * <p/>
+     * Defaults to an {@link org.axonframework.serializer.xml.XStreamSerializer}.
+     *
+     * @param snapshotSerializer The serializer used to copy aggregates when taking snapshots
+     * @return <code>this</code> for method chaining
+     */
+    public DisruptorConfiguration setSnapshotSerializer(Serializer snapshotSerializer) { //NOSONAR
+        this.snapshotSerializer = snapshotSerializer;
+        return this;
+    }
+
+    /**
+     * Returns the transaction manager used to store the events generated by a batch of commands in a single
+     * transaction, or <code>null</code> if events are stored per command.
+     *
+     * @return the transaction manager used to store the events of a batch of commands, if any
+     */
+    public TransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * Sets the transaction manager used to store the events generated by a batch of commands in a single transaction.
+     * The batch consists of the commands the Disruptor makes available to the publisher in one go. Events are
+     * published, and the callbacks of the commands are invoked, only after the transaction has been committed. When a
+     * batch fails to commit, the commands in it are retried in a transaction each, so that a single failing command
+     * doesn't cause the others to fail.
+     * <p/>
+     * By default, no transaction manager is used, and the events of each command are stored separately.
+     *
+     * @param transactionManager The transaction manager to store the events of a batch of commands with
+     * @return <code>this</code> for method chaining
+     */
+    public DisruptorConfiguration setTransactionManager(TransactionManager transactionManager) { //NOSONAR
+        this.transactionManager = transactionManager;
+        return this;
+    }
+
     /**
      * Returns the CommandTargetResolver that is used to find out which Aggregate is to be invoked for a given Command.
      *
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
+import org.axonframework.eventstore.SnapshotEventStore;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Takes snapshots of the aggregates handled by the CommandHandlerInvokers of a DisruptorCommandBus. Instead of
+ * reading the events of an aggregate, it uses the instance in the first level cache of the invoker.
+ * <p/>
+ * As the invoker continues to use the aggregate for subsequent commands, the snapshot is taken by serializing the
+ * aggregate on the invoker thread, right after the command has been handled. The serialized aggregate is deserialized
+ * and stored using the executor, once the events of the command have been stored. Snapshots are never stored when
+ * storing these events failed.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class DisruptorSnapshotter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisruptorSnapshotter.class);
+
+    private final int threshold;
+    private final SnapshotEventStore eventStore;
+    private final Serializer serializer;
+    private final Executor executor;
+
+    /**
+     * Initializes a snapshotter that takes a snapshot each time the number of events of an aggregate passes a multiple
+     * of the given <code>threshold</code>.
+     *
+     * @param threshold  The number of events after which a snapshot is taken
+     * @param eventStore The event store to store snapshots in
+     * @param serializer The serializer used to copy aggregates
+     * @param executor   The executor storing the snapshots
+     */
+    DisruptorSnapshotter(int threshold, SnapshotEventStore eventStore, Serializer serializer, Executor executor) {
+        this.threshold = threshold;
+        this.eventStore = eventStore;
+        this.serializer = serializer;
+        this.executor = executor;
+    }
+
+    /**
+     * Indicates whether a snapshot should be taken of an aggregate, given the number of events that have been read
+     * from the event store to load it.
+     *
+     * @param readEventCount The number of events, including any snapshot event, read to load an aggregate
+     * @return <code>true</code> if a snapshot should be taken, otherwise <code>false</code>
+     */
+    boolean isSnapshotRequired(int readEventCount) {
+        return readEventCount > threshold;
+    }
+
+    /**
+     * Takes a snapshot of the aggregate in the given <code>unitOfWork</code>, if required. Must be invoked by the
+     * invoker thread, directly after the unit of work has been committed.
+     *
+     * @param unitOfWork    The unit of work that has been committed
+     * @param newEventCount  The number of events the aggregate generated in the unit of work
+     */
+    void aggregateCommitted(DisruptorUnitOfWork unitOfWork, int newEventCount) {
+        EventSourcedAggregateRoot aggregate = unitOfWork.getAggregate();
+        if (aggregate == null || aggregate.getVersion() == null) {
+            return;
+        }
+        long version = aggregate.getVersion();
+        long previousVersion = version - newEventCount;
+        if (unitOfWork.isSnapshotRequested()
+                || (newEventCount > 0 && (previousVersion + 1) / threshold < (version + 1) / threshold)) {
+            try {
+                SerializedObject<byte[]> serializedAggregate = serializer.serialize(aggregate, byte[].class);
+                unitOfWork.registerListener(new SnapshotStoringListener(unitOfWork.getAggregateType(),
+                                                                        aggregate.getIdentifier(),
+                                                                        version, serializedAggregate));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to serialize aggregate {} for a snapshot.", aggregate.getIdentifier(), e);
+            }
+        }
+    }
+
+    private final class SnapshotStoringListener extends UnitOfWorkListenerAdapter {
+
+        private final String aggregateType;
+        private final Object aggregateIdentifier;
+        private final long version;
+        private final SerializedObject<byte[]> serializedAggregate;
+
+        private SnapshotStoringListener(String aggregateType, Object aggregateIdentifier, long version,
+                                        SerializedObject<byte[]> serializedAggregate) {
+            this.aggregateType = aggregateType;
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.version = version;
+            this.serializedAggregate = serializedAggregate;
+        }
+
+        @Override
+        public void afterCommit() {
+            executor.execute(new StoreSnapshotTask(aggregateType, aggregateIdentifier, version, serializedAggregate));
+        }
+    }
+
+    private final class StoreSnapshotTask implements Runnable {
+
+        private final String aggregateType;
+        private final Object aggregateIdentifier;
+        private final long version;
+        private final SerializedObject<byte[]> serializedAggregate;
+
+        private StoreSnapshotTask(String aggregateType, Object aggregateIdentifier, long version,
+                                  SerializedObject<byte[]> serializedAggregate) {
+            this.aggregateType = aggregateType;
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.version = version;
+            this.serializedAggregate = serializedAggregate;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Object aggregate = serializer.deserialize(serializedAggregate);
+                eventStore.appendSnapshotEvent(aggregateType, new GenericDomainEventMessage<Object>(
+                        aggregateIdentifier, version, aggregate));
+            } catch (RuntimeException e) {
+                logger.warn("An attempt to store a snapshot of aggregate {} resulted in an exception.",
+                            aggregateIdentifier, e);
+            }
+        }
+    }
+}
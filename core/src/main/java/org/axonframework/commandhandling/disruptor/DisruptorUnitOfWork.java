@@ -53,6 +53,7 @@ public class DisruptorUnitOfWork implements UnitOfWork, EventRegistrationCallbac
     private final UnitOfWorkListenerCollection listeners = new UnitOfWorkListenerCollection();
     private EventSourcedAggregateRoot aggregate;
     private String aggregateType;
+    private boolean snapshotRequested;
 
     @Override
     public void commit() {
@@ -189,6 +190,23 @@ public class DisruptorUnitOfWork implements UnitOfWork, EventRegistrationCallbac
         return message;
     }
 
+    /**
+     * Requests a snapshot to be taken of the aggregate handled in this unit of work, for example because loading it
+     * required reading many events.
+     */
+    void requestSnapshot() {
+        snapshotRequested = true;
+    }
+
+    /**
+     * Indicates whether a snapshot has been requested of the aggregate handled in this unit of work.
+     *
+     * @return <code>true</code> if a snapshot has been requested, otherwise <code>false</code>
+     */
+    boolean isSnapshotRequested() {
+        return snapshotRequested;
+    }
+
     /**
      * Returns the type identifier of the aggregate handled in this unit of work.
      *
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import com.lmax.disruptor.Sequencer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps track of the progress of the EventPublishers of a DisruptorCommandBus, allowing a thread to wait until all
+ * commands in the ring buffer have been processed without spinning.
+ * <p/>
+ * Besides the sequence processed by each publisher, the monitor keeps track of the number of result reporting tasks
+ * that have been scheduled but not completed yet, as these may reschedule commands for execution.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class DrainMonitor {
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition progressed = lock.newCondition();
+    private final AtomicLongArray processedSequences;
+    private final AtomicInteger pendingResultReports = new AtomicInteger();
+    private volatile boolean draining;
+
+    /**
+     * Initializes a monitor for the given number of publishers.
+     *
+     * @param publisherCount The number of publishers reporting their progress
+     */
+    DrainMonitor(int publisherCount) {
+        processedSequences = new AtomicLongArray(publisherCount);
+        for (int t = 0; t < publisherCount; t++) {
+            processedSequences.set(t, Sequencer.INITIAL_CURSOR_VALUE);
+        }
+    }
+
+    /**
+     * Indicates that the publisher with given <code>publisherId</code> has processed all entries up to and including
+     * the given <code>sequence</code>.
+     *
+     * @param publisherId The identifier of the publisher
+     * @param sequence    The last sequence processed by the publisher
+     */
+    void publisherProgressed(int publisherId, long sequence) {
+        processedSequences.set(publisherId, sequence);
+        if (draining) {
+            signalProgress();
+        }
+    }
+
+    /**
+     * Indicates that a task reporting the result of a command has been scheduled.
+     */
+    void resultReportScheduled() {
+        pendingResultReports.incrementAndGet();
+    }
+
+    /**
+     * Indicates that a task reporting the result of a command has completed.
+     */
+    void resultReportCompleted() {
+        if (pendingResultReports.decrementAndGet() == 0 && draining) {
+            signalProgress();
+        }
+    }
+
+    /**
+     * Returns the sequence up to which all publishers have processed entries.
+     *
+     * @return the sequence up to which all publishers have processed entries
+     */
+    long getProcessedSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (int t = 0; t < processedSequences.length(); t++) {
+            minimum = Math.min(minimum, processedSequences.get(t));
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the last sequence processed by the publisher with given <code>publisherId</code>.
+     *
+     * @param publisherId The identifier of the publisher
+     * @return the last sequence processed by the publisher
+     */
+    long getProcessedSequence(int publisherId) {
+        return processedSequences.get(publisherId);
+    }
+
+    /**
+     * Returns the number of publishers reporting their progress to this monitor.
+     *
+     * @return the number of publishers
+     */
+    int getPublisherCount() {
+        return processedSequences.length();
+    }
+
+    /**
+     * Waits until all entries published on the given <code>sequencer</code> have been processed by all publishers,
+     * and all result reporting tasks have completed, or until the given <code>timeout</code> expires.
+     *
+     * @param sequencer The sequencer of the ring buffer the publishers process
+     * @param timeout   The maximum time to wait
+     * @param unit      The unit of the timeout
+     * @return <code>true</code> if all entries have been processed, <code>false</code> if the timeout expired first
+     *
+     * @throws InterruptedException when the thread was interrupted while waiting
+     */
+    boolean awaitDrained(Sequencer sequencer, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanosLeft = unit.toNanos(timeout);
+        draining = true;
+        lock.lock();
+        try {
+            while (!isDrained(sequencer)) {
+                if (nanosLeft <= 0) {
+                    return false;
+                }
+                nanosLeft = progressed.awaitNanos(nanosLeft);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isDrained(Sequencer sequencer) {
+        return pendingResultReports.get() == 0 && getProcessedSequence() >= sequencer.getCursor();
+    }
+
+    private void signalProgress() {
+        lock.lock();
+        try {
+            progressed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
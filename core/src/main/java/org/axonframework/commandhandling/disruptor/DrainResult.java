@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+/**
+ * Summary of the shutdown of a DisruptorCommandBus, describing the commands that have been processed and rejected
+ * while it was draining its buffer.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ * @see DisruptorCommandBus#stop(long, java.util.concurrent.TimeUnit)
+ */
+public class DrainResult {
+
+    private final long drainedCommandCount;
+    private final long rejectedCommandCount;
+    private final long abortedCommandCount;
+    private final boolean completed;
+
+    /**
+     * Initializes the result of a drain.
+     *
+     * @param drainedCommandCount  The number of entries processed while draining
+     * @param rejectedCommandCount The number of commands rejected since the command bus was stopped
+     * @param abortedCommandCount  The number of commands that have not been processed before the timeout expired
+     * @param completed            Whether all entries were processed before the timeout expired
+     */
+    public DrainResult(long drainedCommandCount, long rejectedCommandCount, long abortedCommandCount,
+                       boolean completed) {
+        this.drainedCommandCount = drainedCommandCount;
+        this.rejectedCommandCount = rejectedCommandCount;
+        this.abortedCommandCount = abortedCommandCount;
+        this.completed = completed;
+    }
+
+    /**
+     * Returns the number of entries in the buffer that have been processed after the command bus was stopped. This
+     * includes commands that were rescheduled while draining.
+     *
+     * @return the number of entries processed while draining
+     */
+    public long getDrainedCommandCount() {
+        return drainedCommandCount;
+    }
+
+    /**
+     * Returns the number of commands that have been rejected because they were dispatched after the command bus was
+     * stopped.
+     *
+     * @return the number of commands rejected since the command bus was stopped
+     */
+    public long getRejectedCommandCount() {
+        return rejectedCommandCount;
+    }
+
+    /**
+     * Returns the number of commands in the buffer that had not been processed when the timeout expired. The
+     * callbacks of these commands have been notified with a {@link CommandBusShutdownException}.
+     *
+     * @return the number of commands aborted because the timeout expired
+     */
+    public long getAbortedCommandCount() {
+        return abortedCommandCount;
+    }
+
+    /**
+     * Indicates whether all entries in the buffer were processed before the timeout expired. If not, the remaining
+     * commands have been aborted.
+     *
+     * @return <code>true</code> if the buffer was fully drained, otherwise <code>false</code>
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DrainResult{drained=%d, rejected=%d, aborted=%d, completed=%s}",
+                             drainedCommandCount, rejectedCommandCount, abortedCommandCount, completed);
+    }
+}
@@ -20,15 +20,20 @@ import com.lmax.disruptor.EventHandler;
 import org.axonframework.commandhandling.CommandCallback;
 import org.axonframework.commandhandling.CommandMessage;
 import org.axonframework.commandhandling.RollbackConfiguration;
+import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.SimpleDomainEventStream;
 import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.repository.AggregateNotFoundException;
+import org.axonframework.unitofwork.TransactionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +45,11 @@ import static java.lang.String.format;
 
 /**
  * Component of the DisruptorCommandBus that stores and publishes events generated by the command's execution.
+ * <p/>
+ * When a TransactionManager is configured, the events generated by all commands in a batch provided by the Disruptor
+ * are stored in a single transaction. The events are published, and the results reported, only after that
+ * transaction has been committed. If the batch fails to commit, each of its commands is retried in a transaction of
+ * its own.
  *
  * @author Allard Buijze
  * @since 2.0
@@ -55,6 +65,11 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
     private final int segmentId;
     private final Set<Object> blackListedAggregates = new HashSet<Object>();
     private final Map<CommandMessage, Object> failedCreateCommands = new WeakHashMap<CommandMessage, Object>();
+    private final TransactionManager transactionManager;
+    private final DrainMonitor drainMonitor;
+    private final SegmentRouter segmentRouter;
+    private final DisruptorCommandBusStatistics statistics;
+    private final List<PendingEntry> pendingEntries = new ArrayList<PendingEntry>();
 
     /**
      * Initializes the EventPublisher to publish Events to the given <code>eventStore</code> and <code>eventBus</code>
@@ -68,6 +83,51 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
      */
     public EventPublisher(EventStore eventStore, EventBus eventBus, Executor executor,
                           RollbackConfiguration rollbackConfiguration, int segmentId) {
+        this(eventStore, eventBus, executor, rollbackConfiguration, segmentId, null);
+    }
+
+    /**
+     * Initializes the EventPublisher to publish Events to the given <code>eventStore</code> and <code>eventBus</code>
+     * for aggregate of given <code>aggregateType</code>. When a <code>transactionManager</code> is given, the events
+     * of each batch of commands are stored in a single transaction.
+     *
+     * @param eventStore            The EventStore persisting the generated events
+     * @param eventBus              The EventBus to publish events on
+     * @param executor              The executor which schedules response reporting
+     * @param rollbackConfiguration The configuration that indicates which exceptions should result in a UnitOfWork
+     * @param segmentId             The ID of the segment this publisher should handle
+     * @param transactionManager    The transaction manager to store batches of events with. May be <code>null</code>
+     *                              to store the events of each command separately.
+     */
+    public EventPublisher(EventStore eventStore, EventBus eventBus, Executor executor,
+                          RollbackConfiguration rollbackConfiguration, int segmentId,
+                          TransactionManager transactionManager) {
+        this(eventStore, eventBus, executor, rollbackConfiguration, segmentId, transactionManager, null, null, null);
+    }
+
+    /**
+     * Initializes the EventPublisher, reporting its progress to the given <code>drainMonitor</code>, completed
+     * commands to the given <code>segmentRouter</code>, and latencies and failures to the given
+     * <code>statistics</code>, if any.
+     *
+     * @param eventStore            The EventStore persisting the generated events
+     * @param eventBus              The EventBus to publish events on
+     * @param executor              The executor which schedules response reporting
+     * @param rollbackConfiguration The configuration that indicates which exceptions should result in a UnitOfWork
+     * @param segmentId             The ID of the segment this publisher should handle
+     * @param transactionManager    The transaction manager to store batches of events with. May be <code>null</code>
+     * @param drainMonitor          The monitor to report progress to. May be <code>null</code>
+     * @param segmentRouter         The router to notify of completed commands. May be <code>null</code>
+     * @param statistics            The statistics of the command bus. May be <code>null</code>
+     */
+    EventPublisher(EventStore eventStore, EventBus eventBus, Executor executor,
+                   RollbackConfiguration rollbackConfiguration, int segmentId,
+                   TransactionManager transactionManager, DrainMonitor drainMonitor, SegmentRouter segmentRouter,
+                   DisruptorCommandBusStatistics statistics) {
+        this.statistics = statistics;
+        this.drainMonitor = drainMonitor;
+        this.segmentRouter = segmentRouter;
+        this.transactionManager = transactionManager;
         this.eventStore = eventStore;
         this.eventBus = eventBus;
         this.executor = executor;
@@ -80,7 +140,9 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
     public void onEvent(CommandHandlingEntry entry, long sequence, boolean endOfBatch) throws Exception {
         if (entry.isRecoverEntry()) {
             recoverAggregate(entry);
-        } else if (entry.getPublisherId() == segmentId) {
+        } else if (entry.getPublisherId() == segmentId && entry.claimResult()) {
+            long startTime = System.nanoTime();
+            boolean deferred = false;
             if (entry.getExceptionResult() instanceof AggregateNotFoundException
                     && failedCreateCommands.remove(entry.getCommand()) == null) {
                 // the command failed for the first time
@@ -91,20 +153,29 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
                 if (aggregate != null && blackListedAggregates.contains(aggregate.getIdentifier())) {
                     rejectExecution(entry, unitOfWork, entry.getAggregateIdentifier());
                 } else {
-                    processPublication(entry, unitOfWork, aggregate);
+                    deferred = processPublication(entry, unitOfWork, aggregate, startTime);
                 }
             }
+            if (!deferred) {
+                commandCompleted(entry, startTime);
+            }
+        }
+        if (endOfBatch && !pendingEntries.isEmpty()) {
+            processPendingEntries();
+        }
+        if (endOfBatch && drainMonitor != null) {
+            drainMonitor.publisherProgressed(segmentId, sequence);
         }
     }
 
     @SuppressWarnings("unchecked")
     private void reschedule(CommandHandlingEntry entry) {
         failedCreateCommands.put(entry.getCommand(), logger);
-        executor.execute(new ReportResultTask(
+        reportResult(
                 entry.getCallback(), null,
                 new AggregateStateCorruptedException(
                         entry.getAggregateIdentifier(), "Rescheduling command for execution. "
-                        + "It was executed against a potentially recently created command")));
+                        + "It was executed against a potentially recently created command"));
     }
 
     private void recoverAggregate(CommandHandlingEntry entry) {
@@ -117,20 +188,26 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
     @SuppressWarnings("unchecked")
     private void rejectExecution(CommandHandlingEntry entry, DisruptorUnitOfWork unitOfWork,
                                  Object aggregateIdentifier) {
-        executor.execute(new ReportResultTask(
+        reportResult(
                 entry.getCallback(), null,
                 new AggregateStateCorruptedException(
                         unitOfWork.getAggregate(),
                         format("Aggregate %s has been blacklisted and will be ignored until "
                                        + "its state has been recovered.",
-                               aggregateIdentifier))));
+                               aggregateIdentifier)));
     }
 
     @SuppressWarnings("unchecked")
-    private void processPublication(CommandHandlingEntry entry, DisruptorUnitOfWork unitOfWork,
-                                    EventSourcedAggregateRoot aggregate) {
+    private boolean processPublication(CommandHandlingEntry entry, DisruptorUnitOfWork unitOfWork,
+                                       EventSourcedAggregateRoot aggregate, long startTime) {
         invokeInterceptorChain(entry);
         Throwable exceptionResult = entry.getExceptionResult();
+        if (transactionManager != null
+                && (exceptionResult == null || !rollbackConfiguration.rollBackOn(exceptionResult))) {
+            unitOfWork.onPrepareCommit();
+            pendingEntries.add(new PendingEntry(entry, startTime));
+            return true;
+        }
         try {
             if (exceptionResult != null && rollbackConfiguration.rollBackOn(exceptionResult)) {
                 exceptionResult = performRollback(unitOfWork, entry.getAggregateIdentifier(), exceptionResult);
@@ -141,8 +218,9 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
             unitOfWork.onCleanup();
         }
         if (exceptionResult != null || entry.getCallback().hasDelegate()) {
-            executor.execute(new ReportResultTask(entry.getCallback(), entry.getResult(), exceptionResult));
+            reportResult(entry.getCallback(), entry.getResult(), exceptionResult);
         }
+        return false;
     }
 
     private void invokeInterceptorChain(CommandHandlingEntry entry) {
@@ -181,6 +259,83 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
     private void storeAndPublish(DisruptorUnitOfWork unitOfWork) {
         DomainEventStream eventsToStore = unitOfWork.getEventsToStore();
         eventStore.appendEvents(unitOfWork.getAggregateType(), eventsToStore);
+        publish(unitOfWork);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void processPendingEntries() {
+        try {
+            if (!storeInTransaction(pendingEntries)) {
+                logger.warn("Failed to store the events of a batch of {} commands. "
+                                    + "Retrying the commands one by one.", pendingEntries.size());
+                for (PendingEntry pendingEntry : pendingEntries) {
+                    Object aggregateIdentifier = pendingEntry.aggregateIdentifier;
+                    if (blackListedAggregates.contains(aggregateIdentifier)) {
+                        pendingEntry.exceptionResult = new AggregateStateCorruptedException(
+                                aggregateIdentifier, format("Aggregate %s has been blacklisted after a failure "
+                                                                    + "storing the events of an earlier command.",
+                                                            aggregateIdentifier));
+                        pendingEntry.unitOfWork.onRollback(pendingEntry.exceptionResult);
+                    } else if (!storeInTransaction(Collections.singletonList(pendingEntry))) {
+                        pendingEntry.exceptionResult = notifyBlacklisted(pendingEntry.unitOfWork, aggregateIdentifier,
+                                                                         pendingEntry.storageFailure);
+                    }
+                }
+            }
+            for (PendingEntry pendingEntry : pendingEntries) {
+                CommandHandlingEntry entry = pendingEntry.entry;
+                DisruptorUnitOfWork unitOfWork = pendingEntry.unitOfWork;
+                try {
+                    if (pendingEntry.exceptionResult == null) {
+                        publish(unitOfWork);
+                        unitOfWork.onAfterCommit();
+                    }
+                } catch (Exception e) {
+                    pendingEntry.exceptionResult = notifyBlacklisted(unitOfWork, pendingEntry.aggregateIdentifier, e);
+                } finally {
+                    unitOfWork.onCleanup();
+                }
+                Throwable exceptionResult = pendingEntry.exceptionResult != null
+                        ? pendingEntry.exceptionResult
+                        : entry.getExceptionResult();
+                if (exceptionResult != null || entry.getCallback().hasDelegate()) {
+                    reportResult(entry.getCallback(), entry.getResult(), exceptionResult);
+                }
+                commandCompleted(entry, pendingEntry.startTime);
+            }
+        } finally {
+            pendingEntries.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean storeInTransaction(List<PendingEntry> entries) {
+        Object transaction = transactionManager.startTransaction();
+        try {
+            for (PendingEntry pendingEntry : entries) {
+                eventStore.appendEvents(pendingEntry.unitOfWork.getAggregateType(),
+                                        new SimpleDomainEventStream(pendingEntry.eventsToStore));
+            }
+        } catch (RuntimeException e) {
+            transactionManager.rollbackTransaction(transaction);
+            return recordStorageFailure(entries, e);
+        }
+        try {
+            transactionManager.commitTransaction(transaction);
+        } catch (RuntimeException e) {
+            return recordStorageFailure(entries, e);
+        }
+        return true;
+    }
+
+    private boolean recordStorageFailure(List<PendingEntry> entries, Exception cause) {
+        for (PendingEntry pendingEntry : entries) {
+            pendingEntry.storageFailure = cause;
+        }
+        return false;
+    }
+
+    private void publish(DisruptorUnitOfWork unitOfWork) {
         List<EventMessage> eventMessages = unitOfWork.getEventsToPublish();
         EventMessage[] eventsToPublish = eventMessages.toArray(new EventMessage[eventMessages.size()]);
         if (eventBus != null) {
@@ -192,6 +347,9 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
                                         Throwable cause) {
         Throwable exceptionResult;
         blackListedAggregates.add(aggregateIdentifier);
+        if (statistics != null) {
+            statistics.recordBlacklistedAggregate();
+        }
         exceptionResult = new AggregateBlacklistedException(
                 aggregateIdentifier,
                 format("Aggregate %s state corrupted. "
@@ -201,7 +359,59 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
         return exceptionResult;
     }
 
-    private static class ReportResultTask<R> implements Runnable {
+    /**
+     * A command whose events are to be stored as part of the current batch. The events are buffered, as the batch may
+     * need to be retried.
+     */
+    private static final class PendingEntry {
+
+        private final CommandHandlingEntry entry;
+        private final DisruptorUnitOfWork unitOfWork;
+        private final Object aggregateIdentifier;
+        private final long startTime;
+        private final List<DomainEventMessage> eventsToStore = new ArrayList<DomainEventMessage>();
+        private Exception storageFailure;
+        private Throwable exceptionResult;
+
+        private PendingEntry(CommandHandlingEntry entry, long startTime) {
+            this.entry = entry;
+            this.startTime = startTime;
+            this.unitOfWork = entry.getUnitOfWork();
+            this.aggregateIdentifier = unitOfWork.getAggregate() != null
+                    ? unitOfWork.getAggregate().getIdentifier()
+                    : entry.getAggregateIdentifier();
+            DomainEventStream events = unitOfWork.getEventsToStore();
+            while (events.hasNext()) {
+                eventsToStore.add(events.next());
+            }
+        }
+    }
+
+    private void commandCompleted(CommandHandlingEntry entry, long startTime) {
+        if (statistics != null) {
+            statistics.recordPublicationCompleted(entry, startTime);
+        }
+        if (segmentRouter != null && entry.getTargetAggregateIdentifier() != null) {
+            segmentRouter.commandCompleted(entry.getTargetAggregateIdentifier(), entry.getInvokerId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void reportResult(CommandCallback callback, Object result, Throwable exceptionResult) {
+        if (drainMonitor != null) {
+            drainMonitor.resultReportScheduled();
+        }
+        try {
+            executor.execute(new ReportResultTask(callback, result, exceptionResult));
+        } catch (RuntimeException e) {
+            if (drainMonitor != null) {
+                drainMonitor.resultReportCompleted();
+            }
+            throw e;
+        }
+    }
+
+    private class ReportResultTask<R> implements Runnable {
 
         private final CommandCallback<R> callback;
         private final R result;
@@ -215,10 +425,16 @@ public class EventPublisher implements EventHandler<CommandHandlingEntry> {
 
         @Override
         public void run() {
-            if (exceptionResult != null) {
-                callback.onFailure(exceptionResult);
-            } else {
-                callback.onSuccess(result);
+            try {
+                if (exceptionResult != null) {
+                    callback.onFailure(exceptionResult);
+                } else {
+                    callback.onSuccess(result);
+                }
+            } finally {
+                if (drainMonitor != null) {
+                    drainMonitor.resultReportCompleted();
+                }
             }
         }
     }
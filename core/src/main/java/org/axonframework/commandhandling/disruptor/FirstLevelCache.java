@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.domain.AggregateRoot;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of aggregates, keyed by their identifier, for use by a single CommandHandlerInvoker. Instances are not
+ * thread-safe.
+ * <p/>
+ * Aggregates are referenced weakly, so that they remain available as long as they are in use, for example by commands
+ * still being processed in the ring buffer. Additionally, the most recently used aggregates are referenced softly, up to
+ * a configurable number of aggregates. These aggregates are only reclaimed when memory is short.
+ *
+ * @param <T> The type of aggregate stored in this cache
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class FirstLevelCache<T extends AggregateRoot> {
+
+    private final Map<Object, AggregateReference<T>> aggregates = new HashMap<Object, AggregateReference<T>>();
+    private final ReferenceQueue<T> referenceQueue = new ReferenceQueue<T>();
+    private final Map<Object, SoftReference<T>> recentlyUsed;
+    private final FirstLevelCacheStatistics statistics;
+
+    /**
+     * Initializes an empty cache that softly references at most <code>maxRecentlyUsed</code> aggregates, reporting
+     * hits and misses to the given <code>statistics</code>.
+     *
+     * @param maxRecentlyUsed The maximum number of recently used aggregates to reference softly
+     * @param statistics      The statistics to report cache hits and misses to
+     */
+    FirstLevelCache(final int maxRecentlyUsed, FirstLevelCacheStatistics statistics) {
+        this.statistics = statistics;
+        this.recentlyUsed = new LinkedHashMap<Object, SoftReference<T>>(16, 0.75f, true) {
+            private static final long serialVersionUID = -4129012496364738614L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, SoftReference<T>> eldest) {
+                return size() > maxRecentlyUsed;
+            }
+        };
+    }
+
+    /**
+     * Returns the aggregate with given <code>aggregateIdentifier</code>, or <code>null</code> if it is not cached.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate to return
+     * @return the cached aggregate, or <code>null</code> if it is not cached
+     */
+    T get(Object aggregateIdentifier) {
+        expungeStaleEntries();
+        AggregateReference<T> reference = aggregates.get(aggregateIdentifier);
+        T aggregate = reference == null ? null : reference.get();
+        if (aggregate == null) {
+            statistics.recordMiss();
+            return null;
+        }
+        statistics.recordHit();
+        if (recentlyUsed.get(aggregateIdentifier) == null) {
+            recentlyUsed.put(aggregateIdentifier, new SoftReference<T>(aggregate));
+        }
+        return aggregate;
+    }
+
+    /**
+     * Adds the given <code>aggregate</code> to the cache, replacing any aggregate with the same identifier.
+     *
+     * @param aggregate The aggregate to cache
+     */
+    void put(T aggregate) {
+        expungeStaleEntries();
+        Object aggregateIdentifier = aggregate.getIdentifier();
+        aggregates.put(aggregateIdentifier, new AggregateReference<T>(aggregateIdentifier, aggregate, referenceQueue));
+        recentlyUsed.put(aggregateIdentifier, new SoftReference<T>(aggregate));
+    }
+
+    /**
+     * Removes the aggregate with given <code>aggregateIdentifier</code> from the cache.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate to remove
+     * @return <code>true</code> if the aggregate was cached, otherwise <code>false</code>
+     */
+    boolean remove(Object aggregateIdentifier) {
+        recentlyUsed.remove(aggregateIdentifier);
+        AggregateReference<T> reference = aggregates.remove(aggregateIdentifier);
+        return reference != null && reference.get() != null;
+    }
+
+    /**
+     * Returns the number of identifiers for which an aggregate may be cached. Aggregates that have been reclaimed, but
+     * have not been expunged yet, are included in this number.
+     *
+     * @return the number of aggregates that may be cached
+     */
+    int size() {
+        expungeStaleEntries();
+        return aggregates.size();
+    }
+
+    private void expungeStaleEntries() {
+        Reference<? extends T> reference;
+        while ((reference = referenceQueue.poll()) != null) {
+            Object aggregateIdentifier = ((AggregateReference) reference).aggregateIdentifier;
+            // the identifier may have been reassigned to another instance in the meantime
+            if (aggregates.get(aggregateIdentifier) == reference) {
+                aggregates.remove(aggregateIdentifier);
+            }
+        }
+    }
+
+    private static final class AggregateReference<T> extends WeakReference<T> {
+
+        private final Object aggregateIdentifier;
+
+        private AggregateReference(Object aggregateIdentifier, T aggregate, ReferenceQueue<T> referenceQueue) {
+            super(aggregate, referenceQueue);
+            this.aggregateIdentifier = aggregateIdentifier;
+        }
+    }
+}
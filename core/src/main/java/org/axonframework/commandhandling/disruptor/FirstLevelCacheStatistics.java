@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics object that keeps track of the hits and misses of the first level cache of a CommandHandlerInvoker. An
+ * instance is registered with the {@link org.axonframework.monitoring.MonitorRegistry} for each invoker.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class FirstLevelCacheStatistics implements FirstLevelCacheStatisticsMXBean {
+
+    private final AtomicLong hitCounter = new AtomicLong(0);
+    private final AtomicLong missCounter = new AtomicLong(0);
+
+    @Override
+    public long getHitCount() {
+        return hitCounter.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCounter.get();
+    }
+
+    @Override
+    public void resetCounters() {
+        hitCounter.set(0);
+        missCounter.set(0);
+    }
+
+    /**
+     * Indicate that an aggregate was found in the cache.
+     */
+    void recordHit() {
+        hitCounter.incrementAndGet();
+    }
+
+    /**
+     * Indicate that an aggregate was not found in the cache.
+     */
+    void recordMiss() {
+        missCounter.incrementAndGet();
+    }
+}
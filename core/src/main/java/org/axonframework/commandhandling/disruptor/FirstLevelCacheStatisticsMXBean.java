@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+/**
+ * Management interface for the statistics of the first level cache of the aggregates loaded by a
+ * CommandHandlerInvoker.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface FirstLevelCacheStatisticsMXBean {
+
+    /**
+     * Returns the number of times an aggregate was found in the first level cache.
+     *
+     * @return the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of times an aggregate was not found in the first level cache, and had to be loaded from the
+     * cache or event store.
+     *
+     * @return the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    void resetCounters();
+}
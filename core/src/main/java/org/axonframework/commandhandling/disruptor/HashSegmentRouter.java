@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+/**
+ * SegmentRouter implementation that selects segments based on the hash code of the aggregate identifier. Commands for
+ * an aggregate are always routed to the same invoker and publisher.
+ * <p/>
+ * This is the default router of the DisruptorCommandBus.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class HashSegmentRouter implements SegmentRouter {
+
+    @Override
+    public int selectInvokerSegment(Object aggregateIdentifier, int invokerCount) {
+        return Math.abs(aggregateIdentifier.hashCode() % invokerCount);
+    }
+
+    @Override
+    public int selectPublisherSegment(Object aggregateIdentifier, int publisherCount) {
+        return Math.abs(aggregateIdentifier.hashCode() % publisherCount);
+    }
+
+    @Override
+    public void commandCompleted(Object aggregateIdentifier, int invokerSegment) {
+    }
+
+    @Override
+    public boolean isStable() {
+        return true;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, using buckets of exponentially increasing size. The first bucket counts latencies up to 1
+ * microsecond, and each next bucket covers latencies up to twice the upper bound of the previous one. The histogram
+ * is safe for concurrent use, but its snapshots are not guaranteed to be consistent while latencies are recorded.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+final class LatencyHistogram {
+
+    /**
+     * The number of buckets in each histogram. The last bucket counts all latencies over 2^30 microseconds.
+     */
+    static final int BUCKET_COUNT = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records the given <code>latencyNanos</code> in this histogram.
+     *
+     * @param latencyNanos The latency to record, in nanoseconds
+     */
+    void record(long latencyNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, latencyNanos));
+        buckets.incrementAndGet(bucketFor(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long currentMax = maxMicros.get();
+        while (micros > currentMax && !maxMicros.compareAndSet(currentMax, micros)) {
+            currentMax = maxMicros.get();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the latencies recorded in this histogram.
+     *
+     * @return a snapshot of the latencies recorded in this histogram
+     */
+    LatencyStatistics snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        for (int t = 0; t < BUCKET_COUNT; t++) {
+            bucketCounts[t] = buckets.get(t);
+        }
+        return new LatencyStatistics(count.get(), totalMicros.get(), maxMicros.get(), bucketCounts);
+    }
+
+    /**
+     * Returns the upper bound, in microseconds, of the latencies counted in the bucket with given <code>index</code>.
+     *
+     * @param index The index of the bucket
+     * @return the upper bound of the latencies in the bucket
+     */
+    static long upperBoundOf(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << index;
+    }
+
+    private static int bucketFor(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the latencies of a single stage of command processing in the DisruptorCommandBus, for a single type of
+ * command. All latencies are expressed in microseconds.
+ * <p/>
+ * The latencies are counted in buckets of exponentially increasing size. The bucket at index <code>i</code> counts
+ * the latencies up to <code>2^i</code> microseconds that are not counted by a previous bucket. Percentiles are
+ * therefore approximations, expressed as the upper bound of the bucket they fall in.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class LatencyStatistics {
+
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+    private final long[] bucketCounts;
+
+    /**
+     * Initializes a snapshot with the given values.
+     *
+     * @param count        The number of recorded latencies
+     * @param totalMicros  The sum of all recorded latencies
+     * @param maxMicros    The highest recorded latency
+     * @param bucketCounts The number of latencies counted in each bucket
+     */
+    @ConstructorProperties({"count", "totalMicros", "maxMicros", "bucketCounts"})
+    public LatencyStatistics(long count, long totalMicros, long maxMicros, long[] bucketCounts) {
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+        this.bucketCounts = bucketCounts.clone();
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of recorded latencies
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of all recorded latencies.
+     *
+     * @return the sum of all recorded latencies, in microseconds
+     */
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    /**
+     * Returns the average recorded latency, or 0 if no latencies have been recorded.
+     *
+     * @return the average recorded latency, in microseconds
+     */
+    public long getMeanMicros() {
+        return count == 0 ? 0 : totalMicros / count;
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     *
+     * @return the highest recorded latency, in microseconds
+     */
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Returns the approximate latency under which half of the recorded latencies fall.
+     *
+     * @return the approximate median latency, in microseconds
+     */
+    public long getMedianMicros() {
+        return percentile(0.5);
+    }
+
+    /**
+     * Returns the approximate latency under which 99% of the recorded latencies fall.
+     *
+     * @return the approximate 99th percentile latency, in microseconds
+     */
+    public long getPercentile99Micros() {
+        return percentile(0.99);
+    }
+
+    /**
+     * Returns the number of latencies counted in each bucket. The bucket at index <code>i</code> counts latencies up
+     * to <code>2^i</code> microseconds.
+     *
+     * @return the number of latencies counted in each bucket
+     */
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+
+    private long percentile(double fraction) {
+        long threshold = (long) Math.ceil(count * fraction);
+        long cumulative = 0;
+        for (int t = 0; t < bucketCounts.length; t++) {
+            cumulative += bucketCounts[t];
+            if (cumulative >= threshold && cumulative > 0) {
+                return Math.min(maxMicros, LatencyHistogram.upperBoundOf(t));
+            }
+        }
+        return maxMicros;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+/**
+ * Strategy that decides which invoker and which publisher of the DisruptorCommandBus handle a command, based on the
+ * identifier of the aggregate the command targets.
+ * <p/>
+ * Implementations must route all commands for an aggregate to the same invoker while any command for that aggregate
+ * is still being processed, as the invoker holds the aggregate's state until its events have been stored. A router may
+ * only route commands for an aggregate to another invoker once all previous commands have been completed, which is
+ * reported through {@link #commandCompleted(Object, int)}. Routers that do so must indicate this through {@link
+ * #isStable()}, allowing the invokers to discard aggregates that have moved to another invoker.
+ * <p/>
+ * Instances are used by a single DisruptorCommandBus, and must be safe for use by multiple threads.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface SegmentRouter {
+
+    /**
+     * Returns the segment of the invoker that should handle a command targeting the aggregate with given
+     * <code>aggregateIdentifier</code>.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate targeted by the command
+     * @param invokerCount        The number of invokers
+     * @return the segment of the invoker, in the range <code>0 .. invokerCount - 1</code>
+     */
+    int selectInvokerSegment(Object aggregateIdentifier, int invokerCount);
+
+    /**
+     * Returns the segment of the publisher that should handle a command targeting the aggregate with given
+     * <code>aggregateIdentifier</code>. All commands for an aggregate must be routed to the same publisher.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate targeted by the command
+     * @param publisherCount      The number of publishers
+     * @return the segment of the publisher, in the range <code>0 .. publisherCount - 1</code>
+     */
+    int selectPublisherSegment(Object aggregateIdentifier, int publisherCount);
+
+    /**
+     * Invoked when the processing of a command, that was routed to the invoker with given <code>invokerSegment</code>
+     * using {@link #selectInvokerSegment(Object, int)}, has been completed. This means the events generated by the
+     * command have been stored, or the command failed.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate targeted by the command
+     * @param invokerSegment      The segment of the invoker that handled the command
+     */
+    void commandCompleted(Object aggregateIdentifier, int invokerSegment);
+
+    /**
+     * Indicates whether this router always routes commands for an aggregate to the same invoker. If not, invokers
+     * discard the cached state of aggregates for which commands have been routed to another invoker.
+     *
+     * @return <code>true</code> if commands for an aggregate are always routed to the same invoker, otherwise
+     *         <code>false</code>
+     */
+    boolean isStable();
+}
@@ -31,6 +31,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.axonframework.common.CollectionUtils.filterByType;
 
@@ -42,6 +44,9 @@ import static org.axonframework.common.CollectionUtils.filterByType;
  */
 public abstract class ReflectionUtils {
 
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, FieldLayout>> FIELD_LAYOUTS =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, FieldLayout>>();
+
     private ReflectionUtils() {
         // utility class
     }
@@ -51,6 +56,9 @@ public abstract class ReflectionUtils {
      * the given <code>type</code>. If the given <code>instance</code> contains fields with Collections or Maps, the
      * contents of them are investigated as well. Collections inside these collections (e.g. a List of Maps) are not
      * evaluated.
+     * <p/>
+     * The fields that may contain such values are resolved once for each class and type, and cached. Subsequent
+     * invocations for instances of the same class only read the values of those fields.
      *
      * @param instance The instance to search the fields in
      * @param type     The type that the values in the fields must be assignable to
@@ -61,29 +69,54 @@ public abstract class ReflectionUtils {
      */
     public static <T> Collection<T> findFieldValuesOfType(final Object instance, final Class<T> type) {
         final Set<T> children = new HashSet<T>();
-        for (Field field : fieldsOf(instance.getClass())) {
-            if (type.isAssignableFrom(field.getType())) { // it's an entity!
-                Object fieldValue = getFieldValue(field, instance);
-                if (fieldValue != null) {
-                    children.add(type.cast(fieldValue));
-                }
-            } else if (Iterable.class.isAssignableFrom(field.getType())) {
-                // it's a collection
-                Iterable<?> iterable = (Iterable<?>) getFieldValue(field, instance);
-                if (iterable != null) {
-                    children.addAll(filterByType(iterable, type));
-                }
-            } else if (Map.class.isAssignableFrom(field.getType())) {
-                Map map = (Map) getFieldValue(field, instance);
-                if (map != null) {
-                    children.addAll(filterByType(map.keySet(), type));
-                    children.addAll(filterByType(map.values(), type));
-                }
+        FieldLayout layout = fieldLayoutFor(instance.getClass(), type);
+        if (layout.isEmpty()) {
+            return children;
+        }
+        for (Field field : layout.valueFields) {
+            Object fieldValue = readField(field, instance);
+            if (fieldValue != null) {
+                children.add(type.cast(fieldValue));
+            }
+        }
+        for (Field field : layout.iterableFields) {
+            Iterable<?> iterable = (Iterable<?>) readField(field, instance);
+            if (iterable != null) {
+                children.addAll(filterByType(iterable, type));
+            }
+        }
+        for (Field field : layout.mapFields) {
+            Map map = (Map) readField(field, instance);
+            if (map != null) {
+                children.addAll(filterByType(map.keySet(), type));
+                children.addAll(filterByType(map.values(), type));
             }
         }
         return children;
     }
 
+    private static FieldLayout fieldLayoutFor(Class<?> instanceClass, Class<?> type) {
+        ConcurrentMap<Class<?>, FieldLayout> layoutsForType = FIELD_LAYOUTS.get(type);
+        if (layoutsForType == null) {
+            FIELD_LAYOUTS.putIfAbsent(type, new ConcurrentHashMap<Class<?>, FieldLayout>());
+            layoutsForType = FIELD_LAYOUTS.get(type);
+        }
+        FieldLayout layout = layoutsForType.get(instanceClass);
+        if (layout == null) {
+            layout = new FieldLayout(instanceClass, type);
+            layoutsForType.putIfAbsent(instanceClass, layout);
+        }
+        return layout;
+    }
+
+    private static Object readField(Field field, Object instance) {
+        try {
+            return field.get(instance);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Unable to access field.", ex);
+        }
+    }
+
     /**
      * Returns the value of the given <code>field</code> in the given <code>object</code>. If necessary, the field is
      * made accessible, assuming the security manager allows it.
@@ -276,4 +309,37 @@ public abstract class ReflectionUtils {
         }
         return findAnnotation(superClass, annotationType);
     }
+
+    /**
+     * The fields of a class that may contain values of a specific type, either directly or inside a Collection or
+     * Map. All fields are made accessible when the layout is created.
+     */
+    private static final class FieldLayout {
+
+        private final Field[] valueFields;
+        private final Field[] iterableFields;
+        private final Field[] mapFields;
+
+        private FieldLayout(Class<?> instanceClass, Class<?> type) {
+            List<Field> values = new LinkedList<Field>();
+            List<Field> iterables = new LinkedList<Field>();
+            List<Field> maps = new LinkedList<Field>();
+            for (Field field : fieldsOf(instanceClass)) {
+                if (type.isAssignableFrom(field.getType())) {
+                    values.add(ensureAccessible(field));
+                } else if (Iterable.class.isAssignableFrom(field.getType())) {
+                    iterables.add(ensureAccessible(field));
+                } else if (Map.class.isAssignableFrom(field.getType())) {
+                    maps.add(ensureAccessible(field));
+                }
+            }
+            this.valueFields = values.toArray(new Field[values.size()]);
+            this.iterableFields = iterables.toArray(new Field[iterables.size()]);
+            this.mapFields = maps.toArray(new Field[maps.size()]);
+        }
+
+        private boolean isEmpty() {
+            return valueFields.length == 0 && iterableFields.length == 0 && mapFields.length == 0;
+        }
+    }
 }
@@ -125,7 +125,7 @@ public class DefaultParameterResolverFactory extends ParameterResolverFactory {
         }
     }
 
-    private static class PayloadParameterResolver implements ParameterResolver {
+    static class PayloadParameterResolver implements ParameterResolver {
 
         private final Class<?> payloadType;
 
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import net.sf.cglib.asm.ClassWriter;
+import net.sf.cglib.asm.MethodVisitor;
+import net.sf.cglib.asm.Opcodes;
+import net.sf.cglib.asm.Type;
+import net.sf.cglib.core.ReflectUtils;
+import org.axonframework.domain.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MemberInvokerFactory that generates a class for each handler method or constructor, which invokes that member
+ * directly instead of through reflection. Parameter values are resolved one by one and passed on the stack, meaning
+ * that no parameter array is created for each invocation.
+ * <p/>
+ * Generated classes are defined in the package and ClassLoader of the class declaring the member. When that isn't
+ * possible, for example because the member is private, one of its parameter types isn't accessible from that package,
+ * or the environment doesn't allow classes to be defined at runtime, this factory falls back to the invokers created
+ * by the {@link ReflectionInvokerFactory}.
+ * <p/>
+ * Note that, unlike reflection, a generated invoker reports a parameter value that doesn't match the parameter type
+ * (including <code>null</code> values for primitive parameters) as an InvocationTargetException.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class GeneratedInvokerFactory extends MemberInvokerFactory implements Opcodes {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneratedInvokerFactory.class);
+
+    private static final String INVOKER_SUFFIX = "$$AxonInvoker$";
+    private static final String SUPER_NAME = Type.getInternalName(GeneratedInvoker.class);
+    private static final String RESOLVERS_DESCRIPTOR = Type.getDescriptor(ParameterResolver[].class);
+    private static final String RESOLVER_NAME = Type.getInternalName(ParameterResolver.class);
+    private static final String RESOLVE_DESCRIPTOR = "(" + Type.getDescriptor(Message.class) + ")Ljava/lang/Object;";
+    private static final String DO_INVOKE_DESCRIPTOR =
+            "(Ljava/lang/Object;" + Type.getDescriptor(Message.class) + ")Ljava/lang/Object;";
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+    private static final AtomicInteger INVOKER_COUNTER = new AtomicInteger();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
+
+    private final ReflectionInvokerFactory fallback = new ReflectionInvokerFactory();
+
+    @Override
+    public MemberInvoker createInvoker(Method method, ParameterResolver[] parameterResolvers) {
+        if (canGenerateInvoker(method, method.getParameterTypes())) {
+            try {
+                return defineInvoker(method.getDeclaringClass(), generateInvoker(method), parameterResolvers);
+            } catch (Exception e) {
+                logFallback(method, e);
+            } catch (LinkageError e) {
+                logFallback(method, e);
+            }
+        }
+        return fallback.createInvoker(method, parameterResolvers);
+    }
+
+    @Override
+    public MemberInvoker createInvoker(Constructor<?> constructor, ParameterResolver[] parameterResolvers) {
+        if (!Modifier.isAbstract(constructor.getDeclaringClass().getModifiers())
+                && canGenerateInvoker(constructor, constructor.getParameterTypes())) {
+            try {
+                return defineInvoker(constructor.getDeclaringClass(), generateInvoker(constructor),
+                                     parameterResolvers);
+            } catch (Exception e) {
+                logFallback(constructor, e);
+            } catch (LinkageError e) {
+                logFallback(constructor, e);
+            }
+        }
+        return fallback.createInvoker(constructor, parameterResolvers);
+    }
+
+    private void logFallback(Member member, Throwable cause) {
+        logger.warn("Could not generate an invoker for {}. Falling back to reflection.", member, cause);
+    }
+
+    private boolean canGenerateInvoker(Member member, Class<?>[] parameterTypes) {
+        Class<?> declaringClass = member.getDeclaringClass();
+        if (Modifier.isPrivate(member.getModifiers())
+                || declaringClass.getClassLoader() == null
+                || declaringClass.getName().startsWith("java.")
+                || !isAccessible(declaringClass, declaringClass)) {
+            return false;
+        }
+        for (Class<?> parameterType : parameterTypes) {
+            if (!isAccessible(parameterType, declaringClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isAccessible(Class<?> type, Class<?> fromClass) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || Modifier.isPublic(type.getModifiers())) {
+            return true;
+        }
+        return !Modifier.isPrivate(type.getModifiers())
+                && type.getClassLoader() == fromClass.getClassLoader()
+                && packageOf(type).equals(packageOf(fromClass));
+    }
+
+    private String packageOf(Class<?> type) {
+        String name = type.getName();
+        int lastDot = name.lastIndexOf('.');
+        return lastDot < 0 ? "" : name.substring(0, lastDot);
+    }
+
+    private MemberInvoker defineInvoker(Class<?> declaringClass, GeneratedClass generatedClass,
+                                        ParameterResolver[] parameterResolvers) throws Exception {
+        Class<?> invokerClass = ReflectUtils.defineClass(generatedClass.name, generatedClass.bytes,
+                                                         declaringClass.getClassLoader());
+        return (MemberInvoker) invokerClass.getConstructor(ParameterResolver[].class)
+                                           .newInstance(new Object[]{parameterResolvers});
+    }
+
+    private GeneratedClass generateInvoker(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        String owner = Type.getInternalName(declaringClass);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String className = startClass(cw, declaringClass);
+
+        MethodVisitor mv = startDoInvoke(cw);
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!isStatic) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, owner);
+        }
+        loadParameters(mv, method.getParameterTypes());
+        int opcode;
+        if (isStatic) {
+            opcode = INVOKESTATIC;
+        } else if (declaringClass.isInterface()) {
+            opcode = INVOKEINTERFACE;
+        } else {
+            opcode = INVOKEVIRTUAL;
+        }
+        mv.visitMethodInsn(opcode, owner, method.getName(), Type.getMethodDescriptor(method));
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            mv.visitInsn(ACONST_NULL);
+        } else if (returnType.isPrimitive()) {
+            box(mv, returnType);
+        }
+        endDoInvoke(mv);
+
+        cw.visitEnd();
+        return new GeneratedClass(className, cw.toByteArray());
+    }
+
+    private GeneratedClass generateInvoker(Constructor<?> constructor) {
+        Class<?> declaringClass = constructor.getDeclaringClass();
+        String owner = Type.getInternalName(declaringClass);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String className = startClass(cw, declaringClass);
+
+        MethodVisitor mv = startDoInvoke(cw);
+        mv.visitTypeInsn(NEW, owner);
+        mv.visitInsn(DUP);
+        loadParameters(mv, constructor.getParameterTypes());
+        mv.visitMethodInsn(INVOKESPECIAL, owner, "<init>", Type.getConstructorDescriptor(constructor));
+        endDoInvoke(mv);
+
+        cw.visitEnd();
+        return new GeneratedClass(className, cw.toByteArray());
+    }
+
+    private String startClass(ClassWriter cw, Class<?> declaringClass) {
+        String className = declaringClass.getName() + INVOKER_SUFFIX + INVOKER_COUNTER.incrementAndGet();
+        cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER + ACC_SYNTHETIC, className.replace('.', '/'), null,
+                 SUPER_NAME, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + RESOLVERS_DESCRIPTOR + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, SUPER_NAME, "<init>", "(" + RESOLVERS_DESCRIPTOR + ")V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        return className;
+    }
+
+    private MethodVisitor startDoInvoke(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "doInvoke", DO_INVOKE_DESCRIPTOR, null,
+                                          new String[]{"java/lang/Exception"});
+        mv.visitCode();
+        return mv;
+    }
+
+    private void endDoInvoke(MethodVisitor mv) {
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void loadParameters(MethodVisitor mv, Class<?>[] parameterTypes) {
+        for (int i = 0; i < parameterTypes.length; i++) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, SUPER_NAME, "resolvers", RESOLVERS_DESCRIPTOR);
+            pushInt(mv, i);
+            mv.visitInsn(AALOAD);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKEINTERFACE, RESOLVER_NAME, "resolveParameterValue", RESOLVE_DESCRIPTOR);
+            Class<?> parameterType = parameterTypes[i];
+            if (parameterType.isPrimitive()) {
+                unbox(mv, parameterType);
+            } else if (parameterType != Object.class) {
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(parameterType));
+            }
+        }
+    }
+
+    private void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else {
+            mv.visitIntInsn(SIPUSH, value);
+        }
+    }
+
+    private void unbox(MethodVisitor mv, Class<?> primitiveType) {
+        String wrapper = Type.getInternalName(WRAPPERS.get(primitiveType));
+        mv.visitTypeInsn(CHECKCAST, wrapper);
+        mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, primitiveType.getName() + "Value",
+                           "()" + Type.getDescriptor(primitiveType));
+    }
+
+    private void box(MethodVisitor mv, Class<?> primitiveType) {
+        Class<?> wrapper = WRAPPERS.get(primitiveType);
+        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapper), "valueOf",
+                           "(" + Type.getDescriptor(primitiveType) + ")" + Type.getDescriptor(wrapper));
+    }
+
+    /**
+     * Base class for the generated invokers. This class is public, as the invokers are generated in the package of
+     * the class declaring the handler, but should not be used by application code.
+     */
+    public abstract static class GeneratedInvoker implements MemberInvoker {
+
+        /**
+         * The resolvers for each of the parameters of the invoked member.
+         */
+        protected final ParameterResolver[] resolvers;
+
+        /**
+         * Initialize the invoker with the given <code>resolvers</code>.
+         *
+         * @param resolvers The resolvers for each of the parameters of the invoked member
+         */
+        protected GeneratedInvoker(ParameterResolver[] resolvers) {
+            this.resolvers = resolvers;
+        }
+
+        @Override
+        public final Object invoke(Object target, Message message) throws InvocationTargetException {
+            try {
+                return doInvoke(target, message);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        /**
+         * Invokes the member on the given <code>target</code>, resolving parameter values from the given
+         * <code>message</code>.
+         *
+         * @param target  The instance to invoke the member on
+         * @param message The message providing parameter values
+         * @return the result of the invocation
+         *
+         * @throws Exception any exception thrown by the invoked member
+         */
+        protected abstract Object doInvoke(Object target, Message message) throws Exception;
+    }
+
+    private static final class GeneratedClass {
+
+        private final String name;
+        private final byte[] bytes;
+
+        private GeneratedClass(String name, byte[] bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.domain.Message;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Invokes a handler method or constructor, resolving its parameters from a Message. Instances are created by a {@link
+ * MemberInvokerFactory}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface MemberInvoker {
+
+    /**
+     * Invokes the member on the given <code>target</code>, using the given <code>message</code> to resolve the
+     * parameter values. For constructors, the <code>target</code> is ignored and the new instance is returned.
+     *
+     * @param target  The instance to invoke the member on
+     * @param message The message providing parameter values
+     * @return the result of the invocation
+     *
+     * @throws InvocationTargetException when the member throws an exception
+     * @throws IllegalAccessException    if the SecurityManager refuses the invocation
+     */
+    Object invoke(Object target, Message message) throws InvocationTargetException, IllegalAccessException;
+}
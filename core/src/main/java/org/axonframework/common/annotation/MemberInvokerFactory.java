@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Factory for the {@link MemberInvoker MemberInvokers} that annotated handlers use to invoke their method or
+ * constructor. By default, handlers are invoked using reflection. Application developers may opt in to generated
+ * invokers by registering a {@link GeneratedInvokerFactory}:
+ * <pre>
+ * MemberInvokerFactory.setInstance(new GeneratedInvokerFactory());
+ * </pre>
+ * The factory must be set before handlers are inspected. Handlers that have already been inspected keep the invoker
+ * they were created with.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public abstract class MemberInvokerFactory {
+
+    private static volatile MemberInvokerFactory instance = new ReflectionInvokerFactory();
+
+    /**
+     * Returns the factory used to create invokers for annotated handlers.
+     *
+     * @return the factory used to create invokers for annotated handlers
+     */
+    public static MemberInvokerFactory getInstance() {
+        return instance;
+    }
+
+    /**
+     * Sets the factory to create invokers for annotated handlers with.
+     *
+     * @param factory the factory to create invokers for annotated handlers with
+     */
+    public static void setInstance(MemberInvokerFactory factory) {
+        instance = factory;
+    }
+
+    /**
+     * Creates an invoker for the given <code>method</code>, resolving its parameters with the given
+     * <code>parameterResolvers</code>.
+     *
+     * @param method             The method to invoke
+     * @param parameterResolvers The resolvers for each of the method's parameters
+     * @return an invoker for the given method
+     */
+    public abstract MemberInvoker createInvoker(Method method, ParameterResolver[] parameterResolvers);
+
+    /**
+     * Creates an invoker for the given <code>constructor</code>, resolving its parameters with the given
+     * <code>parameterResolvers</code>.
+     *
+     * @param constructor        The constructor to invoke
+     * @param parameterResolvers The resolvers for each of the constructor's parameters
+     * @return an invoker for the given constructor
+     */
+    public abstract MemberInvoker createInvoker(Constructor<?> constructor, ParameterResolver[] parameterResolvers);
+}
@@ -36,6 +36,7 @@ import static org.axonframework.common.ReflectionUtils.ensureAccessible;
 public final class MethodMessageHandler extends AbstractMessageHandler {
 
     private final Method method;
+    private final MemberInvoker invoker;
 
     /**
      * Creates a MethodMessageHandler for the given <code>method</code>.
@@ -91,6 +92,7 @@ public final class MethodMessageHandler extends AbstractMessageHandler {
     private MethodMessageHandler(Method method, ParameterResolver[] parameterValueResolvers, Class payloadType) {
         super(payloadType, method.getDeclaringClass(), parameterValueResolvers);
         this.method = method;
+        this.invoker = MemberInvokerFactory.getInstance().createInvoker(method, parameterValueResolvers);
     }
 
     @Override
@@ -98,11 +100,7 @@ public final class MethodMessageHandler extends AbstractMessageHandler {
         Assert.isTrue(method.getDeclaringClass().isInstance(target),
                       "Given target is not an instance of the method's owner.");
         Assert.notNull(message, "Event may not be null");
-        Object[] parameterValues = new Object[getParameterValueResolvers().length];
-        for (int i = 0; i < parameterValues.length; i++) {
-            parameterValues[i] = getParameterValueResolvers()[i].resolveParameterValue(message);
-        }
-        return method.invoke(target, parameterValues);
+        return invoker.invoke(target, message);
     }
 
     /**
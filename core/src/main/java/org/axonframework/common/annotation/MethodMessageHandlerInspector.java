@@ -39,8 +39,13 @@ import static org.axonframework.common.ReflectionUtils.methodsOf;
  */
 public final class MethodMessageHandlerInspector {
 
+    private static final MethodMessageHandler[] NO_HANDLERS = new MethodMessageHandler[0];
+
     private final Class<?> targetType;
     private final SortedSet<MethodMessageHandler> handlers = new TreeSet<MethodMessageHandler>();
+    // for each payload type, the handlers that may handle it, in order of precedence
+    private final ConcurrentMap<Class<?>, MethodMessageHandler[]> candidatesByPayloadType =
+            new ConcurrentHashMap<Class<?>, MethodMessageHandler[]>();
 
     private static final ConcurrentMap<String, MethodMessageHandlerInspector> INSPECTORS =
             new ConcurrentHashMap<String, MethodMessageHandlerInspector>();
@@ -94,19 +99,53 @@ public final class MethodMessageHandlerInspector {
     /**
      * Returns the handler method that handles objects of the given <code>parameterType</code>. Returns
      * <code>null</code> is no such method is found.
+     * <p/>
+     * The handlers that may handle a payload type are cached, meaning that only handlers declaring a compatible
+     * payload type are evaluated for each message.
      *
      * @param message The message to find a handler for
      * @return the  handler method for the given parameterType
      */
     public MethodMessageHandler findHandlerMethod(final Message message) {
-        for (MethodMessageHandler handler : handlers) {
-            if (handler.matches(message)) {
-                return handler;
+        Class<?> payloadType = message.getPayloadType();
+        if (payloadType == null) {
+            for (MethodMessageHandler handler : handlers) {
+                if (handler.matches(message)) {
+                    return handler;
+                }
+            }
+            return null;
+        }
+        MethodMessageHandler[] candidates = candidatesByPayloadType.get(payloadType);
+        if (candidates == null) {
+            candidates = findCandidates(payloadType);
+            candidatesByPayloadType.putIfAbsent(payloadType, candidates);
+        }
+        for (MethodMessageHandler candidate : candidates) {
+            if (candidate.matches(message)) {
+                return candidate;
             }
         }
         return null;
     }
 
+    private MethodMessageHandler[] findCandidates(Class<?> payloadType) {
+        List<MethodMessageHandler> candidates = new ArrayList<MethodMessageHandler>();
+        for (MethodMessageHandler handler : handlers) {
+            if (mayHandlePayloadType(handler, payloadType)) {
+                candidates.add(handler);
+            }
+        }
+        return candidates.isEmpty() ? NO_HANDLERS : candidates.toArray(new MethodMessageHandler[candidates.size()]);
+    }
+
+    private boolean mayHandlePayloadType(MethodMessageHandler handler, Class<?> payloadType) {
+        // a payload resolver never matches a payload that is not assignable to its type. Other resolvers may.
+        ParameterResolver firstResolver = handler.getParameterValueResolvers()[0];
+        return !(firstResolver instanceof DefaultParameterResolverFactory.PayloadParameterResolver)
+                || handler.getPayloadType().isAssignableFrom(payloadType);
+    }
+
     /**
      * Returns the list of handlers found on target type.
      *
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.domain.Message;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * MemberInvokerFactory that creates invokers using reflection. This is the default factory.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class ReflectionInvokerFactory extends MemberInvokerFactory {
+
+    @Override
+    public MemberInvoker createInvoker(Method method, ParameterResolver[] parameterResolvers) {
+        return new MethodInvoker(method, parameterResolvers);
+    }
+
+    @Override
+    public MemberInvoker createInvoker(Constructor<?> constructor, ParameterResolver[] parameterResolvers) {
+        return new ConstructorInvoker(constructor, parameterResolvers);
+    }
+
+    private static Object[] resolveParameterValues(ParameterResolver[] parameterResolvers, Message message) {
+        Object[] parameterValues = new Object[parameterResolvers.length];
+        for (int i = 0; i < parameterValues.length; i++) {
+            parameterValues[i] = parameterResolvers[i].resolveParameterValue(message);
+        }
+        return parameterValues;
+    }
+
+    private static final class MethodInvoker implements MemberInvoker {
+
+        private final Method method;
+        private final ParameterResolver[] parameterResolvers;
+
+        private MethodInvoker(Method method, ParameterResolver[] parameterResolvers) {
+            this.method = method;
+            this.parameterResolvers = parameterResolvers;
+        }
+
+        @Override
+        public Object invoke(Object target, Message message) throws InvocationTargetException, IllegalAccessException {
+            return method.invoke(target, resolveParameterValues(parameterResolvers, message));
+        }
+    }
+
+    private static final class ConstructorInvoker implements MemberInvoker {
+
+        private final Constructor<?> constructor;
+        private final ParameterResolver[] parameterResolvers;
+
+        private ConstructorInvoker(Constructor<?> constructor, ParameterResolver[] parameterResolvers) {
+            this.constructor = constructor;
+            this.parameterResolvers = parameterResolvers;
+        }
+
+        @Override
+        public Object invoke(Object target, Message message) throws InvocationTargetException, IllegalAccessException {
+            try {
+                return constructor.newInstance(resolveParameterValues(parameterResolvers, message));
+            } catch (InstantiationException e) {
+                throw new InvocationTargetException(e.getCause()); // NOSONAR
+            }
+        }
+    }
+}
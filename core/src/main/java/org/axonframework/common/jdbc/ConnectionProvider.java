@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Interface towards a mechanism that provides access to a JDBC Connection. Depending on the implementation, the
+ * connection may take part in an active transaction.
+ * <p/>
+ * Callers are expected to close the returned connection when they're done with it. Implementations that return
+ * transaction bound connections must make sure that closing the connection does not affect the transaction.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface ConnectionProvider {
+
+    /**
+     * Returns a connection, ready for use.
+     *
+     * @return a new connection to use
+     *
+     * @throws SQLException when an error occurs obtaining the connection
+     */
+    Connection getConnection() throws SQLException;
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * ConnectionProvider implementation that obtains a connection from a given DataSource. Each invocation returns a
+ * new connection from the DataSource, meaning the connection does not take part in any transaction managed outside
+ * of the DataSource.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class DataSourceConnectionProvider implements ConnectionProvider {
+
+    private final DataSource dataSource;
+
+    /**
+     * Initialize the Connection Provider, using given <code>dataSource</code> to obtain new connections.
+     *
+     * @param dataSource The DataSource to obtain new connections from
+     */
+    public DataSourceConnectionProvider(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+}
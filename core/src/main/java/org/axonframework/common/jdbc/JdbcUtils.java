@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Utility methods for JDBC operations.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public final class JdbcUtils {
+
+    private JdbcUtils() {
+    }
+
+    /**
+     * Closes the given <code>resultSet</code>, while suppressing any SQLExceptions it will generate. The given
+     * <code>resultSet</code> may be <code>null</code>, in which case nothing happens.
+     *
+     * @param resultSet the result set to close
+     */
+    public static void closeQuietly(ResultSet resultSet) {
+        if (resultSet != null) {
+            try {
+                resultSet.close();
+            } catch (SQLException e) { // NOSONAR - empty catch block on purpose
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Closes the given <code>statement</code>, while suppressing any SQLExceptions it will generate. The given
+     * <code>statement</code> may be <code>null</code>, in which case nothing happens.
+     *
+     * @param statement the statement to close
+     */
+    public static void closeQuietly(Statement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) { // NOSONAR - empty catch block on purpose
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Closes the given <code>connection</code>, while suppressing any SQLExceptions it will generate. The given
+     * <code>connection</code> may be <code>null</code>, in which case nothing happens.
+     *
+     * @param connection the connection to close
+     */
+    public static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) { // NOSONAR - empty catch block on purpose
+                // ignore
+            }
+        }
+    }
+}
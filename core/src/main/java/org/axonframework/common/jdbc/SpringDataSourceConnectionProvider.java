@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.jdbc;
+
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * ConnectionProvider implementation that is aware of Transaction Managers and provides the connection attached to an
+ * active transaction, if any. When using a Spring <code>JpaTransactionManager</code> configured with a DataSource,
+ * this is the connection used by the EntityManager in the current transaction.
+ * <p/>
+ * Closing the returned connection releases it back to Spring's transaction synchronization, rather than closing the
+ * physical connection while a transaction is still using it.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SpringDataSourceConnectionProvider implements ConnectionProvider {
+
+    private final DataSource dataSource;
+
+    /**
+     * Initialize the connection provider, using given <code>dataSource</code> to obtain a connection, when required.
+     *
+     * @param dataSource The data source to obtain connections from, when required
+     */
+    public SpringDataSourceConnectionProvider(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final Connection connection = DataSourceUtils.doGetConnection(dataSource);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                                                   new TransactionAwareConnectionHandler(connection));
+    }
+
+    private class TransactionAwareConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        public TransactionAwareConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && method.getParameterTypes().length == 0) {
+                DataSourceUtils.doReleaseConnection(target, dataSource);
+                return null;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -19,7 +19,6 @@ package org.axonframework.eventhandling;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -129,12 +128,12 @@ public abstract class AsynchronousExecutionWrapper<T> {
     protected EventProcessingScheduler<T> newProcessingScheduler(
             EventProcessingScheduler.ShutdownCallback shutDownCallback) {
         logger.debug("Initializing new processing scheduler.");
-        return newProcessingScheduler(shutDownCallback, new LinkedList<T>());
+        return newProcessingScheduler(shutDownCallback, new SingleConsumerQueue<T>());
     }
 
     /**
      * Creates a new scheduler instance schedules tasks on the executor service for the managed EventListener. The
-     * Scheduler must get tasks from the given <code>taskQueue</code>.
+     * Scheduler must get tasks from the given <code>taskQueue</code>, which must be thread safe.
      *
      * @param shutDownCallback The callback that needs to be notified when the scheduler stops processing.
      * @param taskQueue        The queue from which this scheduler should store and get tasks
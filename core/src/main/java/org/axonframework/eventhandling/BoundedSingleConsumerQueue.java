@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.common.Assert;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free queue that allows elements to be added by any number of threads, but removed by a single thread
+ * at a time only. Elements are stored in a ring of pre-allocated slots, meaning that adding and removing elements does
+ * not allocate any memory.
+ * <p/>
+ * Unlike most bounded queues, {@link #add(Object)} does not fail when the queue is full. Instead, the calling thread
+ * waits until the consumer has made room for the element. {@link #offer(Object)} returns <code>false</code> when the
+ * queue is full. When the thread processing the elements of this queue has been registered using {@link
+ * #setConsumer(Thread)}, that thread will not wait for room it would have to make itself. Instead, <code>add</code>
+ * fails with an IllegalStateException.
+ * <p/>
+ * Only the thread that consumes elements (using {@link #poll()} or {@link #peek()}) may assume the queue to be empty
+ * when these methods return <code>null</code>. An element may temporarily be invisible to the consumer while it is
+ * being added. The {@link #size()} and {@link #iterator()} methods are weakly consistent, and may be used by any
+ * thread.
+ *
+ * @param <T> The type of element stored in this queue
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class BoundedSingleConsumerQueue<T> extends AbstractQueue<T> {
+
+    private final Object[] elements;
+    // for each slot, the position at which it may be written (position) or read (position + 1)
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final int mask;
+    private volatile long head;
+    // only ever compared to the current thread, which always sees its own registration
+    private Thread consumer;
+
+    /**
+     * Initializes an empty queue that holds up to <code>capacity</code> elements. The capacity must be a power of 2.
+     *
+     * @param capacity The maximum number of elements held by this queue
+     */
+    BoundedSingleConsumerQueue(int capacity) {
+        Assert.isTrue(capacity > 0 && Integer.bitCount(capacity) == 1, "capacity must be a power of 2");
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the given <code>element</code> to the queue, waiting for the consumer to make room if the queue is full.
+     *
+     * @param element The element to add
+     * @return <code>true</code>, always
+     *
+     * @throws IllegalStateException if the queue is full and the calling thread is the registered consumer of this
+     *                               queue
+     */
+    @Override
+    public boolean add(T element) {
+        while (!offer(element)) {
+            if (consumer == Thread.currentThread()) {
+                throw new IllegalStateException("The queue is full. The thread processing its elements cannot wait "
+                                                        + "for room it would have to make itself.");
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * Registers the given <code>thread</code> as the thread processing the elements taken from this queue. The
+     * registration must be cleared by the same thread, by passing <code>null</code>, when it stops processing
+     * elements.
+     *
+     * @param thread The thread processing the elements of this queue, or <code>null</code> to clear the registration
+     */
+    void setConsumer(Thread thread) {
+        this.consumer = thread;
+    }
+
+    @Override
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("This queue does not accept null elements");
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // the slot still contains the element added a full ring ago
+                return false;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        T element = (T) elements[index];
+        elements[index] = null;
+        head = position + 1;
+        sequences.set(index, position + elements.length);
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T peek() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        return (T) elements[index];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        long position = head;
+        return sequences.get((int) (position & mask)) != position + 1;
+    }
+
+    @Override
+    public int size() {
+        long size = tail.get() - head;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, elements.length);
+    }
+
+    /**
+     * Returns the maximum number of elements this queue can hold.
+     *
+     * @return the maximum number of elements this queue can hold
+     */
+    int capacity() {
+        return elements.length;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new SlotIterator(head, tail.get());
+    }
+
+    private final class SlotIterator implements Iterator<T> {
+
+        private final long end;
+        private long position;
+        private T nextElement;
+
+        private SlotIterator(long start, long end) {
+            this.position = start;
+            this.end = end;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public T next() {
+            if (nextElement == null) {
+                throw new NoSuchElementException();
+            }
+            T element = nextElement;
+            advance();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Elements can only be removed by polling this queue");
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            nextElement = null;
+            while (nextElement == null && position < end) {
+                int index = (int) (position & mask);
+                T element = (T) elements[index];
+                // skip slots that have been consumed or not yet been written
+                if (sequences.get(index) == position + 1 && element != null) {
+                    nextElement = element;
+                }
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.MultiThreadedClaimStrategy;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import org.axonframework.common.Assert;
+import org.axonframework.domain.EventMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cluster implementation that processes Events asynchronously using an LMAX Disruptor. Published Events are placed in
+ * a pre-allocated ring buffer, from which they are processed by a configurable number of processors (threads).
+ * <p/>
+ * The {@link SequencingPolicy} decides which processor handles an Event. Events with the same sequence identifier are
+ * always handled by the same processor, in the order they were published. Events without a sequence identifier are
+ * divided over the processors in a round-robin fashion. Each Event is handled by all members of the cluster before the
+ * next event is processed.
+ * <p/>
+ * Each processor processes its Events in transactions managed by the {@link TransactionManager}. A transaction is
+ * committed when the processor has caught up with the publishers, or when the maximum transaction size is reached,
+ * whichever comes first. Failed transactions are retried according to the {@link RetryPolicy} set on the {@link
+ * TransactionStatus}. Note that the {@link YieldPolicy} does not apply to this cluster, as each processor has a thread
+ * of its own.
+ * <p/>
+ * After initialization, the cluster must be explicitly started using the {@link #start()} method.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class DisruptorCluster extends AbstractCluster {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisruptorCluster.class);
+    private static final WaitStrategy DEFAULT_WAIT_STRATEGY = new BlockingWaitStrategy();
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int DEFAULT_PROCESSOR_COUNT = 1;
+
+    private final SequencingPolicy<? super EventMessage> sequencingPolicy;
+    private volatile Disruptor<EventEntry> disruptor;
+
+    private boolean shutdownExecutorOnStop = true;
+    private Executor executor = Executors.newCachedThreadPool();
+    private TransactionManager transactionManager = new NoTransactionManager();
+    private int processorCount = DEFAULT_PROCESSOR_COUNT;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private WaitStrategy waitStrategy = DEFAULT_WAIT_STRATEGY;
+
+    /**
+     * Initializes a DisruptorCluster that uses the given <code>sequencingPolicy</code> to decide which events must be
+     * processed sequentially. All other properties are initialized to their default values.
+     *
+     * @param sequencingPolicy The policy that decides which events must be processed sequentially
+     */
+    public DisruptorCluster(SequencingPolicy<? super EventMessage> sequencingPolicy) {
+        this.sequencingPolicy = sequencingPolicy;
+    }
+
+    /**
+     * Starts the processor threads of this cluster. If the cluster is already started, nothing happens.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void start() {
+        if (disruptor == null) {
+            disruptor = new Disruptor<EventEntry>(new EventEntry.Factory(), executor,
+                                                  new MultiThreadedClaimStrategy(bufferSize), waitStrategy);
+            EventProcessor[] processors = new EventProcessor[processorCount];
+            for (int i = 0; i < processorCount; i++) {
+                processors[i] = new EventProcessor(i);
+            }
+            disruptor.handleEventsWith(processors);
+            disruptor.start();
+        }
+    }
+
+    /**
+     * Stops accepting new events. The method is blocked until all published events have been processed. Note that any
+     * manually provided Executors using ({@link #setExecutor(java.util.concurrent.Executor)} are not shut down.
+     * <p/>
+     * If the cluster was already stopped, nothing happens.
+     */
+    public synchronized void stop() {
+        if (disruptor != null) {
+            disruptor.shutdown();
+            if (shutdownExecutorOnStop && executor instanceof ExecutorService) {
+                ((ExecutorService) executor).shutdown();
+            }
+        }
+        disruptor = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the cluster has not been started
+     */
+    @Override
+    public void publish(EventMessage... events) {
+        Disruptor<EventEntry> currentDisruptor = disruptor;
+        Assert.state(currentDisruptor != null, "The cluster must be started before events can be published");
+        RingBuffer<EventEntry> ringBuffer = currentDisruptor.getRingBuffer();
+        for (EventMessage event : events) {
+            long sequence = ringBuffer.next();
+            ringBuffer.get(sequence).reset(event, processorFor(event, sequence));
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private int processorFor(EventMessage event, long sequence) {
+        Object sequenceIdentifier = sequencingPolicy.getSequenceIdentifierFor(event);
+        if (sequenceIdentifier == null) {
+            return (int) (sequence % processorCount);
+        }
+        return (sequenceIdentifier.hashCode() & Integer.MAX_VALUE) % processorCount;
+    }
+
+    /**
+     * Sets the executor that provides the threads for the processors. Note that you must ensure that this executor
+     * is capable of delivering <em>all</em> of the required threads at once. If that is not the case, the cluster
+     * might hang while waiting for the executor to provide them. Must be set <em>before</em> the cluster is started.
+     * <p/>
+     * By default, a thread is created for each processor.
+     *
+     * @param executor the executor that provides the threads for the processors
+     * @see #setProcessorCount(int)
+     */
+    public synchronized void setExecutor(Executor executor) {
+        Assert.state(disruptor == null, "Cannot set executor after the cluster has started");
+        this.shutdownExecutorOnStop = false;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the TransactionManager that is notified of the transactions in which events are processed. Must be set
+     * <em>before</em> the cluster is started.
+     * <p/>
+     * By default, no transactions are managed.
+     *
+     * @param transactionManager the TransactionManager that manages underlying transactions
+     */
+    public synchronized void setTransactionManager(TransactionManager transactionManager) {
+        Assert.state(disruptor == null, "Cannot set transactionManager after the cluster has started");
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Sets the number of processors (threads) to process events with. Ensure that the given {@link
+     * #setExecutor(java.util.concurrent.Executor) executor} is capable of processing this amount of concurrent tasks.
+     * Must be set <em>before</em> the cluster is started.
+     * <p/>
+     * Defaults to 1.
+     *
+     * @param processorCount the number of processors (threads) to process events with
+     */
+    public synchronized void setProcessorCount(int processorCount) {
+        Assert.isTrue(processorCount > 0, "The processor count must be a positive number");
+        Assert.state(disruptor == null, "Cannot set processorCount after the cluster has started");
+        this.processorCount = processorCount;
+    }
+
+    /**
+     * Sets the size of the processing buffer. This is equal to the amount of events that may await processing before
+     * publishing threads are blocked. Must be set <em>before</em> the cluster is started.
+     * <p/>
+     * Note that this value <em>must</em> be a power of 2.
+     * <p/>
+     * Defaults to 1024.
+     *
+     * @param bufferSize The size of the processing buffer. Must be a power of 2.
+     */
+    public synchronized void setBufferSize(int bufferSize) {
+        Assert.isTrue(Integer.bitCount(bufferSize) == 1, "The buffer size must be a power of 2");
+        Assert.state(disruptor == null, "Cannot set bufferSize after the cluster has started");
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Sets the WaitStrategy to use when processors need to wait for incoming events. Must be set <em>before</em> the
+     * cluster is started.
+     * <p/>
+     * Defaults to a BlockingWaitStrategy.
+     *
+     * @param waitStrategy the WaitStrategy to use when processors need to wait for incoming events
+     */
+    public synchronized void setWaitStrategy(WaitStrategy waitStrategy) {
+        Assert.state(disruptor == null, "Cannot set waitStrategy after the cluster has started");
+        this.waitStrategy = waitStrategy;
+    }
+
+    private static final class EventEntry {
+
+        private EventMessage event;
+        private int processorId;
+
+        private void reset(EventMessage newEvent, int newProcessorId) {
+            this.event = newEvent;
+            this.processorId = newProcessorId;
+        }
+
+        private static final class Factory implements EventFactory<EventEntry> {
+
+            @Override
+            public EventEntry newInstance() {
+                return new EventEntry();
+            }
+        }
+    }
+
+    /**
+     * Handles the events assigned to a single processor, by invoking all members of the cluster in a transaction.
+     */
+    private final class EventProcessor implements EventHandler<EventEntry> {
+
+        private final int processorId;
+        // the events handled in the current transaction, kept for retries
+        private final List<EventMessage> transactionEvents = new ArrayList<EventMessage>();
+        private TransactionStatus status;
+
+        private EventProcessor(int processorId) {
+            this.processorId = processorId;
+        }
+
+        @Override
+        public void onEvent(EventEntry entry, long sequence, boolean endOfBatch) {
+            if (entry.processorId == processorId) {
+                EventMessage event = entry.event;
+                transactionEvents.add(event);
+                try {
+                    ensureLiveTransaction();
+                    invokeMembers(event);
+                    status.recordEventProcessed();
+                } catch (RuntimeException e) {
+                    recover(e);
+                }
+            }
+            if (status != null && (endOfBatch || status.isTransactionSizeReached())) {
+                commitTransaction();
+            }
+        }
+
+        /**
+         * Commits the current transaction. If the commit fails, the events are retried as prescribed by the retry
+         * policy, after which the recovered transaction is committed again, until committing succeeds or the retry
+         * policy tells to skip the events.
+         */
+        private void commitTransaction() {
+            while (status != null) {
+                try {
+                    transactionManager.afterTransaction(status);
+                    endTransaction();
+                } catch (RuntimeException e) {
+                    recover(e);
+                }
+            }
+        }
+
+        private void invokeMembers(EventMessage event) {
+            for (EventListener member : getMembers()) {
+                member.handle(event);
+            }
+        }
+
+        private void ensureLiveTransaction() {
+            if (status == null) {
+                status = new TransactionStatus();
+                TransactionStatus.set(status);
+                transactionManager.beforeTransaction(status);
+            }
+        }
+
+        private void endTransaction() {
+            status = null;
+            TransactionStatus.clear();
+            transactionEvents.clear();
+        }
+
+        /**
+         * Rolls back the current transaction, and retries the events in it as prescribed by the retry policy until
+         * handling them succeeds or the retry policy tells to skip them.
+         */
+        private void recover(RuntimeException failure) {
+            RuntimeException exception = failure;
+            while (exception != null) {
+                TransactionStatus failedStatus = status;
+                failedStatus.markFailed(exception);
+                tryAfterTransactionCall(failedStatus);
+                switch (failedStatus.getRetryPolicy()) {
+                    case SKIP_FAILED_EVENT:
+                        logger.error("Transactional event processing batch failed. Ignoring failed event.",
+                                     exception);
+                        endTransaction();
+                        return;
+                    case RETRY_LAST_EVENT:
+                        logger.warn("Transactional event processing batch failed. Retrying last event.", exception);
+                        EventMessage lastEvent = transactionEvents.get(transactionEvents.size() - 1);
+                        transactionEvents.clear();
+                        transactionEvents.add(lastEvent);
+                        break;
+                    case RETRY_TRANSACTION:
+                        logger.warn("Transactional event processing batch failed. Retrying {} events.",
+                                    transactionEvents.size(), exception);
+                        break;
+                }
+                status = null;
+                if (!waitForRetry(failedStatus.getRetryInterval())) {
+                    endTransaction();
+                    return;
+                }
+                exception = retryTransactionEvents();
+            }
+        }
+
+        private RuntimeException retryTransactionEvents() {
+            try {
+                ensureLiveTransaction();
+                for (EventMessage event : transactionEvents) {
+                    invokeMembers(event);
+                    status.recordEventProcessed();
+                }
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            }
+        }
+
+        private void tryAfterTransactionCall(TransactionStatus failedStatus) {
+            try {
+                transactionManager.afterTransaction(failedStatus);
+            } catch (RuntimeException e) {
+                logger.warn("Call to afterTransaction method of failed transaction resulted in an exception.", e);
+            }
+        }
+
+        private boolean waitForRetry(long retryInterval) {
+            if (retryInterval > 0) {
+                try {
+                    Thread.sleep(retryInterval);
+                } catch (InterruptedException e) {
+                    logger.warn("Thread was interrupted while waiting for retry. Skipping the failed events.");
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -19,18 +19,24 @@ package org.axonframework.eventhandling;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.axonframework.eventhandling.YieldPolicy.DO_NOT_YIELD;
 
 /**
  * Scheduler that keeps track of (Event processing) tasks that need to be executed sequentially.
+ * <p/>
+ * Scheduling events is lock-free. Threads scheduling events register themselves while adding an event to the queue.
+ * The scheduler only shuts down when it finds the queue empty while no thread is adding an event. Threads that try to
+ * schedule an event while the scheduler verifies that the queue is empty wait for the outcome of that verification.
  *
  * @param <T> The type of class representing the processing instruction for the event.
  * @author Allard Buijze
@@ -39,22 +45,25 @@ import static org.axonframework.eventhandling.YieldPolicy.DO_NOT_YIELD;
 public abstract class EventProcessingScheduler<T> implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(EventProcessingScheduler.class);
+    private static final int CLOSING = -1;
 
     private final ShutdownCallback shutDownCallback;
     private final TransactionManager transactionManager;
     private final Executor executor;
-    // guarded by "this"
     private final Queue<T> eventQueue;
-    private final List<T> currentBatch = new LinkedList<T>();
-    // guarded by "this"
-    private boolean isScheduled = false;
+    // only accessed by the thread processing events
+    private final List<T> currentBatch = new ArrayList<T>();
+    private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+    // the number of threads adding an event to the queue, or CLOSING while verifying the queue is empty
+    private final AtomicInteger schedulingState = new AtomicInteger(0);
+    private final Object restartLock = new Object();
     private volatile boolean cleanedUp;
     private volatile long retryAfter;
     private volatile boolean transactionStarted;
 
     /**
-     * Initialize a scheduler using the given <code>executor</code>. This scheduler uses an unbounded queue to schedule
-     * events.
+     * Initialize a scheduler using the given <code>executor</code>. This scheduler uses an unbounded, lock-free queue to
+     * schedule events.
      *
      * @param transactionManager The transaction manager that manages underlying transactions
      * @param executor           The executor service that will process the events
@@ -62,14 +71,14 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      */
     public EventProcessingScheduler(TransactionManager transactionManager, Executor executor,
                                     ShutdownCallback shutDownCallback) {
-        this(transactionManager, new LinkedList<T>(), executor, shutDownCallback);
+        this(transactionManager, new SingleConsumerQueue<T>(), executor, shutDownCallback);
     }
 
     /**
      * Initialize a scheduler using the given <code>executor</code>. The <code>eventQueue</code> is the queue from
      * which
      * the scheduler should obtain it's events. This queue must be thread safe, as it can be used simultaneously by
-     * multiple threads.
+     * multiple threads. The scheduler does not synchronize access to the queue.
      *
      * @param transactionManager The transaction manager that manages underlying transactions
      * @param executor           The executor service that will process the events
@@ -96,26 +105,74 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @throws IllegalStateException if the queue in this scheduler does not have the capacity to add this event
      */
-    public synchronized boolean scheduleEvent(T event) {
-        if (cleanedUp) {
+    public boolean scheduleEvent(T event) {
+        if (!registerScheduler()) {
             // this scheduler has been shut down; accept no more events
             return false;
         }
-        // add the event to the queue which this scheduler processes
-        eventQueue.add(event);
+        try {
+            // add the event to the queue which this scheduler processes
+            eventQueue.add(event);
+        } finally {
+            schedulingState.decrementAndGet();
+        }
         scheduleIfNecessary();
         return true;
     }
 
+    private boolean registerScheduler() {
+        while (true) {
+            if (cleanedUp) {
+                return false;
+            }
+            int state = schedulingState.get();
+            if (state == CLOSING) {
+                // the processing thread is verifying whether it can shut down
+                Thread.yield();
+            } else if (schedulingState.compareAndSet(state, state + 1)) {
+                if (cleanedUp) {
+                    // the scheduler shut down between the check above and the registration
+                    schedulingState.decrementAndGet();
+                    return false;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Prepares this scheduler to accept events again after it has shut down, allowing a scheduler and its queue to be
+     * reused instead of creating a new scheduler for each burst of events. Has no effect if the scheduler has not been
+     * shut down, or if it has already been restarted by another thread.
+     * <p/>
+     * This method is thread safe
+     *
+     * @return <code>true</code> if the scheduler has been restarted, otherwise <code>false</code>
+     */
+    boolean restart() {
+        if (!cleanedUp) {
+            return false;
+        }
+        synchronized (restartLock) {
+            if (!cleanedUp) {
+                return false;
+            }
+            // the processing thread no longer touches the scheduling state once it has been cleaned up
+            isScheduled.set(false);
+            cleanedUp = false;
+            return true;
+        }
+    }
+
     /**
      * Returns the next event in the queue, if available. If returns false if no further events are available for
      * processing. In that case, it will also set the scheduled status to false.
      * <p/>
-     * This method is thread safe
+     * This method may only be invoked by the thread processing events
      *
      * @return the next DomainEvent for processing, of null if none is available
      */
-    private synchronized T nextEvent() {
+    private T nextEvent() {
         T e = eventQueue.poll();
         if (e != null) {
             currentBatch.add(e);
@@ -127,12 +184,12 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      * Tries to yield to other threads by rescheduling processing of any further queued events. If rescheduling fails,
      * this call returns false, indicating that processing should continue in the current thread.
      * <p/>
-     * This method is thread safe
+     * This method may only be invoked by the thread processing events
      *
      * @return true if yielding succeeded, false otherwise.
      */
-    private synchronized boolean yield() {
-        if (eventQueue.size() > 0 || currentBatch.size() > 0) {
+    private boolean yield() {
+        if (!eventQueue.isEmpty() || !currentBatch.isEmpty() || !tryCleanUp()) {
             try {
                 if (retryAfter <= System.currentTimeMillis()) {
                     executor.execute(this);
@@ -151,8 +208,6 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
                 logger.info("Processing of event listener could not yield. Executor refused the task.");
                 return false;
             }
-        } else {
-            cleanUp();
         }
         return true;
     }
@@ -172,9 +227,8 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      * <p/>
      * This method is thread safe
      */
-    private synchronized void scheduleIfNecessary() {
-        if (!isScheduled) {
-            isScheduled = true;
+    private void scheduleIfNecessary() {
+        if (!isScheduled.get() && isScheduled.compareAndSet(false, true)) {
             executor.execute(this);
         }
     }
@@ -184,7 +238,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return the number of events currently queued for processing.
      */
-    private synchronized int queuedEventCount() {
+    private int queuedEventCount() {
         return eventQueue.size();
     }
 
@@ -211,7 +265,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
              * - or
              *   - yielding failed because the executor rejected the execution
              */
-            mayContinue = (!inRetryMode && queuedEventCount() > 0 && DO_NOT_YIELD.equals(status.getYieldPolicy()))
+            mayContinue = (!inRetryMode && !eventQueue.isEmpty() && DO_NOT_YIELD.equals(status.getYieldPolicy()))
                     || !yield();
             status.resetTransactionStatus();
         }
@@ -255,7 +309,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
-    private synchronized void prepareBatchRetry(TransactionStatus status, Exception e) {
+    private void prepareBatchRetry(TransactionStatus status, Exception e) {
         status.markFailed(e);
         tryAfterTransactionCall(status);
         switch (status.getRetryPolicy()) {
@@ -328,10 +382,26 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
-    private synchronized void cleanUp() {
-        isScheduled = false;
-        cleanedUp = true;
-        shutDownCallback.afterShutdown(this);
+    /**
+     * Shuts this scheduler down if no events are being added to the queue and the queue is empty. Threads attempting
+     * to schedule an event in the meantime wait until it is known whether the scheduler has been shut down.
+     *
+     * @return <code>true</code> if the scheduler was shut down, otherwise <code>false</code>
+     */
+    private boolean tryCleanUp() {
+        if (!schedulingState.compareAndSet(0, CLOSING)) {
+            // events are being added to the queue
+            return false;
+        }
+        boolean empty = eventQueue.isEmpty();
+        if (empty) {
+            cleanedUp = true;
+        }
+        schedulingState.set(0);
+        if (empty) {
+            shutDownCallback.afterShutdown(this);
+        }
+        return empty;
     }
 
     /**
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.common.Assert;
+import org.axonframework.domain.EventMessage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cluster implementation that processes Events asynchronously using a fixed number of partitions. The sequence
+ * identifier provided by the {@link SequencingPolicy} for each Event decides which partition it is assigned to.
+ * Events with the same sequence identifier are always processed by the same partition, in the order they were
+ * published. Events without a sequence identifier are spread over the partitions in a round-robin fashion.
+ * <p/>
+ * Each partition is a long-lived, bounded queue, processed by at most one thread of the given <code>executor</code> at
+ * a time. Unlike the {@link AsynchronousEventHandlerWrapper}, which creates (and discards) a scheduler for each
+ * sequence identifier, this cluster does not allocate any resources for each sequence identifier. This makes it
+ * suitable for policies that result in a very large number of sequence identifiers, such as the {@link
+ * SequentialPerAggregatePolicy}. When a partition is full, publishing threads wait until the partition has made room.
+ * A thread processing the events of a partition cannot wait for room in that partition. When it publishes an event
+ * into its own full partition, an IllegalStateException is thrown instead.
+ * <p/>
+ * Events are processed in transactions managed by the given {@link TransactionManager}, with the same retry and yield
+ * behavior as the AsynchronousEventHandlerWrapper (see {@link TransactionStatus}). Each event is handled by all members
+ * of the cluster before the next event is processed.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class PartitionedCluster extends AbstractCluster {
+
+    /**
+     * The default number of events each partition can hold.
+     */
+    public static final int DEFAULT_PARTITION_CAPACITY = 1024;
+
+    private final Executor executor;
+    private final TransactionManager transactionManager;
+    private final SequencingPolicy<? super EventMessage> sequencingPolicy;
+    private final Partition[] partitions;
+    private final AtomicInteger roundRobinCounter = new AtomicInteger();
+
+    /**
+     * Initializes a PartitionedCluster that processes events in the given number of partitions using the given
+     * <code>executor</code>. Members of this cluster will not be notified of any transactions. Each partition holds up
+     * to {@link #DEFAULT_PARTITION_CAPACITY} events.
+     *
+     * @param executor         The executor that processes the events
+     * @param sequencingPolicy The policy that decides which events must be processed sequentially
+     * @param partitionCount   The number of partitions to divide events over
+     */
+    public PartitionedCluster(Executor executor, SequencingPolicy<? super EventMessage> sequencingPolicy,
+                              int partitionCount) {
+        this(executor, new NoTransactionManager(), sequencingPolicy, partitionCount, DEFAULT_PARTITION_CAPACITY);
+    }
+
+    /**
+     * Initializes a PartitionedCluster that processes events in the given number of partitions using the given
+     * <code>executor</code>. The <code>transactionManager</code> is notified of the transactions in which events are
+     * processed.
+     *
+     * @param executor           The executor that processes the events
+     * @param transactionManager The transaction manager that manages underlying transactions
+     * @param sequencingPolicy   The policy that decides which events must be processed sequentially
+     * @param partitionCount     The number of partitions to divide events over
+     * @param partitionCapacity  The number of events each partition can hold. Must be a power of 2.
+     */
+    public PartitionedCluster(Executor executor, TransactionManager transactionManager,
+                              SequencingPolicy<? super EventMessage> sequencingPolicy, int partitionCount,
+                              int partitionCapacity) {
+        Assert.isTrue(partitionCount > 0, "partitionCount must be a positive number");
+        Assert.isTrue(partitionCapacity > 0 && Integer.bitCount(partitionCapacity) == 1,
+                      "partitionCapacity must be a power of 2");
+        this.executor = executor;
+        this.transactionManager = transactionManager;
+        this.sequencingPolicy = sequencingPolicy;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(partitionCapacity);
+        }
+    }
+
+    @Override
+    public void publish(EventMessage... events) {
+        for (EventMessage event : events) {
+            partitionFor(event).schedule(event);
+        }
+    }
+
+    private Partition partitionFor(EventMessage event) {
+        Object sequenceIdentifier = sequencingPolicy.getSequenceIdentifierFor(event);
+        int hash;
+        if (sequenceIdentifier == null) {
+            hash = roundRobinCounter.getAndIncrement();
+        } else {
+            hash = sequenceIdentifier.hashCode();
+            // spread the higher bits, as identifiers often differ in those only
+            hash ^= (hash >>> 16);
+        }
+        return partitions[(hash & Integer.MAX_VALUE) % partitions.length];
+    }
+
+    /**
+     * A partition of events, processed by a single, long-lived scheduler. The scheduler shuts down when the partition
+     * runs out of events, and is restarted by the next thread publishing an event into the partition.
+     */
+    private final class Partition implements EventProcessingScheduler.ShutdownCallback {
+
+        private final BoundedSingleConsumerQueue<EventMessage> queue;
+        private final EventProcessingScheduler<EventMessage> scheduler;
+
+        private Partition(int capacity) {
+            this.queue = new BoundedSingleConsumerQueue<EventMessage>(capacity);
+            this.scheduler = new EventProcessingScheduler<EventMessage>(transactionManager, queue, executor, this) {
+                @Override
+                protected void doHandle(EventMessage event) {
+                    queue.setConsumer(Thread.currentThread());
+                    try {
+                        for (EventListener member : getMembers()) {
+                            member.handle(event);
+                        }
+                    } finally {
+                        queue.setConsumer(null);
+                    }
+                }
+            };
+        }
+
+        private void schedule(EventMessage event) {
+            while (!scheduler.scheduleEvent(event)) {
+                // the scheduler has shut down after running out of events
+                scheduler.restart();
+            }
+        }
+
+        @Override
+        public void afterShutdown(EventProcessingScheduler scheduler) {
+            // the scheduler is restarted when the next event is published
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded, lock-free queue that allows elements to be added by any number of threads, but removed by a single
+ * thread at a time only. Adding an element takes a single atomic exchange, regardless of the number of producers,
+ * and an atomic increment of the element count. The count allows the size of the queue to be known without
+ * traversing it.
+ * <p/>
+ * Only the thread that consumes elements (using {@link #poll()} or {@link #peek()}) may assume the queue to be empty
+ * when these methods return <code>null</code>. An element may temporarily be invisible to the consumer while it is
+ * being added. The {@link #size()} and {@link #iterator()} methods are weakly consistent, and may be used by any
+ * thread.
+ *
+ * @param <T> The type of element stored in this queue
+ * @author Allard Buijze
+ * @since 2.0
+ */
+class SingleConsumerQueue<T> extends AbstractQueue<T> {
+
+    private final AtomicReference<Node<T>> tail;
+    private volatile Node<T> head;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Initializes an empty queue.
+     */
+    SingleConsumerQueue() {
+        Node<T> stub = new Node<T>(null);
+        head = stub;
+        tail = new AtomicReference<Node<T>>(stub);
+    }
+
+    @Override
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException("This queue does not accept null elements");
+        }
+        Node<T> node = new Node<T>(element);
+        // counting before linking the node, so the size never drops below zero when it is polled right away
+        size.incrementAndGet();
+        tail.getAndSet(node).next = node;
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        Node<T> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        T element = next.element;
+        next.element = null;
+        head = next;
+        size.decrementAndGet();
+        return element;
+    }
+
+    @Override
+    public T peek() {
+        Node<T> next = head.next;
+        return next == null ? null : next.element;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new NodeIterator<T>(head.next);
+    }
+
+    private static final class Node<T> {
+
+        private volatile Node<T> next;
+        private T element;
+
+        private Node(T element) {
+            this.element = element;
+        }
+    }
+
+    private static final class NodeIterator<T> implements Iterator<T> {
+
+        private Node<T> nextNode;
+        private T nextElement;
+
+        private NodeIterator(Node<T> first) {
+            advance(first);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public T next() {
+            if (nextElement == null) {
+                throw new NoSuchElementException();
+            }
+            T element = nextElement;
+            advance(nextNode.next);
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Elements can only be removed by polling this queue");
+        }
+
+        private void advance(Node<T> node) {
+            // skip nodes of which the element has been consumed in the meantime
+            while (node != null && node.element == null) {
+                node = node.next;
+            }
+            nextNode = node;
+            nextElement = node == null ? null : node.element;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of an {@link AdaptiveBatchingTransactionManager}, describing the transaction sizes it chose and the time
+ * it took to commit these transactions. An instance is registered with the {@link
+ * org.axonframework.monitoring.MonitorRegistry} for each transaction manager.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class AdaptiveBatchingStatistics implements AdaptiveBatchingStatisticsMXBean {
+
+    private final AdaptiveBatchingTransactionManager transactionManager;
+    private final AtomicLong transactionCount = new AtomicLong();
+    private final AtomicLong failedTransactionCount = new AtomicLong();
+    private final AtomicLong processedEventCount = new AtomicLong();
+    private final AtomicLong totalCommitTime = new AtomicLong();
+    private final AtomicLong maxCommitTime = new AtomicLong();
+    private volatile long lastCommitTime;
+
+    /**
+     * Creates an instance of this statistics MBean for the given <code>transactionManager</code>.
+     *
+     * @param transactionManager The transaction manager to report the current transaction size of
+     */
+    AdaptiveBatchingStatistics(AdaptiveBatchingTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    @Override
+    public int getCurrentTransactionSize() {
+        return transactionManager.getCurrentTransactionSize();
+    }
+
+    @Override
+    public long getTransactionCount() {
+        return transactionCount.get();
+    }
+
+    @Override
+    public long getFailedTransactionCount() {
+        return failedTransactionCount.get();
+    }
+
+    @Override
+    public double getAverageTransactionSize() {
+        long count = transactionCount.get();
+        return count == 0 ? 0 : (double) processedEventCount.get() / count;
+    }
+
+    @Override
+    public long getLastCommitTime() {
+        return TimeUnit.NANOSECONDS.toMicros(lastCommitTime);
+    }
+
+    @Override
+    public long getAverageCommitTime() {
+        long count = transactionCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalCommitTime.get() / count);
+    }
+
+    @Override
+    public long getMaxCommitTime() {
+        return TimeUnit.NANOSECONDS.toMicros(maxCommitTime.get());
+    }
+
+    @Override
+    public void resetStatistics() {
+        transactionCount.set(0);
+        failedTransactionCount.set(0);
+        processedEventCount.set(0);
+        totalCommitTime.set(0);
+        maxCommitTime.set(0);
+        lastCommitTime = 0;
+    }
+
+    /**
+     * Records a successful transaction.
+     *
+     * @param eventCount The number of events processed in the transaction
+     * @param commitTime The time, in nanoseconds, it took to commit the transaction
+     */
+    void recordTransaction(int eventCount, long commitTime) {
+        transactionCount.incrementAndGet();
+        processedEventCount.addAndGet(eventCount);
+        totalCommitTime.addAndGet(commitTime);
+        lastCommitTime = commitTime;
+        long currentMax = maxCommitTime.get();
+        while (commitTime > currentMax && !maxCommitTime.compareAndSet(currentMax, commitTime)) {
+            currentMax = maxCommitTime.get();
+        }
+    }
+
+    /**
+     * Records a failed transaction.
+     */
+    void recordFailedTransaction() {
+        failedTransactionCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+/**
+ * Management interface for the statistics of an {@link AdaptiveBatchingTransactionManager}.
+ * <p/>
+ * Management interface as required by the JMX specification. In combination with the implementation, this interface
+ * specifies and delivers the actual JMX bean.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface AdaptiveBatchingStatisticsMXBean {
+
+    /**
+     * Returns the maximum number of events that will be processed in the next transaction.
+     *
+     * @return the currently chosen transaction size
+     */
+    int getCurrentTransactionSize();
+
+    /**
+     * Returns the number of successful transactions since the last reset.
+     *
+     * @return the number of successful transactions
+     */
+    long getTransactionCount();
+
+    /**
+     * Returns the number of failed transactions since the last reset.
+     *
+     * @return the number of failed transactions
+     */
+    long getFailedTransactionCount();
+
+    /**
+     * Returns the average number of events processed in successful transactions since the last reset.
+     *
+     * @return the average number of events per transaction
+     */
+    double getAverageTransactionSize();
+
+    /**
+     * Returns the time, in microseconds, the last successful transaction took to commit.
+     *
+     * @return the commit time of the last transaction in microseconds
+     */
+    long getLastCommitTime();
+
+    /**
+     * Returns the average time, in microseconds, successful transactions took to commit since the last reset.
+     *
+     * @return the average commit time in microseconds
+     */
+    long getAverageCommitTime();
+
+    /**
+     * Returns the longest time, in microseconds, a successful transaction took to commit since the last reset.
+     *
+     * @return the maximum commit time in microseconds
+     */
+    long getMaxCommitTime();
+
+    /**
+     * Resets all counters and commit times. The current transaction size is not affected.
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+import org.axonframework.common.Assert;
+import org.axonframework.eventhandling.TransactionManager;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.monitoring.MonitorRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TransactionManager that adapts the maximum number of events processed in a transaction to the time it takes to
+ * commit these transactions. The actual transactions are managed by a delegate TransactionManager.
+ * <p/>
+ * When a transaction reaches its maximum size, more events are waiting to be processed. If the transaction committed
+ * within the target commit time, the size of the next transaction is increased, allowing the commit overhead to be
+ * shared by more events. When a commit takes longer than the target commit time, the transaction size is halved. When
+ * there is no backlog, transactions are committed as soon as all waiting events are processed, regardless of the
+ * transaction size, keeping latency low when the system is idle.
+ * <p/>
+ * The chosen transaction sizes and commit times are registered with the {@link MonitorRegistry}. Note that the
+ * delegate may still override the maximum transaction size in its {@link #beforeTransaction(TransactionStatus)}
+ * method.
+ * <p/>
+ * This TransactionManager is thread safe, and may be shared by multiple schedulers.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class AdaptiveBatchingTransactionManager implements TransactionManager {
+
+    private static final int DEFAULT_INITIAL_TRANSACTION_SIZE = 50;
+    private static final int DEFAULT_MIN_TRANSACTION_SIZE = 1;
+    private static final int DEFAULT_MAX_TRANSACTION_SIZE = 1000;
+
+    private final TransactionManager delegate;
+    private final long targetCommitTime;
+    private final AtomicInteger currentTransactionSize = new AtomicInteger(DEFAULT_INITIAL_TRANSACTION_SIZE);
+    private final AdaptiveBatchingStatistics statistics;
+    private volatile int minTransactionSize = DEFAULT_MIN_TRANSACTION_SIZE;
+    private volatile int maxTransactionSize = DEFAULT_MAX_TRANSACTION_SIZE;
+
+    /**
+     * Initializes the AdaptiveBatchingTransactionManager that manages transactions using the given
+     * <code>delegate</code>, aiming to commit each transaction within the given <code>targetCommitTime</code>.
+     *
+     * @param delegate         The TransactionManager that manages the actual transactions
+     * @param targetCommitTime The maximum time committing a transaction should take
+     * @param unit             The unit of the given <code>targetCommitTime</code>
+     */
+    public AdaptiveBatchingTransactionManager(TransactionManager delegate, long targetCommitTime, TimeUnit unit) {
+        Assert.isTrue(targetCommitTime > 0, "targetCommitTime must be a positive value");
+        this.delegate = delegate;
+        this.targetCommitTime = unit.toNanos(targetCommitTime);
+        this.statistics = new AdaptiveBatchingStatistics(this);
+        MonitorRegistry.registerMonitoringBean(statistics, AdaptiveBatchingTransactionManager.class);
+    }
+
+    @Override
+    public void beforeTransaction(TransactionStatus transactionStatus) {
+        transactionStatus.setMaxTransactionSize(currentTransactionSize.get());
+        delegate.beforeTransaction(transactionStatus);
+    }
+
+    @Override
+    public void afterTransaction(TransactionStatus transactionStatus) {
+        if (!transactionStatus.isSuccessful()) {
+            statistics.recordFailedTransaction();
+            delegate.afterTransaction(transactionStatus);
+            return;
+        }
+        long startTime = System.nanoTime();
+        delegate.afterTransaction(transactionStatus);
+        long commitTime = System.nanoTime() - startTime;
+        int eventCount = transactionStatus.getEventsProcessedInTransaction();
+        statistics.recordTransaction(eventCount, commitTime);
+        adjustTransactionSize(eventCount, commitTime);
+    }
+
+    private void adjustTransactionSize(int eventCount, long commitTime) {
+        int currentSize = currentTransactionSize.get();
+        int newSize;
+        if (commitTime > targetCommitTime) {
+            newSize = Math.max(minTransactionSize, currentSize / 2);
+        } else if (eventCount >= currentSize) {
+            // the transaction was full, meaning more events are waiting
+            newSize = Math.min(maxTransactionSize, currentSize + Math.max(1, currentSize / 4));
+        } else {
+            return;
+        }
+        // if another thread adjusted the size in the meantime, its adjustment wins
+        currentTransactionSize.compareAndSet(currentSize, newSize);
+    }
+
+    /**
+     * Returns the maximum number of events that will be processed in the next transaction.
+     *
+     * @return the currently chosen transaction size
+     */
+    public int getCurrentTransactionSize() {
+        return currentTransactionSize.get();
+    }
+
+    /**
+     * Returns the statistics of this transaction manager, which are also registered with the {@link MonitorRegistry}.
+     *
+     * @return the statistics of this transaction manager
+     */
+    public AdaptiveBatchingStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the minimum number of events a transaction may be limited to. Defaults to 1.
+     *
+     * @param minTransactionSize the minimum size of a transaction
+     */
+    public void setMinTransactionSize(int minTransactionSize) {
+        Assert.isTrue(minTransactionSize > 0, "minTransactionSize must be a positive number");
+        Assert.isTrue(minTransactionSize <= maxTransactionSize,
+                      "minTransactionSize may not exceed the maxTransactionSize");
+        this.minTransactionSize = minTransactionSize;
+        clampTransactionSize();
+    }
+
+    /**
+     * Sets the maximum number of events a transaction may grow to. Defaults to 1000.
+     *
+     * @param maxTransactionSize the maximum size of a transaction
+     */
+    public void setMaxTransactionSize(int maxTransactionSize) {
+        Assert.isTrue(maxTransactionSize >= minTransactionSize,
+                      "maxTransactionSize may not be smaller than the minTransactionSize");
+        this.maxTransactionSize = maxTransactionSize;
+        clampTransactionSize();
+    }
+
+    /**
+     * Sets the size of the next transaction. The size is adapted as transactions are committed. Defaults to 50.
+     *
+     * @param transactionSize the size of the next transaction
+     */
+    public void setInitialTransactionSize(int transactionSize) {
+        currentTransactionSize.set(transactionSize);
+        clampTransactionSize();
+    }
+
+    private void clampTransactionSize() {
+        int currentSize = currentTransactionSize.get();
+        int clampedSize = Math.min(maxTransactionSize, Math.max(minTransactionSize, currentSize));
+        currentTransactionSize.compareAndSet(currentSize, clampedSize);
+    }
+}
@@ -16,13 +16,21 @@
 
 package org.axonframework.eventstore.fs;
 
+import org.apache.commons.io.output.CountingOutputStream;
 import org.axonframework.common.io.IOUtils;
 import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.eventstore.EventStoreException;
 import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.EventVisitor;
 import org.axonframework.eventstore.SnapshotEventStore;
+import org.axonframework.eventstore.fs.criteria.FileSystemCriteria;
+import org.axonframework.eventstore.fs.criteria.FileSystemCriteriaBuilder;
+import org.axonframework.eventstore.management.Criteria;
+import org.axonframework.eventstore.management.CriteriaBuilder;
+import org.axonframework.eventstore.management.PartitionedEventDispatcher;
+import org.axonframework.eventstore.management.PartitionedEventStoreManagement;
 import org.axonframework.serializer.Serializer;
 import org.axonframework.serializer.xml.XStreamSerializer;
 import org.axonframework.upcasting.SimpleUpcasterChain;
@@ -36,6 +44,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of the {@link org.axonframework.eventstore.EventStore} that serializes objects (by default using
@@ -46,16 +61,25 @@ import java.io.SequenceInputStream;
  * <p/>
  * Note that the resource supplied must point to a folder and should contain a trailing slash. See {@link
  * org.springframework.core.io.FileSystemResource#FileSystemResource(String)}.
+ * <p/>
+ * Events can only be visited when the EventFileResolver is a {@link ListableEventFileResolver}. Events are read from
+ * the event files one at a time, and criteria are evaluated against each event read. Criteria on the aggregate type
+ * allow the events of other types to be skipped without reading them.
  *
  * @author Allard Buijze
  * @author Frank Versnel
  * @since 0.5
  */
-public class FileSystemEventStore implements EventStore, SnapshotEventStore, UpcasterAware {
+public class FileSystemEventStore
+        implements EventStore, SnapshotEventStore, PartitionedEventStoreManagement, UpcasterAware {
+
+    private static final int VISIT_QUEUE_CAPACITY = 1000;
+    private static final Object END_OF_TYPE = new Object();
 
     private final Serializer eventSerializer;
     private final EventFileResolver eventFileResolver;
     private UpcasterChain upcasterChain = SimpleUpcasterChain.EMPTY;
+    private Executor executor = Executors.newCachedThreadPool();
 
     /**
      * Basic initialization of the event store. The actual serialization and deserialization is delegated to a {@link
@@ -91,20 +115,44 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore, Upc
             return;
         }
 
+        boolean indexOffsets = eventFileResolver instanceof OffsetIndexingEventFileResolver;
         OutputStream out = null;
         try {
             DomainEventMessage next = eventsToStore.next();
-            out = eventFileResolver.openEventFileForWriting(type, next.getAggregateIdentifier());
+            Object aggregateIdentifier = next.getAggregateIdentifier();
+            out = eventFileResolver.openEventFileForWriting(type, aggregateIdentifier);
+            CountingOutputStream countingOut = null;
+            List<Long> sequenceNumbers = null;
+            List<Long> recordLengths = null;
+            if (indexOffsets) {
+                countingOut = new CountingOutputStream(out);
+                out = countingOut;
+                sequenceNumbers = new ArrayList<Long>();
+                recordLengths = new ArrayList<Long>();
+            }
             FileSystemEventMessageWriter eventMessageWriter =
                     new FileSystemEventMessageWriter(new DataOutputStream(out), eventSerializer);
             do {
-                eventMessageWriter.writeEventMessage(next);
+                if (indexOffsets) {
+                    long offset = countingOut.getByteCount();
+                    eventMessageWriter.writeEventMessage(next);
+                    sequenceNumbers.add(next.getSequenceNumber());
+                    recordLengths.add(countingOut.getByteCount() - offset);
+                } else {
+                    eventMessageWriter.writeEventMessage(next);
+                }
                 if (eventsToStore.hasNext()) {
                     next = eventsToStore.next();
                 } else {
                     next = null;
                 }
             } while (next != null);
+            // closing the stream explicitly, as the resolver may need to report a failure to persist the events
+            out.close();
+            if (indexOffsets) {
+                ((OffsetIndexingEventFileResolver) eventFileResolver).indexEventOffsets(
+                        type, aggregateIdentifier, toArray(sequenceNumbers), toArray(recordLengths));
+            }
         } catch (IOException e) {
             throw new EventStoreException("Unable to store given entity due to an IOException", e);
         } finally {
@@ -150,13 +198,24 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore, Upc
     public void appendSnapshotEvent(String type, DomainEventMessage snapshotEvent) throws EventStoreException {
         InputStream eventFile = null;
         try {
-            eventFile = eventFileResolver.openEventFileForReading(type, snapshotEvent.getAggregateIdentifier());
+            long offset = -1;
+            if (eventFileResolver instanceof OffsetIndexingEventFileResolver) {
+                offset = ((OffsetIndexingEventFileResolver) eventFileResolver).findOffsetAfterEvent(
+                        type, snapshotEvent.getAggregateIdentifier(), snapshotEvent.getSequenceNumber());
+            }
+            if (offset < 0) {
+                eventFile = eventFileResolver.openEventFileForReading(type, snapshotEvent.getAggregateIdentifier());
+            }
             OutputStream snapshotEventFile =
                     eventFileResolver.openSnapshotFileForWriting(type, snapshotEvent.getAggregateIdentifier());
             FileSystemSnapshotEventWriter snapshotEventWriter =
                     new FileSystemSnapshotEventWriter(eventFile, snapshotEventFile, eventSerializer);
 
-            snapshotEventWriter.writeSnapshotEvent(snapshotEvent);
+            if (offset < 0) {
+                snapshotEventWriter.writeSnapshotEvent(snapshotEvent);
+            } else {
+                snapshotEventWriter.writeSnapshotEvent(snapshotEvent, offset);
+            }
         } catch (IOException e) {
             throw new EventStoreException("Error writing a snapshot event due to an IO exception", e);
         } finally {
@@ -164,6 +223,145 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore, Upc
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The directories of each aggregate type are read in parallel by the configured {@link #setExecutor(Executor)
+     * executor}, while the events read are passed to the visitor by the calling thread.
+     */
+    @Override
+    public void visitEvents(EventVisitor visitor) {
+        doVisitEvents(null, visitor);
+    }
+
+    @Override
+    public void visitEvents(Criteria criteria, EventVisitor visitor) {
+        doVisitEvents((FileSystemCriteria) criteria, visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The event files are listed once by the calling thread, and each of them is dispatched to the worker of the
+     * partition its aggregate belongs to, which reads it.
+     */
+    @Override
+    public void visitEvents(List<? extends EventVisitor> partitionVisitors, Executor executor) {
+        doVisitEvents(null, partitionVisitors, executor);
+    }
+
+    @Override
+    public void visitEvents(Criteria criteria, List<? extends EventVisitor> partitionVisitors, Executor executor) {
+        doVisitEvents((FileSystemCriteria) criteria, partitionVisitors, executor);
+    }
+
+    @Override
+    public CriteriaBuilder newCriteriaBuilder() {
+        return new FileSystemCriteriaBuilder();
+    }
+
+    private void doVisitEvents(FileSystemCriteria criteria, EventVisitor visitor) {
+        ListableEventFileResolver resolver = listableEventFileResolver();
+        List<String> types = listAggregateTypes(resolver, criteria);
+        TypeDirectoryReaders readers = new TypeDirectoryReaders(resolver, criteria);
+        try {
+            for (String type : types) {
+                executor.execute(readers.newReader(type));
+            }
+            readers.deliverEvents(types.size(), visitor);
+        } finally {
+            readers.cancel();
+        }
+    }
+
+    private void doVisitEvents(final FileSystemCriteria criteria, List<? extends EventVisitor> partitionVisitors,
+                               Executor partitionExecutor) {
+        ListableEventFileResolver resolver = listableEventFileResolver();
+        PartitionedEventDispatcher<EventFile> dispatcher =
+                new PartitionedEventDispatcher<EventFile>(partitionVisitors, partitionExecutor) {
+                    @Override
+                    protected void visit(EventFile entry, EventVisitor visitor) {
+                        try {
+                            visitEventFile(entry.type, entry.aggregateIdentifier, criteria, visitor);
+                        } catch (IOException e) {
+                            throw new EventStoreException("An error occurred while trying to read an event file", e);
+                        }
+                    }
+                };
+        try {
+            for (String type : listAggregateTypes(resolver, criteria)) {
+                for (String aggregateIdentifier : listAggregateIdentifiers(resolver, type)) {
+                    dispatcher.dispatch(aggregateIdentifier, new EventFile(type, aggregateIdentifier));
+                }
+            }
+        } catch (RuntimeException e) {
+            dispatcher.cancel();
+            throw e;
+        }
+        dispatcher.awaitCompletion();
+    }
+
+    private List<String> listAggregateTypes(ListableEventFileResolver resolver, FileSystemCriteria criteria) {
+        List<String> types = new ArrayList<String>();
+        try {
+            for (String type : resolver.listAggregateTypes()) {
+                if (criteria == null || criteria.mayMatch(type)) {
+                    types.add(type);
+                }
+            }
+        } catch (IOException e) {
+            throw new EventStoreException("An error occurred while trying to list the aggregate types", e);
+        }
+        return types;
+    }
+
+    private List<String> listAggregateIdentifiers(ListableEventFileResolver resolver, String type) {
+        try {
+            return resolver.listAggregateIdentifiers(type);
+        } catch (IOException e) {
+            throw new EventStoreException("An error occurred while trying to list the event files", e);
+        }
+    }
+
+    private void visitEventFile(String type, String aggregateIdentifier, FileSystemCriteria criteria,
+                                EventVisitor visitor) throws IOException {
+        InputStream eventFile = eventFileResolver.openEventFileForReading(type, aggregateIdentifier);
+        try {
+            DomainEventStream events = new FileSystemBufferedReaderDomainEventStream(eventFile, eventSerializer,
+                                                                                     upcasterChain);
+            while (events.hasNext()) {
+                DomainEventMessage event = events.next();
+                if (criteria == null || criteria.matches(type, event)) {
+                    visitor.doWithEvent(event);
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(eventFile);
+        }
+    }
+
+    /**
+     * Sets the executor that reads the directories of the aggregate types in parallel when visiting events using a
+     * single visitor. The executor is given a task for each aggregate type, which does not need to be executed
+     * concurrently.
+     * <p/>
+     * Defaults to a cached thread pool.
+     *
+     * @param executor the executor that reads the directories of the aggregate types
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private ListableEventFileResolver listableEventFileResolver() {
+        if (!(eventFileResolver instanceof ListableEventFileResolver)) {
+            throw new UnsupportedOperationException(String.format(
+                    "Visiting events requires a ListableEventFileResolver. The configured [%s] is not.",
+                    eventFileResolver.getClass().getSimpleName()));
+        }
+        return (ListableEventFileResolver) eventFileResolver;
+    }
+
     private DomainEventMessage readSnapshotEvent(String type, Object identifier, InputStream eventFileInputStream)
             throws IOException {
         DomainEventMessage snapshotEvent = null;
@@ -176,8 +374,112 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore, Upc
         return snapshotEvent;
     }
 
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int t = 0; t < array.length; t++) {
+            array[t] = values.get(t);
+        }
+        return array;
+    }
+
     @Override
     public void setUpcasterChain(UpcasterChain upcasterChain) {
         this.upcasterChain = upcasterChain;
     }
+
+    private static final class EventFile {
+
+        private final String type;
+        private final String aggregateIdentifier;
+
+        private EventFile(String type, String aggregateIdentifier) {
+            this.type = type;
+            this.aggregateIdentifier = aggregateIdentifier;
+        }
+    }
+
+    /**
+     * Reads the event files of aggregate types on the threads of the executor, and hands the events read over to the
+     * visiting thread through a bounded queue.
+     */
+    private final class TypeDirectoryReaders {
+
+        private final BlockingQueue<Object> readEvents = new ArrayBlockingQueue<Object>(VISIT_QUEUE_CAPACITY);
+        private final ListableEventFileResolver resolver;
+        private final FileSystemCriteria criteria;
+        private volatile boolean cancelled;
+        private volatile Throwable failure;
+
+        private TypeDirectoryReaders(ListableEventFileResolver resolver, FileSystemCriteria criteria) {
+            this.resolver = resolver;
+            this.criteria = criteria;
+        }
+
+        private Runnable newReader(final String type) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        EventVisitor queueingVisitor = new EventVisitor() {
+                            @Override
+                            public void doWithEvent(DomainEventMessage domainEvent) {
+                                enqueue(domainEvent);
+                            }
+                        };
+                        for (String aggregateIdentifier : listAggregateIdentifiers(resolver, type)) {
+                            if (cancelled) {
+                                return;
+                            }
+                            visitEventFile(type, aggregateIdentifier, criteria, queueingVisitor);
+                        }
+                    } catch (Throwable e) {
+                        failure = e;
+                    } finally {
+                        enqueue(END_OF_TYPE);
+                    }
+                }
+            };
+        }
+
+        private void enqueue(Object item) {
+            try {
+                while (!cancelled && !readEvents.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    // the visiting thread has not caught up yet
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+                throw new EventStoreException("Thread was interrupted while handing over events to visit", e);
+            }
+        }
+
+        private void deliverEvents(int readerCount, EventVisitor visitor) {
+            int activeReaders = readerCount;
+            try {
+                while (activeReaders > 0) {
+                    checkForFailure();
+                    Object item = readEvents.poll(100, TimeUnit.MILLISECONDS);
+                    if (item == END_OF_TYPE) {
+                        activeReaders--;
+                    } else if (item != null) {
+                        visitor.doWithEvent((DomainEventMessage) item);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EventStoreException("Thread was interrupted while waiting for events to visit", e);
+            }
+            checkForFailure();
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        private void checkForFailure() {
+            if (failure != null) {
+                throw new EventStoreException("An error occurred while trying to read the event files", failure);
+            }
+        }
+    }
 }
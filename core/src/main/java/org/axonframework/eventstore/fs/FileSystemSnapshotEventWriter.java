@@ -47,7 +47,9 @@ public class FileSystemSnapshotEventWriter {
      * <code>snapshotEventFile</code>.
      *
      * @param eventFile         used to determine the number of bytes to skip upon reading a snapshot
-     *                          when using {@link FileSystemSnapshotEventReader#readSnapshotEvent(String, Object)}
+     *                          when using {@link FileSystemSnapshotEventReader#readSnapshotEvent(String, Object)}.
+     *                          May be <code>null</code> when only {@link #writeSnapshotEvent(DomainEventMessage,
+     *                          long)} is used.
      * @param snapshotEventFile the snapshot file to write to
      * @param eventSerializer   the serializer used to serialize snapshot events
      */
@@ -65,8 +67,26 @@ public class FileSystemSnapshotEventWriter {
      * @param snapshotEvent The snapshot to write to the {@link #snapshotEventFile}
      */
     public void writeSnapshotEvent(DomainEventMessage snapshotEvent) {
+        long offset;
+        try {
+            offset = calculateOffset(snapshotEvent);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(snapshotEventFile);
+            throw new EventStoreException("Error writing a snapshot event due to an IO exception", e);
+        }
+        writeSnapshotEvent(snapshotEvent, offset);
+    }
+
+    /**
+     * Writes the given snapshotEvent to the {@link #snapshotEventFile}, using the given <code>offset</code> as the
+     * number of bytes to skip when reading the {@link #eventFile}. This allows the offset to be provided when it is
+     * known upfront, for example from an index, in which case the event file isn't read at all.
+     *
+     * @param snapshotEvent The snapshot to write to the {@link #snapshotEventFile}
+     * @param offset        The offset of the first byte after the event the snapshot was taken at
+     */
+    public void writeSnapshotEvent(DomainEventMessage snapshotEvent, long offset) {
         try {
-            long offset = calculateOffset(snapshotEvent);
             DataOutputStream dataOutputStream = new DataOutputStream(snapshotEventFile);
 
             dataOutputStream.writeLong(offset);
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Extension of the EventFileResolver for resolvers that are able to list the event logs they contain. This allows the
+ * {@link FileSystemEventStore} to visit all events in the event store.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface ListableEventFileResolver extends EventFileResolver {
+
+    /**
+     * Returns the types of aggregate for which at least one event log exists.
+     *
+     * @return a List containing the types of aggregate
+     *
+     * @throws IOException when an error occurs while listing the event logs
+     */
+    List<String> listAggregateTypes() throws IOException;
+
+    /**
+     * Returns the identifiers of the aggregates of given <code>type</code> for which an event log exists. The
+     * identifiers are returned in their String representation, which may be passed to {@link
+     * #openEventFileForReading(String, Object)}.
+     *
+     * @param type The type of aggregate to list the identifiers for
+     * @return a List containing the identifiers of the aggregates of given <code>type</code>
+     *
+     * @throws IOException when an error occurs while listing the event logs
+     */
+    List<String> listAggregateIdentifiers(String type) throws IOException;
+}
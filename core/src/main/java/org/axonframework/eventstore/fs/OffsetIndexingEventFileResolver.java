@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import java.io.IOException;
+
+/**
+ * Extension of the EventFileResolver interface for resolvers that keep an index of the byte offsets of the events in
+ * an event file. The {@link FileSystemEventStore} updates the index each time it appends events. When writing a
+ * snapshot, it uses the index to find the position in the event file directly, instead of reading all events in the
+ * file up to the snapshot's sequence number.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface OffsetIndexingEventFileResolver extends EventFileResolver {
+
+    /**
+     * Registers the offsets of the events that have just been appended to the (regular) events file of the aggregate
+     * with given <code>aggregateIdentifier</code> and <code>type</code>. The <code>sequenceNumbers</code> and
+     * <code>recordLengths</code> contain, for each event appended, its sequence number and the number of bytes it
+     * occupies in the event file. The last event in the arrays is the last event in the event file.
+     * <p/>
+     * This method is invoked after the stream opened for writing the events has been closed.
+     *
+     * @param type                The type of aggregate
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @param sequenceNumbers     the sequence numbers of the appended events
+     * @param recordLengths       the number of bytes each of the appended events occupies
+     * @throws IOException when an error occurs while writing the index
+     */
+    void indexEventOffsets(String type, Object aggregateIdentifier, long[] sequenceNumbers, long[] recordLengths)
+            throws IOException;
+
+    /**
+     * Returns the offset in the (regular) events file of the aggregate with given <code>aggregateIdentifier</code> and
+     * <code>type</code>, of the first byte following the event with given <code>sequenceNumber</code>. Returns
+     * <code>-1</code> when the index doesn't contain the offset of that event, in which case the caller must
+     * determine the offset by reading the event file.
+     *
+     * @param type                The type of aggregate
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @param sequenceNumber      the sequence number of the event to find the offset for
+     * @return the offset of the first byte after the event, or <code>-1</code> if unknown
+     *
+     * @throws IOException when an error occurs while reading the index
+     */
+    long findOffsetAfterEvent(String type, Object aggregateIdentifier, long sequenceNumber) throws IOException;
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.common.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * SimpleEventFileResolver that keeps a third file per aggregate, containing an index of the offset of each event in
+ * the events file. The index consists of fixed size records containing the sequence number and the offset of the
+ * first byte after the event. This allows the offset belonging to a snapshot to be found using a binary search,
+ * instead of by reading the entire events file.
+ * <p/>
+ * Note that this resolver creates an additional file for each aggregate. When switching from the {@link
+ * SimpleEventFileResolver}, no index exists for existing aggregates. In that case, the event store falls back to
+ * reading the events file.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class OffsetIndexingSimpleEventFileResolver extends SimpleEventFileResolver
+        implements OffsetIndexingEventFileResolver {
+
+    /**
+     * Describes the file extension used for files containing the index of event offsets.
+     */
+    public static final String FILE_EXTENSION_OFFSETS = "offsets";
+
+    // sequence number and offset (both long)
+    private static final int OFFSET_RECORD_SIZE = 16;
+
+    /**
+     * Initialize the OffsetIndexingSimpleEventFileResolver with the given <code>baseDir</code>.
+     *
+     * @param baseDir The directory where the event files are stored.
+     */
+    public OffsetIndexingSimpleEventFileResolver(File baseDir) {
+        super(baseDir);
+    }
+
+    @Override
+    public void indexEventOffsets(String type, Object aggregateIdentifier, long[] sequenceNumbers,
+                                  long[] recordLengths) throws IOException {
+        long[] offsets = new long[sequenceNumbers.length];
+        long offset = getEventsFile(type, aggregateIdentifier, FILE_EXTENSION_EVENTS).length();
+        for (int t = offsets.length - 1; t >= 0; t--) {
+            offsets[t] = offset;
+            offset -= recordLengths[t];
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(getEventsFile(type, aggregateIdentifier, FILE_EXTENSION_OFFSETS), true)));
+        try {
+            for (int t = 0; t < offsets.length; t++) {
+                out.writeLong(sequenceNumbers[t]);
+                out.writeLong(offsets[t]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public long findOffsetAfterEvent(String type, Object aggregateIdentifier, long sequenceNumber)
+            throws IOException {
+        File indexFile = getEventsFile(type, aggregateIdentifier, FILE_EXTENSION_OFFSETS);
+        if (!indexFile.exists()) {
+            return -1;
+        }
+        RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+        try {
+            long low = 0;
+            long high = index.length() / OFFSET_RECORD_SIZE - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                index.seek(middle * OFFSET_RECORD_SIZE);
+                long middleSequenceNumber = index.readLong();
+                if (middleSequenceNumber < sequenceNumber) {
+                    low = middle + 1;
+                } else if (middleSequenceNumber > sequenceNumber) {
+                    high = middle - 1;
+                } else {
+                    return index.readLong();
+                }
+            }
+            return -1;
+        } finally {
+            IOUtils.closeQuietly(index);
+        }
+    }
+}
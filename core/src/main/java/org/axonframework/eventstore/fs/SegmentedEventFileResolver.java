@@ -0,0 +1,576 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.common.Assert;
+import org.axonframework.common.io.IOUtils;
+import org.axonframework.eventstore.EventStoreException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EventFileResolver implementation that stores the event logs of all aggregates in a limited number of large,
+ * append-only segment files, instead of using a file per aggregate. Segment files are memory mapped, which means
+ * appending and reading events doesn't require any files to be opened or closed, nor any read or write system calls.
+ * <p/>
+ * The bytes written to a stream opened for writing are appended to the current segment as a single chunk when the
+ * stream is closed. Each chunk is preceded by a header containing the aggregate type and identifier, and whether it
+ * belongs to the aggregate's events or snapshots. The chunk's payload contains exactly the bytes written by the
+ * event store, meaning that the records are in the same format as those written to files by the {@link
+ * SimpleEventFileResolver}.
+ * <p/>
+ * An in-memory index maps each aggregate to the locations of its chunks. Streams opened for reading read directly
+ * from the mapped segments. The index is rebuilt by scanning the segments when the resolver is created.
+ * <p/>
+ * By default, data written to the segments is left to the operating system to flush to disk. When {@link
+ * #setDurableAppends(boolean) durable appends} are enabled, closing a stream opened for writing blocks until its chunk
+ * has been forced to disk. To prevent each append from paying the price of forcing data to disk, appends from
+ * concurrent threads are committed in groups: the first thread to wait for its append to become durable waits for at
+ * most the {@link #setMaxCommitDelay(long) maximum commit delay} for other appends to join its group, or until the
+ * group has reached the {@link #setMaxCommitBatchSize(int) maximum batch size}. It then forces the segments written to
+ * once, on behalf of all appends in the group.
+ * <p/>
+ * The {@link #close()} method should be invoked when the resolver is no longer used.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SegmentedEventFileResolver implements ListableEventFileResolver, Closeable {
+
+    /**
+     * The default size of a segment file: 64 megabytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_FILE_EXTENSION = ".segment";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte NO_CHUNK = 0;
+    private static final byte EVENTS_CHUNK = 1;
+    private static final byte SNAPSHOTS_CHUNK = 2;
+    private static final long DEFAULT_MAX_COMMIT_DELAY = 2;
+    private static final int DEFAULT_MAX_COMMIT_BATCH_SIZE = 100;
+    // kind (byte), payload length (int), and the lengths of type and identifier (short each)
+    private static final int FIXED_HEADER_SIZE = 1 + 4 + 2 + 2;
+
+    private final File baseDir;
+    private final int segmentSize;
+    private final ConcurrentMap<ChunkKey, List<Extent>> index = new ConcurrentHashMap<ChunkKey, List<Extent>>();
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private Segment currentSegment;
+    private boolean closed;
+
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition batchFull = commitLock.newCondition();
+    private final Condition batchCommitted = commitLock.newCondition();
+    private final Set<Segment> uncommittedSegments = new HashSet<Segment>();
+    private CommitBatch currentBatch = new CommitBatch();
+    private boolean committing;
+    private volatile boolean durableAppends;
+    private long maxCommitDelay = DEFAULT_MAX_COMMIT_DELAY;
+    private int maxCommitBatchSize = DEFAULT_MAX_COMMIT_BATCH_SIZE;
+
+    /**
+     * Initialize the SegmentedEventFileResolver, storing segments of {@value #DEFAULT_SEGMENT_SIZE} bytes in the given
+     * <code>baseDir</code>. Any segments already present in that directory are scanned to build the index.
+     *
+     * @param baseDir The directory where segment files are stored
+     * @throws EventStoreException when the directory cannot be created, or the existing segments cannot be read
+     */
+    public SegmentedEventFileResolver(File baseDir) {
+        this(baseDir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Initialize the SegmentedEventFileResolver, storing segments of <code>segmentSize</code> bytes in the given
+     * <code>baseDir</code>. Any segments already present in that directory are scanned to build the index.
+     * <p/>
+     * Chunks larger than the segment size are stored in a segment of their own, which is as large as needed to store
+     * that chunk.
+     *
+     * @param baseDir     The directory where segment files are stored
+     * @param segmentSize The size of newly created segment files, in bytes
+     * @throws EventStoreException when the directory cannot be created, or the existing segments cannot be read
+     */
+    public SegmentedEventFileResolver(File baseDir, int segmentSize) {
+        Assert.isTrue(segmentSize > FIXED_HEADER_SIZE, "The segment size is too small");
+        this.baseDir = baseDir;
+        this.segmentSize = segmentSize;
+        if (!baseDir.exists() && !baseDir.mkdirs() && !baseDir.exists()) {
+            throw new EventStoreException("The given event store directory doesn't exist and could not be created");
+        }
+        try {
+            openExistingSegments();
+        } catch (IOException e) {
+            close();
+            throw new EventStoreException("Unable to read the existing segments in " + baseDir, e);
+        }
+    }
+
+    @Override
+    public OutputStream openEventFileForWriting(String type, Object aggregateIdentifier) throws IOException {
+        return new ChunkOutputStream(new ChunkKey(EVENTS_CHUNK, type, aggregateIdentifier.toString()));
+    }
+
+    @Override
+    public OutputStream openSnapshotFileForWriting(String type, Object aggregateIdentifier) throws IOException {
+        return new ChunkOutputStream(new ChunkKey(SNAPSHOTS_CHUNK, type, aggregateIdentifier.toString()));
+    }
+
+    @Override
+    public InputStream openEventFileForReading(String type, Object aggregateIdentifier) throws IOException {
+        return new ExtentInputStream(extentsOf(new ChunkKey(EVENTS_CHUNK, type, aggregateIdentifier.toString())));
+    }
+
+    @Override
+    public InputStream openSnapshotFileForReading(String type, Object aggregateIdentifier) throws IOException {
+        return new ExtentInputStream(extentsOf(new ChunkKey(SNAPSHOTS_CHUNK, type, aggregateIdentifier.toString())));
+    }
+
+    @Override
+    public boolean eventFileExists(String type, Object aggregateIdentifier) throws IOException {
+        return index.containsKey(new ChunkKey(EVENTS_CHUNK, type, aggregateIdentifier.toString()));
+    }
+
+    @Override
+    public boolean snapshotFileExists(String type, Object aggregateIdentifier) throws IOException {
+        return index.containsKey(new ChunkKey(SNAPSHOTS_CHUNK, type, aggregateIdentifier.toString()));
+    }
+
+    @Override
+    public List<String> listAggregateTypes() throws IOException {
+        Set<String> types = new HashSet<String>();
+        for (ChunkKey key : index.keySet()) {
+            if (key.kind == EVENTS_CHUNK) {
+                types.add(key.type);
+            }
+        }
+        return new ArrayList<String>(types);
+    }
+
+    @Override
+    public List<String> listAggregateIdentifiers(String type) throws IOException {
+        List<String> identifiers = new ArrayList<String>();
+        for (ChunkKey key : index.keySet()) {
+            if (key.kind == EVENTS_CHUNK && key.type.equals(type)) {
+                identifiers.add(key.aggregateIdentifier);
+            }
+        }
+        return identifiers;
+    }
+
+    /**
+     * Closes the segment files. The resolver cannot be used after it has been closed.
+     */
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            IOUtils.closeQuietly(segment.channel);
+        }
+        segments.clear();
+        currentSegment = null;
+        closed = true;
+    }
+
+    private List<Extent> extentsOf(ChunkKey key) {
+        List<Extent> extents = index.get(key);
+        if (extents == null) {
+            return Collections.emptyList();
+        }
+        return extents;
+    }
+
+    private synchronized Segment append(ChunkKey key, byte[] data, int length) throws IOException {
+        Assert.state(!closed, "The resolver has been closed");
+        byte[] typeBytes = key.type.getBytes(UTF8);
+        byte[] identifierBytes = key.aggregateIdentifier.getBytes(UTF8);
+        int headerSize = FIXED_HEADER_SIZE + typeBytes.length + identifierBytes.length;
+        if (currentSegment == null || currentSegment.remaining() < headerSize + length) {
+            currentSegment = createSegment(Math.max(segmentSize, headerSize + length));
+        }
+        ByteBuffer buffer = currentSegment.buffer.duplicate();
+        int chunkStart = currentSegment.writePosition;
+        buffer.position(chunkStart + 1);
+        buffer.putInt(length);
+        buffer.putShort((short) typeBytes.length);
+        buffer.put(typeBytes);
+        buffer.putShort((short) identifierBytes.length);
+        buffer.put(identifierBytes);
+        buffer.put(data, 0, length);
+        // the kind is written last, marking the chunk as complete
+        buffer.put(chunkStart, key.kind);
+        currentSegment.writePosition = buffer.position();
+        register(key, new Extent(currentSegment.buffer, chunkStart + headerSize, length));
+        return currentSegment;
+    }
+
+    /**
+     * Blocks until the chunk appended to the given <code>segment</code> has been forced to disk. The first thread to
+     * find no commit in progress commits the current batch, which contains all appends that haven't been committed
+     * yet.
+     */
+    private void commit(Segment segment) throws IOException {
+        commitLock.lock();
+        try {
+            CommitBatch batch = currentBatch;
+            uncommittedSegments.add(segment);
+            if (++batch.size >= maxCommitBatchSize) {
+                batchFull.signal();
+            }
+            while (!batch.committed) {
+                if (committing) {
+                    batchCommitted.awaitUninterruptibly();
+                } else {
+                    commitCurrentBatch();
+                }
+            }
+            if (batch.failure != null) {
+                throw new IOException("Unable to force the appended events to disk", batch.failure);
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void commitCurrentBatch() {
+        committing = true;
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxCommitDelay);
+        while (currentBatch.size < maxCommitBatchSize && remainingNanos > 0) {
+            try {
+                remainingNanos = batchFull.awaitNanos(remainingNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                remainingNanos = 0;
+            }
+        }
+        CommitBatch batch = currentBatch;
+        currentBatch = new CommitBatch();
+        List<Segment> segmentsToForce = new ArrayList<Segment>(uncommittedSegments);
+        uncommittedSegments.clear();
+        commitLock.unlock();
+        try {
+            for (Segment segment : segmentsToForce) {
+                segment.buffer.force();
+            }
+        } catch (RuntimeException e) {
+            batch.failure = e;
+        } finally {
+            commitLock.lock();
+            batch.committed = true;
+            committing = false;
+            batchCommitted.signalAll();
+        }
+    }
+
+    /**
+     * Sets whether closing a stream opened for writing should block until the written data has been forced to disk.
+     * Defaults to <code>false</code>, leaving it to the operating system to flush data to disk.
+     *
+     * @param durableAppends whether to force appended data to disk before returning
+     */
+    public void setDurableAppends(boolean durableAppends) {
+        this.durableAppends = durableAppends;
+    }
+
+    /**
+     * Sets the maximum number of milliseconds a commit waits for other appends to join its group, before forcing the
+     * data to disk. Only used when {@link #setDurableAppends(boolean) durable appends} are enabled. Defaults to {@value
+     * #DEFAULT_MAX_COMMIT_DELAY}.
+     *
+     * @param maxCommitDelay the maximum number of milliseconds to delay a commit
+     */
+    public void setMaxCommitDelay(long maxCommitDelay) {
+        Assert.isTrue(maxCommitDelay >= 0, "The maximum commit delay may not be negative");
+        this.maxCommitDelay = maxCommitDelay;
+    }
+
+    /**
+     * Sets the number of appends that, once reached, causes a commit to force data to disk without waiting any longer.
+     * Only used when {@link #setDurableAppends(boolean) durable appends} are enabled. Defaults to {@value
+     * #DEFAULT_MAX_COMMIT_BATCH_SIZE}.
+     *
+     * @param maxCommitBatchSize the number of appends to commit in a single group
+     */
+    public void setMaxCommitBatchSize(int maxCommitBatchSize) {
+        Assert.isTrue(maxCommitBatchSize > 0, "The maximum commit batch size must be a positive number");
+        this.maxCommitBatchSize = maxCommitBatchSize;
+    }
+
+    private void register(ChunkKey key, Extent extent) {
+        List<Extent> extents = index.get(key);
+        if (extents == null) {
+            // the extent is added before publishing the list, to prevent readers from finding an empty log
+            index.put(key, new CopyOnWriteArrayList<Extent>(Collections.singletonList(extent)));
+        } else {
+            extents.add(extent);
+        }
+    }
+
+    private Segment createSegment(int size) throws IOException {
+        File file = new File(baseDir, String.format("%08d%s", segments.size(), SEGMENT_FILE_EXTENSION));
+        Segment segment = new Segment(file, size);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void openExistingSegments() throws IOException {
+        File[] files = baseDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(SEGMENT_FILE_EXTENSION);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            Segment segment = new Segment(file, (int) file.length());
+            segments.add(segment);
+            scan(segment);
+            currentSegment = segment;
+        }
+    }
+
+    private void scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        while (buffer.remaining() >= FIXED_HEADER_SIZE && buffer.get(buffer.position()) != NO_CHUNK) {
+            int chunkStart = buffer.position();
+            byte kind = buffer.get();
+            int length = buffer.getInt();
+            String type = readString(buffer);
+            String aggregateIdentifier = readString(buffer);
+            register(new ChunkKey(kind, type, aggregateIdentifier), new Extent(segment.buffer, buffer.position(),
+                                                                               length));
+            buffer.position(buffer.position() + length);
+            segment.writePosition = buffer.position();
+            if (segment.writePosition <= chunkStart) {
+                throw new EventStoreException("Segment " + segment.file + " is corrupt");
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static final class Segment {
+
+        private final File file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(File file, int size) throws IOException {
+            this.file = file;
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                this.channel = randomAccessFile.getChannel();
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                IOUtils.closeQuietly(randomAccessFile);
+                throw e;
+            }
+        }
+
+        private int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+    }
+
+    /**
+     * A group of appends that are forced to disk together.
+     */
+    private static final class CommitBatch {
+
+        private int size;
+        private boolean committed;
+        private RuntimeException failure;
+    }
+
+    /**
+     * Identifies the chunks of a single event log.
+     */
+    private static final class ChunkKey {
+
+        private final byte kind;
+        private final String type;
+        private final String aggregateIdentifier;
+
+        private ChunkKey(byte kind, String type, String aggregateIdentifier) {
+            this.kind = kind;
+            this.type = type;
+            this.aggregateIdentifier = aggregateIdentifier;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ChunkKey that = (ChunkKey) o;
+            return kind == that.kind
+                    && aggregateIdentifier.equals(that.aggregateIdentifier)
+                    && type.equals(that.type);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) kind;
+            result = 31 * result + type.hashCode();
+            result = 31 * result + aggregateIdentifier.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * The location of the payload of a single chunk.
+     */
+    private static final class Extent {
+
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        private Extent(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private ByteBuffer slice() {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(offset + length);
+            slice.position(offset);
+            return slice;
+        }
+    }
+
+    /**
+     * OutputStream that collects all written bytes, and appends them to the segments as a single chunk when closed.
+     */
+    private final class ChunkOutputStream extends ByteArrayOutputStream {
+
+        private final ChunkKey key;
+        private boolean closed;
+
+        private ChunkOutputStream(ChunkKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                if (count > 0) {
+                    Segment segment = append(key, buf, count);
+                    if (durableAppends) {
+                        commit(segment);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * InputStream that reads the payload of a number of chunks directly from the mapped segments.
+     */
+    private static final class ExtentInputStream extends InputStream {
+
+        private final Extent[] extents;
+        private int nextExtent;
+        private ByteBuffer current;
+
+        private ExtentInputStream(List<Extent> extents) {
+            this.extents = extents.toArray(new Extent[extents.size()]);
+        }
+
+        private boolean ensureAvailable() {
+            while (current == null || !current.hasRemaining()) {
+                if (nextExtent >= extents.length) {
+                    return false;
+                }
+                current = extents[nextExtent++].slice();
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            int bytesToRead = Math.min(len, current.remaining());
+            current.get(b, off, bytesToRead);
+            return bytesToRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && ensureAvailable()) {
+                int bytesToSkip = (int) Math.min(n - skipped, current.remaining());
+                current.position(current.position() + bytesToSkip);
+                skipped += bytesToSkip;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return current == null ? 0 : current.remaining();
+        }
+    }
+}
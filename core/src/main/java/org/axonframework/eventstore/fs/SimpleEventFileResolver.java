@@ -20,21 +20,29 @@ import org.axonframework.eventstore.EventStoreException;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Very straightforward implementation of the EventFileResolver that stores files in a directory structure underneath a
  * given base directory. Events of a single aggregate are appended to a pair of files, one for regular events and one
  * for snapshot events. Directories are used to separate files for different aggregate types.
+ * <p/>
+ * To keep an index of event offsets, which avoids reading the events file when writing a snapshot, use the {@link
+ * OffsetIndexingSimpleEventFileResolver}.
+ * <p/>
+ * The event logs are listed by scanning the type directories for files with the events extension.
  *
  * @author Allard Buijze
  * @since 0.5
  */
-public class SimpleEventFileResolver implements EventFileResolver {
+public class SimpleEventFileResolver implements ListableEventFileResolver {
 
     /**
      * Describes the file extension used for files containing domain events.
@@ -92,7 +100,55 @@ public class SimpleEventFileResolver implements EventFileResolver {
         return getEventsFile(type, identifier, FILE_EXTENSION_SNAPSHOTS).exists();
     }
 
-    private File getEventsFile(String type, Object identifier, String extension) throws IOException {
+    @Override
+    public List<String> listAggregateTypes() throws IOException {
+        List<String> types = new ArrayList<String>();
+        File[] typeDirs = baseDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory();
+            }
+        });
+        if (typeDirs != null) {
+            for (File typeDir : typeDirs) {
+                types.add(typeDir.getName());
+            }
+        }
+        return types;
+    }
+
+    @Override
+    public List<String> listAggregateIdentifiers(String type) throws IOException {
+        final String suffix = "." + FILE_EXTENSION_EVENTS;
+        List<String> identifiers = new ArrayList<String>();
+        File[] eventFiles = new File(baseDir, type).listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(suffix);
+            }
+        });
+        if (eventFiles != null) {
+            for (File eventFile : eventFiles) {
+                String fileName = eventFile.getName();
+                identifiers.add(fileName.substring(0, fileName.length() - suffix.length()));
+            }
+        }
+        return identifiers;
+    }
+
+    /**
+     * Returns the file containing data of given <code>extension</code> for the aggregate with given
+     * <code>type</code> and <code>identifier</code>. The directory for the aggregate type is created if it doesn't
+     * exist yet.
+     *
+     * @param type       The type of aggregate
+     * @param identifier The identifier of the aggregate
+     * @param extension  The extension of the file, describing the type of data it contains
+     * @return the file containing the requested data for the aggregate
+     *
+     * @throws IOException when the file could not be resolved
+     */
+    protected File getEventsFile(String type, Object identifier, String extension) throws IOException {
         return new File(getBaseDirForType(type), identifier + "." + extension);
     }
 
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs.criteria;
+
+import org.axonframework.common.Assert;
+import org.axonframework.domain.DomainEventMessage;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Implementation of the Collection operators for the FileSystemEventStore criteria, such as "In" and "NotIn". The
+ * expression may be a Collection or an array.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class CollectionOperator extends FileSystemCriteria {
+
+    private final FileSystemProperty property;
+    private final boolean in;
+    private final Collection<?> expression;
+
+    /**
+     * Initializes a criterion that requires the value of given <code>property</code> to be present (when
+     * <code>in</code> is <code>true</code>) or absent (when <code>in</code> is <code>false</code>) in the given
+     * <code>expression</code>.
+     *
+     * @param property   The property to match
+     * @param in         Whether the value should be present in, or absent from, the expression
+     * @param expression The Collection or array to match the property value against
+     */
+    public CollectionOperator(FileSystemProperty property, boolean in, Object expression) {
+        Assert.isTrue(expression instanceof Collection || expression instanceof Object[],
+                      "The FileSystemEventStore requires a Collection or array for collection operators");
+        this.property = property;
+        this.in = in;
+        this.expression = expression instanceof Collection
+                ? (Collection<?>) expression
+                : Arrays.asList((Object[]) expression);
+    }
+
+    @Override
+    public boolean matches(String aggregateType, DomainEventMessage event) {
+        return contains(property.getValue(aggregateType, event)) == in;
+    }
+
+    @Override
+    public boolean mayMatch(String aggregateType) {
+        return !property.isAggregateType() || contains(aggregateType) == in;
+    }
+
+    private boolean contains(Object value) {
+        for (Object element : expression) {
+            if (FileSystemProperty.compare(value, element) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
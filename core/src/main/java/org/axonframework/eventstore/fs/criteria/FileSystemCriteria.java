@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs.criteria;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.eventstore.management.Criteria;
+
+/**
+ * Abstract class for criteria used by the FileSystemEventStore. As the file system doesn't offer any query
+ * capabilities, these criteria are evaluated against each event read.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public abstract class FileSystemCriteria implements Criteria {
+
+    @Override
+    public FileSystemCriteria and(Criteria criteria) {
+        return new And(this, (FileSystemCriteria) criteria);
+    }
+
+    @Override
+    public FileSystemCriteria or(Criteria criteria) {
+        return new Or(this, (FileSystemCriteria) criteria);
+    }
+
+    /**
+     * Indicates whether the given <code>event</code>, belonging to an aggregate of given <code>aggregateType</code>,
+     * matches these criteria.
+     *
+     * @param aggregateType The type of aggregate the event belongs to
+     * @param event         The event to evaluate
+     * @return <code>true</code> if the event matches, otherwise <code>false</code>
+     */
+    public abstract boolean matches(String aggregateType, DomainEventMessage event);
+
+    /**
+     * Indicates whether any event of an aggregate of given <code>aggregateType</code> could match these criteria.
+     * Criteria on properties other than the aggregate type are assumed to match. This allows the event store to skip
+     * the events of entire aggregate types without reading them.
+     *
+     * @param aggregateType The type of aggregate
+     * @return <code>false</code> if no event of the given type can match, otherwise <code>true</code>
+     */
+    public abstract boolean mayMatch(String aggregateType);
+}
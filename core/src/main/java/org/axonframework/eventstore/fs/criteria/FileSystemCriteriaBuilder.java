@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs.criteria;
+
+import org.axonframework.eventstore.management.CriteriaBuilder;
+
+/**
+ * The CriteriaBuilder implementation for use with the FileSystemEventStore. See {@link FileSystemProperty} for the
+ * properties that may be used.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class FileSystemCriteriaBuilder implements CriteriaBuilder {
+
+    @Override
+    public FileSystemProperty property(String propertyName) {
+        return new FileSystemProperty(propertyName);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs.criteria;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.eventstore.management.Property;
+import org.joda.time.DateTime;
+
+/**
+ * Property implementation for use by the FileSystemEventStore. The supported properties are <code>type</code> (the
+ * type of aggregate), <code>aggregateIdentifier</code>, <code>sequenceNumber</code> and <code>timeStamp</code>.
+ * <p/>
+ * Values of the <code>timeStamp</code> property are compared as instants, and may be compared against DateTime
+ * instances or their String representation. Values of the <code>sequenceNumber</code> property are compared
+ * numerically. Other properties are compared as Strings.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class FileSystemProperty implements Property {
+
+    private static final String TYPE = "type";
+    private static final String AGGREGATE_IDENTIFIER = "aggregateIdentifier";
+    private static final String SEQUENCE_NUMBER = "sequenceNumber";
+    private static final String TIME_STAMP = "timeStamp";
+
+    private final String propertyName;
+
+    /**
+     * Initialize a property for the given <code>propertyName</code>.
+     *
+     * @param propertyName The name of the property
+     * @throws IllegalArgumentException if the property is not supported by the FileSystemEventStore
+     */
+    public FileSystemProperty(String propertyName) {
+        if (!TYPE.equals(propertyName) && !AGGREGATE_IDENTIFIER.equals(propertyName)
+                && !SEQUENCE_NUMBER.equals(propertyName) && !TIME_STAMP.equals(propertyName)) {
+            throw new IllegalArgumentException(String.format(
+                    "The property [%s] is not supported by the FileSystemEventStore", propertyName));
+        }
+        this.propertyName = propertyName;
+    }
+
+    @Override
+    public FileSystemCriteria lessThan(Object expression) {
+        return new SimpleOperator(this, SimpleOperator.Operator.LESS_THAN, expression);
+    }
+
+    @Override
+    public FileSystemCriteria lessThanEquals(Object expression) {
+        return new SimpleOperator(this, SimpleOperator.Operator.LESS_THAN_EQUALS, expression);
+    }
+
+    @Override
+    public FileSystemCriteria greaterThan(Object expression) {
+        return new SimpleOperator(this, SimpleOperator.Operator.GREATER_THAN, expression);
+    }
+
+    @Override
+    public FileSystemCriteria greaterThanEquals(Object expression) {
+        return new SimpleOperator(this, SimpleOperator.Operator.GREATER_THAN_EQUALS, expression);
+    }
+
+    @Override
+    public FileSystemCriteria is(Object expression) {
+        return new SimpleOperator(this, SimpleOperator.Operator.EQUALS, expression);
+    }
+
+    @Override
+    public FileSystemCriteria isNot(Object expression) {
+        return new SimpleOperator(this, SimpleOperator.Operator.NOT_EQUALS, expression);
+    }
+
+    @Override
+    public FileSystemCriteria in(Object expression) {
+        return new CollectionOperator(this, true, expression);
+    }
+
+    @Override
+    public FileSystemCriteria notIn(Object expression) {
+        return new CollectionOperator(this, false, expression);
+    }
+
+    /**
+     * Returns the name of the property.
+     *
+     * @return the name of the property
+     */
+    public String getName() {
+        return propertyName;
+    }
+
+    /**
+     * Indicates whether this property represents the type of aggregate.
+     *
+     * @return <code>true</code> if this property represents the type of aggregate, otherwise <code>false</code>
+     */
+    public boolean isAggregateType() {
+        return TYPE.equals(propertyName);
+    }
+
+    /**
+     * Returns the value of this property for the given <code>event</code>, belonging to an aggregate of given
+     * <code>aggregateType</code>.
+     *
+     * @param aggregateType The type of aggregate the event belongs to
+     * @param event         The event to read the property value from
+     * @return the value of this property
+     */
+    public Object getValue(String aggregateType, DomainEventMessage event) {
+        if (TYPE.equals(propertyName)) {
+            return aggregateType;
+        } else if (AGGREGATE_IDENTIFIER.equals(propertyName)) {
+            return event.getAggregateIdentifier().toString();
+        } else if (SEQUENCE_NUMBER.equals(propertyName)) {
+            return event.getSequenceNumber();
+        }
+        return event.getTimestamp();
+    }
+
+    /**
+     * Compares the given property <code>value</code> with the given <code>expression</code>, converting the
+     * expression to the type of the value where needed.
+     *
+     * @param value      The value of the property, as returned by {@link #getValue(String, DomainEventMessage)}
+     * @param expression The expression to compare the value with
+     * @return a negative number, zero, or a positive number if the value is less than, equal to, or greater than the
+     *         expression
+     */
+    static int compare(Object value, Object expression) {
+        if (value instanceof DateTime) {
+            DateTime other = expression instanceof DateTime
+                    ? (DateTime) expression
+                    : new DateTime(expression.toString());
+            return ((DateTime) value).compareTo(other);
+        } else if (value instanceof Long) {
+            long other = expression instanceof Number
+                    ? ((Number) expression).longValue()
+                    : Long.parseLong(expression.toString());
+            return ((Long) value).compareTo(other);
+        }
+        return value.toString().compareTo(expression.toString());
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs.criteria;
+
+import org.axonframework.domain.DomainEventMessage;
+
+/**
+ * Representation of an OR operator for FileSystemEventStore criteria.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class Or extends FileSystemCriteria {
+
+    private final FileSystemCriteria criteria1;
+    private final FileSystemCriteria criteria2;
+
+    /**
+     * Returns a criterion that requires either <code>criteria1</code> or <code>criteria2</code> to be <code>true</code>.
+     *
+     * @param criteria1 One of the criteria to be evaluated
+     * @param criteria2 One of the criteria to be evaluated
+     */
+    public Or(FileSystemCriteria criteria1, FileSystemCriteria criteria2) {
+        this.criteria1 = criteria1;
+        this.criteria2 = criteria2;
+    }
+
+    @Override
+    public boolean matches(String aggregateType, DomainEventMessage event) {
+        return criteria1.matches(aggregateType, event) || criteria2.matches(aggregateType, event);
+    }
+
+    @Override
+    public boolean mayMatch(String aggregateType) {
+        return criteria1.mayMatch(aggregateType) || criteria2.mayMatch(aggregateType);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs.criteria;
+
+import org.axonframework.common.Assert;
+import org.axonframework.domain.DomainEventMessage;
+
+/**
+ * Implementation of the comparison operators for the FileSystemEventStore criteria, such as Less Than, Equals, etc.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SimpleOperator extends FileSystemCriteria {
+
+    /**
+     * The comparison operators supported by this criterion.
+     */
+    public enum Operator {
+
+        /**
+         * Matches values less than the expression.
+         */
+        LESS_THAN {
+            @Override
+            boolean accept(int comparison) {
+                return comparison < 0;
+            }
+        },
+        /**
+         * Matches values less than, or equal to, the expression.
+         */
+        LESS_THAN_EQUALS {
+            @Override
+            boolean accept(int comparison) {
+                return comparison <= 0;
+            }
+        },
+        /**
+         * Matches values greater than the expression.
+         */
+        GREATER_THAN {
+            @Override
+            boolean accept(int comparison) {
+                return comparison > 0;
+            }
+        },
+        /**
+         * Matches values greater than, or equal to, the expression.
+         */
+        GREATER_THAN_EQUALS {
+            @Override
+            boolean accept(int comparison) {
+                return comparison >= 0;
+            }
+        },
+        /**
+         * Matches values equal to the expression.
+         */
+        EQUALS {
+            @Override
+            boolean accept(int comparison) {
+                return comparison == 0;
+            }
+        },
+        /**
+         * Matches values not equal to the expression.
+         */
+        NOT_EQUALS {
+            @Override
+            boolean accept(int comparison) {
+                return comparison != 0;
+            }
+        };
+
+        abstract boolean accept(int comparison);
+    }
+
+    private final FileSystemProperty property;
+    private final Operator operator;
+    private final Object expression;
+
+    /**
+     * Initializes a criterion where the value of the given <code>property</code> is compared with the given
+     * <code>expression</code> using the given <code>operator</code>.
+     *
+     * @param property   The property to match
+     * @param operator   The operator to match with
+     * @param expression The expression to match against the property
+     */
+    public SimpleOperator(FileSystemProperty property, Operator operator, Object expression) {
+        Assert.notNull(expression, "The FileSystemEventStore does not support comparison with null");
+        Assert.isFalse(expression instanceof FileSystemProperty,
+                       "The FileSystemEventStore does not support comparison between two properties");
+        this.property = property;
+        this.operator = operator;
+        this.expression = expression;
+    }
+
+    @Override
+    public boolean matches(String aggregateType, DomainEventMessage event) {
+        return operator.accept(FileSystemProperty.compare(property.getValue(aggregateType, event), expression));
+    }
+
+    @Override
+    public boolean mayMatch(String aggregateType) {
+        return !property.isAggregateType()
+                || operator.accept(FileSystemProperty.compare(aggregateType, expression));
+    }
+}
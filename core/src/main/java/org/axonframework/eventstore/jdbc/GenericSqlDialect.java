@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jdbc;
+
+import org.axonframework.eventstore.jpa.SimpleSerializedDomainEventData;
+import org.axonframework.serializer.SerializedDomainEventData;
+import org.axonframework.serializer.SerializedObject;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * SqlDialect implementation that uses standard SQL, which is supported by most databases, including HSQLDB and H2.
+ * The number of rows returned by select statements is limited using {@link PreparedStatement#setMaxRows(int)}.
+ * <p/>
+ * By default, the tables are named after the entities used by the JPA Event Store: <code>DomainEventEntry</code> and
+ * <code>SnapshotEventEntry</code>, and have the same layout. This allows the JdbcEventStore to read and write the
+ * events stored by a JpaEventStore.
+ * <p/>
+ * Subclasses may override any of the methods to use database specific syntax or types.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class GenericSqlDialect implements SqlDialect {
+
+    private static final String COLUMNS = "eventIdentifier, aggregateIdentifier, sequenceNumber, timeStamp, "
+            + "payloadType, payloadRevision, payload, metaData";
+
+    private final String domainEventTable;
+    private final String snapshotEventTable;
+
+    /**
+     * Initialize the dialect using the default table names: <code>DomainEventEntry</code> and
+     * <code>SnapshotEventEntry</code>.
+     */
+    public GenericSqlDialect() {
+        this("DomainEventEntry", "SnapshotEventEntry");
+    }
+
+    /**
+     * Initialize the dialect using the given <code>domainEventTable</code> and <code>snapshotEventTable</code> names.
+     *
+     * @param domainEventTable   The name of the table to store domain events in
+     * @param snapshotEventTable The name of the table to store snapshot events in
+     */
+    public GenericSqlDialect(String domainEventTable, String snapshotEventTable) {
+        this.domainEventTable = domainEventTable;
+        this.snapshotEventTable = snapshotEventTable;
+    }
+
+    @Override
+    public PreparedStatement createDomainEventTable(Connection connection) throws SQLException {
+        return connection.prepareStatement(createTableSql(domainEventTable));
+    }
+
+    @Override
+    public PreparedStatement createSnapshotEventTable(Connection connection) throws SQLException {
+        return connection.prepareStatement(createTableSql(snapshotEventTable));
+    }
+
+    /**
+     * Returns the statement that creates a table with given <code>tableName</code> to store event entries in.
+     *
+     * @param tableName The name of the table to create
+     * @return the SQL statement creating the table
+     */
+    protected String createTableSql(String tableName) {
+        return "CREATE TABLE " + tableName + " ("
+                + "aggregateIdentifier VARCHAR(255) NOT NULL, "
+                + "sequenceNumber BIGINT NOT NULL, "
+                + "type VARCHAR(255) NOT NULL, "
+                + "eventIdentifier VARCHAR(255) NOT NULL, "
+                + "metaData " + blobType() + ", "
+                + "payload " + blobType() + " NOT NULL, "
+                + "payloadRevision VARCHAR(255), "
+                + "payloadType VARCHAR(255) NOT NULL, "
+                + "timeStamp VARCHAR(255) NOT NULL, "
+                + "PRIMARY KEY (aggregateIdentifier, sequenceNumber, type), "
+                + "UNIQUE (eventIdentifier))";
+    }
+
+    /**
+     * Returns the column type to store the serialized payload and meta data in. Defaults to <code>BLOB</code>.
+     *
+     * @return the column type for binary data
+     */
+    protected String blobType() {
+        return "BLOB";
+    }
+
+    @Override
+    public PreparedStatement insertDomainEvents(Connection connection, String type,
+                                                List<? extends SerializedDomainEventData> events)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(insertSql(domainEventTable));
+        for (SerializedDomainEventData event : events) {
+            setEntryParameters(statement, type, event);
+            statement.addBatch();
+        }
+        return statement;
+    }
+
+    @Override
+    public PreparedStatement insertSnapshotEvent(Connection connection, String type,
+                                                 SerializedDomainEventData snapshot) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(insertSql(snapshotEventTable));
+        setEntryParameters(statement, type, snapshot);
+        return statement;
+    }
+
+    private String insertSql(String tableName) {
+        return "INSERT INTO " + tableName + " (type, " + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    private void setEntryParameters(PreparedStatement statement, String type, SerializedDomainEventData entry)
+            throws SQLException {
+        SerializedObject payload = entry.getPayload();
+        statement.setString(1, type);
+        statement.setString(2, entry.getEventIdentifier());
+        statement.setString(3, entry.getAggregateIdentifier().toString());
+        statement.setLong(4, entry.getSequenceNumber());
+        statement.setString(5, entry.getTimestamp().toString());
+        statement.setString(6, payload.getType().getName());
+        statement.setString(7, payload.getType().getRevision());
+        statement.setBytes(8, (byte[]) payload.getData());
+        statement.setBytes(9, (byte[]) entry.getMetaData().getData());
+    }
+
+    @Override
+    public PreparedStatement selectEvents(Connection connection, String type, String aggregateIdentifier,
+                                          long firstSequenceNumber, int batchSize) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM " + domainEventTable + " e "
+                        + "WHERE e.aggregateIdentifier = ? AND e.type = ? AND e.sequenceNumber >= ? "
+                        + "ORDER BY e.sequenceNumber ASC");
+        statement.setString(1, aggregateIdentifier);
+        statement.setString(2, type);
+        statement.setLong(3, firstSequenceNumber);
+        statement.setMaxRows(batchSize);
+        return statement;
+    }
+
+    @Override
+    public PreparedStatement selectLastSnapshotAndEvents(Connection connection, String type,
+                                                         String aggregateIdentifier, int batchSize)
+            throws SQLException {
+        String lastSnapshotSequenceNumber = "SELECT MAX(s2.sequenceNumber) FROM " + snapshotEventTable + " s2 "
+                + "WHERE s2.aggregateIdentifier = ? AND s2.type = ?";
+        PreparedStatement statement = connection.prepareStatement(
+                "SELECT * FROM ("
+                        + "SELECT 1 AS isSnapshot, " + COLUMNS + " FROM " + snapshotEventTable + " s "
+                        + "WHERE s.aggregateIdentifier = ? AND s.type = ? "
+                        + "AND s.sequenceNumber = (" + lastSnapshotSequenceNumber + ") "
+                        + "UNION ALL "
+                        + "SELECT 0 AS isSnapshot, " + COLUMNS + " FROM " + domainEventTable + " e "
+                        + "WHERE e.aggregateIdentifier = ? AND e.type = ? "
+                        + "AND e.sequenceNumber > COALESCE((" + lastSnapshotSequenceNumber + "), -1)"
+                        + ") entries ORDER BY isSnapshot DESC, sequenceNumber ASC");
+        for (int t = 0; t < 4; t++) {
+            statement.setString(t * 2 + 1, aggregateIdentifier);
+            statement.setString(t * 2 + 2, type);
+        }
+        statement.setMaxRows(batchSize + 1);
+        return statement;
+    }
+
+    @Override
+    public PreparedStatement selectSnapshotSequenceNumbers(Connection connection, String type,
+                                                           String aggregateIdentifier) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "SELECT sequenceNumber FROM " + snapshotEventTable + " "
+                        + "WHERE aggregateIdentifier = ? AND type = ? ORDER BY sequenceNumber DESC");
+        statement.setString(1, aggregateIdentifier);
+        statement.setString(2, type);
+        return statement;
+    }
+
+    @Override
+    public PreparedStatement deleteSnapshots(Connection connection, String type, String aggregateIdentifier,
+                                             long maxSequenceNumber) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM " + snapshotEventTable + " "
+                        + "WHERE aggregateIdentifier = ? AND type = ? AND sequenceNumber <= ?");
+        statement.setString(1, aggregateIdentifier);
+        statement.setString(2, type);
+        statement.setLong(3, maxSequenceNumber);
+        return statement;
+    }
+
+    @Override
+    public PreparedStatement selectFilteredEvents(Connection connection, String whereClause, List<Object> parameters,
+                                                  String lastTimeStamp, String lastType,
+                                                  String lastAggregateIdentifier, long lastSequenceNumber,
+                                                  int batchSize) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT type, ").append(COLUMNS).append(" FROM ")
+                                                        .append(domainEventTable).append(" e");
+        boolean hasFilter = whereClause != null && whereClause.length() > 0;
+        if (hasFilter || lastTimeStamp != null) {
+            sql.append(" WHERE ");
+        }
+        if (hasFilter) {
+            sql.append("(").append(whereClause).append(")");
+        }
+        if (lastTimeStamp != null) {
+            if (hasFilter) {
+                sql.append(" AND ");
+            }
+            sql.append("(e.timeStamp > ? OR (e.timeStamp = ? AND (e.type > ? OR (e.type = ? "
+                               + "AND (e.aggregateIdentifier > ? "
+                               + "OR (e.aggregateIdentifier = ? AND e.sequenceNumber > ?))))))");
+        }
+        sql.append(" ORDER BY e.timeStamp ASC, e.type ASC, e.aggregateIdentifier ASC, e.sequenceNumber ASC");
+        PreparedStatement statement = connection.prepareStatement(sql.toString());
+        int index = 1;
+        if (hasFilter) {
+            for (Object parameter : parameters) {
+                statement.setObject(index++, parameter);
+            }
+        }
+        if (lastTimeStamp != null) {
+            statement.setString(index++, lastTimeStamp);
+            statement.setString(index++, lastTimeStamp);
+            statement.setString(index++, lastType);
+            statement.setString(index++, lastType);
+            statement.setString(index++, lastAggregateIdentifier);
+            statement.setString(index++, lastAggregateIdentifier);
+            statement.setLong(index, lastSequenceNumber);
+        }
+        statement.setMaxRows(batchSize);
+        return statement;
+    }
+
+    @Override
+    public SerializedDomainEventData readEventEntry(ResultSet resultSet) throws SQLException {
+        return new SimpleSerializedDomainEventData(resultSet.getString("eventIdentifier"),
+                                                   resultSet.getString("aggregateIdentifier"),
+                                                   resultSet.getLong("sequenceNumber"),
+                                                   resultSet.getString("timeStamp"),
+                                                   resultSet.getString("payloadType"),
+                                                   resultSet.getString("payloadRevision"),
+                                                   readBytes(resultSet, "payload"),
+                                                   readBytes(resultSet, "metaData"));
+    }
+
+    /**
+     * Reads the binary contents of the column with given <code>columnName</code> at the current row of the given
+     * <code>resultSet</code>. Defaults to {@link ResultSet#getBytes(String)}.
+     *
+     * @param resultSet  The result set positioned at the row to read
+     * @param columnName The name of the column containing binary data
+     * @return the contents of the column
+     *
+     * @throws SQLException when an error occurs reading from the result set
+     */
+    protected byte[] readBytes(ResultSet resultSet, String columnName) throws SQLException {
+        return resultSet.getBytes(columnName);
+    }
+}
@@ -0,0 +1,587 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jdbc;
+
+import org.axonframework.common.jdbc.ConnectionProvider;
+import org.axonframework.common.jdbc.DataSourceConnectionProvider;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.SnapshotEventStore;
+import org.axonframework.eventstore.jpa.PersistenceExceptionResolver;
+import org.axonframework.eventstore.jpa.SQLErrorCodesResolver;
+import org.axonframework.eventstore.jpa.SimpleSerializedDomainEventData;
+import org.axonframework.eventstore.jpa.criteria.JpaCriteria;
+import org.axonframework.eventstore.jpa.criteria.JpaCriteriaBuilder;
+import org.axonframework.eventstore.jpa.criteria.ParameterRegistry;
+import org.axonframework.eventstore.management.Criteria;
+import org.axonframework.eventstore.management.CriteriaBuilder;
+import org.axonframework.eventstore.management.EventStoreManagement;
+import org.axonframework.repository.ConcurrencyException;
+import org.axonframework.serializer.SerializedDomainEventData;
+import org.axonframework.serializer.SerializedDomainEventMessage;
+import org.axonframework.serializer.SerializedObject;
+import org.axonframework.serializer.Serializer;
+import org.axonframework.serializer.xml.XStreamSerializer;
+import org.axonframework.upcasting.SimpleUpcasterChain;
+import org.axonframework.upcasting.UpcastSerializedDomainEventData;
+import org.axonframework.upcasting.UpcasterAware;
+import org.axonframework.upcasting.UpcasterChain;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+
+import static org.axonframework.common.IdentifierValidator.validateIdentifier;
+import static org.axonframework.common.jdbc.JdbcUtils.closeQuietly;
+
+/**
+ * An EventStore implementation that uses plain JDBC to store DomainEvents in a database. Unlike the {@link
+ * org.axonframework.eventstore.jpa.JpaEventStore}, it doesn't rely on entities and a persistence context, but maps
+ * rows directly to and from their serialized representation. The SQL statements used are provided by a {@link
+ * SqlDialect}, which defaults to the {@link GenericSqlDialect}.
+ * <p/>
+ * The {@link ConnectionProvider} determines whether the event store takes part in any transaction. A {@link
+ * DataSourceConnectionProvider} obtains a new connection for each operation, while a {@link
+ * org.axonframework.common.jdbc.SpringDataSourceConnectionProvider} uses the connection bound to the current Spring
+ * transaction.
+ * <p/>
+ * Like the JpaEventStore, this EventStore supports snapshot pruning, which can enabled by configuring a {@link
+ * #setMaxSnapshotsArchived(int) maximum number of snapshots to archive}. By default, only {@value
+ * #DEFAULT_MAX_SNAPSHOTS_ARCHIVED} snapshot per aggregate is archived.
+ * <p/>
+ * The serializer used to serialize the events is configurable. By default, the {@link XStreamSerializer} is used.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class JdbcEventStore implements SnapshotEventStore, EventStoreManagement, UpcasterAware {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcEventStore.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_MAX_SNAPSHOTS_ARCHIVED = 1;
+    private static final Pattern PARAMETER_PATTERN = Pattern.compile(":(param\\d+)");
+
+    private final ConnectionProvider connectionProvider;
+    private final Serializer eventSerializer;
+    private final SqlDialect sqlDialect;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private UpcasterChain upcasterChain = SimpleUpcasterChain.EMPTY;
+    private int maxSnapshotsArchived = DEFAULT_MAX_SNAPSHOTS_ARCHIVED;
+
+    private PersistenceExceptionResolver persistenceExceptionResolver;
+
+    /**
+     * Initialize a JdbcEventStore that obtains a new connection from the given <code>dataSource</code> for each
+     * operation. Events are serialized using an {@link XStreamSerializer} and stored using the {@link
+     * GenericSqlDialect}.
+     *
+     * @param dataSource The data source providing connections to the backing database
+     */
+    public JdbcEventStore(DataSource dataSource) {
+        this(new DataSourceConnectionProvider(dataSource));
+    }
+
+    /**
+     * Initialize a JdbcEventStore using the given <code>connectionProvider</code>. Events are serialized using an
+     * {@link XStreamSerializer} and stored using the {@link GenericSqlDialect}.
+     *
+     * @param connectionProvider The provider of connections to the backing database
+     */
+    public JdbcEventStore(ConnectionProvider connectionProvider) {
+        this(connectionProvider, new XStreamSerializer(), new GenericSqlDialect());
+    }
+
+    /**
+     * Initialize a JdbcEventStore using the given <code>connectionProvider</code>, which serializes events using the
+     * given <code>eventSerializer</code> and uses the given <code>sqlDialect</code> to access the database.
+     *
+     * @param connectionProvider The provider of connections to the backing database
+     * @param eventSerializer    The serializer to (de)serialize domain events with
+     * @param sqlDialect         The dialect providing the SQL statements to access the database with
+     */
+    public JdbcEventStore(ConnectionProvider connectionProvider, Serializer eventSerializer, SqlDialect sqlDialect) {
+        this.connectionProvider = connectionProvider;
+        this.eventSerializer = eventSerializer;
+        this.sqlDialect = sqlDialect;
+    }
+
+    /**
+     * Creates the tables to store domain events and snapshot events in, using the statements provided by the
+     * configured SqlDialect.
+     */
+    public void createSchema() {
+        Connection connection = null;
+        try {
+            connection = connectionProvider.getConnection();
+            executeUpdate(sqlDialect.createDomainEventTable(connection));
+            executeUpdate(sqlDialect.createSnapshotEventTable(connection));
+        } catch (SQLException e) {
+            throw new EventStoreException("Failed to create the event store schema", e);
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void appendEvents(String type, DomainEventStream events) {
+        if (!events.hasNext()) {
+            return;
+        }
+        DomainEventMessage firstEvent = events.peek();
+        List<SerializedDomainEventData> entries = new ArrayList<SerializedDomainEventData>();
+        while (events.hasNext()) {
+            DomainEventMessage event = events.next();
+            validateIdentifier(event.getAggregateIdentifier().getClass());
+            entries.add(serialize(event));
+        }
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = connectionProvider.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            try {
+                if (autoCommit) {
+                    // the batch must either be stored entirely, or not at all
+                    connection.setAutoCommit(false);
+                }
+                statement = sqlDialect.insertDomainEvents(connection, type, entries);
+                statement.executeBatch();
+                if (autoCommit) {
+                    connection.commit();
+                }
+            } catch (SQLException e) {
+                if (autoCommit) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (autoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException exception) {
+            if (persistenceExceptionResolver != null
+                    && persistenceExceptionResolver.isDuplicateKeyViolation(exception)) {
+                throw new ConcurrencyException(
+                        String.format("Concurrent modification detected for Aggregate identifier [%s], "
+                                              + "sequence range: [%s - %s]",
+                                      firstEvent.getAggregateIdentifier(),
+                                      firstEvent.getSequenceNumber(),
+                                      entries.get(entries.size() - 1).getSequenceNumber()),
+                        exception);
+            }
+            throw new EventStoreException("Failed to store events in the event store", exception);
+        } finally {
+            closeQuietly(statement);
+            closeQuietly(connection);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private SerializedDomainEventData serialize(DomainEventMessage event) {
+        SerializedObject<byte[]> payload = eventSerializer.serialize(event.getPayload(), byte[].class);
+        SerializedObject<byte[]> metaData = eventSerializer.serialize(event.getMetaData(), byte[].class);
+        return new SimpleSerializedDomainEventData(event.getIdentifier(), event.getAggregateIdentifier().toString(),
+                                                   event.getSequenceNumber(), event.getTimestamp(),
+                                                   payload.getType().getName(), payload.getType().getRevision(),
+                                                   payload.getData(), metaData.getData());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public DomainEventStream readEvents(String type, Object identifier) {
+        SerializedDomainEventData lastSnapshotEvent = null;
+        List<SerializedDomainEventData> entriesAfterSnapshot = new ArrayList<SerializedDomainEventData>();
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = connectionProvider.getConnection();
+            statement = sqlDialect.selectLastSnapshotAndEvents(connection, type, identifier.toString(), batchSize);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                if (resultSet.getInt("isSnapshot") == 1) {
+                    lastSnapshotEvent = sqlDialect.readEventEntry(resultSet);
+                } else if (entriesAfterSnapshot.size() < batchSize) {
+                    entriesAfterSnapshot.add(sqlDialect.readEventEntry(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new EventStoreException("Failed to read events from the event store", e);
+        } finally {
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+            closeQuietly(connection);
+        }
+
+        DomainEventMessage snapshotEvent = null;
+        if (lastSnapshotEvent != null) {
+            try {
+                snapshotEvent = new GenericDomainEventMessage<Object>(
+                        identifier,
+                        lastSnapshotEvent.getSequenceNumber(),
+                        eventSerializer.deserialize(lastSnapshotEvent.getPayload()),
+                        (Map<String, Object>) eventSerializer.deserialize(lastSnapshotEvent.getMetaData()));
+            } catch (RuntimeException ex) {
+                logger.warn("Error while reading snapshot event entry. "
+                                    + "Reconstructing aggregate on entire event stream. Caused by: {} {}",
+                            ex.getClass().getName(),
+                            ex.getMessage());
+            } catch (LinkageError error) {
+                logger.warn("Error while reading snapshot event entry. "
+                                    + "Reconstructing aggregate on entire event stream. Caused by: {} {}",
+                            error.getClass().getName(),
+                            error.getMessage());
+            }
+        }
+
+        List<DomainEventMessage> events;
+        if (lastSnapshotEvent == null || snapshotEvent != null) {
+            events = upcastAndDeserialize(entriesAfterSnapshot, identifier);
+        } else {
+            // the snapshot could not be read, so the events preceding it are needed too
+            events = fetchBatch(type, identifier, 0);
+        }
+        if (snapshotEvent != null) {
+            events.add(0, snapshotEvent);
+        }
+        if (events.isEmpty()) {
+            throw new EventStreamNotFoundException(type, identifier);
+        }
+        return new BatchingDomainEventStream(events, identifier, type);
+    }
+
+    private List<DomainEventMessage> fetchBatch(String type, Object identifier, long firstSequenceNumber) {
+        List<SerializedDomainEventData> entries = new ArrayList<SerializedDomainEventData>(batchSize);
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = connectionProvider.getConnection();
+            statement = sqlDialect.selectEvents(connection, type, identifier.toString(), firstSequenceNumber,
+                                                batchSize);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                entries.add(sqlDialect.readEventEntry(resultSet));
+            }
+        } catch (SQLException e) {
+            throw new EventStoreException("Failed to read events from the event store", e);
+        } finally {
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+            closeQuietly(connection);
+        }
+        return upcastAndDeserialize(entries, identifier);
+    }
+
+    private List<DomainEventMessage> upcastAndDeserialize(List<? extends SerializedDomainEventData> entries,
+                                                          Object identifier) {
+        List<DomainEventMessage> events = new ArrayList<DomainEventMessage>(entries.size());
+        for (SerializedDomainEventData entry : entries) {
+            events.addAll(upcastAndDeserialize(entry, identifier));
+        }
+        return events;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DomainEventMessage> upcastAndDeserialize(SerializedDomainEventData entry, Object identifier) {
+        List<SerializedObject> objects = upcasterChain.upcast(entry.getPayload());
+        List<DomainEventMessage> events = new ArrayList<DomainEventMessage>(objects.size());
+        for (SerializedObject object : objects) {
+            events.add(new SerializedDomainEventMessage<Object>(
+                    new UpcastSerializedDomainEventData(entry, identifier, object), eventSerializer));
+        }
+        return events;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Upon appending a snapshot, this particular EventStore implementation also prunes snapshots which are considered
+     * redundant because they fall outside of the range of maximum snapshots to archive.
+     */
+    @Override
+    public void appendSnapshotEvent(String type, DomainEventMessage snapshotEvent) {
+        Connection connection = null;
+        try {
+            connection = connectionProvider.getConnection();
+            // Persist snapshot before pruning redundant archived ones, in order to prevent snapshot misses when
+            // reloading an aggregate, which may occur when a READ_UNCOMMITTED transaction isolation level is used.
+            executeUpdate(sqlDialect.insertSnapshotEvent(connection, type, serialize(snapshotEvent)));
+            if (maxSnapshotsArchived > 0) {
+                pruneSnapshots(connection, type, snapshotEvent.getAggregateIdentifier().toString());
+            }
+        } catch (SQLException e) {
+            throw new EventStoreException("Failed to store a snapshot event in the event store", e);
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    private void pruneSnapshots(Connection connection, String type, String aggregateIdentifier)
+            throws SQLException {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        Long sequenceOfFirstSnapshotToPrune = null;
+        try {
+            statement = sqlDialect.selectSnapshotSequenceNumbers(connection, type, aggregateIdentifier);
+            statement.setMaxRows(maxSnapshotsArchived + 1);
+            resultSet = statement.executeQuery();
+            for (int t = 0; t <= maxSnapshotsArchived && resultSet.next(); t++) {
+                if (t == maxSnapshotsArchived) {
+                    sequenceOfFirstSnapshotToPrune = resultSet.getLong(1);
+                }
+            }
+        } finally {
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+        }
+        if (sequenceOfFirstSnapshotToPrune != null) {
+            executeUpdate(sqlDialect.deleteSnapshots(connection, type, aggregateIdentifier,
+                                                     sequenceOfFirstSnapshotToPrune));
+        }
+    }
+
+    private void executeUpdate(PreparedStatement statement) throws SQLException {
+        try {
+            statement.executeUpdate();
+        } finally {
+            closeQuietly(statement);
+        }
+    }
+
+    @Override
+    public void visitEvents(EventVisitor visitor) {
+        doVisitEvents(visitor, null, Collections.<Object>emptyList());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This event store uses the same criteria as the JpaEventStore, as the expressions they generate are valid SQL
+     * as well. Properties refer to the columns of the domain event table.
+     */
+    @Override
+    public void visitEvents(Criteria criteria, EventVisitor visitor) {
+        StringBuilder sb = new StringBuilder();
+        ParameterRegistry parameters = new ParameterRegistry();
+        ((JpaCriteria) criteria).parse("e", sb, parameters);
+        List<Object> positionalParameters = new ArrayList<Object>();
+        String whereClause = toPositionalParameters(sb.toString(), parameters.getParameters(), positionalParameters);
+        doVisitEvents(visitor, whereClause, positionalParameters);
+    }
+
+    /**
+     * Replaces the named parameters in the given JPA <code>whereClause</code> with JDBC placeholders, adding the
+     * value of each parameter to the given <code>positionalParameters</code> in order of appearance. Collection values
+     * are expanded into a placeholder for each element.
+     */
+    private String toPositionalParameters(String whereClause, Map<String, Object> namedParameters,
+                                          List<Object> positionalParameters) {
+        Matcher matcher = PARAMETER_PATTERN.matcher(whereClause);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            Object value = namedParameters.get(matcher.group(1));
+            StringBuilder placeholders = new StringBuilder();
+            if (value instanceof Collection) {
+                for (Object element : (Collection) value) {
+                    placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+                    positionalParameters.add(toSqlValue(element));
+                }
+            } else {
+                placeholders.append("?");
+                positionalParameters.add(toSqlValue(value));
+            }
+            matcher.appendReplacement(sb, placeholders.toString());
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private Object toSqlValue(Object value) {
+        if (value instanceof DateTime) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    @Override
+    public CriteriaBuilder newCriteriaBuilder() {
+        return new JpaCriteriaBuilder();
+    }
+
+    private void doVisitEvents(EventVisitor visitor, String whereClause, List<Object> parameters) {
+        String lastTimeStamp = null;
+        String lastType = null;
+        String lastAggregateIdentifier = null;
+        long lastSequenceNumber = -1;
+        boolean shouldContinue = true;
+        while (shouldContinue) {
+            List<SerializedDomainEventData> batch = new ArrayList<SerializedDomainEventData>(batchSize);
+            Connection connection = null;
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            try {
+                connection = connectionProvider.getConnection();
+                statement = sqlDialect.selectFilteredEvents(connection, whereClause, parameters, lastTimeStamp,
+                                                            lastType, lastAggregateIdentifier, lastSequenceNumber,
+                                                            batchSize);
+                resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    batch.add(sqlDialect.readEventEntry(resultSet));
+                    lastTimeStamp = resultSet.getString("timeStamp");
+                    lastType = resultSet.getString("type");
+                    lastAggregateIdentifier = resultSet.getString("aggregateIdentifier");
+                    lastSequenceNumber = resultSet.getLong("sequenceNumber");
+                }
+            } catch (SQLException e) {
+                throw new EventStoreException("Failed to read events from the event store", e);
+            } finally {
+                closeQuietly(resultSet);
+                closeQuietly(statement);
+                closeQuietly(connection);
+            }
+            for (SerializedDomainEventData entry : batch) {
+                for (DomainEventMessage domainEventMessage : upcastAndDeserialize(entry,
+                                                                                  entry.getAggregateIdentifier())) {
+                    visitor.doWithEvent(domainEventMessage);
+                }
+            }
+            shouldContinue = batch.size() >= batchSize;
+        }
+    }
+
+    /**
+     * Registers the data source that allows the EventStore to detect the database type and define the error codes that
+     * represent concurrent access failures.
+     * <p/>
+     * Should not be used in combination with {@link #setPersistenceExceptionResolver(PersistenceExceptionResolver)},
+     * but rather as a shorthand alternative for most common database types.
+     *
+     * @param dataSource A data source providing access to the backing database
+     * @throws SQLException If an error occurs while accessing the dataSource
+     */
+    public void setDataSource(DataSource dataSource) throws SQLException {
+        if (persistenceExceptionResolver == null) {
+            persistenceExceptionResolver = new SQLErrorCodesResolver(dataSource);
+        }
+    }
+
+    /**
+     * Sets the persistenceExceptionResolver that will help detect concurrency exceptions from the backing database.
+     *
+     * @param persistenceExceptionResolver the persistenceExceptionResolver that will help detect concurrency
+     *                                     exceptions
+     */
+    public void setPersistenceExceptionResolver(PersistenceExceptionResolver persistenceExceptionResolver) {
+        this.persistenceExceptionResolver = persistenceExceptionResolver;
+    }
+
+    /**
+     * Sets the number of events that should be read at each database access. When more than this number of events must
+     * be read to rebuild an aggregate's state, the events are read in batches of this size. Defaults to 100.
+     *
+     * @param batchSize the number of events to read on each database access. Default to 100.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void setUpcasterChain(UpcasterChain upcasterChain) {
+        this.upcasterChain = upcasterChain;
+    }
+
+    /**
+     * Sets the maximum number of snapshots to archive for an aggregate. The EventStore will keep at most this number
+     * of snapshots per aggregate.
+     * <p/>
+     * Defaults to {@value #DEFAULT_MAX_SNAPSHOTS_ARCHIVED}.
+     *
+     * @param maxSnapshotsArchived The maximum number of snapshots to archive for an aggregate. A value less than 1
+     *                             disables pruning of snapshots.
+     */
+    public void setMaxSnapshotsArchived(int maxSnapshotsArchived) {
+        this.maxSnapshotsArchived = maxSnapshotsArchived;
+    }
+
+    private final class BatchingDomainEventStream implements DomainEventStream {
+
+        private int currentBatchSize;
+        private Iterator<DomainEventMessage> currentBatch;
+        private DomainEventMessage next;
+        private final Object id;
+        private final String typeId;
+
+        private BatchingDomainEventStream(List<DomainEventMessage> firstBatch, Object id, String typeId) {
+            this.id = id;
+            this.typeId = typeId;
+            this.currentBatchSize = firstBatch.size();
+            this.currentBatch = firstBatch.iterator();
+            if (currentBatch.hasNext()) {
+                next = currentBatch.next();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public DomainEventMessage next() {
+            DomainEventMessage current = next;
+            if (next != null && !currentBatch.hasNext() && currentBatchSize >= batchSize) {
+                logger.debug("Fetching new batch for Aggregate [{}]", id);
+                List<DomainEventMessage> newBatch = fetchBatch(typeId, id, next.getSequenceNumber() + 1);
+                currentBatchSize = newBatch.size();
+                currentBatch = newBatch.iterator();
+            }
+            next = currentBatch.hasNext() ? currentBatch.next() : null;
+            return current;
+        }
+
+        @Override
+        public DomainEventMessage peek() {
+            return next;
+        }
+    }
+}
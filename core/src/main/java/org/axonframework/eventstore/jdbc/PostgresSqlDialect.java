@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jdbc;
+
+/**
+ * SqlDialect implementation for PostgreSQL, which stores binary data in <code>bytea</code> columns.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class PostgresSqlDialect extends GenericSqlDialect {
+
+    /**
+     * Initialize the dialect using the default table names: <code>DomainEventEntry</code> and
+     * <code>SnapshotEventEntry</code>.
+     */
+    public PostgresSqlDialect() {
+        super();
+    }
+
+    /**
+     * Initialize the dialect using the given <code>domainEventTable</code> and <code>snapshotEventTable</code> names.
+     *
+     * @param domainEventTable   The name of the table to store domain events in
+     * @param snapshotEventTable The name of the table to store snapshot events in
+     */
+    public PostgresSqlDialect(String domainEventTable, String snapshotEventTable) {
+        super(domainEventTable, snapshotEventTable);
+    }
+
+    @Override
+    protected String blobType() {
+        return "bytea";
+    }
+}
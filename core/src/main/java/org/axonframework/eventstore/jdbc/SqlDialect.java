@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jdbc;
+
+import org.axonframework.serializer.SerializedDomainEventData;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Interface describing the SQL statements used by the {@link JdbcEventStore}. Implementations may use database
+ * specific syntax and types, as long as the result sets returned by the select statements contain the columns
+ * expected by {@link #readEventEntry(java.sql.ResultSet)}.
+ * <p/>
+ * Each method returns a statement that is ready to be executed. The caller is responsible for closing it.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface SqlDialect {
+
+    /**
+     * Creates a statement that creates the table to store domain events in.
+     *
+     * @param connection The connection to create the statement with
+     * @return a statement that creates the domain event table
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement createDomainEventTable(Connection connection) throws SQLException;
+
+    /**
+     * Creates a statement that creates the table to store snapshot events in.
+     *
+     * @param connection The connection to create the statement with
+     * @return a statement that creates the snapshot event table
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement createSnapshotEventTable(Connection connection) throws SQLException;
+
+    /**
+     * Creates a statement that inserts all given <code>events</code>, generated by an aggregate of given
+     * <code>type</code>. The statement is to be executed as a batch, using {@link PreparedStatement#executeBatch()}.
+     *
+     * @param connection The connection to create the statement with
+     * @param type       The type identifier of the aggregate that generated the events
+     * @param events     The serialized events to insert
+     * @return a statement that inserts the events as a batch
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement insertDomainEvents(Connection connection, String type,
+                                         List<? extends SerializedDomainEventData> events) throws SQLException;
+
+    /**
+     * Creates a statement that inserts the given <code>snapshot</code> event, for an aggregate of given
+     * <code>type</code>.
+     *
+     * @param connection The connection to create the statement with
+     * @param type       The type identifier of the aggregate the snapshot was taken of
+     * @param snapshot   The serialized snapshot event to insert
+     * @return a statement that inserts the snapshot event
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement insertSnapshotEvent(Connection connection, String type, SerializedDomainEventData snapshot)
+            throws SQLException;
+
+    /**
+     * Creates a statement that selects at most <code>batchSize</code> events of the aggregate of given
+     * <code>type</code> and <code>aggregateIdentifier</code>, starting at given <code>firstSequenceNumber</code>,
+     * ordered by sequence number.
+     *
+     * @param connection          The connection to create the statement with
+     * @param type                The type identifier of the aggregate
+     * @param aggregateIdentifier The identifier of the aggregate
+     * @param firstSequenceNumber The sequence number of the first event to select
+     * @param batchSize           The maximum number of events to select
+     * @return a statement selecting the events
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement selectEvents(Connection connection, String type, String aggregateIdentifier,
+                                   long firstSequenceNumber, int batchSize) throws SQLException;
+
+    /**
+     * Creates a statement that selects the last snapshot event of the aggregate of given <code>type</code> and
+     * <code>aggregateIdentifier</code>, followed by at most <code>batchSize</code> events following that snapshot,
+     * ordered by sequence number. If no snapshot exists, the first <code>batchSize</code> events of the aggregate are
+     * selected.
+     * <p/>
+     * Besides the columns expected by {@link #readEventEntry(java.sql.ResultSet)}, the result set contains an
+     * <code>isSnapshot</code> column, with value <code>1</code> for the snapshot and <code>0</code> for events.
+     *
+     * @param connection          The connection to create the statement with
+     * @param type                The type identifier of the aggregate
+     * @param aggregateIdentifier The identifier of the aggregate
+     * @param batchSize           The maximum number of events to select
+     * @return a statement selecting the last snapshot and the events following it
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement selectLastSnapshotAndEvents(Connection connection, String type, String aggregateIdentifier,
+                                                  int batchSize) throws SQLException;
+
+    /**
+     * Creates a statement that selects the sequence numbers of all snapshot events of the aggregate of given
+     * <code>type</code> and <code>aggregateIdentifier</code>, with the highest sequence number first.
+     *
+     * @param connection          The connection to create the statement with
+     * @param type                The type identifier of the aggregate
+     * @param aggregateIdentifier The identifier of the aggregate
+     * @return a statement selecting the snapshot sequence numbers
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement selectSnapshotSequenceNumbers(Connection connection, String type, String aggregateIdentifier)
+            throws SQLException;
+
+    /**
+     * Creates a statement that deletes all snapshot events of the aggregate of given <code>type</code> and
+     * <code>aggregateIdentifier</code> with a sequence number lower than or equal to given
+     * <code>maxSequenceNumber</code>.
+     *
+     * @param connection          The connection to create the statement with
+     * @param type                The type identifier of the aggregate
+     * @param aggregateIdentifier The identifier of the aggregate
+     * @param maxSequenceNumber   The sequence number of the last snapshot to delete
+     * @return a statement deleting the snapshots
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement deleteSnapshots(Connection connection, String type, String aggregateIdentifier,
+                                      long maxSequenceNumber) throws SQLException;
+
+    /**
+     * Creates a statement that selects at most <code>batchSize</code> events that match the given
+     * <code>whereClause</code>, ordered by time stamp, aggregate type, aggregate identifier and sequence number. The
+     * where clause
+     * refers to the domain event table using alias <code>e</code>, and contains a <code>?</code> placeholder for each
+     * of the given <code>parameters</code>. If the clause is <code>null</code> or empty, no filter is applied.
+     * <p/>
+     * When <code>lastTimeStamp</code> is not <code>null</code>, only events following the event with given
+     * <code>lastTimeStamp</code>, <code>lastType</code>, <code>lastAggregateIdentifier</code> and
+     * <code>lastSequenceNumber</code> in the aforementioned order are selected. The selected rows contain the
+     * aggregate type in a column named <code>type</code>.
+     *
+     * @param connection              The connection to create the statement with
+     * @param whereClause             The SQL clause to be included after the WHERE keyword
+     * @param parameters              The values for the placeholders in the where clause
+     * @param lastTimeStamp           The time stamp of the last event of the previous batch, if any
+     * @param lastType                The aggregate type of the last event of the previous batch, if any
+     * @param lastAggregateIdentifier The aggregate identifier of the last event of the previous batch, if any
+     * @param lastSequenceNumber      The sequence number of the last event of the previous batch, if any
+     * @param batchSize               The maximum number of events to select
+     * @return a statement selecting the events
+     *
+     * @throws SQLException when an error occurs creating the statement
+     */
+    PreparedStatement selectFilteredEvents(Connection connection, String whereClause, List<Object> parameters,
+                                           String lastTimeStamp, String lastType, String lastAggregateIdentifier,
+                                           long lastSequenceNumber, int batchSize) throws SQLException;
+
+    /**
+     * Reads the event entry at the current row of the given <code>resultSet</code>. The result set contains the
+     * columns <code>eventIdentifier</code>, <code>aggregateIdentifier</code>, <code>sequenceNumber</code>,
+     * <code>timeStamp</code>, <code>payloadType</code>, <code>payloadRevision</code>, <code>payload</code> and
+     * <code>metaData</code>.
+     *
+     * @param resultSet The result set positioned at the row to read
+     * @return the serialized representation of the event entry
+     *
+     * @throws SQLException when an error occurs reading from the result set
+     */
+    SerializedDomainEventData readEventEntry(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.serializer.SerializedDomainEventData;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+
+/**
+ * EventEntryStore that is capable of storing multiple events in a single operation. When the EventEntryStore
+ * configured on the {@link JpaEventStore} implements this interface, all events in an appended DomainEventStream are
+ * passed to the store at once, instead of one by one using {@link #persistEvent(String,
+ * org.axonframework.domain.DomainEventMessage, org.axonframework.serializer.SerializedObject,
+ * org.axonframework.serializer.SerializedObject, javax.persistence.EntityManager) persistEvent(...)}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface BatchingEventEntryStore extends EventEntryStore {
+
+    /**
+     * Persists the given serialized <code>events</code> in the backing data store in a single operation. The events
+     * are all generated by the same aggregate, and are given in the order in which they have been applied.
+     * <p/>
+     * These events should be returned by the <code>fetchBatch(...)</code> methods.
+     *
+     * @param aggregateType The type identifier of the aggregate that generated the events
+     * @param events        The serialized representation of the events to store
+     * @param entityManager The entity manager providing access to the data store
+     */
+    void persistEvents(String aggregateType, List<? extends SerializedDomainEventData> events,
+                       EntityManager entityManager);
+}
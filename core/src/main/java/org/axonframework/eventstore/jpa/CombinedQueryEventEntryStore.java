@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.serializer.SerializedDomainEventData;
+
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+
+/**
+ * EventEntryStore that loads the last snapshot of an aggregate and the events following it using a single native
+ * query, instead of one query to load the snapshot and another one to load the events. All other operations are
+ * performed by the {@link DefaultEventEntryStore}.
+ * <p/>
+ * Since the combined query is a native SQL query, it depends on the way the DomainEventEntry and SnapshotEventEntry
+ * entities are mapped to the database. It assumes the column names are equal to the names of the entity properties,
+ * as is the default in JPA. The table names default to the entity names, and can be provided using {@link
+ * #CombinedQueryEventEntryStore(String, String)}. Do not use this implementation when the columns have been mapped
+ * differently, for example using <code>@Column</code> overrides, an <code>orm.xml</code> mapping or a naming strategy.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class CombinedQueryEventEntryStore extends DefaultEventEntryStore implements CombinedSnapshotEventEntryStore {
+
+    private static final String DEFAULT_DOMAIN_EVENT_ENTRY_TABLE = "DomainEventEntry";
+    private static final String DEFAULT_SNAPSHOT_EVENT_ENTRY_TABLE = "SnapshotEventEntry";
+
+    private final String lastSnapshotAndEventsQuery;
+
+    /**
+     * Initialize the EventEntryStore, assuming the DomainEventEntry and SnapshotEventEntry entities are mapped to
+     * tables with the same name as the entity, as is the default in JPA.
+     */
+    public CombinedQueryEventEntryStore() {
+        this(DEFAULT_DOMAIN_EVENT_ENTRY_TABLE, DEFAULT_SNAPSHOT_EVENT_ENTRY_TABLE);
+    }
+
+    /**
+     * Initialize the EventEntryStore for DomainEventEntry and SnapshotEventEntry entities mapped to tables with given
+     * <code>domainEventEntryTable</code> and <code>snapshotEventEntryTable</code> names.
+     *
+     * @param domainEventEntryTable   The name of the table the DomainEventEntry entity is mapped to
+     * @param snapshotEventEntryTable The name of the table the SnapshotEventEntry entity is mapped to
+     */
+    public CombinedQueryEventEntryStore(String domainEventEntryTable, String snapshotEventEntryTable) {
+        String columns = "eventIdentifier, aggregateIdentifier, sequenceNumber, timeStamp, payloadType, "
+                + "payloadRevision, payload, metaData";
+        String lastSnapshotSequenceNumber = "SELECT MAX(s2.sequenceNumber) FROM " + snapshotEventEntryTable + " s2 "
+                + "WHERE s2.aggregateIdentifier = ?1 AND s2.type = ?2";
+        this.lastSnapshotAndEventsQuery = "SELECT * FROM ("
+                + "SELECT 1 AS isSnapshot, " + columns + " FROM " + snapshotEventEntryTable + " s "
+                + "WHERE s.aggregateIdentifier = ?1 AND s.type = ?2 "
+                + "AND s.sequenceNumber = (" + lastSnapshotSequenceNumber + ") "
+                + "UNION ALL "
+                + "SELECT 0 AS isSnapshot, " + columns + " FROM " + domainEventEntryTable + " e "
+                + "WHERE e.aggregateIdentifier = ?1 AND e.type = ?2 "
+                + "AND e.sequenceNumber > COALESCE((" + lastSnapshotSequenceNumber + "), -1)"
+                + ") entries ORDER BY isSnapshot DESC, sequenceNumber ASC";
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked"})
+    public SnapshotAndEvents loadLastSnapshotAndEvents(String aggregateType, Object identifier, int batchSize,
+                                                       EntityManager entityManager) {
+        List<Object[]> rows = entityManager.createNativeQuery(lastSnapshotAndEventsQuery)
+                                           .setParameter(1, identifier.toString())
+                                           .setParameter(2, aggregateType)
+                                           .setMaxResults(batchSize + 1)
+                                           .getResultList();
+        SerializedDomainEventData snapshot = null;
+        List<SerializedDomainEventData> events = new ArrayList<SerializedDomainEventData>(rows.size());
+        for (Object[] row : rows) {
+            SerializedDomainEventData entry = new SimpleSerializedDomainEventData(
+                    (String) row[1], (String) row[2], ((Number) row[3]).longValue(), row[4],
+                    (String) row[5], (String) row[6], toBytes(row[7]), toBytes(row[8]));
+            if (((Number) row[0]).intValue() == 1) {
+                snapshot = entry;
+            } else if (events.size() < batchSize) {
+                events.add(entry);
+            }
+        }
+        return new SnapshotAndEvents(snapshot, events);
+    }
+
+    private static byte[] toBytes(Object lob) {
+        if (lob instanceof Blob) {
+            Blob blob = (Blob) lob;
+            try {
+                return blob.getBytes(1, (int) blob.length());
+            } catch (SQLException e) {
+                throw new EventStoreException("Failed to read the contents of an event entry", e);
+            }
+        }
+        return (byte[]) lob;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import javax.persistence.EntityManager;
+
+/**
+ * EventEntryStore that is capable of loading the last snapshot of an aggregate and the events following it in a
+ * single operation. When the EventEntryStore configured on the {@link JpaEventStore} implements this interface,
+ * reading an event stream requires a single round trip to the database, instead of one to load the snapshot and
+ * another one to load the events.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface CombinedSnapshotEventEntryStore extends EventEntryStore {
+
+    /**
+     * Load the last known snapshot event for aggregate of given <code>type</code> with given <code>identifier</code>,
+     * as well as at most <code>batchSize</code> events that follow it, using given <code>entityManager</code>. When no
+     * snapshot exists, the first <code>batchSize</code> events of the aggregate are returned.
+     *
+     * @param aggregateType The type identifier of the aggregate that generated the events
+     * @param identifier    The identifier of the aggregate to load the snapshot and events for
+     * @param batchSize     The maximum number of events to return
+     * @param entityManager The entity manager providing access to the data store
+     * @return the last snapshot event (if any) and the events following it
+     */
+    SnapshotAndEvents loadLastSnapshotAndEvents(String aggregateType, Object identifier, int batchSize,
+                                                EntityManager entityManager);
+}
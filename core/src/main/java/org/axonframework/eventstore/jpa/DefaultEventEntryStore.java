@@ -17,12 +17,14 @@
 package org.axonframework.eventstore.jpa;
 
 import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.serializer.SerializedDomainEventData;
 import org.axonframework.serializer.SerializedObject;
 import org.joda.time.DateTime;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
@@ -31,11 +33,14 @@ import javax.persistence.Query;
  * SnapshotEventEntry entities.
  * <p/>
  * This implementation requires that the aforementioned instances are available in the current persistence context.
+ * <p/>
+ * Filtered selections of events are streamed using keyset pagination: each batch continues after the (time stamp,
+ * aggregate type, aggregate identifier, sequence number) of the last event of the previous batch.
  *
  * @author Allard Buijze
  * @since 1.2
  */
-public class DefaultEventEntryStore implements EventEntryStore {
+public class DefaultEventEntryStore implements StreamingEventEntryStore {
 
     @Override
     @SuppressWarnings({"unchecked"})
@@ -82,6 +87,17 @@ public class DefaultEventEntryStore implements EventEntryStore {
                               whereClause != null && whereClause.length() > 0 ? "WHERE " + whereClause : ""))
                                    .setFirstResult(startPosition)
                                    .setMaxResults(batchSize);
+        setParameters(query, parameters);
+        return query.getResultList();
+    }
+
+    @Override
+    public Iterator<SerializedDomainEventData> fetchFiltered(String whereClause, Map<String, Object> parameters,
+                                                             int batchSize, EntityManager entityManager) {
+        return new KeysetBatchingIterator(whereClause, parameters, batchSize, entityManager);
+    }
+
+    private static void setParameters(Query query, Map<String, Object> parameters) {
         for (Map.Entry<String, Object> entry : parameters.entrySet()) {
             Object value = entry.getValue();
             if (value instanceof DateTime) {
@@ -89,7 +105,6 @@ public class DefaultEventEntryStore implements EventEntryStore {
             }
             query.setParameter(entry.getKey(), value);
         }
-        return query.getResultList();
     }
 
     @Override
@@ -161,4 +176,84 @@ public class DefaultEventEntryStore implements EventEntryStore {
                 .setMaxResults(batchSize)
                 .getResultList();
     }
+
+    /**
+     * Iterator that reads filtered events in batches, where each batch starts right after the key of the last event
+     * of the previous batch. This keeps the cost of each query independent of the position in the event table.
+     */
+    private static final class KeysetBatchingIterator implements Iterator<SerializedDomainEventData> {
+
+        private final String queryString;
+        private final String keysetQueryString;
+        private final Map<String, Object> parameters;
+        private final int batchSize;
+        private final EntityManager entityManager;
+        private Iterator<Object[]> currentBatch;
+        private boolean lastBatchFull;
+        private Object[] lastRow;
+
+        private KeysetBatchingIterator(String whereClause, Map<String, Object> parameters, int batchSize,
+                                       EntityManager entityManager) {
+            boolean hasFilter = whereClause != null && whereClause.length() > 0;
+            String select = "SELECT e.eventIdentifier, e.aggregateIdentifier, e.sequenceNumber, e.timeStamp, "
+                    + "e.payloadType, e.payloadRevision, e.payload, e.metaData, e.type FROM DomainEventEntry e ";
+            String keyset = "(e.timeStamp > :lastTimeStamp OR (e.timeStamp = :lastTimeStamp "
+                    + "AND (e.type > :lastType OR (e.type = :lastType "
+                    + "AND (e.aggregateIdentifier > :lastAggregateIdentifier "
+                    + "OR (e.aggregateIdentifier = :lastAggregateIdentifier "
+                    + "AND e.sequenceNumber > :lastSequenceNumber))))))";
+            String orderBy = " ORDER BY e.timeStamp ASC, e.type ASC, e.aggregateIdentifier ASC, "
+                    + "e.sequenceNumber ASC";
+            this.queryString = select + (hasFilter ? "WHERE " + whereClause : "") + orderBy;
+            this.keysetQueryString = select + "WHERE " + (hasFilter ? "(" + whereClause + ") AND " : "") + keyset
+                    + orderBy;
+            this.parameters = parameters;
+            this.batchSize = batchSize;
+            this.entityManager = entityManager;
+            fetchBatch();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void fetchBatch() {
+            Query query;
+            if (lastRow == null) {
+                query = entityManager.createQuery(queryString);
+            } else {
+                query = entityManager.createQuery(keysetQueryString)
+                                     .setParameter("lastTimeStamp", lastRow[3])
+                                     .setParameter("lastType", lastRow[8])
+                                     .setParameter("lastAggregateIdentifier", lastRow[1])
+                                     .setParameter("lastSequenceNumber", lastRow[2]);
+            }
+            setParameters(query, parameters);
+            List<Object[]> batch = query.setMaxResults(batchSize).getResultList();
+            lastBatchFull = batch.size() >= batchSize;
+            currentBatch = batch.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!currentBatch.hasNext() && lastBatchFull) {
+                fetchBatch();
+            }
+            return currentBatch.hasNext();
+        }
+
+        @Override
+        public SerializedDomainEventData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more events matching the criteria");
+            }
+            lastRow = currentBatch.next();
+            return new SimpleSerializedDomainEventData((String) lastRow[0], (String) lastRow[1],
+                                                       (Long) lastRow[2], lastRow[3],
+                                                       (String) lastRow[4], (String) lastRow[5],
+                                                       (byte[]) lastRow[6], (byte[]) lastRow[7]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Events cannot be removed from the event store");
+        }
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.common.jdbc.ConnectionProvider;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.serializer.SerializedDomainEventData;
+import org.axonframework.serializer.SerializedObject;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import javax.persistence.EntityManager;
+
+import static org.axonframework.common.jdbc.JdbcUtils.closeQuietly;
+
+/**
+ * EventEntryStore implementation that writes Domain Events using JDBC batch updates, instead of persisting a
+ * DomainEventEntry entity for each event. All events in an appended stream are written using a single prepared
+ * statement, which is executed as a single batch. Reading events and storing snapshots is delegated to the {@link
+ * DefaultEventEntryStore}.
+ * <p/>
+ * The events are inserted into the table mapped by the {@link DomainEventEntry} entity. The given {@link
+ * ConnectionProvider} must provide the connection used by the EntityManager in the current transaction (e.g. a {@link
+ * org.axonframework.common.jdbc.SpringDataSourceConnectionProvider} when using Spring's JpaTransactionManager).
+ * Otherwise, events will not be written in the same transaction as other changes made through the EntityManager.
+ * <p/>
+ * Note that the insert statement is identical for each invocation. Configure statement caching on the DataSource to
+ * have it reuse the prepared statement across invocations.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class JdbcBatchingEventEntryStore extends DefaultEventEntryStore implements BatchingEventEntryStore {
+
+    private static final String DEFAULT_TABLE_NAME = "DomainEventEntry";
+
+    private final ConnectionProvider connectionProvider;
+    private final String insertStatement;
+
+    /**
+     * Initialize the EventEntryStore, using given <code>connectionProvider</code> to obtain connections to the
+     * database. Events are written to the default table for the {@link DomainEventEntry} entity.
+     *
+     * @param connectionProvider The provider of the connection used by the EntityManager
+     */
+    public JdbcBatchingEventEntryStore(ConnectionProvider connectionProvider) {
+        this(connectionProvider, DEFAULT_TABLE_NAME);
+    }
+
+    /**
+     * Initialize the EventEntryStore, using given <code>connectionProvider</code> to obtain connections to the
+     * database, writing events in the table with given <code>domainEventEntryTable</code> name. Use this constructor
+     * if the DomainEventEntry entity has been mapped to a different table.
+     *
+     * @param connectionProvider    The provider of the connection used by the EntityManager
+     * @param domainEventEntryTable The name of the table the DomainEventEntry entity is mapped to
+     */
+    public JdbcBatchingEventEntryStore(ConnectionProvider connectionProvider, String domainEventEntryTable) {
+        this.connectionProvider = connectionProvider;
+        this.insertStatement = "INSERT INTO " + domainEventEntryTable
+                + " (type, aggregateIdentifier, sequenceNumber, eventIdentifier, timeStamp, payloadType, "
+                + "payloadRevision, payload, metaData) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    public void persistEvents(String aggregateType, List<? extends SerializedDomainEventData> events,
+                              EntityManager entityManager) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = connectionProvider.getConnection();
+            statement = connection.prepareStatement(insertStatement);
+            for (SerializedDomainEventData event : events) {
+                SerializedObject payload = event.getPayload();
+                statement.setString(1, aggregateType);
+                statement.setString(2, event.getAggregateIdentifier().toString());
+                statement.setLong(3, event.getSequenceNumber());
+                statement.setString(4, event.getEventIdentifier());
+                statement.setString(5, event.getTimestamp().toString());
+                statement.setString(6, payload.getType().getName());
+                statement.setString(7, payload.getType().getRevision());
+                statement.setBytes(8, (byte[]) payload.getData());
+                statement.setBytes(9, (byte[]) event.getMetaData().getData());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new EventStoreException("Failed to store a batch of events in the event store", e);
+        } finally {
+            closeQuietly(statement);
+            closeQuietly(connection);
+        }
+    }
+}
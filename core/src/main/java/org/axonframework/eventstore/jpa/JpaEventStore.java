@@ -16,6 +16,7 @@
 
 package org.axonframework.eventstore.jpa;
 
+import org.axonframework.common.Assert;
 import org.axonframework.common.jpa.EntityManagerProvider;
 import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
@@ -28,7 +29,8 @@ import org.axonframework.eventstore.jpa.criteria.JpaCriteriaBuilder;
 import org.axonframework.eventstore.jpa.criteria.ParameterRegistry;
 import org.axonframework.eventstore.management.Criteria;
 import org.axonframework.eventstore.management.CriteriaBuilder;
-import org.axonframework.eventstore.management.EventStoreManagement;
+import org.axonframework.eventstore.management.PartitionedEventDispatcher;
+import org.axonframework.eventstore.management.PartitionedEventStoreManagement;
 import org.axonframework.repository.ConcurrencyException;
 import org.axonframework.serializer.SerializedDomainEventData;
 import org.axonframework.serializer.SerializedDomainEventMessage;
@@ -46,8 +48,13 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.persistence.EntityManager;
 import javax.sql.DataSource;
 
@@ -63,17 +70,28 @@ import static org.axonframework.common.IdentifierValidator.validateIdentifier;
  * maximum number of snapshots to archive}. By default snapshot pruning is configured to archive only {@value
  * #DEFAULT_MAX_SNAPSHOTS_ARCHIVED} snapshot per aggregate.
  * <p/>
+ * When the configured EventEntryStore is a {@link BatchingEventEntryStore}, all events of an appended stream are passed
+ * to it in a single invocation, allowing it to write them in a single batch. Similarly, when it is a {@link
+ * StreamingEventEntryStore}, events are visited by streaming through them instead of paging through them using
+ * offsets. And when it is a {@link CombinedSnapshotEventEntryStore}, such as the {@link
+ * CombinedQueryEventEntryStore}, the last snapshot of an aggregate and the events following it are loaded in a single
+ * round trip.
+ * <p/>
+ * Events may be visited in parallel partitions, in which case a single thread reads the entries, while the
+ * deserialization and visiting of the events is done by a worker for each partition.
+ * <p/>
  * The serializer used to serialize the events is configurable. By default, the {@link XStreamSerializer} is used.
  *
  * @author Allard Buijze
  * @since 0.5
  */
-public class JpaEventStore implements SnapshotEventStore, EventStoreManagement, UpcasterAware {
+public class JpaEventStore implements SnapshotEventStore, PartitionedEventStoreManagement, UpcasterAware {
 
     private static final Logger logger = LoggerFactory.getLogger(JpaEventStore.class);
 
     private static final int DEFAULT_BATCH_SIZE = 100;
     private static final int DEFAULT_MAX_SNAPSHOTS_ARCHIVED = 1;
+    private static final int DEFAULT_PREFETCH_DEPTH = 1;
 
     private final Serializer eventSerializer;
     private final EventEntryStore eventEntryStore;
@@ -81,6 +99,8 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
     private UpcasterChain upcasterChain = SimpleUpcasterChain.EMPTY;
     private final EntityManagerProvider entityManagerProvider;
     private int maxSnapshotsArchived = DEFAULT_MAX_SNAPSHOTS_ARCHIVED;
+    private Executor prefetchExecutor;
+    private int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
 
     private PersistenceExceptionResolver persistenceExceptionResolver;
 
@@ -140,6 +160,10 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
      */
     @Override
     public void appendEvents(String type, DomainEventStream events) {
+        if (eventEntryStore instanceof BatchingEventEntryStore) {
+            appendEventBatch(type, events, (BatchingEventEntryStore) eventEntryStore);
+            return;
+        }
         DomainEventMessage event = null;
         try {
             EntityManager entityManager = entityManagerProvider.getEntityManager();
@@ -164,6 +188,42 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void appendEventBatch(String type, DomainEventStream events, BatchingEventEntryStore batchingStore) {
+        if (!events.hasNext()) {
+            return;
+        }
+        DomainEventMessage firstEvent = events.peek();
+        List<SerializedDomainEventData> entries = new ArrayList<SerializedDomainEventData>();
+        while (events.hasNext()) {
+            DomainEventMessage event = events.next();
+            validateIdentifier(event.getAggregateIdentifier().getClass());
+            SerializedObject<byte[]> payload = eventSerializer.serialize(event.getPayload(), byte[].class);
+            SerializedObject<byte[]> metaData = eventSerializer.serialize(event.getMetaData(), byte[].class);
+            entries.add(new SimpleSerializedDomainEventData(event.getIdentifier(),
+                                                            event.getAggregateIdentifier().toString(),
+                                                            event.getSequenceNumber(), event.getTimestamp(),
+                                                            payload.getType().getName(),
+                                                            payload.getType().getRevision(),
+                                                            payload.getData(), metaData.getData()));
+        }
+        try {
+            batchingStore.persistEvents(type, entries, entityManagerProvider.getEntityManager());
+        } catch (RuntimeException exception) {
+            if (persistenceExceptionResolver != null
+                    && persistenceExceptionResolver.isDuplicateKeyViolation(exception)) {
+                throw new ConcurrencyException(
+                        String.format("Concurrent modification detected for Aggregate identifier [%s], "
+                                              + "sequence range: [%s - %s]",
+                                      firstEvent.getAggregateIdentifier(),
+                                      firstEvent.getSequenceNumber(),
+                                      entries.get(entries.size() - 1).getSequenceNumber()),
+                        exception);
+            }
+            throw exception;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -172,8 +232,16 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
     public DomainEventStream readEvents(String type, Object identifier) {
         long snapshotSequenceNumber = -1;
         EntityManager entityManager = entityManagerProvider.getEntityManager();
-        SerializedDomainEventData lastSnapshotEvent = eventEntryStore.loadLastSnapshotEvent(type, identifier,
-                                                                                            entityManager);
+        SerializedDomainEventData lastSnapshotEvent;
+        List<? extends SerializedDomainEventData> entriesAfterSnapshot = null;
+        if (eventEntryStore instanceof CombinedSnapshotEventEntryStore) {
+            SnapshotAndEvents snapshotAndEvents = ((CombinedSnapshotEventEntryStore) eventEntryStore)
+                    .loadLastSnapshotAndEvents(type, identifier, batchSize, entityManager);
+            lastSnapshotEvent = snapshotAndEvents.getSnapshot();
+            entriesAfterSnapshot = snapshotAndEvents.getEvents();
+        } else {
+            lastSnapshotEvent = eventEntryStore.loadLastSnapshotEvent(type, identifier, entityManager);
+        }
         DomainEventMessage snapshotEvent = null;
         if (lastSnapshotEvent != null) {
             try {
@@ -196,7 +264,13 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
             }
         }
 
-        List<DomainEventMessage> events = fetchBatch(type, identifier, snapshotSequenceNumber + 1);
+        List<DomainEventMessage> events;
+        if (entriesAfterSnapshot != null && (lastSnapshotEvent == null || snapshotEvent != null)) {
+            events = upcastAndDeserialize(entriesAfterSnapshot, identifier);
+        } else {
+            // the snapshot could not be read, so the events preceding it are needed too
+            events = fetchBatch(type, identifier, snapshotSequenceNumber + 1);
+        }
         if (snapshotEvent != null) {
             events.add(0, snapshotEvent);
         }
@@ -214,6 +288,11 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
                                                                                        firstSequenceNumber,
                                                                                        batchSize,
                                                                                        entityManager);
+        return upcastAndDeserialize(entries, identifier);
+    }
+
+    private List<DomainEventMessage> upcastAndDeserialize(List<? extends SerializedDomainEventData> entries,
+                                                          Object identifier) {
         List<DomainEventMessage> events = new ArrayList<DomainEventMessage>(entries.size());
         for (SerializedDomainEventData entry : entries) {
             events.addAll(upcastAndDeserialize(entry, identifier));
@@ -267,30 +346,68 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
         doVisitEvents(visitor, sb.toString(), parameters.getParameters());
     }
 
+    @Override
+    public void visitEvents(List<? extends EventVisitor> partitionVisitors, Executor executor) {
+        doVisitEvents(partitionVisitors, executor, null, Collections.<String, Object>emptyMap());
+    }
+
+    @Override
+    public void visitEvents(Criteria criteria, List<? extends EventVisitor> partitionVisitors, Executor executor) {
+        StringBuilder sb = new StringBuilder();
+        ParameterRegistry parameters = new ParameterRegistry();
+        ((JpaCriteria) criteria).parse("e", sb, parameters);
+        doVisitEvents(partitionVisitors, executor, sb.toString(), parameters.getParameters());
+    }
+
     @Override
     public CriteriaBuilder newCriteriaBuilder() {
         return new JpaCriteriaBuilder();
     }
 
     private void doVisitEvents(EventVisitor visitor, String whereClause, Map<String, Object> parameters) {
-        EntityManager entityManager = entityManagerProvider.getEntityManager();
-        int first = 0;
-        List<? extends SerializedDomainEventData> batch;
-        boolean shouldContinue = true;
-        while (shouldContinue) {
-            batch = eventEntryStore.fetchFilteredBatch(whereClause, parameters, first, batchSize, entityManager);
-            for (SerializedDomainEventData entry : batch) {
-                List<DomainEventMessage> domainEventMessages = upcastAndDeserialize(entry,
-                                                                                    entry.getAggregateIdentifier());
-                for (DomainEventMessage domainEventMessage : domainEventMessages) {
-                    visitor.doWithEvent(domainEventMessage);
-                }
+        Iterator<? extends SerializedDomainEventData> entries = iterateEntries(whereClause, parameters);
+        while (entries.hasNext()) {
+            SerializedDomainEventData entry = entries.next();
+            for (DomainEventMessage domainEventMessage : upcastAndDeserialize(entry, entry.getAggregateIdentifier())) {
+                visitor.doWithEvent(domainEventMessage);
             }
-            shouldContinue = (batch.size() >= batchSize);
-            first += batchSize;
         }
     }
 
+    private void doVisitEvents(List<? extends EventVisitor> partitionVisitors, Executor executor, String whereClause,
+                               Map<String, Object> parameters) {
+        PartitionedEventDispatcher<SerializedDomainEventData> dispatcher =
+                new PartitionedEventDispatcher<SerializedDomainEventData>(partitionVisitors, executor) {
+                    @Override
+                    protected void visit(SerializedDomainEventData entry, EventVisitor visitor) {
+                        for (DomainEventMessage event : upcastAndDeserialize(entry, entry.getAggregateIdentifier())) {
+                            visitor.doWithEvent(event);
+                        }
+                    }
+                };
+        try {
+            Iterator<? extends SerializedDomainEventData> entries = iterateEntries(whereClause, parameters);
+            while (entries.hasNext()) {
+                SerializedDomainEventData entry = entries.next();
+                dispatcher.dispatch(entry.getAggregateIdentifier(), entry);
+            }
+        } catch (RuntimeException e) {
+            dispatcher.cancel();
+            throw e;
+        }
+        dispatcher.awaitCompletion();
+    }
+
+    private Iterator<? extends SerializedDomainEventData> iterateEntries(String whereClause,
+                                                                         Map<String, Object> parameters) {
+        EntityManager entityManager = entityManagerProvider.getEntityManager();
+        if (eventEntryStore instanceof StreamingEventEntryStore) {
+            return ((StreamingEventEntryStore) eventEntryStore).fetchFiltered(whereClause, parameters, batchSize,
+                                                                               entityManager);
+        }
+        return new PagingIterator(whereClause, parameters, entityManager);
+    }
+
     /**
      * Registers the data source that allows the EventStore to detect the database type and define the error codes that
      * represent concurrent access failures.
@@ -330,6 +447,35 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
         this.batchSize = batchSize;
     }
 
+    /**
+     * Sets the executor that loads batches of events ahead of the aggregate being rebuilt. When set, the next batch of
+     * events is read while the current batch is being applied, instead of when the current batch has been exhausted.
+     * Defaults to <code>null</code>, which means batches are read on demand, by the thread reading the event stream.
+     * <p/>
+     * Note that prefetched batches are read by threads of the given executor, outside of the transaction of the thread
+     * reading the event stream. The configured EntityManagerProvider must therefore provide an EntityManager that may
+     * be used by these threads, such as a container managed (shared) EntityManager.
+     *
+     * @param prefetchExecutor the executor to read batches of events with, or <code>null</code> to disable
+     *                         prefetching
+     */
+    public void setPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Sets the maximum number of batches to read ahead of the batch currently being applied, when a {@link
+     * #setPrefetchExecutor(java.util.concurrent.Executor) prefetch executor} has been configured. This caps the number
+     * of events held in memory for each event stream at <code>(prefetchDepth + 1) * batchSize</code>. Defaults to
+     * {@value #DEFAULT_PREFETCH_DEPTH}.
+     *
+     * @param prefetchDepth the maximum number of batches to read ahead. Must be at least 1.
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        Assert.isTrue(prefetchDepth > 0, "The prefetch depth must be at least 1");
+        this.prefetchDepth = prefetchDepth;
+    }
+
     @Override
     public void setUpcasterChain(UpcasterChain upcasterChain) {
         this.upcasterChain = upcasterChain;
@@ -349,6 +495,56 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
         this.maxSnapshotsArchived = maxSnapshotsArchived;
     }
 
+    /**
+     * Iterator that pages through the entries matching a filter using offsets, for EventEntryStore implementations
+     * that don't support streaming.
+     */
+    private final class PagingIterator implements Iterator<SerializedDomainEventData> {
+
+        private final String whereClause;
+        private final Map<String, Object> parameters;
+        private final EntityManager entityManager;
+        private Iterator<? extends SerializedDomainEventData> currentBatch;
+        private int currentBatchSize;
+        private int first;
+
+        private PagingIterator(String whereClause, Map<String, Object> parameters, EntityManager entityManager) {
+            this.whereClause = whereClause;
+            this.parameters = parameters;
+            this.entityManager = entityManager;
+            fetchBatch();
+        }
+
+        private void fetchBatch() {
+            List<? extends SerializedDomainEventData> batch =
+                    eventEntryStore.fetchFilteredBatch(whereClause, parameters, first, batchSize, entityManager);
+            first += batchSize;
+            currentBatchSize = batch.size();
+            currentBatch = batch.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!currentBatch.hasNext() && currentBatchSize >= batchSize) {
+                fetchBatch();
+            }
+            return currentBatch.hasNext();
+        }
+
+        @Override
+        public SerializedDomainEventData next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentBatch.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Events cannot be removed from the event store");
+        }
+    }
+
     private final class BatchingDomainEventStream implements DomainEventStream {
 
         private int currentBatchSize;
@@ -356,6 +552,7 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
         private DomainEventMessage next;
         private final Object id;
         private final String typeId;
+        private final BatchPrefetcher prefetcher;
 
         private BatchingDomainEventStream(List<DomainEventMessage> firstBatch, Object id, String typeId) {
             this.id = id;
@@ -365,6 +562,12 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
             if (currentBatch.hasNext()) {
                 next = currentBatch.next();
             }
+            if (prefetchExecutor != null && currentBatchSize >= batchSize) {
+                prefetcher = new BatchPrefetcher(id, typeId, firstBatch.get(currentBatchSize - 1).getSequenceNumber()
+                        + 1, prefetchExecutor, prefetchDepth);
+            } else {
+                prefetcher = null;
+            }
         }
 
         @Override
@@ -376,8 +579,13 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
         public DomainEventMessage next() {
             DomainEventMessage current = next;
             if (next != null && !currentBatch.hasNext() && currentBatchSize >= batchSize) {
-                logger.debug("Fetching new batch for Aggregate [{}]", id);
-                List<DomainEventMessage> newBatch = fetchBatch(typeId, id, next.getSequenceNumber() + 1);
+                List<DomainEventMessage> newBatch;
+                if (prefetcher != null) {
+                    newBatch = prefetcher.nextBatch();
+                } else {
+                    logger.debug("Fetching new batch for Aggregate [{}]", id);
+                    newBatch = fetchBatch(typeId, id, next.getSequenceNumber() + 1);
+                }
                 currentBatchSize = newBatch.size();
                 currentBatch = newBatch.iterator();
             }
@@ -390,4 +598,117 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement,
             return next;
         }
     }
+
+    /**
+     * Reads batches of events for a single aggregate on a separate executor, ahead of the batch being applied. Batches
+     * are read one after the other, each starting after the last event of the previous one, and are handed out in
+     * that same order. At most <code>maxBatchesAhead</code> batches are held before being handed out.
+     */
+    private final class BatchPrefetcher implements Runnable {
+
+        private final Object id;
+        private final String typeId;
+        private final Executor executor;
+        private final int maxBatchesAhead;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition batchAvailable = lock.newCondition();
+
+        // guarded by "lock"
+        private final LinkedList<List<DomainEventMessage>> loadedBatches = new LinkedList<List<DomainEventMessage>>();
+        private long nextSequenceNumber;
+        private boolean exhausted;
+        private boolean loading;
+        private RuntimeException failure;
+
+        private BatchPrefetcher(Object id, String typeId, long firstSequenceNumber, Executor executor,
+                                int maxBatchesAhead) {
+            this.id = id;
+            this.typeId = typeId;
+            this.nextSequenceNumber = firstSequenceNumber;
+            this.executor = executor;
+            this.maxBatchesAhead = maxBatchesAhead;
+            lock.lock();
+            try {
+                scheduleIfRequired();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the next batch of events, waiting for it to be read if necessary. Returns an empty list when all
+         * events have been read.
+         *
+         * @return the next batch of events
+         */
+        public List<DomainEventMessage> nextBatch() {
+            lock.lock();
+            try {
+                scheduleIfRequired();
+                while (loadedBatches.isEmpty() && failure == null && loading) {
+                    batchAvailable.awaitUninterruptibly();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                List<DomainEventMessage> batch = loadedBatches.poll();
+                scheduleIfRequired();
+                return batch == null ? Collections.<DomainEventMessage>emptyList() : batch;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void scheduleIfRequired() {
+            if (!loading && !exhausted && failure == null && loadedBatches.size() < maxBatchesAhead) {
+                loading = true;
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            long sequenceNumber;
+            lock.lock();
+            try {
+                sequenceNumber = nextSequenceNumber;
+            } finally {
+                lock.unlock();
+            }
+            while (true) {
+                logger.debug("Prefetching new batch for Aggregate [{}]", id);
+                List<DomainEventMessage> batch;
+                try {
+                    batch = fetchBatch(typeId, id, sequenceNumber);
+                } catch (RuntimeException e) {
+                    lock.lock();
+                    try {
+                        failure = e;
+                        loading = false;
+                        batchAvailable.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                    return;
+                }
+                lock.lock();
+                try {
+                    loadedBatches.add(batch);
+                    if (batch.size() < batchSize) {
+                        exhausted = true;
+                    } else {
+                        nextSequenceNumber = batch.get(batch.size() - 1).getSequenceNumber() + 1;
+                    }
+                    batchAvailable.signalAll();
+                    if (exhausted || loadedBatches.size() >= maxBatchesAhead) {
+                        loading = false;
+                        return;
+                    }
+                    sequenceNumber = nextSequenceNumber;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.serializer.SerializedDomainEventData;
+
+import java.util.List;
+
+/**
+ * Result of loading the last snapshot of an aggregate together with the first batch of events following that
+ * snapshot. See {@link CombinedSnapshotEventEntryStore}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SnapshotAndEvents {
+
+    private final SerializedDomainEventData snapshot;
+    private final List<? extends SerializedDomainEventData> events;
+
+    /**
+     * Initialize the result with given <code>snapshot</code> and <code>events</code>.
+     *
+     * @param snapshot The last snapshot event of the aggregate, or <code>null</code> if no snapshot exists
+     * @param events   The events following the snapshot, ordered by sequence number
+     */
+    public SnapshotAndEvents(SerializedDomainEventData snapshot, List<? extends SerializedDomainEventData> events) {
+        this.snapshot = snapshot;
+        this.events = events;
+    }
+
+    /**
+     * Returns the serialized representation of the last snapshot event of the aggregate, or <code>null</code> if
+     * no snapshot event exists.
+     *
+     * @return the last snapshot event, or <code>null</code>
+     */
+    public SerializedDomainEventData getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the serialized representations of the events following the snapshot, ordered by sequence number. If no
+     * snapshot exists, these are the first events of the aggregate.
+     *
+     * @return the events following the snapshot
+     */
+    public List<? extends SerializedDomainEventData> getEvents() {
+        return events;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.serializer.SerializedDomainEventData;
+
+import java.util.Iterator;
+import java.util.Map;
+import javax.persistence.EntityManager;
+
+/**
+ * EventEntryStore that is capable of streaming through a filtered selection of events without the cost of paging
+ * through it using offsets. When the EventEntryStore configured on the {@link JpaEventStore} implements this interface,
+ * {@link JpaEventStore#visitEvents(org.axonframework.eventstore.EventVisitor) visitEvents} uses it instead of {@link
+ * #fetchFilteredBatch(String, java.util.Map, int, int, javax.persistence.EntityManager) fetchFilteredBatch(...)}.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface StreamingEventEntryStore extends EventEntryStore {
+
+    /**
+     * Returns an iterator over all events that conform to the given JPA <code>whereClause</code>. The given
+     * <code>parameters</code> provide the values for the placeholders used in the where clause.
+     * <p/>
+     * The "WHERE" keyword is not included in the clause. If the clause is null or an empty String, no filters are
+     * expected to be applied.
+     * <p/>
+     * The iterator reads events from the backing data store lazily, in batches of the given <code>batchSize</code>.
+     * Implementations should hold no more than a single batch in memory, and the cost of fetching a batch should not
+     * depend on the number of batches read before it. Events of a single aggregate must be returned in order of their
+     * sequence number.
+     *
+     * @param whereClause   The JPA clause to be included after the WHERE keyword
+     * @param parameters    A map containing all the parameter values for parameter keys included in the where clause
+     * @param batchSize     The number of events to read from the data store in a single query
+     * @param entityManager The entity manager providing access to the data store
+     * @return an iterator over the serialized representations of the events matching the where clause
+     */
+    Iterator<? extends SerializedDomainEventData> fetchFiltered(String whereClause, Map<String, Object> parameters,
+                                                                int batchSize, EntityManager entityManager);
+}
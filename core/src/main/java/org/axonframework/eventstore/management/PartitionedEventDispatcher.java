@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.management;
+
+import org.axonframework.common.Assert;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.EventVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility that helps event stores implement the {@link PartitionedEventStoreManagement} interface. Entries read from
+ * the event store are {@link #dispatch(Object, Object) dispatched} to the worker of the partition their aggregate
+ * identifier belongs to. Each worker passes the DomainEventMessages contained in the entries to the visitor of its
+ * partition, in the order in which the entries were dispatched.
+ * <p/>
+ * Each partition has a bounded queue of pending entries. When the queue of a partition is full, dispatching blocks
+ * until its worker catches up.
+ * <p/>
+ * Instances of this class should be used only once, by a single thread.
+ *
+ * @param <T> The type of entry read from the event store
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public abstract class PartitionedEventDispatcher<T> {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final Object END_OF_STREAM = new Object();
+
+    private final List<PartitionWorker> workers;
+    private final CountDownLatch finishedWorkers;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+
+    /**
+     * Initializes the dispatcher with a partition for each of the given <code>partitionVisitors</code>. The workers of
+     * the partitions are started immediately using the given <code>executor</code>, which must be able to run all of
+     * them concurrently.
+     *
+     * @param partitionVisitors The visitors receiving the events of each partition
+     * @param executor          The executor to run the workers with
+     */
+    protected PartitionedEventDispatcher(List<? extends EventVisitor> partitionVisitors, Executor executor) {
+        this(partitionVisitors, executor, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Initializes the dispatcher with a partition for each of the given <code>partitionVisitors</code>, each holding
+     * at most <code>queueCapacity</code> pending entries. The workers of the partitions are started immediately using
+     * the given <code>executor</code>, which must be able to run all of them concurrently.
+     *
+     * @param partitionVisitors The visitors receiving the events of each partition
+     * @param executor          The executor to run the workers with
+     * @param queueCapacity     The maximum number of entries waiting to be processed by a single partition
+     */
+    protected PartitionedEventDispatcher(List<? extends EventVisitor> partitionVisitors, Executor executor,
+                                         int queueCapacity) {
+        Assert.isTrue(!partitionVisitors.isEmpty(), "At least one partition visitor must be provided");
+        Assert.isTrue(queueCapacity > 0, "Queue capacity must be a positive number");
+        this.finishedWorkers = new CountDownLatch(partitionVisitors.size());
+        this.workers = new ArrayList<PartitionWorker>(partitionVisitors.size());
+        for (EventVisitor visitor : partitionVisitors) {
+            workers.add(new PartitionWorker(visitor, queueCapacity));
+        }
+        for (PartitionWorker worker : workers) {
+            executor.execute(worker);
+        }
+    }
+
+    /**
+     * Passes the DomainEventMessages contained in the given <code>entry</code> to the given <code>visitor</code>, in
+     * the order of their sequence number. This method is invoked by the worker of the partition the entry was
+     * dispatched to.
+     *
+     * @param entry   The entry read from the event store
+     * @param visitor The visitor of the partition the entry was dispatched to
+     */
+    protected abstract void visit(T entry, EventVisitor visitor);
+
+    /**
+     * Dispatches the given <code>entry</code> to the partition of the given <code>aggregateIdentifier</code>. Blocks
+     * while the queue of that partition is full.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate the entry belongs to
+     * @param entry               The entry to dispatch
+     * @throws EventStoreException when a worker failed to process an earlier entry, or when the thread is interrupted
+     *                             while waiting for space in the queue
+     */
+    public void dispatch(Object aggregateIdentifier, T entry) {
+        PartitionWorker worker = workers.get(partitionOf(aggregateIdentifier));
+        try {
+            while (!worker.queue.offer(entry, 100, TimeUnit.MILLISECONDS)) {
+                checkForFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EventStoreException("Thread was interrupted while dispatching events to a partition", e);
+        }
+        checkForFailure();
+    }
+
+    /**
+     * Signals all workers that no more entries will be dispatched, and waits for them to process all pending entries.
+     *
+     * @throws EventStoreException when a worker failed to process an entry, or when the thread is interrupted while
+     *                             waiting for the workers to finish
+     */
+    public void awaitCompletion() {
+        try {
+            for (PartitionWorker worker : workers) {
+                while (!worker.queue.offer(END_OF_STREAM, 100, TimeUnit.MILLISECONDS)) {
+                    checkForFailure();
+                }
+            }
+            finishedWorkers.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EventStoreException("Thread was interrupted while waiting for partitions to complete", e);
+        }
+        checkForFailure();
+    }
+
+    /**
+     * Cancels the processing of all partitions. Workers stop as soon as they have finished processing their current
+     * entry, leaving any pending entries unprocessed. Event stores should invoke this method when they fail to read
+     * entries, to make sure the workers don't wait for entries that never arrive.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private int partitionOf(Object aggregateIdentifier) {
+        return Math.abs(aggregateIdentifier.hashCode() % workers.size());
+    }
+
+    private void checkForFailure() {
+        if (failure != null) {
+            throw new EventStoreException("An error occurred while visiting the events of a partition", failure);
+        }
+    }
+
+    private final class PartitionWorker implements Runnable {
+
+        private final EventVisitor visitor;
+        private final BlockingQueue<Object> queue;
+
+        private PartitionWorker(EventVisitor visitor, int queueCapacity) {
+            this.visitor = visitor;
+            this.queue = new ArrayBlockingQueue<Object>(queueCapacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            try {
+                while (!cancelled && failure == null) {
+                    Object entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (entry == END_OF_STREAM) {
+                        return;
+                    } else if (entry != null) {
+                        visit((T) entry, visitor);
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                finishedWorkers.countDown();
+            }
+        }
+    }
+}
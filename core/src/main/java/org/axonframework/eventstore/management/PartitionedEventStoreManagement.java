@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.management;
+
+import org.axonframework.eventstore.EventVisitor;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Extension of the EventStoreManagement interface for event stores that can visit events in parallel. The event
+ * space is split into a number of partitions based on the hash of the aggregate identifier. The events of each
+ * partition are deserialized and delivered by a separate worker, each to its own EventVisitor.
+ * <p/>
+ * Since all events of an aggregate end up in the same partition, events of a single aggregate are still guaranteed
+ * to be visited in the order of their sequence number. There are no ordering guarantees between events of different
+ * partitions.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface PartitionedEventStoreManagement extends EventStoreManagement {
+
+    /**
+     * Loads all events available in the event store and delivers them to the visitors in
+     * <code>partitionVisitors</code>, where each visitor receives the events of a single partition. The number of
+     * partitions is equal to the number of visitors given. This method returns when all events have been visited.
+     * <p/>
+     * The given <code>executor</code> must be able to execute a task for each of the partitions concurrently.
+     * <p/>
+     * Processing stops when any of the visitors throws an exception.
+     *
+     * @param partitionVisitors The visitors that receive the events of each partition
+     * @param executor          The executor that runs the worker of each partition
+     */
+    void visitEvents(List<? extends EventVisitor> partitionVisitors, Executor executor);
+
+    /**
+     * Loads all events available in the event store that match the given <code>criteria</code> and delivers them to
+     * the visitors in <code>partitionVisitors</code>, where each visitor receives the events of a single partition.
+     * The number of partitions is equal to the number of visitors given. This method returns when all events have
+     * been visited.
+     * <p/>
+     * The given <code>executor</code> must be able to execute a task for each of the partitions concurrently.
+     * <p/>
+     * Processing stops when any of the visitors throws an exception.
+     *
+     * @param criteria          The criteria describing the events to select
+     * @param partitionVisitors The visitors that receive the events of each partition
+     * @param executor          The executor that runs the worker of each partition
+     * @see #newCriteriaBuilder()
+     */
+    void visitEvents(Criteria criteria, List<? extends EventVisitor> partitionVisitors, Executor executor);
+}
@@ -53,12 +53,7 @@ public abstract class AbstractSagaRepository implements SagaRepository {
                 }
             }
             // the Saga repository may not reflect the latest changes yet, so we go through our cached sagas as well
-            Set<T> sagas = sagaCache.getAll(type);
-            for (T saga : sagas) {
-                if (saga.getAssociationValues().contains(associationValue)) {
-                    result.add(saga);
-                }
-            }
+            result.addAll(sagaCache.find(type, associationValue));
         }
         return result;
     }
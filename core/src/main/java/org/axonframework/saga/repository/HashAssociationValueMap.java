@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import org.axonframework.saga.AssociationValue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory storage for AssociationValue to Saga mappings, which indexes the mappings by hash on the combination of
+ * saga type, association key and association value. A single AssociationValue can map to several Sagas, and a single
+ * Saga can be mapped by several AssociationValues.
+ * <p/>
+ * Unlike the {@link AssociationValueMap}, which keeps all mappings sorted, lookups and modifications in this map have
+ * an expected constant time cost, and don't need to compare association values. Only the identifiers mapped by a
+ * single combination of saga type and association value are guarded by a lock, meaning that reads and writes for
+ * different association values never block each other.
+ * <p/>
+ * This implementation is thread safe.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class HashAssociationValueMap {
+
+    private final ConcurrentMap<MappingKey, SagaIdentifiers> mappings =
+            new ConcurrentHashMap<MappingKey, SagaIdentifiers>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Returns the identifiers of the Sagas that have been associated with the given <code>associationValue</code>.
+     *
+     * @param sagaType         The type of the associated Saga
+     * @param associationValue The associationValue to find Sagas for
+     * @return A set of Saga identifiers
+     */
+    public Set<String> findSagas(String sagaType, AssociationValue associationValue) {
+        SagaIdentifiers identifiers = mappings.get(new MappingKey(sagaType, associationValue));
+        if (identifiers == null) {
+            return new HashSet<String>();
+        }
+        return identifiers.copy();
+    }
+
+    /**
+     * Adds an association between the given <code>associationValue</code> and <code>sagaIdentifier</code>.
+     *
+     * @param associationValue The association value associated with the Saga
+     * @param sagaType         The type of the associated Saga
+     * @param sagaIdentifier   The identifier of the associated Saga
+     */
+    public void add(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
+        MappingKey key = new MappingKey(sagaType, associationValue);
+        boolean added = false;
+        while (!added) {
+            SagaIdentifiers identifiers = mappings.get(key);
+            if (identifiers == null) {
+                SagaIdentifiers newIdentifiers = new SagaIdentifiers();
+                identifiers = mappings.putIfAbsent(key, newIdentifiers);
+                if (identifiers == null) {
+                    identifiers = newIdentifiers;
+                }
+            }
+            added = identifiers.add(sagaIdentifier);
+            if (!added) {
+                // the identifiers were discarded when they became empty, and must be replaced
+                mappings.remove(key, identifiers);
+            }
+        }
+    }
+
+    /**
+     * Removes an association between the given <code>associationValue</code> and <code>sagaIdentifier</code>.
+     *
+     * @param associationValue The association value associated with the Saga
+     * @param sagaType         The type of the associated Saga
+     * @param sagaIdentifier   The identifier of the associated Saga
+     */
+    public void remove(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
+        MappingKey key = new MappingKey(sagaType, associationValue);
+        SagaIdentifiers identifiers = mappings.get(key);
+        if (identifiers != null && identifiers.remove(sagaIdentifier)) {
+            mappings.remove(key, identifiers);
+        }
+    }
+
+    /**
+     * Clears all the associations.
+     */
+    public void clear() {
+        for (MappingKey key : mappings.keySet()) {
+            SagaIdentifiers identifiers = mappings.get(key);
+            if (identifiers != null && identifiers.clear()) {
+                mappings.remove(key, identifiers);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether any elements are contained within this map.
+     *
+     * @return <code>true</code> if this Map is empty, <code>false</code> if it contains any associations.
+     */
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Returns the number of associations in this map. Due to the concurrent nature of this map, the returned value may
+     * not reflect modifications that are in progress.
+     *
+     * @return the number of associations in this map
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * The identifiers of the sagas mapped by a single key. Once the last identifier has been removed, the instance is
+     * discarded, and must be replaced in the mappings before new identifiers can be added.
+     */
+    private final class SagaIdentifiers {
+
+        private final Set<String> identifiers = new HashSet<String>(2);
+        private boolean discarded;
+
+        /**
+         * Adds the given identifier, unless this instance has been discarded.
+         *
+         * @return <code>false</code> if this instance was discarded, otherwise <code>true</code>
+         */
+        private synchronized boolean add(String sagaIdentifier) {
+            if (discarded) {
+                return false;
+            }
+            if (identifiers.add(sagaIdentifier)) {
+                size.incrementAndGet();
+            }
+            return true;
+        }
+
+        /**
+         * Removes the given identifier.
+         *
+         * @return <code>true</code> if this instance has become empty and has been discarded
+         */
+        private synchronized boolean remove(String sagaIdentifier) {
+            if (identifiers.remove(sagaIdentifier)) {
+                size.decrementAndGet();
+            }
+            return discardIfEmpty();
+        }
+
+        /**
+         * Removes all identifiers.
+         *
+         * @return <code>true</code> if this instance has been discarded
+         */
+        private synchronized boolean clear() {
+            size.addAndGet(-identifiers.size());
+            identifiers.clear();
+            return discardIfEmpty();
+        }
+
+        private synchronized Set<String> copy() {
+            return new HashSet<String>(identifiers);
+        }
+
+        private boolean discardIfEmpty() {
+            if (!discarded && identifiers.isEmpty()) {
+                discarded = true;
+            }
+            return discarded;
+        }
+    }
+
+    private static final class MappingKey {
+
+        private final String sagaType;
+        private final AssociationValue associationValue;
+        private final int hashCode;
+
+        private MappingKey(String sagaType, AssociationValue associationValue) {
+            this.sagaType = sagaType;
+            this.associationValue = associationValue;
+            this.hashCode = 31 * sagaType.hashCode() + associationValue.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MappingKey that = (MappingKey) o;
+            return hashCode == that.hashCode
+                    && sagaType.equals(that.sagaType)
+                    && associationValue.equals(that.associationValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
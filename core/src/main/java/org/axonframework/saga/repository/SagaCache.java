@@ -16,11 +16,18 @@
 
 package org.axonframework.saga.repository;
 
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.AssociationValues;
 import org.axonframework.saga.Saga;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,6 +45,11 @@ import java.util.concurrent.ConcurrentMap;
  * remove any empty entries, use the {@link #purge()} method. Empty entries are also cleared when accessed (cache
  * misses).
  * <p/>
+ * The cache keeps an index of the Association Values of the cached sagas, allowing sagas to be found by type and
+ * Association Value without inspecting each cached saga (see {@link #find(Class, AssociationValue)}). The index is
+ * kept up-to-date by listening to changes in the saga's {@link AssociationValues}. Entries of sagas that have been
+ * garbage collected are removed from the index when the cache is purged, or when new sagas are put in the cache.
+ * <p/>
  * Note that the primary purpose of this cache is <em>not</em> to improve performance, but to prevent multiple
  * instances
  * of the same conceptual saga (i.e. having the same identifier) from being active in the JVM.
@@ -48,6 +60,10 @@ import java.util.concurrent.ConcurrentMap;
 public class SagaCache {
 
     private ConcurrentMap<String, Reference<Saga>> backingCache;
+    private final ConcurrentMap<IndexKey, IndexEntries> associationIndex =
+            new ConcurrentHashMap<IndexKey, IndexEntries>();
+    private final Set<Class<?>> cachedSagaTypes = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+    private final ReferenceQueue<Saga> collectedSagas = new ReferenceQueue<Saga>();
 
     /**
      * Initializes an empty cache.
@@ -80,12 +96,19 @@ public class SagaCache {
      * @return The cached instance of the saga
      */
     public Saga put(Saga saga) {
-        backingCache.putIfAbsent(saga.getSagaIdentifier(), new WeakReference<Saga>(saga));
-        Saga cachedSaga = get(saga.getSagaIdentifier());
-        while (cachedSaga == null) {
-            cachedSaga = put(saga);
+        purgeCollectedSagas();
+        SagaReference reference = new SagaReference(saga, collectedSagas);
+        while (true) {
+            Reference<Saga> existing = backingCache.putIfAbsent(saga.getSagaIdentifier(), reference);
+            if (existing == null) {
+                reference.startIndexing(saga);
+                return saga;
+            }
+            Saga cachedSaga = getOrPurge(saga.getSagaIdentifier(), existing);
+            if (cachedSaga != null) {
+                return cachedSaga;
+            }
         }
-        return cachedSaga;
     }
 
     /**
@@ -93,14 +116,45 @@ public class SagaCache {
      * longer count against the {@link #size()} of the cache.
      */
     public void purge() {
+        purgeCollectedSagas();
         for (Map.Entry<String, Reference<Saga>> entry : backingCache.entrySet()) {
             Reference<Saga> value = entry.getValue();
             if (value == null || value.get() == null) {
-                backingCache.remove(entry.getKey(), value);
+                purge(entry.getKey(), value);
             }
         }
     }
 
+    /**
+     * Returns the cached sagas of the given <code>type</code>, or a subclass thereof, that are associated with the
+     * given <code>associationValue</code>. Sagas are looked up in the association value index, meaning that the time
+     * taken does not depend on the number of sagas in the cache.
+     *
+     * @param type             The type of saga to return
+     * @param associationValue The association value the sagas must be associated with
+     * @param <T>              The type of saga to return
+     * @return a set of the cached sagas of given type associated with the given association value
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Saga> Set<T> find(Class<T> type, AssociationValue associationValue) {
+        Set<T> sagas = new HashSet<T>();
+        for (Class<?> sagaType : cachedSagaTypes) {
+            if (type.isAssignableFrom(sagaType)) {
+                IndexEntries entries = associationIndex.get(new IndexKey(sagaType, associationValue));
+                if (entries != null) {
+                    for (SagaReference reference : entries.copy()) {
+                        Saga saga = getOrPurge(reference.sagaIdentifier, reference);
+                        // the association may have been removed while this saga was being indexed
+                        if (saga != null && saga.getAssociationValues().contains(associationValue)) {
+                            sagas.add((T) saga);
+                        }
+                    }
+                }
+            }
+        }
+        return sagas;
+    }
+
     /**
      * Returns an approximation of the number of items in the cache. The returned count includes empty entries (i.e.
      * entries pointing to sagas that have been garbage collected)
@@ -131,11 +185,26 @@ public class SagaCache {
         }
         Saga value = reference.get();
         if (value == null) {
-            backingCache.remove(sagaIdentifier, reference);
+            purge(sagaIdentifier, reference);
         }
         return value;
     }
 
+    private void purgeCollectedSagas() {
+        Reference<? extends Saga> reference;
+        while ((reference = collectedSagas.poll()) != null) {
+            SagaReference sagaReference = (SagaReference) reference;
+            purge(sagaReference.sagaIdentifier, sagaReference);
+        }
+    }
+
+    private void purge(String sagaIdentifier, Reference<Saga> reference) {
+        backingCache.remove(sagaIdentifier, reference);
+        if (reference instanceof SagaReference) {
+            ((SagaReference) reference).removeFromIndex();
+        }
+    }
+
     /**
      * Returns all sagas contained in the cache of the given type, or a subclass thereof.
      *
@@ -154,4 +223,153 @@ public class SagaCache {
         }
         return sagas;
     }
+
+    /**
+     * Weak reference to a cached saga, which keeps the association value index up-to-date for that saga. The
+     * reference registers itself as a listener with the saga's association values. Since the saga is no longer
+     * available when it has been garbage collected, the reference keeps track of the association values it has
+     * indexed, so that it can remove them from the index when purged.
+     */
+    private final class SagaReference extends WeakReference<Saga> implements AssociationValues.ChangeListener {
+
+        private final String sagaIdentifier;
+        private final Class<?> sagaType;
+        private final Set<AssociationValue> indexedValues =
+                Collections.newSetFromMap(new ConcurrentHashMap<AssociationValue, Boolean>());
+        private volatile boolean purged;
+
+        private SagaReference(Saga saga, ReferenceQueue<Saga> referenceQueue) {
+            super(saga, referenceQueue);
+            this.sagaIdentifier = saga.getSagaIdentifier();
+            this.sagaType = saga.getClass();
+        }
+
+        private void startIndexing(Saga saga) {
+            AssociationValues associationValues = saga.getAssociationValues();
+            if (associationValues != null) {
+                cachedSagaTypes.add(sagaType);
+                associationValues.addChangeListener(this);
+                for (AssociationValue associationValue : associationValues) {
+                    onAssociationValueAdded(associationValue);
+                }
+            }
+        }
+
+        @Override
+        public void onAssociationValueAdded(AssociationValue newAssociationValue) {
+            if (purged) {
+                return;
+            }
+            indexedValues.add(newAssociationValue);
+            IndexKey key = new IndexKey(sagaType, newAssociationValue);
+            while (true) {
+                IndexEntries entries = associationIndex.get(key);
+                if (entries == null) {
+                    IndexEntries newEntries = new IndexEntries();
+                    entries = associationIndex.putIfAbsent(key, newEntries);
+                    if (entries == null) {
+                        entries = newEntries;
+                    }
+                }
+                if (entries.add(sagaIdentifier, this)) {
+                    return;
+                }
+                // the entries were discarded when they became empty, and must be replaced
+                associationIndex.remove(key, entries);
+            }
+        }
+
+        @Override
+        public void onAssociationValueRemoved(AssociationValue associationValue) {
+            indexedValues.remove(associationValue);
+            removeFromIndex(associationValue);
+        }
+
+        private void removeFromIndex() {
+            purged = true;
+            for (AssociationValue associationValue : indexedValues) {
+                removeFromIndex(associationValue);
+            }
+            indexedValues.clear();
+        }
+
+        private void removeFromIndex(AssociationValue associationValue) {
+            IndexKey key = new IndexKey(sagaType, associationValue);
+            IndexEntries entries = associationIndex.get(key);
+            if (entries != null && entries.remove(sagaIdentifier, this)) {
+                associationIndex.remove(key, entries);
+            }
+        }
+    }
+
+    /**
+     * The references to the sagas of a single type associated with a single association value. When the last
+     * reference is removed, the instance is discarded, and must be replaced in the index before new references can be
+     * added. This prevents references from being added to an instance that is being removed from the index.
+     */
+    private static final class IndexEntries {
+
+        private final Map<String, SagaReference> references = new HashMap<String, SagaReference>(2);
+        private boolean discarded;
+
+        /**
+         * Adds the given reference, unless this instance has been discarded.
+         *
+         * @return <code>false</code> if this instance was discarded, otherwise <code>true</code>
+         */
+        private synchronized boolean add(String sagaIdentifier, SagaReference reference) {
+            if (discarded) {
+                return false;
+            }
+            references.put(sagaIdentifier, reference);
+            return true;
+        }
+
+        /**
+         * Removes the given reference, if it is the one registered for the given saga identifier.
+         *
+         * @return <code>true</code> if this instance has become empty and has been discarded
+         */
+        private synchronized boolean remove(String sagaIdentifier, SagaReference reference) {
+            if (references.get(sagaIdentifier) == reference) {
+                references.remove(sagaIdentifier);
+            }
+            if (!discarded && references.isEmpty()) {
+                discarded = true;
+            }
+            return discarded;
+        }
+
+        private synchronized List<SagaReference> copy() {
+            return new ArrayList<SagaReference>(references.values());
+        }
+    }
+
+    private static final class IndexKey {
+
+        private final Class<?> sagaType;
+        private final AssociationValue associationValue;
+
+        private IndexKey(Class<?> sagaType, AssociationValue associationValue) {
+            this.sagaType = sagaType;
+            this.associationValue = associationValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            IndexKey that = (IndexKey) o;
+            return sagaType.equals(that.sagaType) && associationValue.equals(that.associationValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sagaType.hashCode() + associationValue.hashCode();
+        }
+    }
 }
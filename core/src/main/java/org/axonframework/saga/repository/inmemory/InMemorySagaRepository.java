@@ -17,37 +17,40 @@
 package org.axonframework.saga.repository.inmemory;
 
 import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.AssociationValues;
 import org.axonframework.saga.NoSuchSagaException;
 import org.axonframework.saga.Saga;
 import org.axonframework.saga.SagaRepository;
+import org.axonframework.saga.repository.HashAssociationValueMap;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
- * SagaRepository implementation that stores all Saga instances in memory.
+ * SagaRepository implementation that stores all Saga instances in memory. Sagas are found using an index of their
+ * association values, which is kept up-to-date by listening to changes in the association values of each saga.
  *
  * @author Allard Buijze
  * @since 0.7
  */
 public class InMemorySagaRepository implements SagaRepository {
 
-    private final ConcurrentMap<Class<?>, Set<Saga>> managedSagas = new ConcurrentHashMap<Class<?>, Set<Saga>>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, Saga>> managedSagas =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Saga>>();
+    private final ConcurrentMap<String, AssociationValueIndexer> indexers =
+            new ConcurrentHashMap<String, AssociationValueIndexer>();
+    private final HashAssociationValueMap associationValueMap = new HashAssociationValueMap();
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Saga> Set<T> find(Class<T> type, AssociationValue associationValue) {
         Set<T> result = new HashSet<T>();
-        List<Saga> sagasOfType = new ArrayList<Saga>(getSagasOfType(type));
-        for (Saga saga : sagasOfType) {
-            if (saga.getAssociationValues().contains(associationValue)) {
+        ConcurrentMap<String, Saga> sagasOfType = getSagasOfType(type);
+        for (String sagaIdentifier : associationValueMap.findSagas(type.getName(), associationValue)) {
+            Saga saga = sagasOfType.get(sagaIdentifier);
+            if (saga != null) {
                 result.add((T) saga);
             }
         }
@@ -57,21 +60,26 @@ public class InMemorySagaRepository implements SagaRepository {
     @SuppressWarnings("unchecked")
     @Override
     public <T extends Saga> T load(Class<T> type, String sagaIdentifier) {
-        List<Saga> sagasOfType = new ArrayList<Saga>(getSagasOfType(type));
-        for (Saga saga : sagasOfType) {
-            if (saga.getSagaIdentifier().equals(sagaIdentifier)) {
-                return (T) saga;
-            }
+        Saga saga = getSagasOfType(type).get(sagaIdentifier);
+        if (saga == null) {
+            throw new NoSuchSagaException(type, sagaIdentifier);
         }
-        throw new NoSuchSagaException(type, sagaIdentifier);
+        return (T) saga;
     }
 
     @Override
     public void commit(Saga saga) {
+        ConcurrentMap<String, Saga> sagasOfType = getSagasOfType(saga.getClass());
         if (!saga.isActive()) {
-            getSagasOfType(saga.getClass()).remove(saga);
-        } else {
-            getSagasOfType(saga.getClass()).add(saga);
+            Saga removedSaga = sagasOfType.remove(saga.getSagaIdentifier());
+            AssociationValueIndexer indexer = indexers.remove(saga.getSagaIdentifier());
+            if (removedSaga != null && indexer != null) {
+                indexer.stopIndexing(removedSaga.getAssociationValues());
+            }
+        } else if (sagasOfType.putIfAbsent(saga.getSagaIdentifier(), saga) == null) {
+            AssociationValueIndexer indexer = new AssociationValueIndexer(saga);
+            indexers.put(saga.getSagaIdentifier(), indexer);
+            indexer.startIndexing(saga.getAssociationValues());
         }
     }
 
@@ -80,10 +88,10 @@ public class InMemorySagaRepository implements SagaRepository {
         commit(saga);
     }
 
-    private Set<Saga> getSagasOfType(Class<?> type) {
-        Set<Saga> sagasOfType = managedSagas.get(type);
+    private ConcurrentMap<String, Saga> getSagasOfType(Class<?> type) {
+        ConcurrentMap<String, Saga> sagasOfType = managedSagas.get(type);
         if (sagasOfType == null) {
-            managedSagas.putIfAbsent(type, new ConcurrentSkipListSet<Saga>(new SagaIdentifierComparator()));
+            managedSagas.putIfAbsent(type, new ConcurrentHashMap<String, Saga>());
             sagasOfType = managedSagas.get(type);
         }
         return sagasOfType;
@@ -96,19 +104,44 @@ public class InMemorySagaRepository implements SagaRepository {
      */
     public int size() {
         int size = 0;
-        for (Set<Saga> entry : managedSagas.values()) {
+        for (ConcurrentMap<String, Saga> entry : managedSagas.values()) {
             size += entry.size();
         }
         return size;
     }
 
-    private static class SagaIdentifierComparator implements Comparator<Saga>, Serializable {
+    private class AssociationValueIndexer implements AssociationValues.ChangeListener {
 
-        private static final long serialVersionUID = 2939897180067202510L;
+        private final String sagaType;
+        private final String sagaIdentifier;
+
+        public AssociationValueIndexer(Saga saga) {
+            this.sagaType = saga.getClass().getName();
+            this.sagaIdentifier = saga.getSagaIdentifier();
+        }
+
+        private void startIndexing(AssociationValues associationValues) {
+            associationValues.addChangeListener(this);
+            for (AssociationValue associationValue : associationValues) {
+                onAssociationValueAdded(associationValue);
+            }
+        }
+
+        private void stopIndexing(AssociationValues associationValues) {
+            associationValues.removeChangeListener(this);
+            for (AssociationValue associationValue : associationValues) {
+                onAssociationValueRemoved(associationValue);
+            }
+        }
+
+        @Override
+        public void onAssociationValueAdded(AssociationValue newAssociationValue) {
+            associationValueMap.add(newAssociationValue, sagaType, sagaIdentifier);
+        }
 
         @Override
-        public int compare(Saga o1, Saga o2) {
-            return o1.getSagaIdentifier().compareTo(o2.getSagaIdentifier());
+        public void onAssociationValueRemoved(AssociationValue associationValue) {
+            associationValueMap.remove(associationValue, sagaType, sagaIdentifier);
         }
     }
 }
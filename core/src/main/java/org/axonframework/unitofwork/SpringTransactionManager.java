@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.unitofwork;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * TransactionManager implementation that uses a {@link org.springframework.transaction.PlatformTransactionManager} as
+ * underlying transaction manager.
+ *
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public class SpringTransactionManager implements TransactionManager<TransactionStatus> {
+
+    private PlatformTransactionManager transactionManager;
+    private TransactionDefinition transactionDefinition = new DefaultTransactionDefinition();
+
+    /**
+     * Initializes the SpringTransactionManager with the given <code>transactionManager</code>.
+     *
+     * @param transactionManager The transaction manager that manages transactions with the underlying data sources
+     */
+    public SpringTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Default constructor. The PlatformTransactionManager must be set using {@link
+     * #setTransactionManager(org.springframework.transaction.PlatformTransactionManager)}.
+     */
+    public SpringTransactionManager() {
+    }
+
+    @Override
+    public TransactionStatus startTransaction() {
+        return transactionManager.getTransaction(transactionDefinition);
+    }
+
+    @Override
+    public void commitTransaction(TransactionStatus transactionStatus) {
+        if (transactionStatus.isNewTransaction()) {
+            transactionManager.commit(transactionStatus);
+        }
+    }
+
+    @Override
+    public void rollbackTransaction(TransactionStatus transactionStatus) {
+        if (transactionStatus.isNewTransaction() && !transactionStatus.isCompleted()) {
+            transactionManager.rollback(transactionStatus);
+        }
+    }
+
+    /**
+     * The PlatformTransactionManager that manages the transactions with the underlying data source.
+     *
+     * @param transactionManager the transaction manager that manages transactions with underlying data sources
+     */
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Sets the definition of the transactions to start. Defaults to a {@link DefaultTransactionDefinition}.
+     *
+     * @param transactionDefinition the definition of the transactions to start
+     */
+    public void setTransactionDefinition(TransactionDefinition transactionDefinition) {
+        this.transactionDefinition = transactionDefinition;
+    }
+}
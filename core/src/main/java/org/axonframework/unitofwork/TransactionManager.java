@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.unitofwork;
+
+/**
+ * Interface towards a mechanism that manages transactions around units of work that are processed together, such as
+ * the storage of the events generated by a batch of commands.
+ *
+ * @param <T> The type of object representing the transaction
+ * @author Allard Buijze
+ * @since 2.0
+ */
+public interface TransactionManager<T> {
+
+    /**
+     * Starts a transaction. The return value is the object representing the transaction status, and must be passed
+     * as an argument when invoking {@link #commitTransaction(Object)} or {@link #rollbackTransaction(Object)}.
+     *
+     * @return The object representing the transaction status
+     */
+    T startTransaction();
+
+    /**
+     * Commits the transaction with given <code>transactionStatus</code>. When the commit fails, the transaction is
+     * considered rolled back and an exception is thrown.
+     *
+     * @param transactionStatus The status of the transaction to commit
+     */
+    void commitTransaction(T transactionStatus);
+
+    /**
+     * Rolls back the transaction with given <code>transactionStatus</code>.
+     *
+     * @param transactionStatus The status of the transaction to roll back
+     */
+    void rollbackTransaction(T transactionStatus);
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AdaptiveSegmentRouterTest {
+
+    private AdaptiveSegmentRouter testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new AdaptiveSegmentRouter(2, 10);
+    }
+
+    @Test
+    public void testAggregateWithCommandsInProgressNotRemapped() {
+        int segment = testSubject.selectInvokerSegment(0, 2);
+        assertEquals(0, segment);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(segment, testSubject.selectInvokerSegment(0, 2));
+        }
+        assertEquals(11, testSubject.getQueueDepth(0));
+        assertEquals(0, testSubject.getQueueDepth(1));
+    }
+
+    @Test
+    public void testIdleAggregateRemappedToLeastLoadedSegment() {
+        for (int i = 0; i < 5; i++) {
+            testSubject.selectInvokerSegment(0, 2);
+        }
+
+        // aggregate 2 hashes to the overloaded segment 0, but has no commands in progress
+        assertEquals(1, testSubject.selectInvokerSegment(2, 2));
+        assertEquals(1, testSubject.getQueueDepth(1));
+
+        testSubject.commandCompleted(2, 1);
+        assertEquals(0, testSubject.getQueueDepth(1));
+        // the aggregate is still remapped, as segment 0 is still overloaded
+        assertEquals(1, testSubject.selectInvokerSegment(2, 2));
+    }
+
+    @Test
+    public void testAggregateReturnsToHashSegmentWhenBalanced() {
+        for (int i = 0; i < 5; i++) {
+            testSubject.selectInvokerSegment(0, 2);
+        }
+        assertEquals(1, testSubject.selectInvokerSegment(2, 2));
+        testSubject.commandCompleted(2, 1);
+        for (int i = 0; i < 5; i++) {
+            testSubject.commandCompleted(0, 0);
+        }
+        assertEquals(0, testSubject.getQueueDepth(0));
+
+        for (int i = 0; i < 5; i++) {
+            testSubject.selectInvokerSegment(3, 2);
+        }
+        // segment 1 is now overloaded, so the idle aggregate moves back
+        assertEquals(0, testSubject.selectInvokerSegment(2, 2));
+    }
+
+    @Test
+    public void testIdleRemappedAggregatesDoNotCountTowardsMaximum() {
+        for (int i = 0; i < 5; i++) {
+            testSubject.selectInvokerSegment(0, 2);
+        }
+
+        // twice as many aggregates as may be remapped at the same time, each of them hashing to segment 0
+        for (int aggregate = 2; aggregate <= 40; aggregate += 2) {
+            assertEquals(1, testSubject.selectInvokerSegment(aggregate, 2));
+            testSubject.commandCompleted(aggregate, 1);
+        }
+        assertEquals(0, testSubject.getQueueDepth(1));
+    }
+
+    @Test
+    public void testPublisherSelectedByHashCode() {
+        for (int i = 0; i < 5; i++) {
+            testSubject.selectInvokerSegment(0, 2);
+        }
+        assertEquals(1, testSubject.selectInvokerSegment(3, 2));
+        assertEquals(3 % 4, testSubject.selectPublisherSegment(3, 4));
+        assertFalse(testSubject.isStable());
+    }
+}
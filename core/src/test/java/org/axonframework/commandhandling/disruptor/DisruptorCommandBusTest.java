@@ -41,7 +41,9 @@ import org.axonframework.eventsourcing.AbstractEventSourcedEntity;
 import org.axonframework.eventsourcing.GenericAggregateFactory;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.repository.Repository;
+import org.axonframework.unitofwork.TransactionManager;
 import org.axonframework.unitofwork.UnitOfWork;
 import org.axonframework.unitofwork.UnitOfWorkListener;
 import org.junit.*;
@@ -49,6 +51,7 @@ import org.mockito.*;
 import org.mockito.invocation.*;
 import org.mockito.stubbing.*;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -58,10 +61,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import static junit.framework.Assert.*;
 import static org.mockito.Mockito.*;
@@ -91,7 +99,9 @@ public class DisruptorCommandBusTest {
 
     @After
     public void tearDown() {
-        testSubject.stop();
+        if (testSubject != null) {
+            testSubject.stop();
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -320,6 +330,271 @@ public class DisruptorCommandBusTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testRescheduledCommandCountedOnce() throws Throwable {
+        inMemoryEventStore.storedEvents.clear();
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus);
+        stubHandler.setRepository(testSubject
+                                          .createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+        StubHandler spy = spy(stubHandler);
+        testSubject.subscribe(StubCommand.class, spy);
+        CommandMessage<StubCommand> command = new GenericCommandMessage<StubCommand>(
+                new StubCommand(aggregateIdentifier));
+        testSubject.dispatch(command, NoOpCallback.INSTANCE);
+        testSubject.stop();
+
+        verify(spy, times(2)).handle(same(command), isA(UnitOfWork.class));
+        assertEquals(1, testSubject.getStatistics().getRescheduledCommandCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testRescheduledCommandNotCountedWhenReschedulingDisabled() throws Throwable {
+        inMemoryEventStore.storedEvents.clear();
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus,
+                                              new DisruptorConfiguration().setRescheduleCommandsOnCorruptState(false));
+        stubHandler.setRepository(testSubject
+                                          .createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+        StubHandler spy = spy(stubHandler);
+        testSubject.subscribe(StubCommand.class, spy);
+        CommandMessage<StubCommand> command = new GenericCommandMessage<StubCommand>(
+                new StubCommand(aggregateIdentifier));
+        testSubject.dispatch(command, NoOpCallback.INSTANCE);
+        testSubject.stop();
+
+        verify(spy, times(1)).handle(same(command), isA(UnitOfWork.class));
+        assertEquals(0, testSubject.getStatistics().getRescheduledCommandCount());
+    }
+
+    @Test(timeout = 10000)
+    public void testStopDrainsBufferAndReportsRejectedCommands() {
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus,
+                                              new DisruptorConfiguration().setCoolingDownPeriod(60000));
+        testSubject.subscribe(StubCommand.class, stubHandler);
+        stubHandler.setRepository(
+                testSubject.createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+        for (int i = 0; i < 1000; i++) {
+            testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier)));
+        }
+
+        long start = System.currentTimeMillis();
+        DrainResult result = testSubject.stop(60, TimeUnit.SECONDS);
+
+        assertTrue("Stopping should not wait for the full timeout", System.currentTimeMillis() - start < 60000);
+        assertTrue(result.isCompleted());
+        assertEquals(0, result.getRejectedCommandCount());
+        assertEquals(1000, inMemoryEventStore.storedEvents.get(aggregateIdentifier).getSequenceNumber());
+        try {
+            testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier)));
+            fail("Expected command to be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, testSubject.stop(1, TimeUnit.SECONDS).getRejectedCommandCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(timeout = 10000)
+    public void testStopWithTimeoutAbortsUnprocessedCommands() {
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus);
+        final CountDownLatch handlerReleased = new CountDownLatch(1);
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(CommandMessage<StubCommand> commandMessage, UnitOfWork unitOfWork)
+                    throws Throwable {
+                handlerReleased.await();
+                return null;
+            }
+        });
+        CommandCallback mockCallback = mock(CommandCallback.class);
+        for (int i = 0; i < 10; i++) {
+            testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier)),
+                                 mockCallback);
+        }
+
+        DrainResult result;
+        try {
+            result = testSubject.stop(100, TimeUnit.MILLISECONDS);
+        } finally {
+            handlerReleased.countDown();
+        }
+
+        assertFalse(result.isCompleted());
+        assertEquals(10, result.getAbortedCommandCount());
+        verify(mockCallback, times(10)).onFailure(isA(CommandBusShutdownException.class));
+        verify(mockCallback, never()).onSuccess(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(timeout = 10000)
+    public void testEventsOfBatchStoredInSingleTransaction() throws InterruptedException {
+        TransactionManager mockTransactionManager = mock(TransactionManager.class);
+        when(mockTransactionManager.startTransaction()).thenReturn(new Object());
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus,
+                                              new DisruptorConfiguration()
+                                                      .setTransactionManager(mockTransactionManager));
+        testSubject.subscribe(StubCommand.class, stubHandler);
+        stubHandler.setRepository(
+                testSubject.createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+        ResultCountingCallback callback = new ResultCountingCallback(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier)),
+                                 callback);
+        }
+
+        assertTrue("Not all commands have been handled", callback.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1000, callback.successCount.get());
+        assertEquals(1000, inMemoryEventStore.storedEvents.get(aggregateIdentifier).getSequenceNumber());
+        verify(mockTransactionManager, atMost(1000)).startTransaction();
+        verify(mockTransactionManager, atLeastOnce()).commitTransaction(any());
+        verify(mockTransactionManager, never()).rollbackTransaction(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(timeout = 10000)
+    public void testFailingBatchRetriedPerCommand() throws InterruptedException {
+        String otherAggregateIdentifier = UUID.randomUUID().toString();
+        inMemoryEventStore.appendEvents(StubAggregate.class.getSimpleName(), new SimpleDomainEventStream(
+                new GenericDomainEventMessage<StubDomainEvent>(otherAggregateIdentifier, 0, new StubDomainEvent())));
+        TransactionManager mockTransactionManager = mock(TransactionManager.class);
+        when(mockTransactionManager.startTransaction()).thenReturn(new Object());
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus,
+                                              new DisruptorConfiguration()
+                                                      .setTransactionManager(mockTransactionManager)
+                                                      .setRescheduleCommandsOnCorruptState(false));
+        testSubject.subscribe(StubCommand.class, stubHandler);
+        testSubject.subscribe(ErrorCommand.class, stubHandler);
+        stubHandler.setRepository(
+                testSubject.createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+        ResultCountingCallback successCallback = new ResultCountingCallback(100);
+        ResultCountingCallback failureCallback = new ResultCountingCallback(1);
+
+        testSubject.dispatch(new GenericCommandMessage<StubCommand>(new ErrorCommand(otherAggregateIdentifier)),
+                             failureCallback);
+        for (int i = 0; i < 100; i++) {
+            testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier)),
+                                 successCallback);
+        }
+
+        assertTrue(failureCallback.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(successCallback.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, failureCallback.successCount.get());
+        assertEquals(100, successCallback.successCount.get());
+        assertEquals(100, inMemoryEventStore.storedEvents.get(aggregateIdentifier).getSequenceNumber());
+        assertEquals(0, inMemoryEventStore.storedEvents.get(otherAggregateIdentifier).getSequenceNumber());
+        verify(mockTransactionManager, atLeastOnce()).rollbackTransaction(any());
+    }
+
+    @Test(timeout = 10000)
+    public void testCommandsRoutedByAdaptiveSegmentRouterStoredInOrder() throws InterruptedException {
+        List<String> aggregateIdentifiers = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            String identifier = UUID.randomUUID().toString();
+            inMemoryEventStore.appendEvents(StubAggregate.class.getSimpleName(), new SimpleDomainEventStream(
+                    new GenericDomainEventMessage<StubDomainEvent>(identifier, 0, new StubDomainEvent())));
+            aggregateIdentifiers.add(identifier);
+        }
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus,
+                                              new DisruptorConfiguration()
+                                                      .setSegmentRouter(new AdaptiveSegmentRouter(1, 100))
+                                                      .setInvokerThreadCount(2)
+                                                      .setPublisherThreadCount(2));
+        testSubject.subscribe(StubCommand.class, stubHandler);
+        stubHandler.setRepository(
+                testSubject.createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+        ResultCountingCallback callback = new ResultCountingCallback(10000);
+
+        for (int i = 0; i < 1000; i++) {
+            for (String identifier : aggregateIdentifiers) {
+                testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(identifier)), callback);
+            }
+        }
+
+        assertTrue("Not all commands have been handled", callback.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(10000, callback.successCount.get());
+        for (String identifier : aggregateIdentifiers) {
+            assertEquals(1000, inMemoryEventStore.storedEvents.get(identifier).getSequenceNumber());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testStatisticsReportLatenciesAndLag() throws Exception {
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus,
+                                              new DisruptorConfiguration()
+                                                      .setClaimStrategy(new SingleThreadedClaimStrategy(1024))
+                                                      .setInvokerThreadCount(2)
+                                                      .setPublisherThreadCount(2));
+        testSubject.subscribe(StubCommand.class, stubHandler);
+        stubHandler.setRepository(
+                testSubject.createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+        ResultCountingCallback callback = new ResultCountingCallback(100);
+
+        for (int i = 0; i < 100; i++) {
+            testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier)),
+                                 callback);
+        }
+        assertTrue("Not all commands have been handled", callback.latch.await(5, TimeUnit.SECONDS));
+        // callbacks may be invoked before the processors have moved their sequence past the last batch
+        testSubject.stop();
+
+        DisruptorCommandBusStatisticsMXBean statistics = testSubject.getStatistics();
+        assertEquals(1024, statistics.getBufferSize());
+        assertEquals(1024, statistics.getRemainingCapacity());
+        assertTrue(Arrays.equals(new long[]{0, 0}, statistics.getInvokerLag()));
+        assertTrue(Arrays.equals(new long[]{0, 0}, statistics.getPublisherLag()));
+        String commandType = StubCommand.class.getName();
+        assertEquals(100, statistics.getDispatchToInvokeLatencies().get(commandType).getCount());
+        assertEquals(100, statistics.getInvokeLatencies().get(commandType).getCount());
+        assertEquals(100, statistics.getStoreAndPublishLatencies().get(commandType).getCount());
+        assertEquals(0, statistics.getBlacklistedAggregateCount());
+        assertEquals(0, statistics.getRescheduledCommandCount());
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("org.axonframework.test:type=DisruptorCommandBusStatistics");
+        mBeanServer.registerMBean(statistics, objectName);
+        try {
+            assertNotNull(mBeanServer.getAttribute(objectName, "InvokeLatencies"));
+            mBeanServer.invoke(objectName, "resetCounters", new Object[0], new String[0]);
+            assertTrue(statistics.getInvokeLatencies().isEmpty());
+        } finally {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testSnapshotsTakenFromCachedAggregate() throws InterruptedException {
+        SnapshottingEventStore snapshottingEventStore = new SnapshottingEventStore(2);
+        snapshottingEventStore.appendEvents(StubAggregate.class.getSimpleName(), new SimpleDomainEventStream(
+                new GenericDomainEventMessage<StubDomainEvent>(aggregateIdentifier, 0, new StubDomainEvent())));
+        testSubject = new DisruptorCommandBus(snapshottingEventStore, eventBus,
+                                              new DisruptorConfiguration().setSnapshotTriggerThreshold(10));
+        testSubject.subscribe(StubCommand.class, stubHandler);
+        stubHandler.setRepository(
+                testSubject.createRepository(new GenericAggregateFactory<StubAggregate>(StubAggregate.class)));
+
+        for (int i = 0; i < 25; i++) {
+            testSubject.dispatch(new GenericCommandMessage<StubCommand>(new StubCommand(aggregateIdentifier)));
+        }
+
+        assertTrue("Snapshots not stored", snapshottingEventStore.snapshotLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, snapshottingEventStore.readCount.get());
+        List<Long> snapshotSequenceNumbers = new ArrayList<Long>();
+        for (DomainEventMessage snapshot : snapshottingEventStore.snapshots) {
+            snapshotSequenceNumbers.add(snapshot.getSequenceNumber());
+            StubAggregate aggregate = (StubAggregate) snapshot.getPayload();
+            assertEquals(aggregateIdentifier, aggregate.getIdentifier());
+            assertEquals(snapshot.getSequenceNumber(), (long) aggregate.getVersion());
+        }
+        Collections.sort(snapshotSequenceNumbers);
+        assertEquals(Arrays.asList(9L, 19L), snapshotSequenceNumbers);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotsRequireSnapshotEventStore() {
+        testSubject = new DisruptorCommandBus(inMemoryEventStore, eventBus,
+                                              new DisruptorConfiguration().setSnapshotTriggerThreshold(10));
+    }
+
     private static class StubAggregate extends AbstractEventSourcedAggregateRoot {
 
         private static final long serialVersionUID = 8192033940704210095L;
@@ -433,6 +708,29 @@ public class DisruptorCommandBusTest {
         }
     }
 
+    private static class SnapshottingEventStore extends InMemoryEventStore implements SnapshotEventStore {
+
+        private final List<DomainEventMessage> snapshots = new CopyOnWriteArrayList<DomainEventMessage>();
+        private final CountDownLatch snapshotLatch;
+        private final AtomicInteger readCount = new AtomicInteger();
+
+        private SnapshottingEventStore(int expectedSnapshots) {
+            snapshotLatch = new CountDownLatch(expectedSnapshots);
+        }
+
+        @Override
+        public DomainEventStream readEvents(String type, Object identifier) {
+            readCount.incrementAndGet();
+            return super.readEvents(type, identifier);
+        }
+
+        @Override
+        public void appendSnapshotEvent(String type, DomainEventMessage snapshotEvent) {
+            snapshots.add(snapshotEvent);
+            snapshotLatch.countDown();
+        }
+    }
+
     private static class StubHandler implements CommandHandler<StubCommand> {
 
         private Repository<StubAggregate> repository;
@@ -465,6 +763,27 @@ public class DisruptorCommandBusTest {
         }
     }
 
+    private static class ResultCountingCallback implements CommandCallback<Object> {
+
+        private final CountDownLatch latch;
+        private final AtomicInteger successCount = new AtomicInteger();
+
+        private ResultCountingCallback(int expectedResults) {
+            latch = new CountDownLatch(expectedResults);
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+            successCount.incrementAndGet();
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            latch.countDown();
+        }
+    }
+
     private static class StubDomainEvent {
 
     }
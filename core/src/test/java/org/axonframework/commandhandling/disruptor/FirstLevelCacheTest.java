@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.axonframework.domain.StubAggregate;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class FirstLevelCacheTest {
+
+    private FirstLevelCacheStatistics statistics;
+    private FirstLevelCache<StubAggregate> testSubject;
+
+    @Before
+    public void setUp() {
+        statistics = new FirstLevelCacheStatistics();
+        testSubject = new FirstLevelCache<StubAggregate>(2, statistics);
+    }
+
+    @Test
+    public void testAggregateFoundByIdentifier() {
+        StubAggregate aggregate = new StubAggregate("id1");
+        testSubject.put(aggregate);
+
+        assertSame(aggregate, testSubject.get("id1"));
+        assertNull(testSubject.get("id2"));
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+
+        statistics.resetCounters();
+        assertEquals(0, statistics.getHitCount());
+        assertEquals(0, statistics.getMissCount());
+    }
+
+    @Test
+    public void testRemoveAggregate() {
+        testSubject.put(new StubAggregate("id1"));
+
+        assertTrue(testSubject.remove("id1"));
+        assertFalse(testSubject.remove("id1"));
+        assertNull(testSubject.get("id1"));
+    }
+
+    @Test
+    public void testAggregatesInUseRemainCachedBeyondMaximumSize() {
+        List<StubAggregate> aggregatesInUse = new ArrayList<StubAggregate>();
+        for (int t = 0; t < 10; t++) {
+            StubAggregate aggregate = new StubAggregate("id" + t);
+            aggregatesInUse.add(aggregate);
+            testSubject.put(aggregate);
+        }
+
+        for (StubAggregate aggregate : aggregatesInUse) {
+            assertSame(aggregate, testSubject.get(aggregate.getIdentifier()));
+        }
+        assertEquals(10, statistics.getHitCount());
+    }
+}
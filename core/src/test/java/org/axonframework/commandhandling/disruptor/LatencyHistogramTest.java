@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.disruptor;
+
+import org.junit.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testLatenciesCountedInExponentialBuckets() {
+        LatencyHistogram testSubject = new LatencyHistogram();
+        testSubject.record(500);
+        testSubject.record(TimeUnit.MICROSECONDS.toNanos(2));
+        testSubject.record(TimeUnit.MICROSECONDS.toNanos(3));
+        testSubject.record(TimeUnit.MICROSECONDS.toNanos(1000));
+
+        LatencyStatistics snapshot = testSubject.snapshot();
+        long[] buckets = snapshot.getBucketCounts();
+        assertEquals(LatencyHistogram.BUCKET_COUNT, buckets.length);
+        assertEquals(1, buckets[0]);
+        assertEquals(1, buckets[1]);
+        assertEquals(1, buckets[2]);
+        assertEquals(1, buckets[10]);
+        assertEquals(4, snapshot.getCount());
+        assertEquals(1000, snapshot.getMaxMicros());
+        assertEquals(251, snapshot.getMeanMicros());
+    }
+
+    @Test
+    public void testPercentilesApproximatedByBucketUpperBound() {
+        LatencyHistogram testSubject = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            testSubject.record(TimeUnit.MICROSECONDS.toNanos(3));
+        }
+        testSubject.record(TimeUnit.MICROSECONDS.toNanos(100));
+        testSubject.record(TimeUnit.MICROSECONDS.toNanos(5000));
+
+        LatencyStatistics snapshot = testSubject.snapshot();
+        assertEquals(4, snapshot.getMedianMicros());
+        assertEquals(128, snapshot.getPercentile99Micros());
+        assertEquals(5000, snapshot.getMaxMicros());
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyStatistics snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMeanMicros());
+        assertEquals(0, snapshot.getMedianMicros());
+        assertEquals(0, snapshot.getPercentile99Micros());
+    }
+}
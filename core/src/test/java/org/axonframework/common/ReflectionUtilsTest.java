@@ -22,6 +22,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -119,6 +120,25 @@ public class ReflectionUtilsTest {
         assertEquals(6, ReflectionUtils.findFieldValuesOfType(item, String.class).size());
     }
 
+    @Test
+    public void testfindFieldValuesOfType_ReadsCurrentValuesOfCachedFields() {
+        ContainsCollectionsType item = new ContainsCollectionsType(null, null, null);
+        assertEquals(2, ReflectionUtils.findFieldValuesOfType(item, String.class).size());
+
+        ContainsCollectionsType other = new ContainsCollectionsType(Arrays.asList("one", "two"), null, null);
+        assertEquals(4, ReflectionUtils.findFieldValuesOfType(other, String.class).size());
+        assertEquals(2, ReflectionUtils.findFieldValuesOfType(item, String.class).size());
+    }
+
+    @Test
+    public void testfindFieldValuesOfType_NoMatchingFields() {
+        Collection<Long> noValues = ReflectionUtils.findFieldValuesOfType(new SomeSubType(), Long.class);
+        assertTrue(noValues.isEmpty());
+        // callers may add to the returned collection
+        assertTrue(noValues.add(1L));
+        assertEquals(2, ReflectionUtils.findFieldValuesOfType(new SomeSubType(), String.class).size());
+    }
+
     @Test
     public void testExplicitlyUnequal_NullValues() {
         assertFalse(explicitlyUnequal(null, null));
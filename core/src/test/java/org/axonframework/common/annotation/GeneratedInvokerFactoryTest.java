@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.domain.Message;
+import org.junit.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class GeneratedInvokerFactoryTest {
+
+    private GeneratedInvokerFactory testSubject;
+    private Message message;
+
+    @Before
+    public void setUp() {
+        testSubject = new GeneratedInvokerFactory();
+        message = GenericEventMessage.asEventMessage("payload");
+    }
+
+    @Test
+    public void testInvokePublicMethod() throws Exception {
+        MemberInvoker invoker = testSubject.createInvoker(
+                Handler.class.getMethod("handle", String.class, int.class),
+                new ParameterResolver[]{new PayloadResolver(), new FixedValueResolver(42)});
+
+        assertTrue(invoker instanceof GeneratedInvokerFactory.GeneratedInvoker);
+        assertEquals("payload42", invoker.invoke(new Handler(), message));
+    }
+
+    @Test
+    public void testInvokePackagePrivateMethodWithPrimitiveReturnValue() throws Exception {
+        MemberInvoker invoker = testSubject.createInvoker(
+                Handler.class.getDeclaredMethod("length", CharSequence.class),
+                new ParameterResolver[]{new PayloadResolver()});
+
+        assertTrue(invoker instanceof GeneratedInvokerFactory.GeneratedInvoker);
+        assertEquals(7, invoker.invoke(new Handler(), message));
+    }
+
+    @Test
+    public void testInvokeVoidMethod() throws Exception {
+        Handler handler = new Handler();
+        MemberInvoker invoker = testSubject.createInvoker(
+                Handler.class.getDeclaredMethod("record", Object.class),
+                new ParameterResolver[]{new PayloadResolver()});
+
+        assertNull(invoker.invoke(handler, message));
+        assertEquals("payload", handler.recorded);
+    }
+
+    @Test
+    public void testInvokeConstructor() throws Exception {
+        MemberInvoker invoker = testSubject.createInvoker(
+                Handler.class.getDeclaredConstructor(Object.class),
+                new ParameterResolver[]{new PayloadResolver()});
+
+        assertTrue(invoker instanceof GeneratedInvokerFactory.GeneratedInvoker);
+        Handler handler = (Handler) invoker.invoke(null, message);
+        assertEquals("payload", handler.recorded);
+    }
+
+    @Test
+    public void testExceptionsAreWrappedInInvocationTargetException() throws Exception {
+        MemberInvoker invoker = testSubject.createInvoker(
+                Handler.class.getMethod("fail", String.class),
+                new ParameterResolver[]{new PayloadResolver()});
+
+        try {
+            invoker.invoke(new Handler(), message);
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("payload", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testFallBackToReflectionForPrivateMethod() throws Exception {
+        MemberInvoker invoker = testSubject.createInvoker(
+                Handler.class.getDeclaredMethod("privateHandle", String.class),
+                new ParameterResolver[]{new PayloadResolver()});
+
+        assertFalse(invoker instanceof GeneratedInvokerFactory.GeneratedInvoker);
+    }
+
+    @Test
+    public void testFallBackToReflectionForInaccessibleParameterType() throws Exception {
+        MemberInvoker invoker = testSubject.createInvoker(
+                Handler.class.getMethod("handlePrivateType", PrivateType.class),
+                new ParameterResolver[]{new FixedValueResolver(new PrivateType())});
+
+        assertFalse(invoker instanceof GeneratedInvokerFactory.GeneratedInvoker);
+        assertEquals("private", invoker.invoke(new Handler(), message));
+    }
+
+    public static class Handler {
+
+        private Object recorded;
+
+        public Handler() {
+        }
+
+        Handler(Object recorded) {
+            this.recorded = recorded;
+        }
+
+        public String handle(String payload, int value) {
+            return payload + value;
+        }
+
+        int length(CharSequence payload) {
+            return payload.length();
+        }
+
+        void record(Object payload) {
+            this.recorded = payload;
+        }
+
+        public void fail(String payload) {
+            throw new IllegalStateException(payload);
+        }
+
+        private String privateHandle(String payload) {
+            return payload;
+        }
+
+        public String handlePrivateType(PrivateType payload) {
+            return "private";
+        }
+    }
+
+    private static class PrivateType {
+
+    }
+
+    private static class PayloadResolver implements ParameterResolver<Object> {
+
+        @Override
+        public Object resolveParameterValue(Message message) {
+            return message.getPayload();
+        }
+
+        @Override
+        public boolean matches(Message message) {
+            return true;
+        }
+    }
+
+    private static class FixedValueResolver implements ParameterResolver<Object> {
+
+        private final Object value;
+
+        private FixedValueResolver(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object resolveParameterValue(Message message) {
+            return value;
+        }
+
+        @Override
+        public boolean matches(Message message) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.eventhandling.annotation.EventHandler;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Benchmark that measures the cost of finding the handler method for a message on a listener with many handlers,
+ * compared to evaluating each of the handlers in turn.
+ *
+ * @author Allard Buijze
+ */
+public class MethodMessageHandlerInspectorBenchmark {
+
+    private static final int ITERATIONS = 10 * 1000 * 1000;
+
+    public static void main(String[] args) {
+        MethodMessageHandlerInspector inspector = MethodMessageHandlerInspector.getInstance(ManyHandlers.class,
+                                                                                            EventHandler.class);
+        EventMessage[] messages = new EventMessage[]{
+                new GenericEventMessage<String>("string"),
+                new GenericEventMessage<Integer>(1),
+                new GenericEventMessage<UUID>(UUID.randomUUID()),
+                new GenericEventMessage<Date>(new Date()),
+                new GenericEventMessage<Locale>(Locale.ENGLISH),
+                new GenericEventMessage<Boolean>(true)
+        };
+        List<MethodMessageHandler> handlers = inspector.getHandlers();
+
+        // warm up
+        runCached(inspector, messages);
+        runLinearScan(handlers, messages);
+
+        long t1 = System.nanoTime();
+        int found = runCached(inspector, messages);
+        long t2 = System.nanoTime();
+        System.out.println(String.format("Cached dispatch took %.1f ns per message (%d handlers found)",
+                                         (double) (t2 - t1) / ITERATIONS, found));
+        t1 = System.nanoTime();
+        found = runLinearScan(handlers, messages);
+        t2 = System.nanoTime();
+        System.out.println(String.format("Linear scan took %.1f ns per message (%d handlers found)",
+                                         (double) (t2 - t1) / ITERATIONS, found));
+    }
+
+    private static int runCached(MethodMessageHandlerInspector inspector, EventMessage[] messages) {
+        int found = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (inspector.findHandlerMethod(messages[i % messages.length]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static int runLinearScan(List<MethodMessageHandler> handlers, EventMessage[] messages) {
+        int found = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            EventMessage message = messages[i % messages.length];
+            for (MethodMessageHandler handler : handlers) {
+                if (handler.matches(message)) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class ManyHandlers {
+
+        @EventHandler
+        public void handle(String payload) {
+        }
+
+        @EventHandler
+        public void handle(Integer payload) {
+        }
+
+        @EventHandler
+        public void handle(Long payload) {
+        }
+
+        @EventHandler
+        public void handle(Short payload) {
+        }
+
+        @EventHandler
+        public void handle(Byte payload) {
+        }
+
+        @EventHandler
+        public void handle(Double payload) {
+        }
+
+        @EventHandler
+        public void handle(Float payload) {
+        }
+
+        @EventHandler
+        public void handle(Character payload) {
+        }
+
+        @EventHandler
+        public void handle(BigDecimal payload) {
+        }
+
+        @EventHandler
+        public void handle(BigInteger payload) {
+        }
+
+        @EventHandler
+        public void handle(Date payload) {
+        }
+
+        @EventHandler
+        public void handle(UUID payload) {
+        }
+
+        @EventHandler
+        public void handle(Locale payload) {
+        }
+
+        @EventHandler
+        public void handle(StringBuilder payload) {
+        }
+
+        @EventHandler
+        public void handle(ArrayList payload) {
+        }
+
+        @EventHandler
+        public void handle(Thread payload) {
+        }
+    }
+}
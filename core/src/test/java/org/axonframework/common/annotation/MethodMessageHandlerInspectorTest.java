@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.common.annotation;
+
+import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.junit.*;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class MethodMessageHandlerInspectorTest {
+
+    private MethodMessageHandlerInspector testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = MethodMessageHandlerInspector.getInstance(SomeHandler.class, EventHandler.class);
+    }
+
+    @Test
+    public void testMostSpecificHandlerFound() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertEquals("handleInteger", findHandlerMethodName(new GenericEventMessage<Integer>(1)));
+            assertEquals("handleNumber", findHandlerMethodName(new GenericEventMessage<Long>(1L)));
+        }
+    }
+
+    @Test
+    public void testNoHandlerFoundForUnsupportedPayload() {
+        // the second invocation uses the cached result
+        assertNull(testSubject.findHandlerMethod(new GenericEventMessage<Boolean>(true)));
+        assertNull(testSubject.findHandlerMethod(new GenericEventMessage<Boolean>(false)));
+    }
+
+    @Test
+    public void testHandlerSelectionDependsOnEntireMessage() throws Exception {
+        EventMessage<String> withMetaData = new GenericEventMessage<String>(
+                "payload", Collections.singletonMap("key", (Object) "value"));
+        EventMessage<String> withoutMetaData = new GenericEventMessage<String>("payload");
+        EventMessage<String> domainEvent = new GenericDomainEventMessage<String>("id", 0, "payload");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("handleStringWithMetaData", findHandlerMethodName(withMetaData));
+            assertEquals("handleCharSequence", findHandlerMethodName(withoutMetaData));
+        }
+        assertEquals("handleCharSequence", findHandlerMethodName(domainEvent));
+    }
+
+    @Test
+    public void testHandlerWithoutPayloadParameterFoundForAnyPayload() throws Exception {
+        MethodMessageHandlerInspector inspector = MethodMessageHandlerInspector.getInstance(
+                MetaDataHandler.class, EventHandler.class);
+        EventMessage<Boolean> message = new GenericEventMessage<Boolean>(
+                true, Collections.singletonMap("name", (Object) "value"));
+
+        assertEquals("handleName", inspector.findHandlerMethod(message).getMethodName());
+        assertEquals("handleName", inspector.findHandlerMethod(message).getMethodName());
+        assertNull(inspector.findHandlerMethod(new GenericEventMessage<Boolean>(true)));
+    }
+
+    private String findHandlerMethodName(EventMessage<?> message) {
+        MethodMessageHandler handler = testSubject.findHandlerMethod(message);
+        assertNotNull("No handler found for " + message.getPayloadType(), handler);
+        return handler.getMethodName();
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class SomeHandler {
+
+        @EventHandler
+        public void handleNumber(Number number) {
+        }
+
+        @EventHandler
+        public void handleInteger(Integer number) {
+        }
+
+        @EventHandler
+        public void handleCharSequence(CharSequence payload) {
+        }
+
+        @EventHandler
+        public void handleStringWithMetaData(String payload, @MetaData(value = "key", required = true) String value) {
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class MetaDataHandler {
+
+        @EventHandler
+        public void handleName(@MetaData(value = "name", required = true) String name) {
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.junit.*;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class BoundedSingleConsumerQueueTest {
+
+    private BoundedSingleConsumerQueue<Integer> testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new BoundedSingleConsumerQueue<Integer>(4);
+    }
+
+    @Test
+    public void testOfferRejectedWhenFull() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(testSubject.offer(i));
+        }
+        assertFalse(testSubject.offer(4));
+        assertEquals(4, testSubject.size());
+
+        assertEquals(Integer.valueOf(0), testSubject.poll());
+        assertTrue(testSubject.offer(4));
+        assertFalse(testSubject.offer(5));
+    }
+
+    @Test
+    public void testElementsRemovedInInsertionOrderAcrossRingBoundary() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(testSubject.offer(i));
+            assertTrue(testSubject.offer(i + 100));
+            assertEquals(Integer.valueOf(i), testSubject.peek());
+            assertEquals(Integer.valueOf(i), testSubject.poll());
+            assertEquals(Integer.valueOf(i + 100), testSubject.poll());
+            assertTrue(testSubject.isEmpty());
+            assertNull(testSubject.poll());
+        }
+        assertEquals(0, testSubject.size());
+    }
+
+    @Test
+    public void testIteratorReturnsQueuedElements() {
+        testSubject.offer(1);
+        testSubject.offer(2);
+        testSubject.offer(3);
+        testSubject.poll();
+
+        Iterator<Integer> iterator = testSubject.iterator();
+        assertEquals(Integer.valueOf(2), iterator.next());
+        assertEquals(Integer.valueOf(3), iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(timeout = 10000)
+    public void testAddWaitsForCapacity() throws InterruptedException {
+        final int elementCount = 10000;
+        final AtomicInteger consumed = new AtomicInteger();
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (consumed.get() < elementCount) {
+                    Integer element = testSubject.poll();
+                    if (element == null) {
+                        Thread.yield();
+                    } else {
+                        assertEquals(consumed.getAndIncrement(), element.intValue());
+                    }
+                }
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < elementCount; i++) {
+            testSubject.add(i);
+        }
+        consumer.join();
+        assertEquals(elementCount, consumed.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testAddFailsOnConsumerThreadWhenFull() {
+        for (int i = 0; i < 4; i++) {
+            testSubject.add(i);
+        }
+        testSubject.setConsumer(Thread.currentThread());
+        try {
+            testSubject.add(4);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(Integer.valueOf(0), testSubject.poll());
+        assertTrue(testSubject.add(4));
+        testSubject.setConsumer(null);
+        assertEquals(4, testSubject.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBePowerOfTwo() {
+        new BoundedSingleConsumerQueue<Integer>(3);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.GenericEventMessage;
+import org.axonframework.testutils.MockException;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class DisruptorClusterTest {
+
+    private DisruptorCluster testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new DisruptorCluster(new SequentialPerAggregatePolicy());
+    }
+
+    @After
+    public void tearDown() {
+        testSubject.stop();
+    }
+
+    @Test(timeout = 30000)
+    public void testEventsOfSameAggregateProcessedInOrder() {
+        final int aggregateCount = 20;
+        final int eventsPerAggregate = 500;
+        testSubject.setProcessorCount(3);
+        testSubject.setBufferSize(64);
+        final Map<Object, List<Long>> handledSequenceNumbers = new ConcurrentHashMap<Object, List<Long>>();
+        final Map<Object, String> handlingThreads = new ConcurrentHashMap<Object, String>();
+        for (int a = 0; a < aggregateCount; a++) {
+            handledSequenceNumbers.put("aggregate" + a, Collections.synchronizedList(new ArrayList<Long>()));
+        }
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                DomainEventMessage domainEvent = (DomainEventMessage) event;
+                handledSequenceNumbers.get(domainEvent.getAggregateIdentifier()).add(domainEvent.getSequenceNumber());
+                String previousThread = handlingThreads.put(domainEvent.getAggregateIdentifier(),
+                                                            Thread.currentThread().getName());
+                assertTrue(previousThread == null || previousThread.equals(Thread.currentThread().getName()));
+            }
+        });
+        testSubject.start();
+
+        for (int e = 0; e < eventsPerAggregate; e++) {
+            for (int a = 0; a < aggregateCount; a++) {
+                testSubject.publish(new GenericDomainEventMessage<String>("aggregate" + a, e, "payload"));
+            }
+        }
+        testSubject.stop();
+
+        for (List<Long> sequenceNumbers : handledSequenceNumbers.values()) {
+            assertEquals(eventsPerAggregate, sequenceNumbers.size());
+            for (int i = 0; i < eventsPerAggregate; i++) {
+                assertEquals(Long.valueOf(i), sequenceNumbers.get(i));
+            }
+        }
+        assertEquals(aggregateCount, handlingThreads.size());
+    }
+
+    @Test(timeout = 30000)
+    public void testEventsProcessedInTransactionsOfLimitedSize() {
+        final List<Integer> transactionSizes = new CopyOnWriteArrayList<Integer>();
+        testSubject.setTransactionManager(new TransactionManager() {
+            @Override
+            public void beforeTransaction(TransactionStatus transactionStatus) {
+                assertSame(transactionStatus, TransactionStatus.current());
+                transactionStatus.setMaxTransactionSize(5);
+            }
+
+            @Override
+            public void afterTransaction(TransactionStatus transactionStatus) {
+                assertTrue(transactionStatus.isSuccessful());
+                transactionSizes.add(transactionStatus.getEventsProcessedInTransaction());
+            }
+        });
+        final List<EventMessage> handledEvents = new CopyOnWriteArrayList<EventMessage>();
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                handledEvents.add(event);
+            }
+        });
+        testSubject.start();
+
+        for (int i = 0; i < 100; i++) {
+            testSubject.publish(new GenericEventMessage<String>("payload" + i));
+        }
+        testSubject.stop();
+
+        assertEquals(100, handledEvents.size());
+        int totalProcessed = 0;
+        for (Integer transactionSize : transactionSizes) {
+            assertTrue("Transaction too large: " + transactionSize, transactionSize <= 5);
+            totalProcessed += transactionSize;
+        }
+        assertEquals(100, totalProcessed);
+    }
+
+    @Test(timeout = 30000)
+    public void testFailedTransactionRetried() {
+        final List<TransactionStatus> failedTransactions = new CopyOnWriteArrayList<TransactionStatus>();
+        testSubject.setTransactionManager(new TransactionManager() {
+            @Override
+            public void beforeTransaction(TransactionStatus transactionStatus) {
+                transactionStatus.setRetryPolicy(RetryPolicy.RETRY_TRANSACTION);
+                transactionStatus.setRetryInterval(0);
+            }
+
+            @Override
+            public void afterTransaction(TransactionStatus transactionStatus) {
+                if (!transactionStatus.isSuccessful()) {
+                    failedTransactions.add(transactionStatus);
+                }
+            }
+        });
+        final List<Object> handledPayloads = new CopyOnWriteArrayList<Object>();
+        final AtomicBoolean failed = new AtomicBoolean();
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                handledPayloads.add(event.getPayload());
+                if ("fail".equals(event.getPayload()) && failed.compareAndSet(false, true)) {
+                    throw new MockException();
+                }
+            }
+        });
+        testSubject.start();
+
+        testSubject.publish(new GenericEventMessage<String>("first"), new GenericEventMessage<String>("fail"),
+                            new GenericEventMessage<String>("last"));
+        testSubject.stop();
+
+        assertEquals(1, failedTransactions.size());
+        assertTrue(failedTransactions.get(0).getException() instanceof MockException);
+        assertEquals(1, Collections.frequency(handledPayloads, "last"));
+        assertEquals(2, Collections.frequency(handledPayloads, "fail"));
+        assertEquals("last", handledPayloads.get(handledPayloads.size() - 1));
+    }
+
+    @Test(timeout = 30000)
+    public void testRecoveredTransactionCommittedAfterFailedCommit() throws InterruptedException {
+        final AtomicBoolean commitFailed = new AtomicBoolean();
+        final List<Integer> committedTransactionSizes = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch committed = new CountDownLatch(1);
+        testSubject.setTransactionManager(new TransactionManager() {
+            @Override
+            public void beforeTransaction(TransactionStatus transactionStatus) {
+                transactionStatus.setRetryPolicy(RetryPolicy.RETRY_TRANSACTION);
+                transactionStatus.setRetryInterval(0);
+            }
+
+            @Override
+            public void afterTransaction(TransactionStatus transactionStatus) {
+                if (!transactionStatus.isSuccessful()) {
+                    return;
+                }
+                if (commitFailed.compareAndSet(false, true)) {
+                    throw new MockException();
+                }
+                committedTransactionSizes.add(transactionStatus.getEventsProcessedInTransaction());
+                committed.countDown();
+            }
+        });
+        final List<Object> handledPayloads = new CopyOnWriteArrayList<Object>();
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                handledPayloads.add(event.getPayload());
+            }
+        });
+        testSubject.start();
+
+        testSubject.publish(new GenericEventMessage<String>("payload"));
+
+        // no other events arrive, so the recovered transaction must be committed without waiting for one
+        assertTrue("Recovered transaction was never committed", committed.await(5, TimeUnit.SECONDS));
+        testSubject.stop();
+
+        assertTrue(commitFailed.get());
+        assertEquals(Collections.singletonList(1), committedTransactionSizes);
+        assertEquals(2, Collections.frequency(handledPayloads, "payload"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPublishRequiresStartedCluster() {
+        testSubject.publish(new GenericEventMessage<String>("payload"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBufferSizeMustBePowerOfTwo() {
+        testSubject.setBufferSize(1000);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark that measures event scheduling throughput of the {@link EventProcessingScheduler} when many threads
+ * schedule events for the same sequence at the same time. Compares the default lock-free queue with a {@link
+ * LinkedBlockingQueue}.
+ *
+ * @author Allard Buijze
+ */
+public class EventProcessingSchedulerBenchmark {
+
+    private static final int EVENTS_PER_PRODUCER = 1000 * 1000;
+    private static final int[] PRODUCER_COUNTS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            // warm up
+            runBenchmark(executor, 4, false);
+            runBenchmark(executor, 4, true);
+            for (int producerCount : PRODUCER_COUNTS) {
+                long lockFree = runBenchmark(executor, producerCount, false);
+                long blocking = runBenchmark(executor, producerCount, true);
+                System.out.println(String.format(
+                        "%d producers: lock-free queue did %d events per second, blocking queue %d per second",
+                        producerCount, lockFree, blocking));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long runBenchmark(ExecutorService executor, int producerCount, final boolean useBlockingQueue)
+            throws InterruptedException {
+        final long totalEvents = (long) producerCount * EVENTS_PER_PRODUCER;
+        final AtomicLong handledEvents = new AtomicLong();
+        final CountDownLatch allHandled = new CountDownLatch(1);
+        final AsynchronousExecutionWrapper<Object> wrapper =
+                new AsynchronousExecutionWrapper<Object>(executor, new SequentialPolicy()) {
+                    @Override
+                    protected void doHandle(Object task) {
+                        if (handledEvents.incrementAndGet() == totalEvents) {
+                            allHandled.countDown();
+                        }
+                    }
+
+                    @Override
+                    protected EventProcessingScheduler<Object> newProcessingScheduler(
+                            EventProcessingScheduler.ShutdownCallback shutDownCallback) {
+                        Queue<Object> queue = useBlockingQueue
+                                ? new LinkedBlockingQueue<Object>()
+                                : new SingleConsumerQueue<Object>();
+                        return newProcessingScheduler(shutDownCallback, queue);
+                    }
+                };
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int p = 0; p < producerCount; p++) {
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    Object event = new Object();
+                    for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                        wrapper.schedule(event);
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        long t1 = System.currentTimeMillis();
+        startSignal.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        allHandled.await();
+        long t2 = System.currentTimeMillis();
+        return (totalEvents * 1000) / Math.max(1, t2 - t1);
+    }
+}
@@ -25,12 +25,15 @@ import org.mockito.*;
 import org.mockito.invocation.*;
 import org.mockito.stubbing.*;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import static org.mockito.AdditionalMatchers.*;
@@ -207,6 +210,45 @@ public class EventProcessingSchedulerTest {
         inOrder.verify(listener).afterTransaction(isA(TransactionStatus.class));
     }
 
+    @Test(timeout = 30000)
+    public void testNoEventsLostWhenSchedulingConcurrentlyWithShutdown() throws InterruptedException {
+        final int producerCount = 4;
+        final int eventsPerProducer = 50000;
+        final AtomicInteger handledEvents = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        final AsynchronousExecutionWrapper<Object> wrapper =
+                new AsynchronousExecutionWrapper<Object>(executor, new SequentialPolicy()) {
+                    @Override
+                    protected void doHandle(Object task) {
+                        handledEvents.incrementAndGet();
+                    }
+                };
+        try {
+            List<Thread> producers = new ArrayList<Thread>();
+            for (int p = 0; p < producerCount; p++) {
+                Thread producer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < eventsPerProducer; i++) {
+                            wrapper.schedule(new Object());
+                        }
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            while (handledEvents.get() < producerCount * eventsPerProducer) {
+                Thread.sleep(10);
+            }
+            assertEquals(producerCount * eventsPerProducer, handledEvents.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private MockEventListener executeEventProcessing(RetryPolicy policy) {
         ExecutorService mockExecutorService = mock(ExecutorService.class);
         final MockEventListener listener = new MockEventListener(policy);
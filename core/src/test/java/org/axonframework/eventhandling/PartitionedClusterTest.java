@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.EventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.GenericEventMessage;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class PartitionedClusterTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 30000)
+    public void testEventsOfSameAggregateProcessedInOrder() throws InterruptedException {
+        final int aggregateCount = 100;
+        final int eventsPerAggregate = 200;
+        // a small capacity forces publishing threads to wait for the partitions
+        PartitionedCluster testSubject = new PartitionedCluster(executor, new NoTransactionManager(),
+                                                                new SequentialPerAggregatePolicy(), 3, 16);
+        final Map<Object, List<Long>> handledSequenceNumbers = new ConcurrentHashMap<Object, List<Long>>();
+        final CountDownLatch allHandled = new CountDownLatch(aggregateCount * eventsPerAggregate);
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                DomainEventMessage domainEvent = (DomainEventMessage) event;
+                handledSequenceNumbers.get(domainEvent.getAggregateIdentifier()).add(domainEvent.getSequenceNumber());
+                allHandled.countDown();
+            }
+        });
+        for (int a = 0; a < aggregateCount; a++) {
+            handledSequenceNumbers.put("aggregate" + a, Collections.synchronizedList(new ArrayList<Long>()));
+        }
+
+        for (int e = 0; e < eventsPerAggregate; e++) {
+            for (int a = 0; a < aggregateCount; a++) {
+                testSubject.publish(new GenericDomainEventMessage<String>("aggregate" + a, e, "payload"));
+            }
+        }
+
+        assertTrue("Not all events were handled", allHandled.await(20, TimeUnit.SECONDS));
+        for (List<Long> sequenceNumbers : handledSequenceNumbers.values()) {
+            assertEquals(eventsPerAggregate, sequenceNumbers.size());
+            for (int i = 0; i < eventsPerAggregate; i++) {
+                assertEquals(Long.valueOf(i), sequenceNumbers.get(i));
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testEventsWithoutSequenceIdentifierHandledByAllMembers() throws InterruptedException {
+        PartitionedCluster testSubject = new PartitionedCluster(executor, new FullConcurrencyPolicy(), 4);
+        final int eventCount = 1000;
+        final CountDownLatch allHandled = new CountDownLatch(eventCount * 2);
+        final List<String> threadNames = new CopyOnWriteArrayList<String>();
+        EventListener listener = new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                threadNames.add(Thread.currentThread().getName());
+                allHandled.countDown();
+            }
+        };
+        testSubject.subscribe(listener);
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                allHandled.countDown();
+            }
+        });
+
+        for (int i = 0; i < eventCount; i++) {
+            testSubject.publish(new GenericEventMessage<String>("payload" + i));
+        }
+
+        assertTrue("Not all events were handled", allHandled.await(20, TimeUnit.SECONDS));
+        assertEquals(eventCount, threadNames.size());
+        assertFalse(threadNames.contains(Thread.currentThread().getName()));
+    }
+
+    @Test(timeout = 30000)
+    public void testEventsProcessedInTransactions() throws InterruptedException {
+        final CountDownLatch transactionsCompleted = new CountDownLatch(1);
+        final AtomicInteger eventsInTransactions = new AtomicInteger();
+        TransactionManager transactionManager = new TransactionManager() {
+            @Override
+            public void beforeTransaction(TransactionStatus transactionStatus) {
+            }
+
+            @Override
+            public void afterTransaction(TransactionStatus transactionStatus) {
+                if (eventsInTransactions.addAndGet(transactionStatus.getEventsProcessedInTransaction()) == 10) {
+                    transactionsCompleted.countDown();
+                }
+            }
+        };
+        PartitionedCluster testSubject = new PartitionedCluster(executor, transactionManager,
+                                                                new SequentialPolicy(), 2, 8);
+        EventListener listener = mock(EventListener.class);
+        testSubject.subscribe(listener);
+
+        for (int i = 0; i < 10; i++) {
+            testSubject.publish(new GenericEventMessage<String>("payload" + i));
+        }
+
+        assertTrue("Transactions were not completed", transactionsCompleted.await(10, TimeUnit.SECONDS));
+        verify(listener, times(10)).handle(isA(EventMessage.class));
+    }
+
+    @Test(timeout = 30000)
+    public void testPartitionProcessesEventsAfterRunningOutOfEvents() throws InterruptedException {
+        PartitionedCluster testSubject = new PartitionedCluster(executor, new NoTransactionManager(),
+                                                                new SequentialPolicy(), 1, 8);
+        final AtomicInteger handledCount = new AtomicInteger();
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                handledCount.incrementAndGet();
+            }
+        });
+
+        for (int i = 1; i <= 100; i++) {
+            testSubject.publish(new GenericEventMessage<String>("payload" + i));
+            while (handledCount.get() < i) {
+                Thread.sleep(1);
+            }
+        }
+        assertEquals(100, handledCount.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testPublishingIntoOwnFullPartitionFailsInsteadOfWaiting() throws InterruptedException {
+        final PartitionedCluster testSubject = new PartitionedCluster(executor, new NoTransactionManager(),
+                                                                      new SequentialPolicy(), 1, 2);
+        final AtomicReference<Exception> publicationFailure = new AtomicReference<Exception>();
+        final CountDownLatch handled = new CountDownLatch(1);
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(EventMessage event) {
+                if ("trigger".equals(event.getPayload())) {
+                    try {
+                        for (int i = 0; i < 3; i++) {
+                            testSubject.publish(new GenericEventMessage<String>("nested"));
+                        }
+                    } catch (IllegalStateException e) {
+                        publicationFailure.set(e);
+                    } finally {
+                        handled.countDown();
+                    }
+                }
+            }
+        });
+
+        testSubject.publish(new GenericEventMessage<String>("trigger"));
+
+        assertTrue("The trigger event was not handled", handled.await(10, TimeUnit.SECONDS));
+        assertNotNull("Expected the publication into the full partition to fail", publicationFailure.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartitionCapacityMustBePowerOfTwo() {
+        new PartitionedCluster(executor, new NoTransactionManager(), new SequentialPolicy(), 2, 1000);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SingleConsumerQueueTest {
+
+    private SingleConsumerQueue<Integer> testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new SingleConsumerQueue<Integer>();
+    }
+
+    @Test
+    public void testElementsRemovedInInsertionOrder() {
+        assertTrue(testSubject.isEmpty());
+        assertNull(testSubject.peek());
+        assertNull(testSubject.poll());
+
+        testSubject.add(1);
+        testSubject.add(2);
+        testSubject.add(3);
+
+        assertFalse(testSubject.isEmpty());
+        assertEquals(3, testSubject.size());
+        assertEquals(Integer.valueOf(1), testSubject.peek());
+        assertEquals(Integer.valueOf(1), testSubject.poll());
+        assertEquals(Integer.valueOf(2), testSubject.poll());
+        assertEquals(1, testSubject.size());
+        assertEquals(Integer.valueOf(3), testSubject.poll());
+        assertNull(testSubject.poll());
+        assertTrue(testSubject.isEmpty());
+        assertEquals(0, testSubject.size());
+    }
+
+    @Test
+    public void testIteratorSkipsConsumedElements() {
+        testSubject.add(1);
+        testSubject.add(2);
+        Iterator<Integer> iterator = testSubject.iterator();
+        testSubject.poll();
+
+        assertTrue(iterator.hasNext());
+        assertEquals(Integer.valueOf(1), iterator.next());
+        assertEquals(Integer.valueOf(2), iterator.next());
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.remove();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullElementsRejected() {
+        testSubject.offer(null);
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentProducersKeepElementOrderPerProducer() throws InterruptedException {
+        final int producerCount = 4;
+        final int elementsPerProducer = 50000;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < elementsPerProducer; i++) {
+                        testSubject.offer(producer * elementsPerProducer + i);
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+        startSignal.countDown();
+
+        int[] lastSeen = new int[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            lastSeen[p] = -1;
+        }
+        int received = 0;
+        while (received < producerCount * elementsPerProducer) {
+            Integer element = testSubject.poll();
+            if (element == null) {
+                Thread.yield();
+            } else {
+                int producer = element / elementsPerProducer;
+                int sequence = element % elementsPerProducer;
+                assertEquals("Elements of a single producer out of order", lastSeen[producer] + 1, sequence);
+                lastSeen[producer] = sequence;
+                received++;
+                assertTrue("Size may not drop below zero", testSubject.size() >= 0);
+            }
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertTrue(testSubject.isEmpty());
+        assertEquals(0, testSubject.size());
+    }
+}
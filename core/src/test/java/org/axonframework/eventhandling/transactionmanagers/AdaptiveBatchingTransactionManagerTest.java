@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+import org.axonframework.eventhandling.TransactionManager;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.testutils.MockException;
+import org.junit.*;
+import org.mockito.invocation.*;
+import org.mockito.stubbing.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AdaptiveBatchingTransactionManagerTest {
+
+    private TransactionManager delegate;
+    private AdaptiveBatchingTransactionManager testSubject;
+
+    @Before
+    public void setUp() {
+        delegate = mock(TransactionManager.class);
+        testSubject = new AdaptiveBatchingTransactionManager(delegate, 50, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testTransactionSizeGrowsWhileFullTransactionsCommitQuickly() {
+        testSubject.setMaxTransactionSize(100);
+        assertEquals(50, testSubject.getCurrentTransactionSize());
+
+        processTransaction(50);
+        assertEquals(62, testSubject.getCurrentTransactionSize());
+        processTransaction(62);
+        assertEquals(77, testSubject.getCurrentTransactionSize());
+        for (int i = 0; i < 10; i++) {
+            processTransaction(testSubject.getCurrentTransactionSize());
+        }
+        assertEquals(100, testSubject.getCurrentTransactionSize());
+        verify(delegate, times(12)).beforeTransaction(isA(TransactionStatus.class));
+        verify(delegate, times(12)).afterTransaction(isA(TransactionStatus.class));
+
+        AdaptiveBatchingStatistics statistics = testSubject.getStatistics();
+        assertEquals(12, statistics.getTransactionCount());
+        assertEquals(0, statistics.getFailedTransactionCount());
+        assertEquals(100, statistics.getCurrentTransactionSize());
+    }
+
+    @Test
+    public void testTransactionSizeUnchangedWhenTransactionNotFull() {
+        processTransaction(10);
+        assertEquals(50, testSubject.getCurrentTransactionSize());
+        assertEquals(10.0, testSubject.getStatistics().getAverageTransactionSize(), 0.001);
+    }
+
+    @Test
+    public void testTransactionSizeHalvedWhenCommitIsSlow() {
+        testSubject = new AdaptiveBatchingTransactionManager(delegate, 1, TimeUnit.MILLISECONDS);
+        testSubject.setMinTransactionSize(20);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(10);
+                return null;
+            }
+        }).when(delegate).afterTransaction(isA(TransactionStatus.class));
+
+        processTransaction(50);
+        assertEquals(25, testSubject.getCurrentTransactionSize());
+        processTransaction(10);
+        assertEquals(20, testSubject.getCurrentTransactionSize());
+
+        AdaptiveBatchingStatistics statistics = testSubject.getStatistics();
+        assertTrue(statistics.getLastCommitTime() >= 10000);
+        assertTrue(statistics.getMaxCommitTime() >= statistics.getAverageCommitTime());
+        statistics.resetStatistics();
+        assertEquals(0, statistics.getTransactionCount());
+        assertEquals(0, statistics.getMaxCommitTime());
+    }
+
+    @Test
+    public void testFailedTransactionsDoNotAffectTransactionSize() {
+        StubTransactionStatus status = new StubTransactionStatus();
+        testSubject.beforeTransaction(status);
+        status.processEvents(50);
+        status.fail(new MockException());
+        testSubject.afterTransaction(status);
+
+        verify(delegate).afterTransaction(status);
+        assertEquals(50, testSubject.getCurrentTransactionSize());
+        assertEquals(1, testSubject.getStatistics().getFailedTransactionCount());
+        assertEquals(0, testSubject.getStatistics().getTransactionCount());
+    }
+
+    @Test
+    public void testMaxTransactionSizeSetOnStatus() {
+        testSubject.setInitialTransactionSize(5000);
+        assertEquals(1000, testSubject.getCurrentTransactionSize());
+
+        TransactionStatus status = new TransactionStatus();
+        testSubject.beforeTransaction(status);
+        assertEquals(1000, status.getMaxTransactionSize());
+    }
+
+    private void processTransaction(int eventCount) {
+        StubTransactionStatus status = new StubTransactionStatus();
+        testSubject.beforeTransaction(status);
+        status.processEvents(eventCount);
+        testSubject.afterTransaction(status);
+    }
+
+    private static class StubTransactionStatus extends TransactionStatus {
+
+        private void processEvents(int eventCount) {
+            for (int i = 0; i < eventCount; i++) {
+                recordEventProcessed();
+            }
+        }
+
+        private void fail(Throwable cause) {
+            markFailed(cause);
+        }
+    }
+}
@@ -21,8 +21,12 @@ import org.axonframework.domain.DomainEventStream;
 import org.axonframework.domain.GenericDomainEventMessage;
 import org.axonframework.domain.SimpleDomainEventStream;
 import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.MetaData;
 import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.management.CriteriaBuilder;
 import org.axonframework.serializer.xml.XStreamSerializer;
+import org.joda.time.DateTime;
 import org.junit.*;
 import org.mockito.*;
 
@@ -31,7 +35,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
@@ -206,9 +216,233 @@ public class FileSystemEventStoreTest {
         assertEquals(3, actualEvents.size());
     }
 
-    private void writeEvents(AtomicInteger counter, int numberOfEvents) {
+    @Test
+    public void testAppendSnapshot_OffsetFoundInIndex() throws IOException {
+        SimpleEventFileResolver eventFileResolver = spy(new OffsetIndexingSimpleEventFileResolver(eventFileBaseDir));
+        FileSystemEventStore eventStore = new FileSystemEventStore(eventFileResolver);
+        AtomicInteger counter = new AtomicInteger(0);
+        writeEvents(eventStore, counter, 5);
+        writeEvents(eventStore, counter, 5);
+
+        eventStore.appendSnapshotEvent("snapshotting", new GenericDomainEventMessage<StubDomainEvent>(
+                aggregateIdentifier, 6, new StubDomainEvent()));
+
+        verify(eventFileResolver, never()).openEventFileForReading(anyString(), any());
+        assertSequenceNumbers(eventStore.readEvents("snapshotting", aggregateIdentifier), 6, 7, 8, 9);
+    }
+
+    @Test
+    public void testAppendSnapshot_FallBackToScanningWhenIndexIsMissing() {
+        FileSystemEventStore eventStore = new FileSystemEventStore(
+                new OffsetIndexingSimpleEventFileResolver(eventFileBaseDir));
+        AtomicInteger counter = new AtomicInteger(0);
+        writeEvents(eventStore, counter, 5);
+        assertTrue(new File(eventFileBaseDir, "snapshotting/" + aggregateIdentifier + "."
+                + OffsetIndexingSimpleEventFileResolver.FILE_EXTENSION_OFFSETS).delete());
+        writeEvents(eventStore, counter, 5);
+
+        eventStore.appendSnapshotEvent("snapshotting", new GenericDomainEventMessage<StubDomainEvent>(
+                aggregateIdentifier, 2, new StubDomainEvent()));
+        assertSequenceNumbers(eventStore.readEvents("snapshotting", aggregateIdentifier), 2, 3, 4, 5, 6, 7, 8, 9);
+
+        eventStore.appendSnapshotEvent("snapshotting", new GenericDomainEventMessage<StubDomainEvent>(
+                aggregateIdentifier, 7, new StubDomainEvent()));
+        assertSequenceNumbers(eventStore.readEvents("snapshotting", aggregateIdentifier), 7, 8, 9);
+    }
+
+    @Test
+    public void testAppendEvents_NoOffsetIndexByDefault() {
         FileSystemEventStore eventStore = new FileSystemEventStore(new SimpleEventFileResolver(eventFileBaseDir));
+        AtomicInteger counter = new AtomicInteger(0);
+        writeEvents(eventStore, counter, 5);
+
+        File typeDir = new File(eventFileBaseDir, "snapshotting");
+        assertTrue(new File(typeDir, aggregateIdentifier + "." + SimpleEventFileResolver.FILE_EXTENSION_EVENTS)
+                           .exists());
+        assertFalse(new File(typeDir, aggregateIdentifier + "."
+                + OffsetIndexingSimpleEventFileResolver.FILE_EXTENSION_OFFSETS).exists());
+
+        eventStore.appendSnapshotEvent("snapshotting", new GenericDomainEventMessage<StubDomainEvent>(
+                aggregateIdentifier, 2, new StubDomainEvent()));
+        assertSequenceNumbers(eventStore.readEvents("snapshotting", aggregateIdentifier), 2, 3, 4);
+    }
+
+    @Test
+    public void testVisitEvents_AllEvents() {
+        FileSystemEventStore eventStore = new FileSystemEventStore(new SimpleEventFileResolver(newBaseDir()));
+        storeEvents(eventStore, "first", "a", 3, new DateTime());
+        storeEvents(eventStore, "first", "b", 2, new DateTime());
+        storeEvents(eventStore, "second", "c", 4, new DateTime());
+
+        EventVisitor visitor = mock(EventVisitor.class);
+        eventStore.visitEvents(visitor);
+
+        verify(visitor, times(9)).doWithEvent(isA(DomainEventMessage.class));
+    }
+
+    @Test
+    public void testVisitEvents_WithCriteria() {
+        FileSystemEventStore eventStore = new FileSystemEventStore(new SimpleEventFileResolver(newBaseDir()));
+        DateTime now = new DateTime();
+        storeEvents(eventStore, "first", "a", 3, now.minusDays(2));
+        storeEvents(eventStore, "first", "b", 2, now);
+        storeEvents(eventStore, "second", "c", 4, now);
+
+        CriteriaBuilder builder = eventStore.newCriteriaBuilder();
+        RecordingVisitor visitor = new RecordingVisitor();
+        eventStore.visitEvents(builder.property("type").is("first")
+                                      .and(builder.property("timeStamp").greaterThan(now.minusDays(1))), visitor);
+        assertEquals(Arrays.asList("b"), new ArrayList<String>(visitor.sequenceNumbers.keySet()));
+
+        visitor = new RecordingVisitor();
+        eventStore.visitEvents(builder.property("timeStamp").lessThan(now.minusDays(1).toString())
+                                      .or(builder.property("aggregateIdentifier").in(new String[]{"c"})), visitor);
+        assertEquals(Arrays.asList(0L, 1L, 2L), visitor.sequenceNumbers.get("a"));
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L), visitor.sequenceNumbers.get("c"));
+        assertFalse(visitor.sequenceNumbers.containsKey("b"));
+    }
+
+    @Test
+    public void testVisitEvents_Partitioned() {
+        SegmentedEventFileResolver eventFileResolver = new SegmentedEventFileResolver(newBaseDir());
+        FileSystemEventStore eventStore = new FileSystemEventStore(eventFileResolver);
+        for (int t = 0; t < 20; t++) {
+            storeEvents(eventStore, t % 2 == 0 ? "first" : "second", "aggregate" + t, 5, new DateTime());
+        }
+        List<RecordingVisitor> visitors = Arrays.asList(new RecordingVisitor(), new RecordingVisitor(),
+                                                        new RecordingVisitor());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            eventStore.visitEvents(eventStore.newCriteriaBuilder().property("type").is("first"), visitors, executor);
+        } finally {
+            executor.shutdown();
+            eventFileResolver.close();
+        }
+
+        int aggregateCount = 0;
+        for (RecordingVisitor visitor : visitors) {
+            for (List<Long> sequenceNumbers : visitor.sequenceNumbers.values()) {
+                assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), sequenceNumbers);
+                aggregateCount++;
+            }
+        }
+        assertEquals(10, aggregateCount);
+    }
+
+    @Test
+    public void testVisitEvents_TypeDirectoriesReadInParallel() {
+        FileSystemEventStore eventStore = new FileSystemEventStore(new SimpleEventFileResolver(newBaseDir()));
+        for (int t = 0; t < 20; t++) {
+            storeEvents(eventStore, "type" + (t % 4), "aggregate" + t, 5, new DateTime());
+        }
+        ExecutorService executor = spy(Executors.newCachedThreadPool());
+        eventStore.setExecutor(executor);
+        final Thread visitingThread = Thread.currentThread();
+        final List<Thread> invokingThreads = new ArrayList<Thread>();
+        RecordingVisitor visitor = new RecordingVisitor() {
+            @Override
+            public void doWithEvent(DomainEventMessage domainEvent) {
+                super.doWithEvent(domainEvent);
+                if (Thread.currentThread() != visitingThread) {
+                    invokingThreads.add(Thread.currentThread());
+                }
+            }
+        };
+        try {
+            eventStore.visitEvents(visitor);
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(executor, times(4)).execute(isA(Runnable.class));
+        assertEquals(Collections.<Thread>emptyList(), invokingThreads);
+        assertEquals(20, visitor.sequenceNumbers.size());
+        for (List<Long> sequenceNumbers : visitor.sequenceNumbers.values()) {
+            assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), sequenceNumbers);
+        }
+    }
+
+    @Test
+    public void testVisitEvents_VisitorFailureStopsReading() {
+        FileSystemEventStore eventStore = new FileSystemEventStore(new SimpleEventFileResolver(newBaseDir()));
+        storeEvents(eventStore, "first", "a", 3, new DateTime());
+        storeEvents(eventStore, "second", "b", 3, new DateTime());
+        EventVisitor visitor = mock(EventVisitor.class);
+        doThrow(new IllegalStateException("Mock")).when(visitor).doWithEvent(isA(DomainEventMessage.class));
+
+        try {
+            eventStore.visitEvents(visitor);
+            fail("Expected the exception of the visitor to be propagated");
+        } catch (IllegalStateException e) {
+            assertEquals("Mock", e.getMessage());
+        }
+        verify(visitor, times(1)).doWithEvent(isA(DomainEventMessage.class));
+    }
+
+    @Test
+    public void testVisitEvents_PartitionedListsEventFilesOnce() throws IOException {
+        SimpleEventFileResolver eventFileResolver = spy(new SimpleEventFileResolver(newBaseDir()));
+        FileSystemEventStore eventStore = new FileSystemEventStore(eventFileResolver);
+        for (int t = 0; t < 20; t++) {
+            storeEvents(eventStore, t % 2 == 0 ? "first" : "second", "aggregate" + t, 5, new DateTime());
+        }
+        List<RecordingVisitor> visitors = Arrays.asList(new RecordingVisitor(), new RecordingVisitor(),
+                                                        new RecordingVisitor(), new RecordingVisitor());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            eventStore.visitEvents(visitors, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(eventFileResolver, times(1)).listAggregateTypes();
+        verify(eventFileResolver, times(1)).listAggregateIdentifiers("first");
+        verify(eventFileResolver, times(1)).listAggregateIdentifiers("second");
+        verify(eventFileResolver, times(20)).openEventFileForReading(isA(String.class), isA(String.class));
+        int aggregateCount = 0;
+        for (RecordingVisitor visitor : visitors) {
+            aggregateCount += visitor.sequenceNumbers.size();
+        }
+        assertEquals(20, aggregateCount);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testVisitEvents_ResolverCannotListEventFiles() {
+        new FileSystemEventStore(mock(EventFileResolver.class)).visitEvents(mock(EventVisitor.class));
+    }
 
+    private File newBaseDir() {
+        return new File("target/fs-visit/" + UUID.randomUUID());
+    }
+
+    private void storeEvents(FileSystemEventStore eventStore, String type, String aggregateIdentifier,
+                             int numberOfEvents, DateTime timestamp) {
+        List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
+        for (int t = 0; t < numberOfEvents; t++) {
+            events.add(new GenericDomainEventMessage<StubDomainEvent>(UUID.randomUUID().toString(), timestamp,
+                                                                      aggregateIdentifier, t, new StubDomainEvent(),
+                                                                      MetaData.emptyInstance()));
+        }
+        eventStore.appendEvents(type, new SimpleDomainEventStream(events));
+    }
+
+    private void assertSequenceNumbers(DomainEventStream eventStream, long... expectedSequenceNumbers) {
+        List<Long> actual = new ArrayList<Long>();
+        while (eventStream.hasNext()) {
+            actual.add(eventStream.next().getSequenceNumber());
+        }
+        List<Long> expected = new ArrayList<Long>();
+        for (long sequenceNumber : expectedSequenceNumbers) {
+            expected.add(sequenceNumber);
+        }
+        assertEquals(expected, actual);
+    }
+
+    private void writeEvents(AtomicInteger counter, int numberOfEvents) {
+        writeEvents(new FileSystemEventStore(new SimpleEventFileResolver(eventFileBaseDir)), counter, numberOfEvents);
+    }
+
+    private void writeEvents(FileSystemEventStore eventStore, AtomicInteger counter, int numberOfEvents) {
         List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
         for (int t = 0; t < numberOfEvents; t++) {
             GenericDomainEventMessage<StubDomainEvent> event = new GenericDomainEventMessage<StubDomainEvent>(
@@ -220,6 +454,20 @@ public class FileSystemEventStoreTest {
         eventStore.appendEvents("snapshotting", new SimpleDomainEventStream(events));
     }
 
+    private static class RecordingVisitor implements EventVisitor {
+
+        private final Map<String, List<Long>> sequenceNumbers = new HashMap<String, List<Long>>();
+
+        @Override
+        public void doWithEvent(DomainEventMessage domainEvent) {
+            String aggregateIdentifier = domainEvent.getAggregateIdentifier().toString();
+            if (!sequenceNumbers.containsKey(aggregateIdentifier)) {
+                sequenceNumbers.put(aggregateIdentifier, new ArrayList<Long>());
+            }
+            sequenceNumbers.get(aggregateIdentifier).add(domainEvent.getSequenceNumber());
+        }
+    }
+
     public static class MyStubDomainEvent extends StubDomainEvent {
 
         private static final long serialVersionUID = -7959231436742664073L;
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.junit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SegmentedEventFileResolverTest {
+
+    private File baseDir;
+    private SegmentedEventFileResolver testSubject;
+
+    @Before
+    public void setUp() {
+        baseDir = new File("target/segments/" + UUID.randomUUID());
+        testSubject = new SegmentedEventFileResolver(baseDir, 4096);
+    }
+
+    @After
+    public void tearDown() {
+        testSubject.close();
+        File[] files = baseDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        baseDir.delete();
+    }
+
+    @Test
+    public void testChunksAreConcatenatedPerAggregate() throws IOException {
+        write(testSubject.openEventFileForWriting("type", "id1"), "Hello ");
+        write(testSubject.openEventFileForWriting("type", "id2"), "Other");
+        write(testSubject.openEventFileForWriting("type", "id1"), "World");
+        write(testSubject.openSnapshotFileForWriting("type", "id1"), "Snapshot");
+
+        assertEquals("Hello World", read(testSubject.openEventFileForReading("type", "id1")));
+        assertEquals("Other", read(testSubject.openEventFileForReading("type", "id2")));
+        assertEquals("Snapshot", read(testSubject.openSnapshotFileForReading("type", "id1")));
+        assertTrue(testSubject.eventFileExists("type", "id1"));
+        assertFalse(testSubject.eventFileExists("other", "id1"));
+        assertTrue(testSubject.snapshotFileExists("type", "id1"));
+        assertFalse(testSubject.snapshotFileExists("type", "id2"));
+    }
+
+    @Test
+    public void testEmptyStreamsAreNotAppended() throws IOException {
+        testSubject.openEventFileForWriting("type", "id1").close();
+
+        assertFalse(testSubject.eventFileExists("type", "id1"));
+    }
+
+    @Test
+    public void testSkipAcrossChunks() throws IOException {
+        write(testSubject.openEventFileForWriting("type", "id1"), "abc");
+        write(testSubject.openEventFileForWriting("type", "id1"), "def");
+
+        InputStream in = testSubject.openEventFileForReading("type", "id1");
+        assertEquals(4, in.skip(4));
+        assertEquals('e', in.read());
+        assertEquals(1, in.skip(10));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void testIndexIsRebuiltWhenReopened() throws IOException {
+        write(testSubject.openEventFileForWriting("type", "id1"), "Hello ");
+        write(testSubject.openEventFileForWriting("type", "id1"), "World");
+        testSubject.close();
+
+        testSubject = new SegmentedEventFileResolver(baseDir, 4096);
+        write(testSubject.openEventFileForWriting("type", "id1"), "!");
+
+        assertEquals("Hello World!", read(testSubject.openEventFileForReading("type", "id1")));
+        assertEquals(1, baseDir.listFiles().length);
+    }
+
+    @Test
+    public void testEventStoreRollsOverToNewSegments() {
+        FileSystemEventStore eventStore = new FileSystemEventStore(testSubject);
+        String aggregateIdentifier = UUID.randomUUID().toString();
+        for (int t = 0; t < 20; t++) {
+            eventStore.appendEvents("test", new SimpleDomainEventStream(
+                    new GenericDomainEventMessage<StubDomainEvent>(aggregateIdentifier, (long) t,
+                                                                   new StubDomainEvent())));
+        }
+        eventStore.appendSnapshotEvent("test", new GenericDomainEventMessage<StubDomainEvent>(
+                aggregateIdentifier, 16L, new StubDomainEvent()));
+        assertTrue("Expected more than one segment", baseDir.listFiles().length > 1);
+
+        testSubject.close();
+        testSubject = new SegmentedEventFileResolver(baseDir, 4096);
+        eventStore = new FileSystemEventStore(testSubject);
+
+        DomainEventStream events = eventStore.readEvents("test", aggregateIdentifier);
+        List<DomainEventMessage> actualEvents = new ArrayList<DomainEventMessage>();
+        while (events.hasNext()) {
+            actualEvents.add(events.next());
+        }
+        assertEquals(4, actualEvents.size());
+        assertEquals(16L, actualEvents.get(0).getSequenceNumber());
+        assertEquals(19L, actualEvents.get(3).getSequenceNumber());
+    }
+
+    @Test
+    public void testChunkLargerThanSegmentSize() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < 1000; t++) {
+            sb.append("0123456789");
+        }
+        write(testSubject.openEventFileForWriting("type", "id1"), sb.toString());
+
+        assertEquals(sb.toString(), read(testSubject.openEventFileForReading("type", "id1")));
+    }
+
+    @Test
+    public void testDurableAppend_SingleThread() throws IOException {
+        testSubject.setDurableAppends(true);
+        testSubject.setMaxCommitDelay(1);
+        write(testSubject.openEventFileForWriting("type", "id1"), "Hello");
+
+        assertEquals("Hello", read(testSubject.openEventFileForReading("type", "id1")));
+    }
+
+    @Test(timeout = 30000)
+    public void testDurableAppends_ConcurrentThreadsCommitInGroups() throws Exception {
+        testSubject.setDurableAppends(true);
+        testSubject.setMaxCommitDelay(5);
+        testSubject.setMaxCommitBatchSize(4);
+        final int threadCount = 8;
+        final int appendCount = 25;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (int t = 0; t < threadCount; t++) {
+            final String aggregateIdentifier = "id" + t;
+            results.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    startSignal.await();
+                    for (int i = 0; i < appendCount; i++) {
+                        write(testSubject.openEventFileForWriting("type", aggregateIdentifier), "x");
+                    }
+                    return null;
+                }
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        for (int t = 0; t < threadCount; t++) {
+            assertEquals(appendCount, read(testSubject.openEventFileForReading("type", "id" + t)).length());
+        }
+    }
+
+    @Test(expected = EventStreamNotFoundException.class)
+    public void testReadNonExistentAggregate() {
+        new FileSystemEventStore(testSubject).readEvents("test", "unknown");
+    }
+
+    private void write(OutputStream out, String data) throws IOException {
+        out.write(data.getBytes("UTF-8"));
+        out.close();
+    }
+
+    private String read(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byte[] buffer = new byte[3];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) >= 0) {
+            sb.append(new String(buffer, 0, bytesRead, "UTF-8"));
+        }
+        in.close();
+        return sb.toString();
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jdbc;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.MetaData;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.management.CriteriaBuilder;
+import org.axonframework.repository.ConcurrencyException;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.junit.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class JdbcEventStoreTest {
+
+    private JdbcEventStore testSubject;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() throws SQLException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:hsqldb:mem:" + UUID.randomUUID().toString(), "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        testSubject = new JdbcEventStore(dataSource);
+        testSubject.setDataSource(dataSource);
+        testSubject.createSchema();
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void testStoreAndLoadEvents() {
+        String aggregateIdentifier = UUID.randomUUID().toString();
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(aggregateIdentifier, 0, 10)));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("other", 0, 3)));
+
+        assertEquals(13, jdbcTemplate.queryForInt("SELECT count(*) FROM DomainEventEntry"));
+        List<DomainEventMessage> actualEvents = readAll(testSubject.readEvents("test", aggregateIdentifier));
+        assertEquals(10, actualEvents.size());
+        for (int t = 0; t < 10; t++) {
+            assertEquals((long) t, actualEvents.get(t).getSequenceNumber());
+            assertEquals("Mock contents", actualEvents.get(t).getPayload());
+            assertEquals("value", actualEvents.get(t).getMetaData().get("key"));
+        }
+    }
+
+    @Test
+    public void testLoadEvents_InSmallBatches() {
+        testSubject.setBatchSize(7);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("id", 0, 30)));
+
+        List<DomainEventMessage> actualEvents = readAll(testSubject.readEvents("test", "id"));
+        assertEquals(30, actualEvents.size());
+        assertEquals(29L, actualEvents.get(29).getSequenceNumber());
+    }
+
+    @Test(expected = EventStreamNotFoundException.class)
+    public void testLoadNonExistent() {
+        testSubject.readEvents("test", "unknown");
+    }
+
+    @Test
+    public void testLoadWithSnapshotEvent() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("id", 0, 5)));
+        testSubject.appendSnapshotEvent("test", new GenericDomainEventMessage<String>("id", 3L, "Snapshot"));
+
+        List<DomainEventMessage> actualEvents = readAll(testSubject.readEvents("test", "id"));
+        assertEquals(2, actualEvents.size());
+        assertEquals("Snapshot", actualEvents.get(0).getPayload());
+        assertEquals(3L, actualEvents.get(0).getSequenceNumber());
+        assertEquals(4L, actualEvents.get(1).getSequenceNumber());
+    }
+
+    @Test
+    public void testLoadWithUnreadableSnapshotEvent_FallsBackToEntireStream() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("id", 0, 5)));
+        testSubject.appendSnapshotEvent("test", new GenericDomainEventMessage<String>("id", 3L, "Snapshot"));
+        jdbcTemplate.update("UPDATE SnapshotEventEntry SET payload = ?", new Object[]{"unreadable".getBytes()});
+
+        List<DomainEventMessage> actualEvents = readAll(testSubject.readEvents("test", "id"));
+        assertEquals(5, actualEvents.size());
+        assertEquals(0L, actualEvents.get(0).getSequenceNumber());
+    }
+
+    @Test(expected = ConcurrencyException.class)
+    public void testStoreDuplicateEvent_WithSqlExceptionTranslator() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("123", 0, 1)));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("123", 0, 1)));
+    }
+
+    @Test
+    public void testStoreDuplicateEvent_BatchIsRolledBack() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("123", 0, 1)));
+        try {
+            List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
+            events.addAll(Arrays.asList(createDomainEvents("123", 1, 2)));
+            events.addAll(Arrays.asList(createDomainEvents("123", 0, 1)));
+            testSubject.appendEvents("test", new SimpleDomainEventStream(events));
+            fail("Expected ConcurrencyException");
+        } catch (ConcurrencyException e) {
+            // expected
+        }
+        assertEquals(1, jdbcTemplate.queryForInt("SELECT count(*) FROM DomainEventEntry"));
+    }
+
+    @Test
+    public void testPrunesSnapshotsWhenNumberOfSnapshotsExceedsConfiguredMaxSnapshotsArchived() {
+        testSubject.setMaxSnapshotsArchived(2);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("id", 0, 5)));
+        for (long t = 1; t < 5; t++) {
+            testSubject.appendSnapshotEvent("test", new GenericDomainEventMessage<String>("id", t, "Snapshot"));
+        }
+
+        assertEquals(2, jdbcTemplate.queryForInt("SELECT count(*) FROM SnapshotEventEntry"));
+        assertEquals(3, jdbcTemplate.queryForInt("SELECT min(sequenceNumber) FROM SnapshotEventEntry"));
+    }
+
+    @Test
+    public void testVisitAllEvents_InSmallBatchesWithIdenticalTimestamps() {
+        DateTimeUtils.setCurrentMillisFixed(new DateTime(2011, 12, 18, 13, 0, 0, 0).getMillis());
+        testSubject.setBatchSize(7);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("a", 0, 30)));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("b", 0, 25)));
+        DateTimeUtils.setCurrentMillisFixed(new DateTime(2011, 12, 18, 14, 0, 0, 0).getMillis());
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("c", 0, 18)));
+        DateTimeUtils.setCurrentMillisSystem();
+
+        final Map<Object, Long> lastSequenceNumbers = new HashMap<Object, Long>();
+        final AtomicInteger counter = new AtomicInteger();
+        testSubject.visitEvents(new EventVisitor() {
+            @Override
+            public void doWithEvent(DomainEventMessage domainEvent) {
+                Long previous = lastSequenceNumbers.put(domainEvent.getAggregateIdentifier(),
+                                                        domainEvent.getSequenceNumber());
+                assertEquals(previous == null ? 0L : previous + 1, domainEvent.getSequenceNumber());
+                counter.incrementAndGet();
+            }
+        });
+        assertEquals(30 + 25 + 18, counter.get());
+        assertEquals(3, lastSequenceNumbers.size());
+    }
+
+    @Test
+    public void testVisitAllEvents_InSmallBatchesWithIdenticalIdentifiersAcrossTypes() {
+        DateTimeUtils.setCurrentMillisFixed(new DateTime(2011, 12, 18, 13, 0, 0, 0).getMillis());
+        testSubject.setBatchSize(1);
+        testSubject.appendEvents("typeA", new SimpleDomainEventStream(createDomainEvents("shared", 0, 2)));
+        testSubject.appendEvents("typeB", new SimpleDomainEventStream(createDomainEvents("shared", 0, 2)));
+        DateTimeUtils.setCurrentMillisSystem();
+
+        EventVisitor eventVisitor = mock(EventVisitor.class);
+        testSubject.visitEvents(eventVisitor);
+        verify(eventVisitor, times(4)).doWithEvent(isA(DomainEventMessage.class));
+    }
+
+    @Test
+    public void testVisitEvents_WithCriteria() {
+        testSubject.setBatchSize(5);
+        EventVisitor eventVisitor = mock(EventVisitor.class);
+        DateTimeUtils.setCurrentMillisFixed(new DateTime(2011, 12, 18, 12, 59, 59, 999).getMillis());
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("a", 0, 11)));
+        DateTime onePM = new DateTime(2011, 12, 18, 13, 0, 0, 0);
+        DateTimeUtils.setCurrentMillisFixed(onePM.getMillis());
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("b", 0, 12)));
+        testSubject.appendEvents("other", new SimpleDomainEventStream(createDomainEvents("c", 0, 13)));
+        DateTimeUtils.setCurrentMillisSystem();
+
+        CriteriaBuilder criteriaBuilder = testSubject.newCriteriaBuilder();
+        testSubject.visitEvents(criteriaBuilder.property("timeStamp").greaterThanEquals(onePM)
+                                               .and(criteriaBuilder.property("type").in(Arrays.asList("test", "x"))),
+                                eventVisitor);
+        verify(eventVisitor, times(12)).doWithEvent(isA(DomainEventMessage.class));
+    }
+
+    private List<DomainEventMessage> readAll(DomainEventStream events) {
+        List<DomainEventMessage> actualEvents = new ArrayList<DomainEventMessage>();
+        while (events.hasNext()) {
+            actualEvents.add(events.next());
+        }
+        return actualEvents;
+    }
+
+    private DomainEventMessage[] createDomainEvents(Object aggregateIdentifier, long firstSequenceNumber, int count) {
+        DomainEventMessage[] events = new DomainEventMessage[count];
+        for (int t = 0; t < count; t++) {
+            events[t] = new GenericDomainEventMessage<String>(aggregateIdentifier, firstSequenceNumber + t,
+                                                              "Mock contents",
+                                                              MetaData.from(singletonMap("key", "value")));
+        }
+        return events;
+    }
+
+    private static Map<String, Object> singletonMap(String key, Object value) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(key, value);
+        return map;
+    }
+}
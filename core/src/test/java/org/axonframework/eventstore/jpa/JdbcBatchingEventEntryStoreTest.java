@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.common.jdbc.SpringDataSourceConnectionProvider;
+import org.axonframework.common.jpa.SimpleEntityManagerProvider;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.MetaData;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.repository.ConcurrencyException;
+import org.axonframework.serializer.SerializedDomainEventData;
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.junit.*;
+import org.junit.runner.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"classpath:/META-INF/spring/db-context.xml"})
+@Transactional
+public class JdbcBatchingEventEntryStoreTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private JpaEventStore testSubject;
+
+    @Before
+    public void setUp() throws SQLException {
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager),
+                                        new JdbcBatchingEventEntryStore(
+                                                new SpringDataSourceConnectionProvider(dataSource)));
+        testSubject.setDataSource(dataSource);
+        entityManager.createQuery("DELETE FROM DomainEventEntry").executeUpdate();
+    }
+
+    @Test
+    public void testStoreAndLoadEventBatch() {
+        String aggregateIdentifier = UUID.randomUUID().toString();
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(aggregateIdentifier, 150)));
+
+        assertEquals(150L, entityManager.createQuery("SELECT count(e) FROM DomainEventEntry e").getSingleResult());
+
+        DomainEventStream events = testSubject.readEvents("test", aggregateIdentifier);
+        long expectedSequenceNumber = 0;
+        while (events.hasNext()) {
+            DomainEventMessage event = events.next();
+            assertEquals(expectedSequenceNumber++, event.getSequenceNumber());
+            assertEquals("Payload", event.getPayload());
+            assertEquals("value", event.getMetaData().get("key"));
+        }
+        assertEquals(150L, expectedSequenceNumber);
+    }
+
+    @Test(expected = ConcurrencyException.class)
+    public void testStoreDuplicateEventInBatch() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(
+                new GenericDomainEventMessage<String>("123", 0L, "Mock contents", MetaData.emptyInstance()),
+                new GenericDomainEventMessage<String>("123", 0L, "Mock contents", MetaData.emptyInstance())));
+    }
+
+    @Test(expected = ConcurrencyException.class)
+    public void testStoreEventBatchConflictingWithExistingEvent() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("123", 5)));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(
+                new GenericDomainEventMessage<String>("123", 4L, "Mock contents", MetaData.emptyInstance())));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAllEventsPassedToBatchingStoreAtOnce() {
+        BatchingEventEntryStore mockStore = mock(BatchingEventEntryStore.class);
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager), mockStore);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents("123", 3)));
+
+        verify(mockStore).persistEvents(eq("test"), argThat(new BaseMatcher<List>() {
+            @Override
+            public boolean matches(Object item) {
+                List<SerializedDomainEventData> entries = (List<SerializedDomainEventData>) item;
+                return entries.size() == 3 && entries.get(2).getSequenceNumber() == 2;
+            }
+
+            @Override
+            public void describeTo(Description description) {
+                description.appendText("List of 3 events");
+            }
+        }), same(entityManager));
+        verifyNoMoreInteractions(mockStore);
+    }
+
+    private List<DomainEventMessage<String>> createDomainEvents(Object aggregateIdentifier, int numberOfEvents) {
+        List<DomainEventMessage<String>> events = new ArrayList<DomainEventMessage<String>>();
+        for (int t = 0; t < numberOfEvents; t++) {
+            events.add(new GenericDomainEventMessage<String>(aggregateIdentifier, t, "Payload",
+                                                             Collections.singletonMap("key", (Object) "value")));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.jpa;
+
+import org.axonframework.common.jpa.SimpleEntityManagerProvider;
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.domain.MetaData;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that the JpaEventStore, using the default EventEntryStore, doesn't depend on the table and column names
+ * the event entries are mapped to. The entities are mapped using Hibernate's ImprovedNamingStrategy, which maps a
+ * property such as <code>timeStamp</code> to a <code>time_stamp</code> column.
+ *
+ * @author Allard Buijze
+ */
+public class JpaEventStoreNamingStrategyTest {
+
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private JpaEventStore testSubject;
+
+    @Before
+    public void setUp() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("hibernate.connection.driver_class", "org.hsqldb.jdbcDriver");
+        properties.put("hibernate.connection.url", "jdbc:hsqldb:mem:namingStrategy");
+        properties.put("hibernate.connection.username", "sa");
+        properties.put("hibernate.connection.password", "");
+        properties.put("hibernate.dialect", "org.hibernate.dialect.HSQLDialect");
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.ejb.naming_strategy", "org.hibernate.cfg.ImprovedNamingStrategy");
+        entityManagerFactory = Persistence.createEntityManagerFactory("eventStore", properties);
+        entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager));
+    }
+
+    @After
+    public void tearDown() {
+        entityManager.getTransaction().rollback();
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    @Test
+    public void testStoreAndLoadEventsWithSnapshot() {
+        List<DomainEventMessage<String>> domainEvents = new ArrayList<DomainEventMessage<String>>();
+        for (int t = 0; t < 10; t++) {
+            domainEvents.add(new GenericDomainEventMessage<String>("id", (long) t, "Event " + t,
+                                                                   MetaData.emptyInstance()));
+        }
+        testSubject.appendEvents("test", new SimpleDomainEventStream(domainEvents));
+        testSubject.appendSnapshotEvent("test", new GenericDomainEventMessage<String>("id", 4L, "Snapshot",
+                                                                                      MetaData.emptyInstance()));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(10, ((Number) entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM domain_event_entry WHERE time_stamp IS NOT NULL").getSingleResult()).intValue());
+
+        DomainEventStream events = testSubject.readEvents("test", "id");
+        assertEquals("Snapshot", events.next().getPayload());
+        for (int t = 5; t < 10; t++) {
+            DomainEventMessage event = events.next();
+            assertEquals(t, event.getSequenceNumber());
+            assertEquals("Event " + t, event.getPayload());
+        }
+        assertFalse(events.hasNext());
+    }
+}
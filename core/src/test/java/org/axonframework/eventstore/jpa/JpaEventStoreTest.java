@@ -16,6 +16,7 @@
 
 package org.axonframework.eventstore.jpa;
 
+import org.axonframework.common.DirectExecutor;
 import org.axonframework.common.jpa.SimpleEntityManagerProvider;
 import org.axonframework.domain.DomainEventMessage;
 import org.axonframework.domain.DomainEventStream;
@@ -24,6 +25,7 @@ import org.axonframework.domain.MetaData;
 import org.axonframework.domain.SimpleDomainEventStream;
 import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.axonframework.eventstore.EventStoreException;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
 import org.axonframework.eventstore.management.CriteriaBuilder;
@@ -33,6 +35,7 @@ import org.axonframework.serializer.SerializedType;
 import org.axonframework.serializer.Serializer;
 import org.axonframework.serializer.SimpleSerializedObject;
 import org.axonframework.serializer.SimpleSerializedType;
+import org.axonframework.testutils.MockException;
 import org.axonframework.upcasting.UpcasterChain;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeUtils;
@@ -50,8 +53,13 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -228,6 +236,55 @@ public class JpaEventStoreTest {
         testLoad_LargeAmountOfEvents();
     }
 
+    @Test
+    public void testLoad_LargeAmountOfEventsInSmallBatches_WithPrefetching() {
+        testSubject.setBatchSize(10);
+        testSubject.setPrefetchDepth(3);
+        testSubject.setPrefetchExecutor(DirectExecutor.INSTANCE);
+        testLoad_LargeAmountOfEvents();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testLoad_BatchesPrefetchedOnSeparateThreadInOrder() {
+        final EventEntryStore eventEntryStore = mock(EventEntryStore.class);
+        when(eventEntryStore.fetchBatch(anyString(), any(), anyLong(), anyInt(), any(EntityManager.class)))
+                .thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable {
+                        long firstSequenceNumber = (Long) invocation.getArguments()[2];
+                        int batchSize = (Integer) invocation.getArguments()[3];
+                        List<DomainEventEntry> entries = new ArrayList<DomainEventEntry>();
+                        for (long t = firstSequenceNumber; t < Math.min(firstSequenceNumber + batchSize, 95); t++) {
+                            entries.add(new DomainEventEntry("test", new GenericDomainEventMessage<String>(
+                                    "id", t, "Mock contents", MetaData.emptyInstance()),
+                                                             mockSerializedObject("Mock contents".getBytes()),
+                                                             mockSerializedObject("Mock contents".getBytes())));
+                        }
+                        return entries;
+                    }
+                });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager), eventEntryStore);
+            testSubject.setBatchSize(10);
+            testSubject.setPrefetchDepth(2);
+            testSubject.setPrefetchExecutor(executor);
+
+            DomainEventStream events = testSubject.readEvents("test", "id");
+            long t = 0L;
+            while (events.hasNext()) {
+                assertEquals(t++, events.next().getSequenceNumber());
+            }
+            assertEquals(95L, t);
+            for (long seq = 0; seq <= 90; seq += 10) {
+                verify(eventEntryStore).fetchBatch("test", "id", seq, 10, entityManager);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testEntireStreamIsReadOnUnserializableSnapshot_WithException() {
         List<DomainEventMessage<String>> domainEvents = new ArrayList<DomainEventMessage<String>>(110);
@@ -376,6 +433,13 @@ public class JpaEventStoreTest {
         assertEquals(110L, t);
     }
 
+    @Test
+    public void testLoad_LargeAmountOfEventsWithSnapshot_CombinedQuery() {
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager),
+                                        new CombinedQueryEventEntryStore());
+        testLoad_LargeAmountOfEventsWithSnapshot();
+    }
+
     @Test
     public void testLoadWithSnapshotEvent() {
         testSubject.appendEvents("test", aggregate1.getUncommittedEvents());
@@ -400,6 +464,48 @@ public class JpaEventStoreTest {
         assertEquals(2, domainEvents.size());
     }
 
+    @Test
+    public void testLoadWithSnapshotEvent_SingleRoundTrip() {
+        CombinedSnapshotEventEntryStore eventEntryStore = mock(CombinedSnapshotEventEntryStore.class);
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager), eventEntryStore);
+        SimpleSerializedDomainEventData snapshot = new SimpleSerializedDomainEventData(
+                "snapshot", "1", 5, new DateTime(), "java.lang.String", "0", "<string>Snapshot</string>".getBytes(),
+                "<meta-data/>".getBytes());
+        SimpleSerializedDomainEventData event = new SimpleSerializedDomainEventData(
+                "event", "1", 6, new DateTime(), "java.lang.String", "0", "<string>Event</string>".getBytes(),
+                "<meta-data/>".getBytes());
+        when(eventEntryStore.loadLastSnapshotAndEvents("test", "1", 100, entityManager))
+                .thenReturn(new SnapshotAndEvents(snapshot, Arrays.asList(event)));
+
+        DomainEventStream events = testSubject.readEvents("test", "1");
+
+        assertEquals("Snapshot", events.next().getPayload());
+        assertEquals("Event", events.next().getPayload());
+        assertFalse(events.hasNext());
+        verify(eventEntryStore).loadLastSnapshotAndEvents("test", "1", 100, entityManager);
+        verifyNoMoreInteractions(eventEntryStore);
+    }
+
+    @Test
+    public void testLoadWithUnreadableSnapshot_SingleRoundTripFallsBackToEntireStream() {
+        CombinedSnapshotEventEntryStore eventEntryStore = mock(CombinedSnapshotEventEntryStore.class);
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager), eventEntryStore);
+        SimpleSerializedDomainEventData snapshot = new SimpleSerializedDomainEventData(
+                "snapshot", "1", 1, new DateTime(), "java.lang.String", "0", "unreadable".getBytes(),
+                "<meta-data/>".getBytes());
+        when(eventEntryStore.loadLastSnapshotAndEvents("test", "1", 100, entityManager))
+                .thenReturn(new SnapshotAndEvents(snapshot, Collections.<SimpleSerializedDomainEventData>emptyList()));
+
+        try {
+            testSubject.readEvents("test", "1");
+            fail("Expected an EventStreamNotFoundException");
+        } catch (EventStreamNotFoundException e) {
+            // expected, as the mock doesn't return any events
+        }
+
+        verify(eventEntryStore).fetchBatch("test", "1", 0, 100, entityManager);
+    }
+
     @Test(expected = EventStreamNotFoundException.class)
     public void testLoadNonExistent() {
         testSubject.readEvents("Stub", UUID.randomUUID());
@@ -415,6 +521,116 @@ public class JpaEventStoreTest {
         verify(eventVisitor, times(100)).doWithEvent(isA(DomainEventMessage.class));
     }
 
+    @Test
+    public void testVisitEvents_InSmallBatchesWithIdenticalTimestamps() {
+        DateTimeUtils.setCurrentMillisFixed(new DateTime(2011, 12, 18, 13, 0, 0, 0).getMillis());
+        testSubject.setBatchSize(7);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(30)));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(25)));
+        DateTimeUtils.setCurrentMillisFixed(new DateTime(2011, 12, 18, 14, 0, 0, 0).getMillis());
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(18)));
+        DateTimeUtils.setCurrentMillisSystem();
+
+        final Map<Object, Long> lastSequenceNumbers = new HashMap<Object, Long>();
+        final AtomicInteger counter = new AtomicInteger();
+        testSubject.visitEvents(new EventVisitor() {
+            @Override
+            public void doWithEvent(DomainEventMessage domainEvent) {
+                Long previous = lastSequenceNumbers.put(domainEvent.getAggregateIdentifier(),
+                                                        domainEvent.getSequenceNumber());
+                assertEquals(previous == null ? 0L : previous + 1, domainEvent.getSequenceNumber());
+                counter.incrementAndGet();
+            }
+        });
+        assertEquals(30 + 25 + 18, counter.get());
+        assertEquals(3, lastSequenceNumbers.size());
+    }
+
+    @Test
+    public void testVisitEvents_InSmallBatchesWithIdenticalIdentifiersAcrossTypes() {
+        DateTimeUtils.setCurrentMillisFixed(new DateTime(2011, 12, 18, 13, 0, 0, 0).getMillis());
+        testSubject.setBatchSize(1);
+        List<DomainEventMessage<StubStateChangedEvent>> events = createDomainEvents(2);
+        testSubject.appendEvents("typeA", new SimpleDomainEventStream(events));
+        testSubject.appendEvents("typeB", new SimpleDomainEventStream(events));
+        DateTimeUtils.setCurrentMillisSystem();
+
+        EventVisitor eventVisitor = mock(EventVisitor.class);
+        testSubject.visitEvents(eventVisitor);
+        verify(eventVisitor, times(4)).doWithEvent(isA(DomainEventMessage.class));
+    }
+
+    @Test
+    public void testVisitEvents_InPartitions() {
+        testSubject.setBatchSize(7);
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(30)));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(25)));
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(18)));
+
+        List<OrderVerifyingVisitor> visitors = Arrays.asList(new OrderVerifyingVisitor(),
+                                                             new OrderVerifyingVisitor(),
+                                                             new OrderVerifyingVisitor(),
+                                                             new OrderVerifyingVisitor());
+        ExecutorService executor = Executors.newFixedThreadPool(visitors.size());
+        try {
+            testSubject.visitEvents(visitors, executor);
+        } finally {
+            executor.shutdown();
+        }
+        int total = 0;
+        for (OrderVerifyingVisitor visitor : visitors) {
+            total += visitor.counter;
+            for (Object aggregateIdentifier : visitor.lastSequenceNumbers.keySet()) {
+                for (OrderVerifyingVisitor other : visitors) {
+                    assertTrue(other == visitor || !other.lastSequenceNumbers.containsKey(aggregateIdentifier));
+                }
+            }
+        }
+        assertEquals(30 + 25 + 18, total);
+    }
+
+    @Test
+    public void testVisitEvents_InPartitionsWithFailingVisitor() {
+        testSubject.appendEvents("test", new SimpleDomainEventStream(createDomainEvents(30)));
+        EventVisitor failingVisitor = mock(EventVisitor.class);
+        doThrow(new MockException()).when(failingVisitor).doWithEvent(isA(DomainEventMessage.class));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            testSubject.visitEvents(Collections.singletonList(failingVisitor), executor);
+            fail("Expected an EventStoreException");
+        } catch (EventStoreException e) {
+            assertTrue(e.getCause() instanceof MockException);
+        } finally {
+            executor.shutdown();
+        }
+        verify(failingVisitor).doWithEvent(isA(DomainEventMessage.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testVisitEvents_NonStreamingEventEntryStoreIsPagedThrough() {
+        EventEntryStore eventEntryStore = mock(EventEntryStore.class);
+        testSubject = new JpaEventStore(new SimpleEntityManagerProvider(entityManager), eventEntryStore);
+        testSubject.setBatchSize(1);
+        GenericDomainEventMessage<String> eventMessage = new GenericDomainEventMessage<String>(
+                UUID.randomUUID(), 0L, "Mock contents", MetaData.emptyInstance());
+        when(eventEntryStore.fetchFilteredBatch(anyString(), anyMap(), anyInt(), anyInt(), any(EntityManager.class)))
+                .thenReturn(Arrays.asList(new DomainEventEntry("Mock", eventMessage,
+                                                               mockSerializedObject("Mock contents".getBytes()),
+                                                               mockSerializedObject("Mock contents".getBytes()))))
+                .thenReturn(Collections.<DomainEventEntry>emptyList());
+        EventVisitor eventVisitor = mock(EventVisitor.class);
+
+        testSubject.visitEvents(eventVisitor);
+
+        verify(eventVisitor).doWithEvent(isA(DomainEventMessage.class));
+        verify(eventEntryStore).fetchFilteredBatch(null, Collections.<String, Object>emptyMap(), 0, 1,
+                                                   entityManager);
+        verify(eventEntryStore).fetchFilteredBatch(null, Collections.<String, Object>emptyMap(), 1, 1,
+                                                   entityManager);
+    }
+
     @Test
     public void testVisitEvents_AfterTimestamp() {
         EventVisitor eventVisitor = mock(EventVisitor.class);
@@ -589,6 +805,20 @@ public class JpaEventStoreTest {
         return events;
     }
 
+    private static class OrderVerifyingVisitor implements EventVisitor {
+
+        private final Map<Object, Long> lastSequenceNumbers = new HashMap<Object, Long>();
+        private int counter;
+
+        @Override
+        public void doWithEvent(DomainEventMessage domainEvent) {
+            Long previous = lastSequenceNumbers.put(domainEvent.getAggregateIdentifier(),
+                                                    domainEvent.getSequenceNumber());
+            assertEquals(previous == null ? 0L : previous + 1, domainEvent.getSequenceNumber());
+            counter++;
+        }
+    }
+
     private static class StubAggregateRoot extends AbstractAnnotatedAggregateRoot {
 
         private static final long serialVersionUID = -3656612830058057848L;
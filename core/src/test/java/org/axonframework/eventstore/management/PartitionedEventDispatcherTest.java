@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.management;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.EventVisitor;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class PartitionedEventDispatcherTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEventsOfSameAggregateAreDeliveredInOrderToSinglePartition() {
+        RecordingVisitor visitor1 = new RecordingVisitor();
+        RecordingVisitor visitor2 = new RecordingVisitor();
+        StubDispatcher testSubject = new StubDispatcher(Arrays.asList(visitor1, visitor2), 2);
+        for (long t = 0; t < 100; t++) {
+            String aggregateIdentifier = "aggregate" + (t % 5);
+            testSubject.dispatch(aggregateIdentifier,
+                                 new GenericDomainEventMessage<String>(aggregateIdentifier, t, "payload"));
+        }
+        testSubject.awaitCompletion();
+
+        assertEquals(100, visitor1.events.size() + visitor2.events.size());
+        assertInOrder(visitor1.events);
+        assertInOrder(visitor2.events);
+        for (DomainEventMessage event : visitor1.events) {
+            for (DomainEventMessage other : visitor2.events) {
+                assertFalse(event.getAggregateIdentifier().equals(other.getAggregateIdentifier()));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelStopsWorkersWaitingForEntries() throws InterruptedException {
+        StubDispatcher testSubject = new StubDispatcher(Arrays.asList(new RecordingVisitor(),
+                                                                      new RecordingVisitor()), 2);
+        testSubject.cancel();
+
+        executor.shutdown();
+        assertTrue("Workers didn't stop after cancellation", executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testDispatchFailsWhenWorkerFailed() {
+        EventVisitor failingVisitor = new EventVisitor() {
+            @Override
+            public void doWithEvent(DomainEventMessage domainEvent) {
+                throw new IllegalStateException("Mock");
+            }
+        };
+        StubDispatcher testSubject = new StubDispatcher(Collections.singletonList(failingVisitor), 1);
+        try {
+            for (long t = 0; t < 100; t++) {
+                testSubject.dispatch("aggregate", new GenericDomainEventMessage<String>("aggregate", t, "payload"));
+            }
+            testSubject.awaitCompletion();
+            fail("Expected an EventStoreException");
+        } catch (EventStoreException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private void assertInOrder(List<DomainEventMessage> events) {
+        for (int t = 1; t < events.size(); t++) {
+            assertTrue(events.get(t - 1).getSequenceNumber() < events.get(t).getSequenceNumber());
+        }
+    }
+
+    private class StubDispatcher extends PartitionedEventDispatcher<DomainEventMessage> {
+
+        public StubDispatcher(List<? extends EventVisitor> partitionVisitors, int queueCapacity) {
+            super(partitionVisitors, executor, queueCapacity);
+        }
+
+        @Override
+        protected void visit(DomainEventMessage entry, EventVisitor visitor) {
+            visitor.doWithEvent(entry);
+        }
+    }
+
+    private static class RecordingVisitor implements EventVisitor {
+
+        private final List<DomainEventMessage> events = new ArrayList<DomainEventMessage>();
+
+        @Override
+        public void doWithEvent(DomainEventMessage domainEvent) {
+            events.add(domainEvent);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import org.axonframework.saga.AssociationValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Benchmark that compares the {@link AssociationValueMap} to the {@link HashAssociationValueMap}, using 1 million
+ * associations. It measures adding, finding and removing associations from a single thread, as well as a mix of
+ * lookups and modifications from several threads at once. Lookups are measured on a random sample of the
+ * associations, as each lookup in the AssociationValueMap visits all associations with the same key.
+ *
+ * @author Allard Buijze
+ */
+public class AssociationValueMapBenchmark {
+
+    private static final int ASSOCIATION_COUNT = 1000 * 1000;
+    private static final int THREAD_COUNT = 4;
+    private static final int LOOKUP_COUNT = 1000;
+    private static final int OPERATIONS_PER_THREAD = 1000;
+
+    private final AssociationValue[] associationValues = new AssociationValue[ASSOCIATION_COUNT];
+    private final String[] sagaTypes = new String[ASSOCIATION_COUNT];
+    private final String[] sagaIdentifiers = new String[ASSOCIATION_COUNT];
+
+    public static void main(String[] args) throws Exception {
+        AssociationValueMapBenchmark benchmark = new AssociationValueMapBenchmark();
+        // the first round warms up the JVM
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "Warm up:" : "Results:");
+            benchmark.run("AssociationValueMap", new SortedMapAdapter());
+            benchmark.run("HashAssociationValueMap", new HashMapAdapter());
+        }
+    }
+
+    private AssociationValueMapBenchmark() {
+        for (int i = 0; i < ASSOCIATION_COUNT; i++) {
+            // each saga has 4 association values, with a variety of keys and saga types
+            associationValues[i] = new AssociationValue("key" + (i % 4), "value-" + i);
+            sagaTypes[i] = "SagaType" + (i % 3);
+            sagaIdentifiers[i] = "saga-" + (i / 4);
+        }
+    }
+
+    private void run(String name, final MapAdapter map) throws Exception {
+        Random random = new Random(0);
+        long t1 = System.nanoTime();
+        for (int i = 0; i < ASSOCIATION_COUNT; i++) {
+            map.add(associationValues[i], sagaTypes[i], sagaIdentifiers[i]);
+        }
+        long t2 = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            int item = random.nextInt(ASSOCIATION_COUNT);
+            found += map.findSagas(sagaTypes[item], associationValues[item]);
+        }
+        long t3 = System.nanoTime();
+        runConcurrently(map);
+        long t4 = System.nanoTime();
+        for (int i = 0; i < ASSOCIATION_COUNT; i++) {
+            map.remove(associationValues[i], sagaTypes[i], sagaIdentifiers[i]);
+        }
+        long t5 = System.nanoTime();
+        if (found != LOOKUP_COUNT || !map.isEmpty()) {
+            throw new IllegalStateException("Map lost associations");
+        }
+
+        System.out.println(String.format("%-24s add: %6.0f ns, find: %9.0f ns, concurrent (%d threads): %9.0f ns, "
+                                                 + "remove: %6.0f ns (per operation)",
+                                         name,
+                                         (t2 - t1) / (double) ASSOCIATION_COUNT,
+                                         (t3 - t2) / (double) LOOKUP_COUNT,
+                                         THREAD_COUNT,
+                                         (t4 - t3) / (double) (THREAD_COUNT * OPERATIONS_PER_THREAD),
+                                         (t5 - t4) / (double) ASSOCIATION_COUNT));
+    }
+
+    private void runConcurrently(final MapAdapter map) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final Random random = new Random(t);
+            results.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int item = random.nextInt(ASSOCIATION_COUNT);
+                        // one in ten operations changes an association, the others look up sagas
+                        if (i % 10 == 0) {
+                            map.remove(associationValues[item], sagaTypes[item], sagaIdentifiers[item]);
+                            map.add(associationValues[item], sagaTypes[item], sagaIdentifiers[item]);
+                        } else {
+                            map.findSagas(sagaTypes[item], associationValues[item]);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+    }
+
+    private interface MapAdapter {
+
+        void add(AssociationValue associationValue, String sagaType, String sagaIdentifier);
+
+        void remove(AssociationValue associationValue, String sagaType, String sagaIdentifier);
+
+        int findSagas(String sagaType, AssociationValue associationValue);
+
+        boolean isEmpty();
+    }
+
+    private static class SortedMapAdapter implements MapAdapter {
+
+        private final AssociationValueMap delegate = new AssociationValueMap();
+
+        @Override
+        public void add(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
+            delegate.add(associationValue, sagaType, sagaIdentifier);
+        }
+
+        @Override
+        public void remove(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
+            delegate.remove(associationValue, sagaType, sagaIdentifier);
+        }
+
+        @Override
+        public int findSagas(String sagaType, AssociationValue associationValue) {
+            return delegate.findSagas(sagaType, associationValue).size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+    }
+
+    private static class HashMapAdapter implements MapAdapter {
+
+        private final HashAssociationValueMap delegate = new HashAssociationValueMap();
+
+        @Override
+        public void add(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
+            delegate.add(associationValue, sagaType, sagaIdentifier);
+        }
+
+        @Override
+        public void remove(AssociationValue associationValue, String sagaType, String sagaIdentifier) {
+            delegate.remove(associationValue, sagaType, sagaIdentifier);
+        }
+
+        @Override
+        public int findSagas(String sagaType, AssociationValue associationValue) {
+            return delegate.findSagas(sagaType, associationValue).size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import org.axonframework.saga.AssociationValue;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class HashAssociationValueMapTest {
+
+    private HashAssociationValueMap testSubject;
+
+    @Before
+    public void setUp() throws Exception {
+        testSubject = new HashAssociationValueMap();
+    }
+
+    @Test
+    public void testStoreVarietyOfItems() {
+        assertTrue(testSubject.isEmpty());
+
+        testSubject.add(av("1"), "T", "1");
+        testSubject.add(av("1"), "T", "1");
+        assertEquals("Wrong count after adding an object twice", 1, testSubject.size());
+        testSubject.add(av("2"), "T", "1");
+        assertEquals("Wrong count after adding two objects", 2, testSubject.size());
+        testSubject.add(av("a"), "T", "1");
+        testSubject.add(av("a"), "T", "1");
+        assertEquals("Wrong count after adding two identical Strings", 3, testSubject.size());
+        testSubject.add(av("b"), "T", "1");
+        assertEquals("Wrong count after adding two identical Strings", 4, testSubject.size());
+
+        testSubject.add(av("a"), "T", "2");
+        testSubject.add(av("a"), "Y", "2");
+        assertEquals("Wrong count after adding two identical Strings for different saga", 6, testSubject.size());
+        assertEquals(2, testSubject.findSagas("T", av("a")).size());
+        assertEquals(1, testSubject.findSagas("Y", av("a")).size());
+        assertTrue(testSubject.findSagas("Y", av("b")).isEmpty());
+    }
+
+    @Test
+    public void testRemoveItems() {
+        testStoreVarietyOfItems();
+        assertEquals("Wrong initial item count", 6, testSubject.size());
+        testSubject.remove(av("a"), "T", "1");
+        assertEquals("Wrong item count", 5, testSubject.size());
+        testSubject.remove(av("a"), "T", "2");
+        assertEquals("Wrong item count", 4, testSubject.size());
+        assertTrue(testSubject.findSagas("T", av("a")).isEmpty());
+
+        testSubject.add(av("a"), "T", "3");
+        assertEquals(1, testSubject.findSagas("T", av("a")).size());
+
+        testSubject.clear();
+        assertTrue(testSubject.isEmpty());
+        assertEquals("Wrong item count", 0, testSubject.size());
+        assertTrue(testSubject.findSagas("T", av("a")).isEmpty());
+    }
+
+    @Test
+    public void testFindAssociations() {
+        List<AssociationValue> usedAssociations = new ArrayList<AssociationValue>(1000);
+        for (int t = 0; t < 1000; t++) {
+            String key = UUID.randomUUID().toString();
+            for (int i = 0; i < 10; i++) {
+                AssociationValue associationValue = new AssociationValue(key, UUID.randomUUID().toString());
+                if (usedAssociations.size() < 1000) {
+                    usedAssociations.add(associationValue);
+                }
+                testSubject.add(associationValue, "type", key);
+            }
+        }
+
+        assertEquals(10000, testSubject.size());
+        for (AssociationValue item : usedAssociations) {
+            Set<String> actualResult = testSubject.findSagas("type", item);
+            assertEquals("Failure on item: " + usedAssociations.indexOf(item), 1, actualResult.size());
+            assertEquals(item.getKey(), actualResult.iterator().next());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentlyAddAndRemoveSameAssociationValue() throws Exception {
+        final int threadCount = 4;
+        final int iterations = 10000;
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (int t = 0; t < threadCount; t++) {
+            final String sagaIdentifier = "saga" + t;
+            results.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < iterations; i++) {
+                        testSubject.add(av("shared"), "T", sagaIdentifier);
+                        assertTrue(testSubject.findSagas("T", av("shared")).contains(sagaIdentifier));
+                        testSubject.remove(av("shared"), "T", sagaIdentifier);
+                    }
+                    testSubject.add(av("shared"), "T", sagaIdentifier);
+                }
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(threadCount, testSubject.size());
+        assertEquals(threadCount, testSubject.findSagas("T", av("shared")).size());
+    }
+
+    private AssociationValue av(String value) {
+        return new AssociationValue("key", value);
+    }
+}
@@ -16,14 +16,18 @@
 
 package org.axonframework.saga.repository;
 
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.Saga;
 import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
 import org.junit.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static java.util.Collections.singleton;
 import static org.junit.Assert.*;
 
 /**
@@ -81,7 +85,113 @@ public class SagaCacheTest {
         assertNull(testSubject.get(UUID.randomUUID().toString()));
     }
 
+    @Test
+    public void testFindSagasByAssociationValue() {
+        AssociationValue associationValue = new AssociationValue("key", "value");
+        SimpleSaga associatedSaga = new SimpleSaga();
+        associatedSaga.getAssociationValues().add(associationValue);
+        SubSaga associatedSubSaga = new SubSaga();
+        associatedSubSaga.getAssociationValues().add(associationValue);
+        OtherSaga associatedOtherSaga = new OtherSaga();
+        associatedOtherSaga.getAssociationValues().add(associationValue);
+        SimpleSaga unrelatedSaga = new SimpleSaga();
+
+        testSubject.put(associatedSaga);
+        testSubject.put(associatedSubSaga);
+        testSubject.put(associatedOtherSaga);
+        testSubject.put(unrelatedSaga);
+
+        Set<SimpleSaga> simpleSagas = testSubject.find(SimpleSaga.class, associationValue);
+        assertEquals(2, simpleSagas.size());
+        assertTrue(simpleSagas.contains(associatedSaga));
+        assertTrue(simpleSagas.contains(associatedSubSaga));
+        assertEquals(singleton(associatedSubSaga), testSubject.find(SubSaga.class, associationValue));
+        assertEquals(3, testSubject.find(Saga.class, associationValue).size());
+        assertTrue(testSubject.find(SimpleSaga.class, new AssociationValue("key", "other")).isEmpty());
+    }
+
+    @Test
+    public void testIndexFollowsChangesInAssociationValues() {
+        AssociationValue associationValue = new AssociationValue("key", "value");
+        SimpleSaga saga = new SimpleSaga();
+        testSubject.put(saga);
+        assertTrue(testSubject.find(SimpleSaga.class, associationValue).isEmpty());
+
+        saga.getAssociationValues().add(associationValue);
+        assertEquals(singleton(saga), testSubject.find(SimpleSaga.class, associationValue));
+
+        saga.getAssociationValues().remove(associationValue);
+        assertTrue(testSubject.find(SimpleSaga.class, associationValue).isEmpty());
+    }
+
+    @Test
+    public void testDuplicateSagaIsNotIndexed() {
+        AssociationValue associationValue = new AssociationValue("key", "value");
+        SimpleSaga saga = new SimpleSaga();
+        testSubject.put(saga);
+        SimpleSaga duplicate = new SimpleSaga(saga.getSagaIdentifier());
+
+        assertSame(saga, testSubject.put(duplicate));
+        duplicate.getAssociationValues().add(associationValue);
+        assertTrue(testSubject.find(SimpleSaga.class, associationValue).isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testIndexConsistentWithConcurrentAddAndRemove() throws Throwable {
+        final AssociationValue associationValue = new AssociationValue("key", "value");
+        final AtomicReference<Throwable> exception = new AtomicReference<Throwable>();
+        final int iterations = 10000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int c = 0; c < 4; c++) {
+            final SimpleSaga saga = new SimpleSaga();
+            testSubject.put(saga);
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < iterations && exception.get() == null; i++) {
+                        saga.getAssociationValues().add(associationValue);
+                        assertTrue("Saga missing from index",
+                                   testSubject.find(SimpleSaga.class, associationValue).contains(saga));
+                        saga.getAssociationValues().remove(associationValue);
+                    }
+                }
+            });
+            t.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException(Thread t, Throwable e) {
+                    exception.set(e);
+                }
+            });
+            threads.add(t);
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Throwable caughtException = exception.get();
+        if (caughtException != null) {
+            throw caughtException;
+        }
+        assertTrue(testSubject.find(SimpleSaga.class, associationValue).isEmpty());
+    }
+
     public static class SimpleSaga extends AbstractAnnotatedSaga {
 
+        public SimpleSaga() {
+        }
+
+        public SimpleSaga(String identifier) {
+            super(identifier);
+        }
+    }
+
+    public static class SubSaga extends SimpleSaga {
+
+    }
+
+    public static class OtherSaga extends AbstractAnnotatedSaga {
+
     }
 }
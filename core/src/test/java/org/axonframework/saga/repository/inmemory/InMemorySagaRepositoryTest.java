@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository.inmemory;
+
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.NoSuchSagaException;
+import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
+import org.junit.*;
+
+import static java.util.Collections.singleton;
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class InMemorySagaRepositoryTest {
+
+    private InMemorySagaRepository testSubject;
+    private AssociationValue associationValue;
+
+    @Before
+    public void setUp() {
+        testSubject = new InMemorySagaRepository();
+        associationValue = new AssociationValue("key", "value");
+    }
+
+    @Test
+    public void testFindSagaByAssociationValue() {
+        StubSaga saga = new StubSaga();
+        saga.associateWith(associationValue);
+        testSubject.add(saga);
+        testSubject.add(new StubSaga());
+        testSubject.add(new OtherStubSaga());
+
+        assertEquals(3, testSubject.size());
+        assertEquals(singleton(saga), testSubject.find(StubSaga.class, associationValue));
+        assertTrue(testSubject.find(OtherStubSaga.class, associationValue).isEmpty());
+        assertSame(saga, testSubject.load(StubSaga.class, saga.getSagaIdentifier()));
+    }
+
+    @Test
+    public void testFindSagaAfterAssociationValuesChanged() {
+        StubSaga saga = new StubSaga();
+        testSubject.add(saga);
+        assertTrue(testSubject.find(StubSaga.class, associationValue).isEmpty());
+
+        saga.associateWith(associationValue);
+        assertEquals(singleton(saga), testSubject.find(StubSaga.class, associationValue));
+
+        saga.removeAssociationWith(associationValue);
+        assertTrue(testSubject.find(StubSaga.class, associationValue).isEmpty());
+    }
+
+    @Test
+    public void testEndedSagaIsRemoved() {
+        StubSaga saga = new StubSaga();
+        saga.associateWith(associationValue);
+        testSubject.add(saga);
+
+        saga.end();
+        testSubject.commit(saga);
+
+        assertEquals(0, testSubject.size());
+        assertTrue(testSubject.find(StubSaga.class, associationValue).isEmpty());
+        try {
+            testSubject.load(StubSaga.class, saga.getSagaIdentifier());
+            fail("Expected NoSuchSagaException");
+        } catch (NoSuchSagaException e) {
+            // expected
+        }
+    }
+
+    public static class StubSaga extends AbstractAnnotatedSaga {
+
+        @Override
+        public void associateWith(AssociationValue property) {
+            super.associateWith(property);
+        }
+
+        @Override
+        public void removeAssociationWith(AssociationValue property) {
+            super.removeAssociationWith(property);
+        }
+
+        @Override
+        public void end() {
+            super.end();
+        }
+    }
+
+    public static class OtherStubSaga extends AbstractAnnotatedSaga {
+
+    }
+}
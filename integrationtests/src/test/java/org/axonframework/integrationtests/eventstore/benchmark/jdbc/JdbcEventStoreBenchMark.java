@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.integrationtests.eventstore.benchmark.jdbc;
+
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.jdbc.JdbcEventStore;
+import org.axonframework.integrationtests.eventstore.benchmark.AbstractEventStoreBenchmark;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the Event Store benchmark against the {@link JdbcEventStore}, which accesses the database without the
+ * overhead of a JPA persistence context. Compare the results with those of the {@link
+ * org.axonframework.integrationtests.eventstore.benchmark.jpa.JpaEventStoreBenchMark}.
+ *
+ * @author Allard Buijze
+ */
+public class JdbcEventStoreBenchMark extends AbstractEventStoreBenchmark {
+
+    private JdbcEventStore jdbcEventStore;
+    private PlatformTransactionManager transactionManager;
+
+    public static void main(String[] args) throws Exception {
+        AbstractEventStoreBenchmark benchmark = prepareBenchMark("META-INF/spring/benchmark-jdbc-context.xml");
+        benchmark.startBenchMark();
+    }
+
+    public JdbcEventStoreBenchMark(JdbcEventStore jdbcEventStore, PlatformTransactionManager transactionManager) {
+        this.jdbcEventStore = jdbcEventStore;
+        this.transactionManager = transactionManager;
+    }
+
+    @Override
+    protected void prepareEventStore() {
+        try {
+            jdbcEventStore.createSchema();
+        } catch (EventStoreException e) {
+            // the tables probably exist already
+        }
+    }
+
+    @Override
+    protected Runnable getRunnableInstance() {
+        return new TransactionalBenchmark();
+    }
+
+    private class TransactionalBenchmark implements Runnable {
+
+        @Override
+        public void run() {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            final UUID aggregateId = UUID.randomUUID();
+            // the inner class forces us into a final variable, hence the AtomicInteger
+            final AtomicInteger eventSequence = new AtomicInteger(0);
+            for (int t = 0; t < getTransactionCount(); t++) {
+                template.execute(new TransactionCallbackWithoutResult() {
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        assertFalse(status.isRollbackOnly());
+                        eventSequence.set(saveAndLoadLargeNumberOfEvents(aggregateId,
+                                                                         jdbcEventStore,
+                                                                         eventSequence.get()));
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2010-2012. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.integrationtests.eventstore.benchmark.jpa;
+
+import org.axonframework.eventstore.jpa.JpaEventStore;
+import org.axonframework.integrationtests.eventstore.benchmark.AbstractEventStoreBenchmark;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Runs the JPA Event Store benchmark using the {@link org.axonframework.eventstore.jpa.JdbcBatchingEventEntryStore},
+ * which writes all events of an appended stream as a single JDBC batch. Compare the results with those of the {@link
+ * JpaEventStoreBenchMark}.
+ *
+ * @author Allard Buijze
+ */
+public class JdbcBatchingJpaEventStoreBenchMark extends JpaEventStoreBenchMark {
+
+    public static void main(String[] args) throws Exception {
+        AbstractEventStoreBenchmark benchmark = prepareBenchMark("META-INF/spring/benchmark-jpa-batching-context.xml");
+        benchmark.startBenchMark();
+    }
+
+    public JdbcBatchingJpaEventStoreBenchMark(JpaEventStore jpaEventStore,
+                                              PlatformTransactionManager transactionManager) {
+        super(jpaEventStore, transactionManager);
+    }
+}
@@ -24,7 +24,8 @@ import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.eventstore.management.Criteria;
-import org.axonframework.eventstore.management.EventStoreManagement;
+import org.axonframework.eventstore.management.PartitionedEventDispatcher;
+import org.axonframework.eventstore.management.PartitionedEventStoreManagement;
 import org.axonframework.eventstore.mongo.criteria.MongoCriteria;
 import org.axonframework.eventstore.mongo.criteria.MongoCriteriaBuilder;
 import org.axonframework.serializer.Serializer;
@@ -39,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 import javax.annotation.PostConstruct;
 
 /**
@@ -51,9 +53,11 @@ import javax.annotation.PostConstruct;
  * @author Jettro Coenradie
  * @since 2.0 (in incubator since 0.7)
  */
-public class MongoEventStore implements SnapshotEventStore, EventStoreManagement, UpcasterAware {
+public class MongoEventStore implements SnapshotEventStore, PartitionedEventStoreManagement, UpcasterAware {
 
     private static final Logger logger = LoggerFactory.getLogger(MongoEventStore.class);
+    // the property under which both storage strategies store the aggregate identifier
+    private static final String AGGREGATE_IDENTIFIER_PROPERTY = "aggregateIdentifier";
 
     private final MongoTemplate mongoTemplate;
 
@@ -171,6 +175,39 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
         }
     }
 
+    @Override
+    public void visitEvents(List<? extends EventVisitor> partitionVisitors, Executor executor) {
+        visitEvents(null, partitionVisitors, executor);
+    }
+
+    @Override
+    public void visitEvents(Criteria criteria, List<? extends EventVisitor> partitionVisitors, Executor executor) {
+        PartitionedEventDispatcher<DBObject> dispatcher =
+                new PartitionedEventDispatcher<DBObject>(partitionVisitors, executor) {
+                    @Override
+                    protected void visit(DBObject entry, EventVisitor visitor) {
+                        for (DomainEventMessage event : storageStrategy.extractEventMessages(
+                                entry, null, eventSerializer, upcasterChain)) {
+                            visitor.doWithEvent(event);
+                        }
+                    }
+                };
+        DBCursor cursor = storageStrategy.findEvents(mongoTemplate.domainEventCollection(),
+                                                     (MongoCriteria) criteria);
+        try {
+            while (cursor.hasNext()) {
+                DBObject entry = cursor.next();
+                dispatcher.dispatch(entry.get(AGGREGATE_IDENTIFIER_PROPERTY), entry);
+            }
+        } catch (RuntimeException e) {
+            dispatcher.cancel();
+            throw e;
+        } finally {
+            cursor.close();
+        }
+        dispatcher.awaitCompletion();
+    }
+
     @Override
     public MongoCriteriaBuilder newCriteriaBuilder() {
         return new MongoCriteriaBuilder();
@@ -46,8 +46,12 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.isA;
@@ -224,6 +228,28 @@ public class MongoEventStoreTest {
         verify(eventVisitor, times(100)).doWithEvent(isA(DomainEventMessage.class));
     }
 
+    @Test
+    public void testVisitAllEvents_InPartitions() {
+        testSubject.appendEvents("type1", new SimpleDomainEventStream(createDomainEvents(77)));
+        testSubject.appendEvents("type1", new SimpleDomainEventStream(createDomainEvents(23)));
+        testSubject.appendEvents("type2", new SimpleDomainEventStream(createDomainEvents(40)));
+
+        List<OrderVerifyingVisitor> visitors = Arrays.asList(new OrderVerifyingVisitor(),
+                                                             new OrderVerifyingVisitor(),
+                                                             new OrderVerifyingVisitor());
+        ExecutorService executor = Executors.newFixedThreadPool(visitors.size());
+        try {
+            testSubject.visitEvents(visitors, executor);
+        } finally {
+            executor.shutdown();
+        }
+        int total = 0;
+        for (OrderVerifyingVisitor visitor : visitors) {
+            total += visitor.counter;
+        }
+        assertEquals(140, total);
+    }
+
     @Test
     public void testVisitEvents_AfterTimestamp() {
         EventVisitor eventVisitor = mock(EventVisitor.class);
@@ -298,6 +324,20 @@ public class MongoEventStoreTest {
         return events;
     }
 
+    private static class OrderVerifyingVisitor implements EventVisitor {
+
+        private final Map<Object, Long> lastSequenceNumbers = new HashMap<Object, Long>();
+        private int counter;
+
+        @Override
+        public void doWithEvent(DomainEventMessage domainEvent) {
+            Long previous = lastSequenceNumbers.put(domainEvent.getAggregateIdentifier(),
+                                                    domainEvent.getSequenceNumber());
+            assertEquals(previous == null ? 0L : previous + 1, domainEvent.getSequenceNumber());
+            counter++;
+        }
+    }
+
     private static class StubAggregateRoot extends AbstractAnnotatedAggregateRoot {
 
         private final UUID identifier;